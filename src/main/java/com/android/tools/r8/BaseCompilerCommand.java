@@ -26,6 +26,7 @@ import com.android.tools.r8.utils.PartitionMapZipContainer;
 import com.android.tools.r8.utils.ProgramConsumerUtils;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.TimingExporter;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -67,6 +68,7 @@ public abstract class BaseCompilerCommand extends BaseCommand {
   private final List<StartupProfileProvider> startupProfileProviders;
   private final ClassConflictResolver classConflictResolver;
   private final CancelCompilationChecker cancelCompilationChecker;
+  private final TimingExporter timingExporter;
 
   BaseCompilerCommand(boolean printHelp, boolean printVersion) {
     super(printHelp, printVersion);
@@ -90,6 +92,7 @@ public abstract class BaseCompilerCommand extends BaseCommand {
     startupProfileProviders = null;
     classConflictResolver = null;
     cancelCompilationChecker = null;
+    timingExporter = null;
   }
 
   BaseCompilerCommand(
@@ -113,7 +116,8 @@ public abstract class BaseCompilerCommand extends BaseCommand {
       List<ArtProfileForRewriting> artProfilesForRewriting,
       List<StartupProfileProvider> startupProfileProviders,
       ClassConflictResolver classConflictResolver,
-      CancelCompilationChecker cancelCompilationChecker) {
+      CancelCompilationChecker cancelCompilationChecker,
+      TimingExporter timingExporter) {
     super(app);
     assert minApiLevel > 0;
     assert mode != null;
@@ -137,6 +141,7 @@ public abstract class BaseCompilerCommand extends BaseCommand {
     this.startupProfileProviders = startupProfileProviders;
     this.classConflictResolver = classConflictResolver;
     this.cancelCompilationChecker = cancelCompilationChecker;
+    this.timingExporter = timingExporter;
   }
 
   /**
@@ -253,6 +258,10 @@ public abstract class BaseCompilerCommand extends BaseCommand {
     return cancelCompilationChecker;
   }
 
+  TimingExporter getTimingExporter() {
+    return timingExporter;
+  }
+
   DumpInputFlags getDumpInputFlags() {
     return dumpInputFlags;
   }
@@ -298,6 +307,7 @@ public abstract class BaseCompilerCommand extends BaseCommand {
     private final List<StartupProfileProvider> startupProfileProviders = new ArrayList<>();
     private ClassConflictResolver classConflictResolver = null;
     private CancelCompilationChecker cancelCompilationChecker = null;
+    private TimingExporter timingExporter = null;
 
     abstract CompilationMode defaultCompilationMode();
 
@@ -782,6 +792,40 @@ public abstract class BaseCompilerCommand extends BaseCommand {
       return cancelCompilationChecker;
     }
 
+    /**
+     * Set a consumer for a machine-readable report of the time spent in each phase of the
+     * compilation.
+     *
+     * <p>The report has the wall time, CPU time, thread, peak heap, allocated bytes and GC time of
+     * each phase. Collecting the report adds a small overhead to the compilation.
+     *
+     * @param format Format of the report.
+     * @param consumer Consumer receiving the report when the compilation has completed.
+     */
+    public B setTimingReportConsumer(TimingReportFormat format, StringConsumer consumer) {
+      this.timingExporter = consumer == null ? null : new TimingExporter(format, consumer);
+      return self();
+    }
+
+    /**
+     * Set an output path for a machine-readable report of the time spent in each phase of the
+     * compilation.
+     *
+     * <p>Setting the output path will override any previous set consumer or any previous output
+     * path.
+     *
+     * @param format Format of the report.
+     * @param outputPath File to write the report to when the compilation has completed.
+     */
+    public B setTimingReportOutputPath(TimingReportFormat format, Path outputPath) {
+      assert outputPath != null;
+      return setTimingReportConsumer(format, new StringConsumer.FileConsumer(outputPath));
+    }
+
+    TimingExporter getTimingExporter() {
+      return timingExporter;
+    }
+
     /**
      * Allow to skip to dump into file and dump into directory instruction, this is primarily used
      * for chained compilation in L8 so there are no duplicated dumps.
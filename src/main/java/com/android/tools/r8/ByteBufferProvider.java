@@ -35,4 +35,15 @@ public interface ByteBufferProvider {
   default void releaseByteBuffer(ByteBuffer buffer) {
     // Implicitly reclaimed by GC.
   }
+
+  /**
+   * Returns true if this provider uses the default buffer management of this interface.
+   *
+   * <p>The compiler may then reuse the released buffers internally instead of acquiring buffers
+   * from this provider. A provider that overrides {@link #acquireByteBuffer} or {@link
+   * #releaseByteBuffer} must return false.
+   */
+  default boolean usesDefaultByteBufferManagement() {
+    return false;
+  }
 }
@@ -10,6 +10,7 @@ import com.android.tools.r8.androidapi.ApiReferenceStubber;
 import com.android.tools.r8.dex.ApplicationReader;
 import com.android.tools.r8.dex.ApplicationWriter;
 import com.android.tools.r8.dex.Marker;
+import com.android.tools.r8.dexingcache.DexingCacheSession;
 import com.android.tools.r8.graph.AppInfo;
 import com.android.tools.r8.graph.AppServices;
 import com.android.tools.r8.graph.AppView;
@@ -201,7 +202,18 @@ public final class D8 {
       System.out.println("D8 is running with max memory:" + runtime.maxMemory());
     }
     Timing timing = Timing.create("D8 " + Version.LABEL, options);
+    DexingCacheSession dexingCacheSession = null;
     try {
+      if (options.dexingCache != null) {
+        timing.begin("Dexing cache lookup");
+        dexingCacheSession = options.dexingCache.createSession(inputApp, options);
+        if (dexingCacheSession != null) {
+          options.testing.dexingCacheSessionConsumer.accept(dexingCacheSession);
+          // Only the inputs without a valid cache entry are compiled.
+          inputApp = dexingCacheSession.getApplicationToCompile();
+        }
+        timing.end();
+      }
       timing.begin("Pre conversion");
       // Synthetic assertion to check that testing assertions works and can be enabled.
       assert forTesting(options, () -> !options.testing.testEnableTestAssertions);
@@ -330,10 +342,18 @@ public final class D8 {
       } else {
         ApplicationWriter.create(appView, marker).write(executor, inputApp);
       }
+      if (dexingCacheSession != null) {
+        timing.begin("Dexing cache commit");
+        dexingCacheSession.commit(options);
+        timing.end();
+      }
       options.printWarnings();
     } catch (ExecutionException e) {
       throw unwrapExecutionException(e);
     } finally {
+      if (options.timingExporter != null) {
+        options.timingExporter.export(timing, options.reporter);
+      }
       inputApp.signalFinishedToProviders(options.reporter);
       options.signalFinishedToConsumers();
       // Dump timings.
@@ -7,6 +7,7 @@ import static com.android.tools.r8.utils.InternalOptions.DETERMINISTIC_DEBUGGING
 import static com.android.tools.r8.utils.MapConsumerUtils.wrapExistingMapConsumerIfNotNull;
 
 import com.android.tools.r8.dex.Marker.Tool;
+import com.android.tools.r8.dexingcache.DexingCache;
 import com.android.tools.r8.dump.DumpOptions;
 import com.android.tools.r8.errors.DexFileOverflowDiagnostic;
 import com.android.tools.r8.graph.DexItemFactory;
@@ -37,6 +38,7 @@ import com.android.tools.r8.utils.ProgramClassCollection;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.TimingExporter;
 import com.google.common.collect.ImmutableList;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -100,6 +102,8 @@ public final class D8Command extends BaseCompilerCommand {
     private boolean minimalMainDex = false;
     private final List<ProguardConfigurationSource> mainDexRules = new ArrayList<>();
     private boolean enableMissingLibraryApiModeling = false;
+    private Path dexingCacheDirectory = null;
+    private long dexingCacheMaxSizeInBytes = DexingCache.DEFAULT_MAX_SIZE_IN_BYTES;
 
     private Builder() {
       this(new DefaultD8DiagnosticsHandler());
@@ -410,12 +414,41 @@ public final class D8Command extends BaseCompilerCommand {
       return self();
     }
 
+    /**
+     * Set a directory for caching the results of dexing individual classes across compilations.
+     *
+     * <p>The cache is only supported for intermediate compilations of class files with a {@link
+     * DexFilePerClassFileConsumer} that combines synthetic classes with their primary class. The
+     * directory can be shared by concurrent compilations.
+     *
+     * @param dexingCacheDirectory Directory of the cache, created if it does not exist.
+     */
+    public Builder setDexingCacheDirectory(Path dexingCacheDirectory) {
+      this.dexingCacheDirectory = dexingCacheDirectory;
+      return self();
+    }
+
+    /**
+     * Set the maximum size of the dexing cache.
+     *
+     * <p>When the cache exceeds the size, the least recently used entries are evicted.
+     *
+     * @param maxSizeInBytes Maximum size of the cache in bytes.
+     */
+    public Builder setDexingCacheMaxSizeInBytes(long maxSizeInBytes) {
+      this.dexingCacheMaxSizeInBytes = maxSizeInBytes;
+      return self();
+    }
+
     @Override
     void validate() {
       if (isPrintHelp()) {
         return;
       }
       Reporter reporter = getReporter();
+      if (dexingCacheDirectory != null) {
+        validateDexingCache(reporter);
+      }
       if (getAppBuilder().hasMainDexList()) {
         if (intermediate) {
           reporter.error("Option --main-dex-list cannot be used with --intermediate");
@@ -468,6 +501,35 @@ public final class D8Command extends BaseCompilerCommand {
       super.validate();
     }
 
+    private void validateDexingCache(Reporter reporter) {
+      if (!(getProgramConsumer() instanceof DexFilePerClassFileConsumer)
+          || !((DexFilePerClassFileConsumer) getProgramConsumer())
+              .combineSyntheticClassesWithPrimaryClass()) {
+        reporter.error(
+            "The dexing cache requires a DexFilePerClassFileConsumer that combines synthetic"
+                + " classes with their primary class");
+      }
+      if (dexingCacheMaxSizeInBytes <= 0) {
+        reporter.error("The dexing cache size must be positive");
+      }
+      if (desugarGraphConsumer != null) {
+        reporter.error("The dexing cache cannot be used with a desugar graph consumer");
+      }
+      if (syntheticInfoConsumer != null) {
+        reporter.error("The dexing cache cannot be used with a synthetic info consumer");
+      }
+      if (proguardMapConsumer != null || partitionMapConsumer != null) {
+        reporter.error("The dexing cache cannot be used with a mapping output");
+      }
+      if (!getAssertionsConfiguration().isEmpty() || !getOutputInspections().isEmpty()) {
+        reporter.error(
+            "The dexing cache cannot be used with assertion configurations or output inspections");
+      }
+      if (!getArtProfilesForRewriting().isEmpty() || !getStartupProfileProviders().isEmpty()) {
+        reporter.error("The dexing cache cannot be used with ART or startup profiles");
+      }
+    }
+
     @Override
     D8Command makeCommand() {
       if (isPrintHelp() || isPrintVersion()) {
@@ -523,11 +585,14 @@ public final class D8Command extends BaseCompilerCommand {
           proguardMapConsumer,
           partitionMapConsumer,
           enableMissingLibraryApiModeling,
+          dexingCacheDirectory,
+          dexingCacheMaxSizeInBytes,
           getAndroidPlatformBuild(),
           getArtProfilesForRewriting(),
           getStartupProfileProviders(),
           getClassConflictResolver(),
           getCancelCompilationChecker(),
+          getTimingExporter(),
           factory);
     }
   }
@@ -545,6 +610,8 @@ public final class D8Command extends BaseCompilerCommand {
   private final StringConsumer proguardMapConsumer;
   private final PartitionMapConsumer partitionMapConsumer;
   private final boolean enableMissingLibraryApiModeling;
+  private final Path dexingCacheDirectory;
+  private final long dexingCacheMaxSizeInBytes;
   private final DexItemFactory factory;
 
   public static Builder builder() {
@@ -621,11 +688,14 @@ public final class D8Command extends BaseCompilerCommand {
       StringConsumer proguardMapConsumer,
       PartitionMapConsumer partitionMapConsumer,
       boolean enableMissingLibraryApiModeling,
+      Path dexingCacheDirectory,
+      long dexingCacheMaxSizeInBytes,
       boolean isAndroidPlatformBuild,
       List<ArtProfileForRewriting> artProfilesForRewriting,
       List<StartupProfileProvider> startupProfileProviders,
       ClassConflictResolver classConflictResolver,
       CancelCompilationChecker cancelCompilationChecker,
+      TimingExporter timingExporter,
       DexItemFactory factory) {
     super(
         inputApp,
@@ -648,7 +718,8 @@ public final class D8Command extends BaseCompilerCommand {
         artProfilesForRewriting,
         startupProfileProviders,
         classConflictResolver,
-        cancelCompilationChecker);
+        cancelCompilationChecker,
+        timingExporter);
     this.intermediate = intermediate;
     this.globalSyntheticsConsumer = globalSyntheticsConsumer;
     this.syntheticInfoConsumer = syntheticInfoConsumer;
@@ -662,6 +733,8 @@ public final class D8Command extends BaseCompilerCommand {
     this.proguardMapConsumer = proguardMapConsumer;
     this.partitionMapConsumer = partitionMapConsumer;
     this.enableMissingLibraryApiModeling = enableMissingLibraryApiModeling;
+    this.dexingCacheDirectory = dexingCacheDirectory;
+    this.dexingCacheMaxSizeInBytes = dexingCacheMaxSizeInBytes;
     this.factory = factory;
   }
 
@@ -680,6 +753,8 @@ public final class D8Command extends BaseCompilerCommand {
     proguardMapConsumer = null;
     partitionMapConsumer = null;
     enableMissingLibraryApiModeling = false;
+    dexingCacheDirectory = null;
+    dexingCacheMaxSizeInBytes = 0;
     factory = null;
   }
 
@@ -792,10 +867,16 @@ public final class D8Command extends BaseCompilerCommand {
             getClassConflictResolver(), internal.reporter);
 
     internal.cancelCompilationChecker = getCancelCompilationChecker();
+    internal.timingExporter = getTimingExporter();
 
     internal.tool = Tool.D8;
     internal.setDumpInputFlags(getDumpInputFlags());
     internal.dumpOptions = dumpOptions();
+    if (dexingCacheDirectory != null) {
+      internal.dexingCache =
+          DexingCache.create(
+              dexingCacheDirectory, dexingCacheMaxSizeInBytes, internal.dumpOptions);
+    }
 
     return internal;
   }
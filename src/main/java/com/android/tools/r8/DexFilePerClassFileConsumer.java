@@ -203,6 +203,11 @@ public interface DexFilePerClassFileConsumer extends ProgramConsumer, ByteBuffer
       outputBuilder.close(handler);
     }
 
+    @Override
+    public boolean usesDefaultByteBufferManagement() {
+      return true;
+    }
+
     @Override
     public Path internalGetOutputPath() {
       return outputBuilder.getPath();
@@ -285,6 +290,11 @@ public interface DexFilePerClassFileConsumer extends ProgramConsumer, ByteBuffer
       super.finished(handler);
     }
 
+    @Override
+    public boolean usesDefaultByteBufferManagement() {
+      return true;
+    }
+
     @Override
     public Path internalGetOutputPath() {
       return outputBuilder.getPath();
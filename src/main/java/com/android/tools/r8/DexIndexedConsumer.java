@@ -205,6 +205,11 @@ public interface DexIndexedConsumer extends ProgramConsumer, ByteBufferProvider
       }
     }
 
+    @Override
+    public boolean usesDefaultByteBufferManagement() {
+      return true;
+    }
+
     @Override
     public Path internalGetOutputPath() {
       return outputBuilder.getPath();
@@ -311,6 +316,11 @@ public interface DexIndexedConsumer extends ProgramConsumer, ByteBufferProvider
       FileUtils.writeToFile(target, null, contents);
     }
 
+    @Override
+    public boolean usesDefaultByteBufferManagement() {
+      return true;
+    }
+
     @Override
     public Path internalGetOutputPath() {
       return outputBuilder.getPath();
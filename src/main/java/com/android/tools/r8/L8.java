@@ -155,6 +155,9 @@ public class L8 {
     } catch (ExecutionException e) {
       throw unwrapExecutionException(e);
     } finally {
+      if (options.timingExporter != null) {
+        options.timingExporter.export(timing, options.reporter);
+      }
       inputApp.signalFinishedToProviders(options.reporter);
       options.signalFinishedToConsumers();
       // Dump timings.
@@ -27,6 +27,7 @@ import com.android.tools.r8.utils.ProgramClassCollection;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.TimingExporter;
 import com.google.common.collect.ImmutableList;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -103,6 +104,7 @@ public final class L8Command extends BaseCompilerCommand {
       MapIdProvider mapIdProvider,
       ClassConflictResolver classConflictResolver,
       CancelCompilationChecker cancelCompilationChecker,
+      TimingExporter timingExporter,
       DexItemFactory factory) {
     super(
         inputApp,
@@ -125,7 +127,8 @@ public final class L8Command extends BaseCompilerCommand {
         Collections.emptyList(),
         Collections.emptyList(),
         classConflictResolver,
-        cancelCompilationChecker);
+        cancelCompilationChecker,
+        timingExporter);
     this.d8Command = d8Command;
     this.r8Command = r8Command;
     this.desugaredLibrarySpecification = desugaredLibrarySpecification;
@@ -230,6 +233,7 @@ public final class L8Command extends BaseCompilerCommand {
             getClassConflictResolver(), internal.reporter);
 
     internal.cancelCompilationChecker = getCancelCompilationChecker();
+    internal.timingExporter = getTimingExporter();
 
     if (!DETERMINISTIC_DEBUGGING) {
       assert internal.threadCount == ThreadUtils.NOT_SPECIFIED;
@@ -463,6 +467,7 @@ public final class L8Command extends BaseCompilerCommand {
           getMapIdProvider(),
           getClassConflictResolver(),
           getCancelCompilationChecker(),
+          getTimingExporter(),
           factory);
     }
   }
@@ -841,6 +841,10 @@ public class R8 {
     } catch (ExecutionException e) {
       throw unwrapExecutionException(e);
     } finally {
+      options.testing.addCacheStatistics(timing);
+      if (options.timingExporter != null) {
+        options.timingExporter.export(timing, options.reporter);
+      }
       inputApp.signalFinishedToProviders(options.reporter);
       options.signalFinishedToConsumers();
       // Dump timings.
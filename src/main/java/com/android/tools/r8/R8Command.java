@@ -53,6 +53,7 @@ import com.android.tools.r8.utils.SetUtils;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.StringUtils;
 import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.TimingExporter;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import java.io.InputStream;
@@ -684,6 +685,7 @@ public final class R8Command extends BaseCompilerCommand {
               getStartupProfileProviders(),
               getClassConflictResolver(),
               getCancelCompilationChecker(),
+              getTimingExporter(),
               androidResourceProvider,
               androidResourceConsumer);
 
@@ -970,6 +972,7 @@ public final class R8Command extends BaseCompilerCommand {
       List<StartupProfileProvider> startupProfileProviders,
       ClassConflictResolver classConflictResolver,
       CancelCompilationChecker cancelCompilationChecker,
+      TimingExporter timingExporter,
       AndroidResourceProvider androidResourceProvider,
       AndroidResourceConsumer androidResourceConsumer) {
     super(
@@ -993,7 +996,8 @@ public final class R8Command extends BaseCompilerCommand {
         artProfilesForRewriting,
         startupProfileProviders,
         classConflictResolver,
-        cancelCompilationChecker);
+        cancelCompilationChecker,
+        timingExporter);
     assert proguardConfiguration != null;
     assert mainDexKeepRules != null;
     this.mainDexKeepRules = mainDexKeepRules;
@@ -1215,6 +1219,7 @@ public final class R8Command extends BaseCompilerCommand {
             getClassConflictResolver(), internal.reporter);
 
     internal.cancelCompilationChecker = getCancelCompilationChecker();
+    internal.timingExporter = getTimingExporter();
 
     internal.androidResourceProvider = androidResourceProvider;
     internal.androidResourceConsumer = androidResourceConsumer;
@@ -0,0 +1,13 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8;
+
+/** Format of the report of the time and memory spent in each phase of a compilation. */
+@Keep
+public enum TimingReportFormat {
+  /** A JSON object with the tree of phases and their metrics. */
+  JSON,
+  /** The trace event format, which can be loaded in chrome://tracing or Perfetto. */
+  CHROME_TRACE
+}
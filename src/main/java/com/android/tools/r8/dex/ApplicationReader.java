@@ -337,7 +337,9 @@ public class ApplicationReader {
       List<DexParser<DexProgramClass>> dexParsers = new ArrayList<>(dexSources.size());
       AndroidApiLevel computedMinApiLevel = options.getMinApiLevel();
       for (ProgramResource input : dexSources) {
-        DexReader dexReader = new DexReader(input);
+        DexReader dexReader =
+            DexReader.create(
+                input, options.memoryMapDexInputs && !options.testing.dexContainerExperiment);
         if (options.passthroughDexCode) {
           if (!options.testing.dexContainerExperiment) {
             computedMinApiLevel = validateOrComputeMinApiLevel(computedMinApiLevel, dexReader);
@@ -80,6 +80,7 @@ import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -100,6 +101,7 @@ public class ApplicationWriter {
   private final CodeToKeep desugaredLibraryCodeToKeep;
   private final Predicate<DexType> isTypeMissing;
   private final Optional<Marker> currentMarker;
+  private final PooledByteBufferProvider outputBufferPool;
   public Collection<Marker> previousMarkers;
   public List<DexString> markerStrings;
   public Set<VirtualFile> globalSyntheticFiles;
@@ -185,6 +187,10 @@ public class ApplicationWriter {
     this.isTypeMissing =
         PredicateUtils.isNull(appView.appInfo()::definitionForWithoutExistenceAssert);
     this.previousMarkers = appView.dexItemFactory().extractMarkers();
+    this.outputBufferPool =
+        options.dexOutputBufferPoolSizeInBytes > 0
+            ? new PooledByteBufferProvider(options.dexOutputBufferPoolSizeInBytes)
+            : null;
   }
 
   public static ApplicationWriter create(AppView<?> appView, Marker marker) {
@@ -392,36 +398,19 @@ public class ApplicationWriter {
       appView.appInfo().classes().forEach((clazz) -> clazz.addDependencies(sortAnnotations));
       timing.end();
 
-      {
-        // Compute offsets and rewrite jumbo strings so that code offsets are fixed.
-        TimingMerger merger = timing.beginMerger("Pre-write phase", executorService);
-        Collection<Timing> timings =
-            rewriteJumboStringsAndComputeDebugRepresentation(
-                executorService, virtualFiles, lazyDexStrings);
-        merger.add(timings);
-        merger.end();
-      }
-
-      // Now that the instruction offsets in each code object are fixed, compute the mapping file
-      // content.
-      if (willComputeProguardMap()) {
-        // TODO(b/220999985): Refactor line number optimization to be per file and thread it above.
-        DebugRepresentationPredicate representation =
-            DebugRepresentation.fromFiles(virtualFiles, options);
-        delayedProguardMapId.set(
-            runAndWriteMap(inputApp, appView, timing, originalSourceFiles, representation));
-      }
-
-      // With the mapping id/hash known, it is safe to compute the remaining dex strings.
-      timing.begin("Compute lazy strings");
-      List<DexString> forcedStrings = new ArrayList<>();
-      for (LazyDexString lazyDexString : lazyDexStrings) {
-        forcedStrings.add(lazyDexString.compute());
+      if (canWriteVirtualFilesIndependently()) {
+        assert lazyDexStrings.isEmpty();
+        writeVirtualFilesIndependently(executorService, virtualFiles, timing);
+      } else {
+        writeVirtualFilesAfterPreWritePhase(
+            executorService,
+            inputApp,
+            virtualFiles,
+            lazyDexStrings,
+            delayedProguardMapId,
+            originalSourceFiles,
+            timing);
       }
-      timing.end();
-
-      // Write the actual dex code.
-      writeVirtualFiles(executorService, virtualFiles, forcedStrings, timing);
 
       // A consumer can manage the generated keep rules.
       if (options.desugaredLibraryKeepRuleConsumer != null && !desugaredLibraryCodeToKeep.isNop()) {
@@ -439,6 +428,85 @@ public class ApplicationWriter {
     }
   }
 
+  // Writes the files independently of each other. This requires that no file depends on the
+  // result of the pre-write phase of the other files, which is the case when each file is written
+  // to its own dex file and no mapping file is computed. Interleaving the pre-write phase with the
+  // writing allows releasing the object mapping of each file once it has been written, so that the
+  // number of live object mappings is bounded by the number of threads instead of the number of
+  // files.
+  protected boolean canWriteVirtualFilesIndependently() {
+    return programConsumer == null
+        && options.isGeneratingDexFilePerClassFile()
+        && !willComputeProguardMap()
+        && options.testing.enableWritingVirtualFilesIndependently;
+  }
+
+  private void writeVirtualFilesIndependently(
+      ExecutorService executorService, List<VirtualFile> virtualFiles, Timing timing)
+      throws ExecutionException {
+    TimingMerger merger = timing.beginMerger("Compute offsets and write files", executorService);
+    Collection<List<Timing>> timings =
+        ThreadUtils.processItemsWithResults(
+            virtualFiles,
+            virtualFile -> {
+              Timing preWriteTiming =
+                  rewriteJumboStringsAndComputeDebugRepresentation(
+                      virtualFile, Collections.emptyList());
+              Timing writeTiming = Timing.create("VirtualFile " + virtualFile.getId(), options);
+              writeVirtualFile(virtualFile, writeTiming, Collections.emptyList());
+              virtualFile.releaseObjectMapping();
+              writeTiming.end();
+              return ImmutableList.of(preWriteTiming, writeTiming);
+            },
+            executorService);
+    timings.forEach(merger::add);
+    merger.end();
+    if (globalsSyntheticsConsumer != null) {
+      globalsSyntheticsConsumer.finished(appView);
+    }
+  }
+
+  private void writeVirtualFilesAfterPreWritePhase(
+      ExecutorService executorService,
+      AndroidApp inputApp,
+      List<VirtualFile> virtualFiles,
+      List<LazyDexString> lazyDexStrings,
+      Box<ProguardMapId> delayedProguardMapId,
+      OriginalSourceFiles originalSourceFiles,
+      Timing timing)
+      throws ExecutionException {
+    {
+      // Compute offsets and rewrite jumbo strings so that code offsets are fixed.
+      TimingMerger merger = timing.beginMerger("Pre-write phase", executorService);
+      Collection<Timing> timings =
+          rewriteJumboStringsAndComputeDebugRepresentation(
+              executorService, virtualFiles, lazyDexStrings);
+      merger.add(timings);
+      merger.end();
+    }
+
+    // Now that the instruction offsets in each code object are fixed, compute the mapping file
+    // content.
+    if (willComputeProguardMap()) {
+      // TODO(b/220999985): Refactor line number optimization to be per file and thread it above.
+      DebugRepresentationPredicate representation =
+          DebugRepresentation.fromFiles(virtualFiles, options);
+      delayedProguardMapId.set(
+          runAndWriteMap(inputApp, appView, timing, originalSourceFiles, representation));
+    }
+
+    // With the mapping id/hash known, it is safe to compute the remaining dex strings.
+    timing.begin("Compute lazy strings");
+    List<DexString> forcedStrings = new ArrayList<>();
+    for (LazyDexString lazyDexString : lazyDexStrings) {
+      forcedStrings.add(lazyDexString.compute());
+    }
+    timing.end();
+
+    // Write the actual dex code.
+    writeVirtualFiles(executorService, virtualFiles, forcedStrings, timing);
+  }
+
   private void computeMarkerStrings(
       Box<ProguardMapId> delayedProguardMapId, List<LazyDexString> lazyDexStrings) {
     List<Marker> allMarkers = new ArrayList<>();
@@ -605,6 +673,10 @@ public class ApplicationWriter {
       }
     }
 
+    if (outputBufferPool != null) {
+      byteBufferProvider = outputBufferPool.getProviderFor(byteBufferProvider);
+    }
+
     timing.begin("Reindex for lazy strings");
     ObjectToOffsetMapping objectMapping = virtualFile.getObjectMapping();
     objectMapping.computeAndReindexForLazyDexStrings(forcedStrings);
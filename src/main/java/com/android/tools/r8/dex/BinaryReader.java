@@ -23,9 +23,13 @@ public abstract class BinaryReader {
   }
 
   protected BinaryReader(Origin origin, byte[] bytes) {
+    this(origin, CompatByteBuffer.wrap(bytes));
+  }
+
+  protected BinaryReader(Origin origin, CompatByteBuffer buffer) {
     assert origin != null;
     this.origin = origin;
-    buffer = CompatByteBuffer.wrap(bytes);
+    this.buffer = buffer;
   }
 
   public Origin getOrigin() {
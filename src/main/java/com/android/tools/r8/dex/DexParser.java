@@ -78,7 +78,6 @@ import it.unimi.dsi.fastutil.ints.Int2IntArrayMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2LongMap;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ShortBuffer;
@@ -1280,13 +1279,14 @@ public class DexParser<T extends DexClass> {
     final int offset = stringIDs[index];
     dexReader.position(offset);
     int size = dexReader.getUleb128();
-    ByteArrayOutputStream os = new ByteArrayOutputStream();
-    byte read;
-    do {
-      read = dexReader.get();
-      os.write(read);
-    } while (read != 0);
-    byte[] content = os.toByteArray();
+    // Find the terminating zero and read the content including it in one bulk read.
+    int start = dexReader.position();
+    int end = start;
+    while (dexReader.get() != 0) {
+      end++;
+    }
+    dexReader.position(start);
+    byte[] content = dexReader.getByteArray(end - start + 1);
     return Marker.hasMarkerPrefix(content)
         ? dexItemFactory.createMarkerString(size, content)
         : dexItemFactory.createString(size, content);
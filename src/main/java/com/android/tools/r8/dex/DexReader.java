@@ -9,11 +9,16 @@ import com.android.tools.r8.ProgramResource;
 import com.android.tools.r8.ResourceException;
 import com.android.tools.r8.errors.CompilationError;
 import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.origin.PathOrigin;
 import com.android.tools.r8.utils.DexVersion;
 import com.android.tools.r8.utils.StringUtils;
 import java.io.IOException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
 
 /**
@@ -43,6 +48,36 @@ public class DexReader extends BinaryReader {
     version = parseMagic(buffer, offset);
   }
 
+  private DexReader(Origin origin, CompatByteBuffer buffer) {
+    super(origin, buffer);
+    version = parseMagic(buffer, 0);
+  }
+
+  /**
+   * Creates a reader for the given resource.
+   *
+   * <p>If {@code memoryMap} is set and the resource is a file then the file is memory mapped
+   * instead of being read into a byte array on the heap. The mapping is released when the reader
+   * is no longer reachable.
+   */
+  public static DexReader create(ProgramResource resource, boolean memoryMap)
+      throws ResourceException, IOException {
+    if (memoryMap
+        && resource instanceof ProgramResource.FileResource
+        && resource.getOrigin() instanceof PathOrigin) {
+      Path file = ((PathOrigin) resource.getOrigin()).getPath();
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        long size = channel.size();
+        if (size <= Integer.MAX_VALUE) {
+          return new DexReader(
+              resource.getOrigin(),
+              new CompatByteBuffer(channel.map(MapMode.READ_ONLY, 0, size)));
+        }
+      }
+    }
+    return new DexReader(resource);
+  }
+
   // Parse the magic header and determine the dex file version.
   private DexVersion parseMagic(CompatByteBuffer buffer, int offset) {
     try {
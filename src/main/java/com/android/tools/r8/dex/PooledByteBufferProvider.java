@@ -0,0 +1,82 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import com.android.tools.r8.ByteBufferProvider;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Byte buffer provider that reuses the buffers released after writing a DEX file for writing the
+ * subsequent DEX files.
+ *
+ * <p>Each DEX file is written to a heap buffer that is grown by reallocation. Without reuse, all of
+ * these buffers are garbage once the file is passed to its consumer. The pool hands out the largest
+ * released buffer first, such that a reused buffer rarely needs to grow.
+ */
+class PooledByteBufferProvider implements ByteBufferProvider {
+
+  private final long maxPooledBytes;
+
+  // Guarded by this.
+  private final List<ByteBuffer> pool = new ArrayList<>();
+  private long pooledBytes = 0;
+
+  PooledByteBufferProvider(long maxPooledBytes) {
+    this.maxPooledBytes = maxPooledBytes;
+  }
+
+  /**
+   * Returns the pool if the given provider uses the default buffer management, and otherwise the
+   * given provider, since its buffers must be released to it.
+   */
+  ByteBufferProvider getProviderFor(ByteBufferProvider provider) {
+    return provider.usesDefaultByteBufferManagement() ? this : provider;
+  }
+
+  @Override
+  public ByteBuffer acquireByteBuffer(int capacity) {
+    ByteBuffer buffer = takeLargest();
+    if (buffer == null || buffer.capacity() < capacity) {
+      // Drop a buffer that is too small. It is replaced by the newly allocated buffer when that is
+      // released.
+      return ByteBuffer.allocate(capacity);
+    }
+    // The writer skips over padding without writing it, so the content of the previous file must be
+    // cleared for the output to be deterministic.
+    int offset = buffer.arrayOffset();
+    Arrays.fill(buffer.array(), offset, offset + buffer.capacity(), (byte) 0);
+    // Use the Buffer type for JDK 8 compatibility, see CompatByteBuffer.
+    ((Buffer) buffer).clear();
+    return buffer;
+  }
+
+  @Override
+  public synchronized void releaseByteBuffer(ByteBuffer buffer) {
+    if (pooledBytes + buffer.capacity() <= maxPooledBytes) {
+      pool.add(buffer);
+      pooledBytes += buffer.capacity();
+    }
+  }
+
+  private synchronized ByteBuffer takeLargest() {
+    if (pool.isEmpty()) {
+      return null;
+    }
+    int largestIndex = 0;
+    for (int i = 1; i < pool.size(); i++) {
+      if (pool.get(i).capacity() > pool.get(largestIndex).capacity()) {
+        largestIndex = i;
+      }
+    }
+    ByteBuffer buffer = pool.get(largestIndex);
+    pool.set(largestIndex, pool.get(pool.size() - 1));
+    pool.remove(pool.size() - 1);
+    pooledBytes -= buffer.capacity();
+    return buffer;
+  }
+}
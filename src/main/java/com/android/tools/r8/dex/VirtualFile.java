@@ -213,6 +213,11 @@ public class VirtualFile {
     return objectMapping;
   }
 
+  /** Releases the object mapping once the file has been written. */
+  public void releaseObjectMapping() {
+    objectMapping = null;
+  }
+
   public void computeMapping(
       AppView<?> appView,
       int lazyDexStringsCount,
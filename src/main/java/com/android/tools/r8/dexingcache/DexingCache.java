@@ -0,0 +1,201 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dexingcache;
+
+import com.android.tools.r8.Version;
+import com.android.tools.r8.dump.DumpOptions;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent content addressed cache of D8 per-class dexing results.
+ *
+ * <p>Each entry is stored in its own file in the cache directory. The name of the file is the
+ * content hash of the class-file input combined with a fingerprint of the compiler and the
+ * compilation configuration. Entries are written to a temporary file and atomically moved into
+ * place, so concurrent D8 processes sharing the cache directory will only ever observe complete
+ * entries. The total size of the cache is bounded by evicting the least recently used entries,
+ * where the last modified time of an entry is updated each time it is used.
+ */
+public class DexingCache {
+
+  public static final long DEFAULT_MAX_SIZE_IN_BYTES = 1L << 30;
+
+  private static final String ENTRY_EXTENSION = ".entry";
+  private static final String TEMPORARY_EXTENSION = ".tmp";
+
+  // Temporary files older than this are left behind by processes that did not complete.
+  private static final long STALE_TEMPORARY_FILE_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  // Evict entries down to this fraction of the maximum size to avoid evicting on each store.
+  private static final double EVICTION_TARGET_FRACTION = 0.9;
+
+  private final Path directory;
+  private final long maxSizeInBytes;
+  private final String configurationFingerprint;
+
+  private DexingCache(Path directory, long maxSizeInBytes, String configurationFingerprint) {
+    this.directory = directory;
+    this.maxSizeInBytes = maxSizeInBytes;
+    this.configurationFingerprint = configurationFingerprint;
+  }
+
+  public static DexingCache create(
+      Path directory, long maxSizeInBytes, DumpOptions dumpOptions) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(Version.getVersionString(), StandardCharsets.UTF_8);
+    for (Map.Entry<String, String> property : dumpOptions.getBuildProperties().entrySet()) {
+      // The number of threads does not affect the compilation output.
+      if (!property.getKey().equals(DumpOptions.THREAD_COUNT_KEY)) {
+        hasher.putString(property.getKey(), StandardCharsets.UTF_8);
+        hasher.putString(property.getValue(), StandardCharsets.UTF_8);
+      }
+    }
+    String desugaredLibraryJsonSource = dumpOptions.getDesugaredLibraryJsonSource();
+    if (desugaredLibraryJsonSource != null) {
+      hasher.putString(desugaredLibraryJsonSource, StandardCharsets.UTF_8);
+    }
+    return new DexingCache(directory, maxSizeInBytes, hasher.hash().toString());
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  public String getConfigurationFingerprint() {
+    return configurationFingerprint;
+  }
+
+  public DexingCacheSession createSession(AndroidApp app, InternalOptions options)
+      throws IOException {
+    Files.createDirectories(directory);
+    return DexingCacheSession.create(this, app, options);
+  }
+
+  /** Returns the entry for the given key or null if no valid entry exists. */
+  public DexingCacheEntry lookup(String key) {
+    Path entryFile = getEntryFile(key);
+    byte[] data;
+    try {
+      data = Files.readAllBytes(entryFile);
+    } catch (IOException e) {
+      // The entry does not exist or was evicted concurrently.
+      return null;
+    }
+    DexingCacheEntry entry = DexingCacheEntry.deserialize(data);
+    if (entry != null) {
+      markUsed(entryFile);
+    }
+    return entry;
+  }
+
+  public void store(String key, DexingCacheEntry entry) throws IOException {
+    Path entryFile = getEntryFile(key);
+    Path temporaryFile = Files.createTempFile(directory, key, TEMPORARY_EXTENSION);
+    try {
+      Files.write(temporaryFile, entry.serialize());
+      try {
+        Files.move(
+            temporaryFile,
+            entryFile,
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporaryFile, entryFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+  }
+
+  /**
+   * Evicts the least recently used entries until the cache is within its size bound.
+   *
+   * <p>This may run concurrently with lookups and evictions in other processes. A lookup of an
+   * entry that is deleted concurrently is simply a cache miss.
+   */
+  public void evict() throws IOException {
+    List<Path> entries = new ArrayList<>();
+    List<FileTime> lastModifiedTimes = new ArrayList<>();
+    List<Long> sizes = new ArrayList<>();
+    long totalSize = 0;
+    long now = System.currentTimeMillis();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path file : stream) {
+        BasicFileAttributes attributes;
+        try {
+          attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+          continue;
+        }
+        String name = file.getFileName().toString();
+        if (name.endsWith(TEMPORARY_EXTENSION)) {
+          if (now - attributes.lastModifiedTime().toMillis() > STALE_TEMPORARY_FILE_AGE_MILLIS) {
+            Files.deleteIfExists(file);
+          }
+        } else if (name.endsWith(ENTRY_EXTENSION)) {
+          entries.add(file);
+          lastModifiedTimes.add(attributes.lastModifiedTime());
+          sizes.add(attributes.size());
+          totalSize += attributes.size();
+        }
+      }
+    }
+    if (totalSize <= maxSizeInBytes) {
+      return;
+    }
+    List<Integer> leastRecentlyUsedFirst = new ArrayList<>(entries.size());
+    for (int i = 0; i < entries.size(); i++) {
+      leastRecentlyUsedFirst.add(i);
+    }
+    leastRecentlyUsedFirst.sort(Comparator.comparing(lastModifiedTimes::get));
+    long targetSize = (long) (maxSizeInBytes * EVICTION_TARGET_FRACTION);
+    for (int index : leastRecentlyUsedFirst) {
+      if (totalSize <= targetSize) {
+        break;
+      }
+      Files.deleteIfExists(entries.get(index));
+      totalSize -= sizes.get(index);
+    }
+  }
+
+  String computeKey(byte[] classFileData, String applicationFingerprint) {
+    return Hashing.sha256()
+        .newHasher()
+        .putString(configurationFingerprint, StandardCharsets.UTF_8)
+        .putString(applicationFingerprint, StandardCharsets.UTF_8)
+        .putBytes(classFileData)
+        .hash()
+        .toString();
+  }
+
+  private Path getEntryFile(String key) {
+    return directory.resolve(key + ENTRY_EXTENSION);
+  }
+
+  private static void markUsed(Path entryFile) {
+    try {
+      Files.setLastModifiedTime(entryFile, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      // Recording the use is best effort, the entry may have been evicted concurrently.
+    }
+  }
+}
@@ -0,0 +1,160 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dexingcache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The cached result of dexing a single class-file input in a D8 intermediate compilation to
+ * DexFilePerClassFile output.
+ *
+ * <p>An entry holds the DEX file produced for the input (including the synthetics that are combined
+ * with the primary class), the global synthetics data produced for the input, if any, and the
+ * desugaring dependencies of the input along with the content hash that each dependency had at the
+ * time the entry was created. An entry is only valid for a compilation if all of its dependencies
+ * still have the recorded content.
+ */
+public class DexingCacheEntry {
+
+  private static final int FORMAT_VERSION = 1;
+
+  /** A desugaring dependency of a cached input and its content hash when the entry was created. */
+  public static class Dependency {
+
+    private final String descriptor;
+    private final boolean isProgram;
+    private final String contentHash;
+
+    public Dependency(String descriptor, boolean isProgram, String contentHash) {
+      this.descriptor = descriptor;
+      this.isProgram = isProgram;
+      this.contentHash = contentHash;
+    }
+
+    public String getDescriptor() {
+      return descriptor;
+    }
+
+    public boolean isProgram() {
+      return isProgram;
+    }
+
+    public String getContentHash() {
+      return contentHash;
+    }
+  }
+
+  private final List<Dependency> dependencies;
+  private final Set<String> descriptors;
+  private final byte[] dexData;
+  private final byte[] globalSyntheticsData;
+
+  public DexingCacheEntry(
+      List<Dependency> dependencies,
+      Set<String> descriptors,
+      byte[] dexData,
+      byte[] globalSyntheticsData) {
+    assert dexData != null;
+    this.dependencies = dependencies;
+    this.descriptors = descriptors;
+    this.dexData = dexData;
+    this.globalSyntheticsData = globalSyntheticsData;
+  }
+
+  public List<Dependency> getDependencies() {
+    return dependencies;
+  }
+
+  public Set<String> getDescriptors() {
+    return descriptors;
+  }
+
+  public byte[] getDexData() {
+    return dexData;
+  }
+
+  public boolean hasGlobalSyntheticsData() {
+    return globalSyntheticsData != null;
+  }
+
+  public byte[] getGlobalSyntheticsData() {
+    return globalSyntheticsData;
+  }
+
+  public byte[] serialize() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(dexData.length + 256);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(dependencies.size());
+      for (Dependency dependency : dependencies) {
+        out.writeUTF(dependency.getDescriptor());
+        out.writeBoolean(dependency.isProgram());
+        out.writeUTF(dependency.getContentHash());
+      }
+      out.writeInt(descriptors.size());
+      for (String descriptor : descriptors) {
+        out.writeUTF(descriptor);
+      }
+      writeBytes(out, dexData);
+      out.writeBoolean(hasGlobalSyntheticsData());
+      if (hasGlobalSyntheticsData()) {
+        writeBytes(out, globalSyntheticsData);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /** Returns the deserialized entry or null if the data is not a valid entry. */
+  public static DexingCacheEntry deserialize(byte[] data) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+      if (in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      int numberOfDependencies = in.readInt();
+      List<Dependency> dependencies = new ArrayList<>(numberOfDependencies);
+      for (int i = 0; i < numberOfDependencies; i++) {
+        dependencies.add(new Dependency(in.readUTF(), in.readBoolean(), in.readUTF()));
+      }
+      int numberOfDescriptors = in.readInt();
+      Set<String> descriptors = new LinkedHashSet<>(numberOfDescriptors);
+      for (int i = 0; i < numberOfDescriptors; i++) {
+        descriptors.add(in.readUTF());
+      }
+      byte[] dexData = readBytes(in);
+      byte[] globalSyntheticsData = in.readBoolean() ? readBytes(in) : null;
+      if (in.available() != 0) {
+        return null;
+      }
+      return new DexingCacheEntry(
+          dependencies, Collections.unmodifiableSet(descriptors), dexData, globalSyntheticsData);
+    } catch (IOException | RuntimeException e) {
+      // A truncated or otherwise corrupted entry is treated as a cache miss.
+      return null;
+    }
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > in.available()) {
+      throw new IOException("Invalid length: " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+}
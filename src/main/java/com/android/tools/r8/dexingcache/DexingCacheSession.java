@@ -0,0 +1,519 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dexingcache;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.ClassFileResourceProvider;
+import com.android.tools.r8.DataResourceProvider;
+import com.android.tools.r8.DesugarGraphConsumer;
+import com.android.tools.r8.DexFilePerClassFileConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.GlobalSyntheticsConsumer;
+import com.android.tools.r8.ProgramResource;
+import com.android.tools.r8.ProgramResource.Kind;
+import com.android.tools.r8.ProgramResourceProvider;
+import com.android.tools.r8.ResourceException;
+import com.android.tools.r8.dexingcache.DexingCacheEntry.Dependency;
+import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.references.ClassReference;
+import com.android.tools.r8.references.Reference;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.DescriptorUtils;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.StringDiagnostic;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * A single D8 compilation using a {@link DexingCache}.
+ *
+ * <p>Upon creation all class-file inputs are looked up in the cache. An entry is only used if all
+ * of the desugaring dependencies recorded for it still have the same content. The inputs that are
+ * found in the cache are removed from the program and instead added to the classpath, such that
+ * the remaining inputs can still be desugared against them.
+ *
+ * <p>During compilation of the remaining inputs the DEX output, global synthetics output and
+ * desugaring dependencies are recorded for each input. When the compilation has been written the
+ * recorded results are stored in the cache and the cached results are passed to the consumers.
+ */
+public class DexingCacheSession {
+
+  private static class ProgramInput {
+
+    private final String descriptor;
+    private final Origin origin;
+    private final byte[] bytes;
+    private final String contentHash;
+    private final String key;
+
+    private ProgramInput(
+        String descriptor, Origin origin, byte[] bytes, String contentHash, String key) {
+      this.descriptor = descriptor;
+      this.origin = origin;
+      this.bytes = bytes;
+      this.contentHash = contentHash;
+      this.key = key;
+    }
+
+    ProgramResource createResource() {
+      return ProgramResource.fromBytes(origin, Kind.CF, bytes, Collections.singleton(descriptor));
+    }
+  }
+
+  private static class DexOutput {
+
+    private final byte[] data;
+    private final Set<String> descriptors;
+
+    private DexOutput(byte[] data, Set<String> descriptors) {
+      this.data = data;
+      this.descriptors = descriptors;
+    }
+  }
+
+  private final DexingCache cache;
+  private final AndroidApp inputApp;
+
+  private final Map<String, ProgramInput> programInputs;
+  private final Map<Origin, String> programOrigins;
+  private final Map<ProgramInput, DexingCacheEntry> cachedInputs;
+  private final List<ProgramInput> uncachedInputs;
+  private final boolean hasDuplicateInputs;
+
+  private final DexFilePerClassFileConsumer programConsumer;
+  private final GlobalSyntheticsConsumer globalSyntheticsConsumer;
+
+  // Results recorded for the uncached inputs during compilation.
+  private final Map<Origin, String> classpathOrigins = new ConcurrentHashMap<>();
+  private final Map<String, Set<String>> dependencies = new ConcurrentHashMap<>();
+  private final Set<String> uncacheable = ConcurrentHashMap.newKeySet();
+  private final Map<String, DexOutput> dexOutputs = new ConcurrentHashMap<>();
+  private final Map<String, byte[]> globalSyntheticsOutputs = new ConcurrentHashMap<>();
+
+  private final Map<String, String> classpathContentHashes = new HashMap<>();
+
+  // The global synthetics consumer is finished when the cached global synthetics have been passed
+  // to it in commit(), and not when the compilation finishes writing the uncached inputs.
+  private DiagnosticsHandler globalSyntheticsFinishedHandler = null;
+
+  private DexingCacheSession(
+      DexingCache cache,
+      AndroidApp inputApp,
+      Map<String, ProgramInput> programInputs,
+      Map<ProgramInput, DexingCacheEntry> cachedInputs,
+      List<ProgramInput> uncachedInputs,
+      boolean hasDuplicateInputs,
+      InternalOptions options) {
+    this.cache = cache;
+    this.inputApp = inputApp;
+    this.programInputs = programInputs;
+    this.cachedInputs = cachedInputs;
+    this.uncachedInputs = uncachedInputs;
+    this.hasDuplicateInputs = hasDuplicateInputs;
+    this.programOrigins = new HashMap<>();
+    programInputs.values().forEach(input -> programOrigins.put(input.origin, input.descriptor));
+    this.programConsumer = options.getDexFilePerClassFileConsumer();
+    this.globalSyntheticsConsumer = options.getGlobalSyntheticsConsumer();
+  }
+
+  static DexingCacheSession create(DexingCache cache, AndroidApp app, InternalOptions options)
+      throws IOException {
+    try {
+      List<ProgramResource> resources = new ArrayList<>();
+      for (ProgramResourceProvider provider : app.getProgramResourceProviders()) {
+        resources.addAll(provider.getProgramResources());
+      }
+      for (ProgramResource resource : resources) {
+        if (resource.getKind() != Kind.CF) {
+          options.reporter.warning(
+              new StringDiagnostic(
+                  "The dexing cache is not used for compilations with DEX inputs",
+                  resource.getOrigin()));
+          return null;
+        }
+      }
+      List<byte[]> resourceBytes = new ArrayList<>(resources.size());
+      List<String> resourceDescriptors = new ArrayList<>(resources.size());
+      for (ProgramResource resource : resources) {
+        byte[] bytes = resource.getBytes();
+        resourceBytes.add(bytes);
+        resourceDescriptors.add(getDescriptor(resource, bytes));
+      }
+      String applicationFingerprint = computeApplicationFingerprint(app, resourceDescriptors);
+      List<ProgramInput> inputs = new ArrayList<>(resources.size());
+      Map<String, ProgramInput> programInputs = new HashMap<>();
+      for (int i = 0; i < resources.size(); i++) {
+        byte[] bytes = resourceBytes.get(i);
+        ProgramInput input =
+            new ProgramInput(
+                resourceDescriptors.get(i),
+                resources.get(i).getOrigin(),
+                bytes,
+                computeContentHash(bytes),
+                cache.computeKey(bytes, applicationFingerprint));
+        inputs.add(input);
+        programInputs.put(input.descriptor, input);
+      }
+      // If there are duplicate program classes then all inputs are compiled and no results are
+      // cached. The duplicates are reported by the compilation.
+      boolean hasDuplicateInputs = programInputs.size() != inputs.size();
+      Map<ProgramInput, DexingCacheEntry> cachedInputs = new LinkedHashMap<>();
+      List<ProgramInput> uncachedInputs = new ArrayList<>();
+      DexingCacheSession session =
+          new DexingCacheSession(
+              cache,
+              app,
+              programInputs,
+              cachedInputs,
+              uncachedInputs,
+              hasDuplicateInputs,
+              options);
+      for (ProgramInput input : inputs) {
+        DexingCacheEntry entry = hasDuplicateInputs ? null : cache.lookup(input.key);
+        if (entry != null && session.isValid(entry)) {
+          cachedInputs.put(input, entry);
+        } else {
+          uncachedInputs.add(input);
+        }
+      }
+      session.installConsumers(options);
+      return session;
+    } catch (ResourceException e) {
+      throw new CompilationError("Failed to read input for the dexing cache", e, e.getOrigin());
+    }
+  }
+
+  private static String getDescriptor(ProgramResource resource, byte[] bytes) {
+    Set<String> descriptors = resource.getClassDescriptors();
+    if (descriptors != null && descriptors.size() == 1) {
+      return descriptors.iterator().next();
+    }
+    return DescriptorUtils.getDescriptorFromClassBinaryName(new ClassReader(bytes).getClassName());
+  }
+
+  /**
+   * Fingerprint of the parts of the application that are not tracked as desugaring dependencies.
+   *
+   * <p>Desugaring dependencies are only reported for classes that are present, so the sets of
+   * program and classpath classes are part of the fingerprint, which ensures that adding or
+   * removing a class invalidates the entries that may have been compiled without it. The library
+   * can affect the compilation of any class. Library archives are fingerprinted by their path, size
+   * and last modified time, such that the library is not read on each compilation, and other
+   * library providers are fingerprinted by content.
+   */
+  private static String computeApplicationFingerprint(
+      AndroidApp app, Collection<String> programDescriptors)
+      throws IOException, ResourceException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    new TreeSet<>(programDescriptors)
+        .forEach(descriptor -> hasher.putString(descriptor, StandardCharsets.UTF_8));
+    for (ClassFileResourceProvider provider : app.getClasspathResourceProviders()) {
+      new TreeSet<>(provider.getClassDescriptors())
+          .forEach(descriptor -> hasher.putString(descriptor, StandardCharsets.UTF_8));
+    }
+    for (ClassFileResourceProvider provider : app.getLibraryResourceProviders()) {
+      Path archive = AndroidApp.getArchivePath(provider);
+      if (archive != null) {
+        BasicFileAttributes attributes = Files.readAttributes(archive, BasicFileAttributes.class);
+        hasher.putString(archive.toAbsolutePath().toString(), StandardCharsets.UTF_8);
+        hasher.putLong(attributes.size());
+        hasher.putLong(attributes.lastModifiedTime().toMillis());
+      }
+      for (String descriptor : new TreeSet<>(provider.getClassDescriptors())) {
+        hasher.putString(descriptor, StandardCharsets.UTF_8);
+        if (archive == null) {
+          ProgramResource resource = provider.getProgramResource(descriptor);
+          if (resource != null) {
+            hasher.putBytes(resource.getBytes());
+          }
+        }
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  private static String computeContentHash(byte[] bytes) {
+    return Hashing.sha256().hashBytes(bytes).toString();
+  }
+
+  private boolean isValid(DexingCacheEntry entry) throws ResourceException {
+    for (Dependency dependency : entry.getDependencies()) {
+      String contentHash;
+      if (dependency.isProgram()) {
+        ProgramInput input = programInputs.get(dependency.getDescriptor());
+        contentHash = input != null ? input.contentHash : null;
+      } else {
+        contentHash = getClasspathContentHash(dependency.getDescriptor());
+      }
+      if (!dependency.getContentHash().equals(contentHash)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String getClasspathContentHash(String descriptor) throws ResourceException {
+    if (classpathContentHashes.containsKey(descriptor)) {
+      return classpathContentHashes.get(descriptor);
+    }
+    String contentHash = null;
+    for (ClassFileResourceProvider provider : inputApp.getClasspathResourceProviders()) {
+      ProgramResource resource = provider.getProgramResource(descriptor);
+      if (resource != null) {
+        contentHash = computeContentHash(resource.getBytes());
+        break;
+      }
+    }
+    classpathContentHashes.put(descriptor, contentHash);
+    return contentHash;
+  }
+
+  private void installConsumers(InternalOptions options) {
+    options.programConsumer =
+        new DexFilePerClassFileConsumer.ForwardingConsumer(programConsumer) {
+          @Override
+          public void accept(
+              String primaryClassDescriptor,
+              ByteDataView data,
+              Set<String> descriptors,
+              DiagnosticsHandler handler) {
+            dexOutputs.put(
+                primaryClassDescriptor, new DexOutput(data.copyByteData(), descriptors));
+            super.accept(primaryClassDescriptor, data, descriptors, handler);
+          }
+        };
+    if (globalSyntheticsConsumer != null) {
+      options.setGlobalSyntheticsConsumer(
+          new GlobalSyntheticsConsumer() {
+            @Override
+            public void accept(
+                ByteDataView data, ClassReference context, DiagnosticsHandler handler) {
+              globalSyntheticsOutputs.put(context.getDescriptor(), data.copyByteData());
+              globalSyntheticsConsumer.accept(data, context, handler);
+            }
+
+            @Override
+            public void finished(DiagnosticsHandler handler) {
+              assert globalSyntheticsFinishedHandler == null;
+              globalSyntheticsFinishedHandler = handler;
+            }
+          });
+    }
+    assert options.desugarGraphConsumer == null;
+    options.desugarGraphConsumer =
+        new DesugarGraphConsumer() {
+          @Override
+          public void accept(Origin dependent, Origin dependency) {
+            String dependentDescriptor = programOrigins.get(dependent);
+            if (dependentDescriptor == null) {
+              return;
+            }
+            String dependencyDescriptor = programOrigins.get(dependency);
+            if (dependencyDescriptor == null) {
+              dependencyDescriptor = classpathOrigins.get(dependency);
+            }
+            if (dependencyDescriptor == null) {
+              uncacheable.add(dependentDescriptor);
+            } else {
+              dependencies
+                  .computeIfAbsent(dependentDescriptor, ignoreKey -> ConcurrentHashMap.newKeySet())
+                  .add(dependencyDescriptor);
+            }
+          }
+
+          @Override
+          public void finished() {}
+        };
+  }
+
+  public int getNumberOfCachedInputs() {
+    return cachedInputs.size();
+  }
+
+  public int getNumberOfUncachedInputs() {
+    return uncachedInputs.size();
+  }
+
+  /**
+   * Returns the application to compile, which has the uncached inputs as program and the cached
+   * inputs as additional classpath.
+   */
+  public AndroidApp getApplicationToCompile() {
+    List<ProgramResource> programResources = new ArrayList<>(uncachedInputs.size());
+    uncachedInputs.forEach(input -> programResources.add(input.createResource()));
+    ProgramResourceProvider programResourceProvider =
+        new ProgramResourceProvider() {
+          @Override
+          public Collection<ProgramResource> getProgramResources() {
+            return programResources;
+          }
+
+          @Override
+          public void finished(DiagnosticsHandler handler) throws IOException {
+            for (ProgramResourceProvider provider : inputApp.getProgramResourceProviders()) {
+              provider.finished(handler);
+            }
+          }
+        };
+    ImmutableList.Builder<ProgramResourceProvider> programResourceProviders =
+        ImmutableList.builder();
+    programResourceProviders.add(programResourceProvider);
+    // The data resources of the program inputs are passed through unchanged.
+    for (ProgramResourceProvider provider : inputApp.getProgramResourceProviders()) {
+      DataResourceProvider dataResourceProvider = provider.getDataResourceProvider();
+      if (dataResourceProvider != null) {
+        programResourceProviders.add(
+            new ProgramResourceProvider() {
+              @Override
+              public Collection<ProgramResource> getProgramResources() {
+                return Collections.emptyList();
+              }
+
+              @Override
+              public DataResourceProvider getDataResourceProvider() {
+                return dataResourceProvider;
+              }
+            });
+      }
+    }
+    Map<String, ProgramInput> cachedInputsByDescriptor = new HashMap<>();
+    cachedInputs.keySet().forEach(input -> cachedInputsByDescriptor.put(input.descriptor, input));
+    ImmutableList.Builder<ClassFileResourceProvider> classpathResourceProviders =
+        ImmutableList.builder();
+    classpathResourceProviders.add(
+        new ClassFileResourceProvider() {
+          @Override
+          public Set<String> getClassDescriptors() {
+            return cachedInputsByDescriptor.keySet();
+          }
+
+          @Override
+          public ProgramResource getProgramResource(String descriptor) {
+            ProgramInput input = cachedInputsByDescriptor.get(descriptor);
+            return input != null ? input.createResource() : null;
+          }
+        });
+    for (ClassFileResourceProvider provider : inputApp.getClasspathResourceProviders()) {
+      classpathResourceProviders.add(
+          new ClassFileResourceProvider() {
+            @Override
+            public Set<String> getClassDescriptors() {
+              return provider.getClassDescriptors();
+            }
+
+            @Override
+            public ProgramResource getProgramResource(String descriptor) {
+              ProgramResource resource = provider.getProgramResource(descriptor);
+              if (resource != null) {
+                classpathOrigins.put(resource.getOrigin(), descriptor);
+              }
+              return resource;
+            }
+
+            @Override
+            public void finished(DiagnosticsHandler handler) throws IOException {
+              provider.finished(handler);
+            }
+          });
+    }
+    return inputApp.withProgramAndClasspathResourceProviders(
+        programResourceProviders.build(), classpathResourceProviders.build());
+  }
+
+  /**
+   * Stores the results of the compiled inputs in the cache and passes the cached results to the
+   * consumers.
+   *
+   * <p>Failing to update the cache does not fail the compilation.
+   */
+  public void commit(InternalOptions options) {
+    cachedInputs.forEach(
+        (input, entry) -> {
+          programConsumer.accept(
+              input.descriptor,
+              ByteDataView.of(entry.getDexData()),
+              entry.getDescriptors(),
+              options.reporter);
+          if (globalSyntheticsConsumer != null && entry.hasGlobalSyntheticsData()) {
+            globalSyntheticsConsumer.accept(
+                ByteDataView.of(entry.getGlobalSyntheticsData()),
+                Reference.classFromDescriptor(input.descriptor),
+                options.reporter);
+          }
+        });
+    if (globalSyntheticsFinishedHandler != null) {
+      globalSyntheticsConsumer.finished(globalSyntheticsFinishedHandler);
+    }
+    if (hasDuplicateInputs) {
+      return;
+    }
+    // Without a global synthetics consumer the global synthetics are written as program output
+    // that cannot be attributed to a single input, in which case no results are cached.
+    for (String primaryClassDescriptor : dexOutputs.keySet()) {
+      if (!programInputs.containsKey(primaryClassDescriptor)) {
+        return;
+      }
+    }
+    try {
+      for (ProgramInput input : uncachedInputs) {
+        DexingCacheEntry entry = createEntry(input);
+        if (entry != null) {
+          cache.store(input.key, entry);
+        }
+      }
+      cache.evict();
+    } catch (IOException | ResourceException e) {
+      options.reporter.warning(
+          new StringDiagnostic(
+              "Failed to update the dexing cache in "
+                  + cache.getDirectory()
+                  + ": "
+                  + e.getMessage()));
+    }
+  }
+
+  private DexingCacheEntry createEntry(ProgramInput input) throws ResourceException {
+    DexOutput dexOutput = dexOutputs.get(input.descriptor);
+    if (dexOutput == null || uncacheable.contains(input.descriptor)) {
+      return null;
+    }
+    List<Dependency> entryDependencies = new ArrayList<>();
+    for (String descriptor :
+        new TreeSet<>(dependencies.getOrDefault(input.descriptor, Collections.emptySet()))) {
+      ProgramInput dependency = programInputs.get(descriptor);
+      if (dependency != null) {
+        entryDependencies.add(new Dependency(descriptor, true, dependency.contentHash));
+      } else {
+        String contentHash = getClasspathContentHash(descriptor);
+        if (contentHash == null) {
+          return null;
+        }
+        entryDependencies.add(new Dependency(descriptor, false, contentHash));
+      }
+    }
+    return new DexingCacheEntry(
+        entryDependencies,
+        dexOutput.descriptors,
+        dexOutput.data,
+        globalSyntheticsOutputs.get(input.descriptor));
+  }
+}
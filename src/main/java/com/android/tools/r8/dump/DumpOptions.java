@@ -40,7 +40,7 @@ public class DumpOptions {
   private static final String MIN_API_KEY = "min-api";
   private static final String OPTIMIZE_MULTIDEX_FOR_LINEAR_ALLOC_KEY =
       "optimize-multidex-for-linear-alloc";
-  private static final String THREAD_COUNT_KEY = "thread-count";
+  public static final String THREAD_COUNT_KEY = "thread-count";
   private static final String DESUGAR_STATE_KEY = "desugar-state";
   private static final String INTERMEDIATE_KEY = "intermediate";
   private static final String INCLUDE_DATA_RESOURCES_KEY = "include-data-resources";
@@ -65,6 +65,9 @@ public class AppInfoWithClassHierarchy extends AppInfo {
   // TODO(b/175659048): Consider hoisting to AppInfo to allow using MissingClasses in D8 desugar.
   private final MissingClasses missingClasses;
 
+  // Only present if enabled by TestingOptions#enableMethodResolutionCache.
+  private final MethodResolutionCache methodResolutionCache;
+
   // For AppInfoWithLiveness subclass.
   protected AppInfoWithClassHierarchy(
       CommittedItems committedItems,
@@ -74,6 +77,7 @@ public class AppInfoWithClassHierarchy extends AppInfo {
     super(committedItems, mainDexInfo);
     this.classToFeatureSplitMap = classToFeatureSplitMap;
     this.missingClasses = missingClasses;
+    this.methodResolutionCache = createMethodResolutionCache();
   }
 
   // For desugaring.
@@ -83,6 +87,13 @@ public class AppInfoWithClassHierarchy extends AppInfo {
     // TODO(b/175659048): Migrate the reporting of missing classes in D8 desugar to MissingClasses,
     //  and use the missing classes from AppInfo instead of MissingClasses.empty().
     this.missingClasses = MissingClasses.empty();
+    this.methodResolutionCache = createMethodResolutionCache();
+  }
+
+  private MethodResolutionCache createMethodResolutionCache() {
+    return options().testing.enableMethodResolutionCache
+        ? new MethodResolutionCache(options().testing.methodResolutionCacheStatistics)
+        : null;
   }
 
   public static AppInfoWithClassHierarchy createForDesugaring(AppInfo appInfo) {
@@ -900,6 +911,15 @@ public class AppInfoWithClassHierarchy extends AppInfo {
   public MethodResolutionResult resolveMethodOnClass(
       DexType holder, DexProto proto, DexString name) {
     assert checkIfObsolete();
+    if (methodResolutionCache != null) {
+      return methodResolutionCache.resolveMethodOnClass(
+          holder, proto, name, () -> internalResolveMethodOnClass(holder, proto, name));
+    }
+    return internalResolveMethodOnClass(holder, proto, name);
+  }
+
+  private MethodResolutionResult internalResolveMethodOnClass(
+      DexType holder, DexProto proto, DexString name) {
     return MethodResolution.create(
             this::contextIndependentDefinitionForWithResolutionResult, dexItemFactory())
         .resolveMethodOnClass(holder, proto, name);
@@ -930,9 +950,20 @@ public class AppInfoWithClassHierarchy extends AppInfo {
 
   public MethodResolutionResult resolveMethodOnInterface(DexType holder, DexMethod method) {
     assert checkIfObsolete();
+    DexProto proto = method.getProto();
+    DexString name = method.getName();
+    if (methodResolutionCache != null) {
+      return methodResolutionCache.resolveMethodOnInterface(
+          holder, proto, name, () -> internalResolveMethodOnInterface(holder, proto, name));
+    }
+    return internalResolveMethodOnInterface(holder, proto, name);
+  }
+
+  private MethodResolutionResult internalResolveMethodOnInterface(
+      DexType holder, DexProto proto, DexString name) {
     return MethodResolution.create(
             this::contextIndependentDefinitionForWithResolutionResult, dexItemFactory())
-        .resolveMethodOnInterface(holder, method.getProto(), method.getName());
+        .resolveMethodOnInterface(holder, proto, name);
   }
 
   public MethodResolutionResult resolveMethodOnInterface(DexClass clazz, DexMethod method) {
@@ -15,6 +15,7 @@ import com.android.tools.r8.graph.analysis.InitializedClassesInInstanceMethodsAn
 import com.android.tools.r8.graph.classmerging.MergedClassesCollection;
 import com.android.tools.r8.graph.classmerging.VerticallyMergedClasses;
 import com.android.tools.r8.graph.lens.GraphLens;
+import com.android.tools.r8.graph.lens.GraphLensLookupCache;
 import com.android.tools.r8.graph.lens.InitClassLens;
 import com.android.tools.r8.graph.lens.NonIdentityGraphLens;
 import com.android.tools.r8.horizontalclassmerging.HorizontalClassMerger;
@@ -605,7 +606,18 @@ public class AppView<T extends AppInfo> implements DexDefinitionSupplier, Librar
   /** @return true if the graph lens changed, otherwise false. */
   public boolean setGraphLens(GraphLens graphLens) {
     if (graphLens != this.graphLens) {
+      if (this.graphLens.isNonIdentityLens()) {
+        this.graphLens.asNonIdentityLens().setLookupCache(null);
+      }
       this.graphLens = graphLens;
+      if (graphLens.isNonIdentityLens() && options().testing.enableGraphLensLookupCache) {
+        graphLens
+            .asNonIdentityLens()
+            .setLookupCache(
+                new GraphLensLookupCache(
+                    options().testing.graphLensLookupCacheMaxSize,
+                    options().testing.graphLensLookupCacheStatistics));
+      }
 
       // TODO(b/202368283): Currently, we always set an applied lens or a clear code rewriting lens
       //  when the graph lens has been fully applied to all code. Therefore, we implicitly update
@@ -984,6 +996,12 @@ public class AppView<T extends AppInfo> implements DexDefinitionSupplier, Librar
     GraphLens newMemberRebindingLens =
         computeNewMemberRebindingLens(appView, appliedLens, firstUnappliedLens, timing);
 
+    // Lookups through the lenses above the first unapplied lens give different results while the
+    // alternative parent lens is installed, so a separate lookup cache is used in the meantime.
+    GraphLensLookupCache lookupCache = lens.getLookupCache();
+    if (lookupCache != null) {
+      lens.setLookupCache(lookupCache.createEmptyCache());
+    }
     firstUnappliedLens.withAlternativeParentLens(
         newMemberRebindingLens,
         () -> {
@@ -1139,6 +1157,8 @@ public class AppView<T extends AppInfo> implements DexDefinitionSupplier, Librar
                 }
               });
         });
+    lens.setLookupCache(lookupCache);
+    assert lens.verifyLookupCache();
 
     timing.end(); // Rewrite AppView
   }
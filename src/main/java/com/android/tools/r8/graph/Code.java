@@ -166,6 +166,10 @@ public abstract class Code extends CachedHashValueDexItem {
     throw new Unreachable(getClass().getCanonicalName() + ".asCfWritableCode()");
   }
 
+  public boolean isLazyCfCode() {
+    return false;
+  }
+
   public LazyCfCode asLazyCfCode() {
     throw new Unreachable(getClass().getCanonicalName() + ".asLazyCfCode()");
   }
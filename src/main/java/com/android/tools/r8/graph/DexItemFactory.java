@@ -36,6 +36,7 @@ import com.android.tools.r8.references.FieldReference;
 import com.android.tools.r8.references.MethodReference;
 import com.android.tools.r8.synthesis.SyntheticNaming;
 import com.android.tools.r8.utils.ArrayUtils;
+import com.android.tools.r8.utils.ConcurrentInternTable;
 import com.android.tools.r8.utils.DequeUtils;
 import com.android.tools.r8.utils.DescriptorUtils;
 import com.android.tools.r8.utils.LRUCacheTable;
@@ -48,14 +49,10 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceArrayMap;
-import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
-import it.unimi.dsi.fastutil.ints.Int2ReferenceOpenHashMap;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.List;
@@ -98,25 +95,36 @@ public class DexItemFactory {
   /** Set of types that may be synthesized during compilation. */
   private final Set<DexType> possibleCompilerSynthesizedTypes = Sets.newIdentityHashSet();
 
-  private final Map<DexString, DexString> markers = new ConcurrentHashMap<>();
-  private final Map<DexString, DexString> strings = new ConcurrentHashMap<>();
-  private final Map<DexString, DexType> types = new ConcurrentHashMap<>();
-  private final Map<DexField, DexField> fields = new ConcurrentHashMap<>();
-  private final Map<DexProto, DexProto> protos = new ConcurrentHashMap<>();
-  private final Map<DexMethod, DexMethod> methods = new ConcurrentHashMap<>();
-  private final Map<DexMethodHandle, DexMethodHandle> methodHandles =
-      new ConcurrentHashMap<>();
+  private final ConcurrentInternTable<DexString, DexString> markers =
+      ConcurrentInternTable.create();
+  private final ConcurrentInternTable<DexString, DexString> strings =
+      ConcurrentInternTable.create();
+  private final ConcurrentInternTable<DexString, DexType> types =
+      ConcurrentInternTable.create(type -> type.descriptor);
+  private final ConcurrentInternTable<DexField, DexField> fields = ConcurrentInternTable.create();
+  private final ConcurrentInternTable<DexProto, DexProto> protos = ConcurrentInternTable.create();
+  private final ConcurrentInternTable<DexMethod, DexMethod> methods =
+      ConcurrentInternTable.create();
+  private final ConcurrentInternTable<DexMethodHandle, DexMethodHandle> methodHandles =
+      ConcurrentInternTable.create();
 
   // DexDebugEvent Canonicalization.
-  private final Int2ReferenceMap<AdvanceLine> advanceLines = new Int2ReferenceOpenHashMap<>();
-  private final Int2ReferenceMap<AdvancePC> advancePCs = new Int2ReferenceOpenHashMap<>();
-  private final Int2ReferenceMap<Default> defaults = new Int2ReferenceOpenHashMap<>();
-  private final Int2ReferenceMap<EndLocal> endLocals = new Int2ReferenceOpenHashMap<>();
-  private final Int2ReferenceMap<RestartLocal> restartLocals = new Int2ReferenceOpenHashMap<>();
+  private final ConcurrentInternTable<Integer, AdvanceLine> advanceLines =
+      ConcurrentInternTable.create(event -> event.delta);
+  private final ConcurrentInternTable<Integer, AdvancePC> advancePCs =
+      ConcurrentInternTable.create(event -> event.delta);
+  private final ConcurrentInternTable<Integer, Default> defaults =
+      ConcurrentInternTable.create(event -> event.value);
+  private final ConcurrentInternTable<Integer, EndLocal> endLocals =
+      ConcurrentInternTable.create(event -> event.registerNum);
+  private final ConcurrentInternTable<Integer, RestartLocal> restartLocals =
+      ConcurrentInternTable.create(event -> event.registerNum);
   private final SetEpilogueBegin setEpilogueBegin = new SetEpilogueBegin();
   private final SetPrologueEnd setPrologueEnd = new SetPrologueEnd();
-  private final Map<DexString, SetFile> setFiles = new HashMap<>();
-  private final Map<SetPositionFrame, SetPositionFrame> setInlineFrames = new HashMap<>();
+  private final ConcurrentInternTable<DexString, SetFile> setFiles =
+      ConcurrentInternTable.create(event -> event.fileName);
+  private final ConcurrentInternTable<SetPositionFrame, SetPositionFrame> setInlineFrames =
+      ConcurrentInternTable.create();
   public final DexDebugEvent.Default zeroChangeDefaultEvent = createDefault(0, 0);
   public final DexDebugEvent.Default oneChangeDefaultEvent = createDefault(1, 1);
 
@@ -2501,17 +2509,16 @@ public class DexItemFactory {
     }
   }
 
-  private static <T extends DexItem> T canonicalize(Map<T, T> map, T item) {
+  private static <T extends DexItem> T canonicalize(ConcurrentInternTable<T, T> table, T item) {
     assert item != null;
     assert !DexItemFactory.isInternalSentinel(item);
-    T previous = map.putIfAbsent(item, item);
-    return previous == null ? item : previous;
+    return table.intern(item);
   }
 
   public DexString createMarkerString(int size, byte[] content) {
     DexString potentialMarker = createString(size, content);
     if (Marker.hasMarkerPrefix(potentialMarker.content)) {
-      markers.put(potentialMarker, potentialMarker);
+      markers.intern(potentialMarker);
     }
     return potentialMarker;
   }
@@ -2519,7 +2526,7 @@ public class DexItemFactory {
   public DexString createMarkerString(String marker) {
     DexString potentialMarker = createString(marker);
     if (Marker.hasMarkerPrefix(potentialMarker.content)) {
-      markers.put(potentialMarker, potentialMarker);
+      markers.intern(potentialMarker);
     }
     return potentialMarker;
   }
@@ -2847,7 +2854,7 @@ public class DexItemFactory {
   // Find all markers.
   public synchronized Collection<Marker> extractMarkers() {
     Set<Marker> markers = new HashSet<>();
-    for (DexString dexString : this.markers.keySet()) {
+    for (DexString dexString : this.markers.values()) {
       Marker marker = Marker.parse(dexString);
       if (marker != null) {
         markers.add(marker);
@@ -2856,21 +2863,20 @@ public class DexItemFactory {
     return markers;
   }
 
-  // Non-synchronized internal create.
   private DexType internalCreateType(DexString descriptor) {
     assert !sorted;
     assert descriptor != null;
-    DexType result = types.get(descriptor);
-    if (result == null) {
-      result = new DexType(descriptor);
-      assert result.isArrayType()
-              || result.isClassType()
-              || result.isPrimitiveType()
-              || result.isVoidType()
-          : descriptor.toString();
-      assert !isInternalSentinel(result);
-      types.put(descriptor, result);
-    }
+    return types.computeIfAbsent(descriptor, DexItemFactory::newType);
+  }
+
+  private static DexType newType(DexString descriptor) {
+    DexType result = new DexType(descriptor);
+    assert result.isArrayType()
+            || result.isClassType()
+            || result.isPrimitiveType()
+            || result.isVoidType()
+        : descriptor.toString();
+    assert !isInternalSentinel(result);
     return result;
   }
 
@@ -2923,8 +2929,8 @@ public class DexItemFactory {
     possibleCompilerSynthesizedTypes.forEach(fn);
   }
 
-  // Safe synchronized external create. Should never be used to create a statically known type!
-  public synchronized DexType createType(DexString descriptor) {
+  // Safe concurrent external create. Should never be used to create a statically known type!
+  public DexType createType(DexString descriptor) {
     return internalCreateType(descriptor);
   }
 
@@ -3125,21 +3131,15 @@ public class DexItemFactory {
   }
 
   public AdvanceLine createAdvanceLine(int delta) {
-    synchronized (advanceLines) {
-      return advanceLines.computeIfAbsent(delta, AdvanceLine::new);
-    }
+    return advanceLines.computeIfAbsent(delta, AdvanceLine::new);
   }
 
   public AdvancePC createAdvancePC(int delta) {
-    synchronized (advancePCs) {
-      return advancePCs.computeIfAbsent(delta, AdvancePC::new);
-    }
+    return advancePCs.computeIfAbsent(delta, AdvancePC::new);
   }
 
   public Default createDefault(int value) {
-    synchronized (defaults) {
-      return defaults.computeIfAbsent(value, Default::new);
-    }
+    return defaults.computeIfAbsent(value, Default::new);
   }
 
   public Default createDefault(int lineDelta, int pcDelta) {
@@ -3147,15 +3147,11 @@ public class DexItemFactory {
   }
 
   public EndLocal createEndLocal(int registerNum) {
-    synchronized (endLocals) {
-      return endLocals.computeIfAbsent(registerNum, EndLocal::new);
-    }
+    return endLocals.computeIfAbsent(registerNum, EndLocal::new);
   }
 
   public RestartLocal createRestartLocal(int registerNum) {
-    synchronized (restartLocals) {
-      return restartLocals.computeIfAbsent(registerNum, RestartLocal::new);
-    }
+    return restartLocals.computeIfAbsent(registerNum, RestartLocal::new);
   }
 
   public SetEpilogueBegin createSetEpilogueBegin() {
@@ -3167,16 +3163,12 @@ public class DexItemFactory {
   }
 
   public SetFile createSetFile(DexString fileName) {
-    synchronized (setFiles) {
-      return setFiles.computeIfAbsent(fileName, SetFile::new);
-    }
+    return setFiles.computeIfAbsent(fileName, SetFile::new);
   }
 
   // TODO(tamaskenez) b/69024229 Measure if canonicalization is worth it.
   public SetPositionFrame createPositionFrame(Position position) {
-    synchronized (setInlineFrames) {
-      return setInlineFrames.computeIfAbsent(new SetPositionFrame(position), p -> p);
-    }
+    return setInlineFrames.intern(new SetPositionFrame(position));
   }
 
   public boolean isConstructor(DexMethod method) {
@@ -3268,7 +3260,7 @@ public class DexItemFactory {
   }
 
   @Deprecated
-  synchronized public void forAllTypes(Consumer<DexType> f) {
-    new ArrayList<>(types.values()).forEach(f);
+  public void forAllTypes(Consumer<DexType> f) {
+    types.values().forEach(f);
   }
 }
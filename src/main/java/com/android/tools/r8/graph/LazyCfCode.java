@@ -136,11 +136,20 @@ public class LazyCfCode extends Code {
     return true;
   }
 
+  @Override
+  public boolean isLazyCfCode() {
+    return true;
+  }
+
   @Override
   public LazyCfCode asLazyCfCode() {
     return this;
   }
 
+  public boolean isParsed() {
+    return code != null;
+  }
+
   @Override
   public CfCode asCfCode() {
     if (code == null) {
@@ -0,0 +1,86 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.graph;
+
+import com.android.tools.r8.utils.CacheStatistics;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe cache of the method resolution results of a given {@link AppInfoWithClassHierarchy}.
+ *
+ * <p>The cache is owned by a single app info, and is therefore dropped when the app info is rebuilt
+ * or rewritten with a lens. The cache assumes that the class definitions of the app info are not
+ * changed in place, which is why it is only enabled by {@link
+ * com.android.tools.r8.utils.InternalOptions.TestingOptions#enableMethodResolutionCache}.
+ */
+public class MethodResolutionCache {
+
+  private final Map<Key, MethodResolutionResult> classResolutions = new ConcurrentHashMap<>();
+  private final Map<Key, MethodResolutionResult> interfaceResolutions = new ConcurrentHashMap<>();
+  private final CacheStatistics statistics;
+
+  public MethodResolutionCache(CacheStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  MethodResolutionResult resolveMethodOnClass(
+      DexType holder, DexProto proto, DexString name, Supplier<MethodResolutionResult> resolver) {
+    return lookupOrResolve(classResolutions, new Key(holder, proto, name), resolver);
+  }
+
+  MethodResolutionResult resolveMethodOnInterface(
+      DexType holder, DexProto proto, DexString name, Supplier<MethodResolutionResult> resolver) {
+    return lookupOrResolve(interfaceResolutions, new Key(holder, proto, name), resolver);
+  }
+
+  private MethodResolutionResult lookupOrResolve(
+      Map<Key, MethodResolutionResult> resolutions,
+      Key key,
+      Supplier<MethodResolutionResult> resolver) {
+    MethodResolutionResult result = resolutions.get(key);
+    if (result != null) {
+      statistics.recordHit();
+      return result;
+    }
+    statistics.recordMiss();
+    // Resolution is deterministic, so it does not matter which result is stored if two threads
+    // resolve the same method concurrently.
+    result = resolver.get();
+    MethodResolutionResult existing = resolutions.putIfAbsent(key, result);
+    return existing != null ? existing : result;
+  }
+
+  private static class Key {
+
+    private final DexType holder;
+    private final DexProto proto;
+    private final DexString name;
+
+    Key(DexType holder, DexProto proto, DexString name) {
+      this.holder = holder;
+      this.proto = proto;
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      Key key = (Key) obj;
+      return holder == key.holder && proto == key.proto && name == key.name;
+    }
+
+    @Override
+    public int hashCode() {
+      return (holder.hashCode() * 31 + proto.hashCode()) * 31 + name.hashCode();
+    }
+  }
+}
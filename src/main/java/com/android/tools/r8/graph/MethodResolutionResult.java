@@ -195,6 +195,9 @@ public abstract class MethodResolutionResult
   public final LookupResult lookupVirtualDispatchTargets(
       DexProgramClass context, AppView<AppInfoWithLiveness> appView) {
     AppInfoWithLiveness appInfo = appView.appInfo();
+    if (isSingleResolution() && appInfo.hasVirtualDispatchTargetLookupCache()) {
+      return asSingleResolution().lookupVirtualDispatchTargetsWithCache(context, appView);
+    }
     return lookupVirtualDispatchTargets(
         context, appView, appInfo, appInfo::isPinnedNotProgramOrLibraryOverride);
   }
@@ -539,6 +542,24 @@ public abstract class MethodResolutionResult
       return appInfo.isStrictSubtypeOf(sub.type, sup.type);
     }
 
+    // The lookup only depends on the context through the access check, so the result of the lookup
+    // without a context is cached.
+    private LookupResult lookupVirtualDispatchTargetsWithCache(
+        DexProgramClass context, AppView<AppInfoWithLiveness> appView) {
+      if (context != null && isAccessibleFrom(context, appView).isFalse()) {
+        return LookupResult.createFailedResult();
+      }
+      AppInfoWithLiveness appInfo = appView.appInfo();
+      return appInfo
+          .getVirtualDispatchTargetLookupCache()
+          .lookupOrCompute(
+              initialResolutionHolder.getType(),
+              resolvedMethod.getReference(),
+              () ->
+                  lookupVirtualDispatchTargets(
+                      null, appView, appInfo, appInfo::isPinnedNotProgramOrLibraryOverride));
+    }
+
     @Override
     public LookupResult lookupVirtualDispatchTargets(
         DexProgramClass context,
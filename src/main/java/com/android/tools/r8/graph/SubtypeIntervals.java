@@ -0,0 +1,220 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.graph;
+
+import static com.android.tools.r8.utils.MapUtils.ignoreKey;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Encodes the transitive subtypes of each type as intervals of dense type ids.
+ *
+ * <p>The ids are assigned in pre-order of the tree formed by the superclass relation, such that the
+ * transitive subclasses of a class are exactly the types with an id in [id + 1, end[, where end is
+ * the first id after the subtree of the class. A type without a definition is the root of its own
+ * tree. The subtypes of an interface are the union of the subtrees of the types that implement the
+ * interface and the subtypes of its subinterfaces, which is stored as a sorted array of disjoint
+ * intervals.
+ *
+ * <p>This allows answering subtype queries by an interval lookup, and enumerating subtypes by a
+ * scan over an array, without materializing the set of transitive subtypes of each type.
+ */
+class SubtypeIntervals {
+
+  private static final int NO_ID = -1;
+
+  private final Reference2IntMap<DexType> ids;
+  private final DexType[] types;
+  private final int[] ends;
+  // The types whose subtypes are not a single subtree, indexed by id, or null.
+  private final int[][] ranges;
+  // The ids of the types that can be reported as subtypes.
+  private final BitSet subtypeCandidates;
+
+  private SubtypeIntervals(
+      Reference2IntMap<DexType> ids,
+      DexType[] types,
+      int[] ends,
+      int[][] ranges,
+      BitSet subtypeCandidates) {
+    this.ids = ids;
+    this.types = types;
+    this.ends = ends;
+    this.ranges = ranges;
+    this.subtypeCandidates = subtypeCandidates;
+  }
+
+  /**
+   * Creates the intervals for the given types, which must be closed under supertypes. Only the
+   * given subtype candidates are reported as subtypes.
+   */
+  static SubtypeIntervals create(
+      Collection<DexType> types,
+      Set<DexType> subtypeCandidates,
+      DexDefinitionSupplier definitionSupplier) {
+    Map<DexType, List<DexType>> subclasses = new IdentityHashMap<>();
+    Map<DexType, List<DexType>> implementers = new IdentityHashMap<>();
+    List<DexType> roots = new ArrayList<>();
+    for (DexType type : types) {
+      DexClass clazz = definitionSupplier.contextIndependentDefinitionFor(type);
+      if (clazz == null || clazz.superType == null) {
+        roots.add(type);
+        continue;
+      }
+      subclasses.computeIfAbsent(clazz.superType, ignoreKey(ArrayList::new)).add(type);
+      clazz.forEachImmediateInterface(
+          iface -> implementers.computeIfAbsent(iface, ignoreKey(ArrayList::new)).add(type));
+    }
+
+    Reference2IntMap<DexType> ids = new Reference2IntOpenHashMap<>(types.size());
+    ids.defaultReturnValue(NO_ID);
+    DexType[] typesById = new DexType[types.size()];
+    int[] ends = new int[types.size()];
+    int nextId = 0;
+    for (DexType root : roots) {
+      nextId = assignIds(root, nextId, subclasses, ids, typesById, ends);
+    }
+    // Types on a superclass cycle are not reachable from a root.
+    for (DexType type : types) {
+      if (!ids.containsKey(type)) {
+        nextId = assignIds(type, nextId, subclasses, ids, typesById, ends);
+      }
+    }
+    assert nextId == types.size();
+
+    int[][] ranges = new int[types.size()][];
+    BitSet inProgress = new BitSet(types.size());
+    for (DexType iface : implementers.keySet()) {
+      computeRanges(ids.getInt(iface), implementers, ids, typesById, ends, ranges, inProgress);
+    }
+
+    BitSet candidates = new BitSet(types.size());
+    for (DexType candidate : subtypeCandidates) {
+      int id = ids.getInt(candidate);
+      if (id != NO_ID) {
+        candidates.set(id);
+      }
+    }
+    return new SubtypeIntervals(ids, typesById, ends, ranges, candidates);
+  }
+
+  // Assigns pre-order ids to the subtree of the given type, and returns the next free id.
+  private static int assignIds(
+      DexType root,
+      int nextId,
+      Map<DexType, List<DexType>> subclasses,
+      Reference2IntMap<DexType> ids,
+      DexType[] typesById,
+      int[] ends) {
+    // Each type is pushed twice: once to assign its id, and once to record the end of its subtree.
+    Deque<DexType> worklist = new ArrayDeque<>();
+    Deque<Boolean> isExit = new ArrayDeque<>();
+    worklist.push(root);
+    isExit.push(false);
+    while (!worklist.isEmpty()) {
+      DexType type = worklist.pop();
+      if (isExit.pop()) {
+        ends[ids.getInt(type)] = nextId;
+        continue;
+      }
+      if (ids.containsKey(type)) {
+        continue;
+      }
+      ids.put(type, nextId);
+      typesById[nextId] = type;
+      nextId++;
+      worklist.push(type);
+      isExit.push(true);
+      List<DexType> children = subclasses.getOrDefault(type, Collections.emptyList());
+      for (int i = children.size() - 1; i >= 0; i--) {
+        worklist.push(children.get(i));
+        isExit.push(false);
+      }
+    }
+    return nextId;
+  }
+
+  private static int[] computeRanges(
+      int id,
+      Map<DexType, List<DexType>> implementers,
+      Reference2IntMap<DexType> ids,
+      DexType[] typesById,
+      int[] ends,
+      int[][] ranges,
+      BitSet inProgress) {
+    if (ranges[id] != null) {
+      return ranges[id];
+    }
+    if (inProgress.get(id)) {
+      // Interface cycle, which is only possible in invalid input.
+      return new int[0];
+    }
+    inProgress.set(id);
+    List<int[]> intervals = new ArrayList<>();
+    if (id + 1 < ends[id]) {
+      intervals.add(new int[] {id + 1, ends[id]});
+    }
+    for (DexType implementer : implementers.get(typesById[id])) {
+      int implementerId = ids.getInt(implementer);
+      intervals.add(new int[] {implementerId, ends[implementerId]});
+      if (implementers.containsKey(implementer)) {
+        int[] implementerRanges =
+            computeRanges(implementerId, implementers, ids, typesById, ends, ranges, inProgress);
+        for (int i = 0; i < implementerRanges.length; i += 2) {
+          intervals.add(new int[] {implementerRanges[i], implementerRanges[i + 1]});
+        }
+      }
+    }
+    intervals.sort((x, y) -> Integer.compare(x[0], y[0]));
+    IntList merged = new IntArrayList();
+    for (int[] interval : intervals) {
+      int size = merged.size();
+      if (size > 0 && interval[0] <= merged.getInt(size - 1)) {
+        merged.set(size - 1, Math.max(merged.getInt(size - 1), interval[1]));
+      } else {
+        merged.add(interval[0]);
+        merged.add(interval[1]);
+      }
+    }
+    inProgress.clear(id);
+    return ranges[id] = merged.toIntArray();
+  }
+
+  private int[] getRanges(int id) {
+    int[] result = ranges[id];
+    return result != null ? result : new int[] {id + 1, ends[id]};
+  }
+
+  void forEachStrictSubtype(DexType type, Consumer<DexType> consumer) {
+    int id = ids.getInt(type);
+    if (id == NO_ID) {
+      return;
+    }
+    int[] typeRanges = getRanges(id);
+    for (int i = 0; i < typeRanges.length; i += 2) {
+      for (int subtypeId = subtypeCandidates.nextSetBit(typeRanges[i]);
+          subtypeId >= 0 && subtypeId < typeRanges[i + 1];
+          subtypeId = subtypeCandidates.nextSetBit(subtypeId + 1)) {
+        if (subtypeId != id) {
+          consumer.accept(types[subtypeId]);
+        }
+      }
+    }
+  }
+}
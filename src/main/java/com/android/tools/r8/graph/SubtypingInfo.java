@@ -13,8 +13,7 @@ import com.google.common.collect.Sets;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
-import java.util.HashSet;
-import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -31,8 +30,8 @@ public class SubtypingInfo {
   // Since most Java types has no sub-types, we can just share an empty immutable set until we
   // need to add to it.
   private static final Set<DexType> NO_DIRECT_SUBTYPE = ImmutableSet.of();
-  // Map from types to their subtypes.
-  private final Map<DexType, Set<DexType>> subtypeMap;
+  // Encoding of the transitive subtypes of each type.
+  private final SubtypeIntervals subtypeIntervals;
 
   private final Map<DexType, TypeInfo> typeInfo;
 
@@ -41,10 +40,10 @@ public class SubtypingInfo {
 
   private SubtypingInfo(
       Map<DexType, TypeInfo> typeInfo,
-      Map<DexType, Set<DexType>> subtypeMap,
+      SubtypeIntervals subtypeIntervals,
       DexDefinitionSupplier definitionSupplier) {
     this.typeInfo = typeInfo;
-    this.subtypeMap = subtypeMap;
+    this.subtypeIntervals = subtypeIntervals;
     this.definitionSupplier = definitionSupplier;
     factory = definitionSupplier.dexItemFactory();
   }
@@ -64,24 +63,8 @@ public class SubtypingInfo {
   public static SubtypingInfo create(
       Iterable<? extends DexClass> classes, DexDefinitionSupplier definitions) {
     Map<DexType, TypeInfo> typeInfo = new ConcurrentHashMap<>();
-    Map<DexType, Set<DexType>> subtypeMap = new IdentityHashMap<>();
-    populateSubtypeMap(classes, subtypeMap, typeInfo, definitions);
-    return new SubtypingInfo(typeInfo, subtypeMap, definitions);
-  }
-
-  private static void populateSuperType(
-      Map<DexType, Set<DexType>> map,
-      Map<DexType, TypeInfo> typeInfo,
-      DexType superType,
-      DexClass baseClass,
-      DexDefinitionSupplier definitionSupplier) {
-    if (superType != null) {
-      Set<DexType> set = map.computeIfAbsent(superType, ignore -> new HashSet<>());
-      if (set.add(baseClass.type)) {
-        // Only continue recursion if type has been added to set.
-        populateAllSuperTypes(map, typeInfo, superType, baseClass, definitionSupplier);
-      }
-    }
+    SubtypeIntervals subtypeIntervals = populateTypeInfo(classes, typeInfo, definitions);
+    return new SubtypingInfo(typeInfo, subtypeIntervals, definitions);
   }
 
   private TypeInfo getTypeInfo(DexType type) {
@@ -94,18 +77,20 @@ public class SubtypingInfo {
   }
 
   private static void populateAllSuperTypes(
-      Map<DexType, Set<DexType>> map,
       Map<DexType, TypeInfo> typeInfo,
       DexType holder,
-      DexClass baseClass,
+      Set<DexType> seen,
       DexDefinitionSupplier definitionSupplier) {
+    if (!seen.add(holder)) {
+      return;
+    }
     DexClass holderClass = definitionSupplier.contextIndependentDefinitionFor(holder);
     // Skip if no corresponding class is found.
     TypeInfo typeInfoHere = getTypeInfo(holder, typeInfo);
     if (holderClass != null) {
       holderClass.forEachImmediateSupertype(
           (superType, isInterface) -> {
-            populateSuperType(map, typeInfo, superType, baseClass, definitionSupplier);
+            populateAllSuperTypes(typeInfo, superType, seen, definitionSupplier);
             TypeInfo superTypeInfo = getTypeInfo(superType, typeInfo);
             if (isInterface) {
               superTypeInfo.addInterfaceSubtype(holder);
@@ -125,17 +110,19 @@ public class SubtypingInfo {
     }
   }
 
-  private static void populateSubtypeMap(
+  private static SubtypeIntervals populateTypeInfo(
       Iterable<? extends DexClass> classes,
-      Map<DexType, Set<DexType>> map,
       Map<DexType, TypeInfo> typeInfo,
       DexDefinitionSupplier definitionSupplier) {
     getTypeInfo(definitionSupplier.dexItemFactory().objectType, typeInfo).tagAsSubtypeRoot();
+    Set<DexType> seen = new LinkedHashSet<>();
+    Set<DexType> classTypes = Sets.newIdentityHashSet();
     for (DexClass clazz : classes) {
-      populateAllSuperTypes(map, typeInfo, clazz.type, clazz, definitionSupplier);
+      classTypes.add(clazz.type);
+      populateAllSuperTypes(typeInfo, clazz.type, seen, definitionSupplier);
     }
-    map.replaceAll((k, v) -> ImmutableSet.copyOf(v));
     assert validateLevelsAreCorrect(typeInfo, definitionSupplier);
+    return SubtypeIntervals.create(seen, classTypes, definitionSupplier);
   }
 
   private static boolean validateLevelsAreCorrect(
@@ -181,10 +168,10 @@ public class SubtypingInfo {
     return true;
   }
 
-  public Set<DexType> subtypes(DexType type) {
+  /** Apply the given function to all transitive subtypes of the given type. */
+  public void forEachSubtype(DexType type, Consumer<DexType> consumer) {
     assert type.isClassType();
-    Set<DexType> subtypes = subtypeMap.get(type);
-    return subtypes == null ? ImmutableSet.of() : subtypes;
+    subtypeIntervals.forEachStrictSubtype(type, consumer);
   }
 
   public DexType getSingleDirectSubtype(DexType type) {
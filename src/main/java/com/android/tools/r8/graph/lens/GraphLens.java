@@ -20,6 +20,7 @@ import com.android.tools.r8.graph.DexProgramClass;
 import com.android.tools.r8.graph.DexReference;
 import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.graph.ProgramMethod;
+import com.android.tools.r8.graph.lens.GraphLensLookupCache.ReferenceLookups;
 import com.android.tools.r8.graph.proto.RewrittenPrototypeDescription;
 import com.android.tools.r8.ir.code.InvokeType;
 import com.android.tools.r8.ir.conversion.LensCodeRewriterUtils;
@@ -49,6 +50,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 /**
@@ -103,7 +105,11 @@ public abstract class GraphLens {
   }
 
   public final DexType getOriginalType(DexType type, GraphLens appliedLens) {
-    return getOriginalReference(type, appliedLens, NonIdentityGraphLens::getPreviousClassType);
+    return getOriginalReference(
+        type,
+        appliedLens,
+        NonIdentityGraphLens::getPreviousClassType,
+        cache -> cache.originalTypes);
   }
 
   public abstract Iterable<DexType> getOriginalTypes(DexType type);
@@ -116,7 +122,10 @@ public abstract class GraphLens {
 
   public final DexField getOriginalFieldSignature(DexField field, GraphLens appliedLens) {
     return getOriginalReference(
-        field, appliedLens, NonIdentityGraphLens::getPreviousFieldSignature);
+        field,
+        appliedLens,
+        NonIdentityGraphLens::getPreviousFieldSignature,
+        cache -> cache.originalFields);
   }
 
   @Deprecated
@@ -127,16 +136,39 @@ public abstract class GraphLens {
 
   public final DexMethod getOriginalMethodSignature(DexMethod method, GraphLens appliedLens) {
     return getOriginalReference(
-        method, appliedLens, NonIdentityGraphLens::getPreviousMethodSignature);
+        method,
+        appliedLens,
+        NonIdentityGraphLens::getPreviousMethodSignature,
+        cache -> cache.originalMethods);
   }
 
   public final DexMethod getOriginalMethodSignatureForMapping(DexMethod method) {
     GraphLens appliedLens = getIdentityLens();
     return getOriginalReference(
-        method, appliedLens, NonIdentityGraphLens::getPreviousMethodSignatureForMapping);
+        method,
+        appliedLens,
+        NonIdentityGraphLens::getPreviousMethodSignatureForMapping,
+        cache -> cache.originalMethodsForMapping);
   }
 
   private <T extends DexReference> T getOriginalReference(
+      T reference,
+      GraphLens appliedLens,
+      BiFunction<NonIdentityGraphLens, T, T> previousFn,
+      Function<GraphLensLookupCache, ReferenceLookups<T>> cacheFn) {
+    GraphLensLookupCache lookupCache = getLookupCache();
+    if (lookupCache != null) {
+      return cacheFn
+          .apply(lookupCache)
+          .lookupOrCompute(
+              reference,
+              appliedLens,
+              () -> computeOriginalReference(reference, appliedLens, previousFn));
+    }
+    return computeOriginalReference(reference, appliedLens, previousFn);
+  }
+
+  private <T extends DexReference> T computeOriginalReference(
       T reference, GraphLens appliedLens, BiFunction<NonIdentityGraphLens, T, T> previousFn) {
     GraphLens current = this;
     T original = reference;
@@ -164,7 +196,10 @@ public abstract class GraphLens {
 
   public final DexField getRenamedFieldSignature(DexField originalField, GraphLens appliedLens) {
     return getRenamedReference(
-        originalField, appliedLens, NonIdentityGraphLens::getNextFieldSignature);
+        originalField,
+        appliedLens,
+        NonIdentityGraphLens::getNextFieldSignature,
+        cache -> cache.renamedFields);
   }
 
   public final DexMember<?, ?> getRenamedMemberSignature(
@@ -181,15 +216,40 @@ public abstract class GraphLens {
   }
 
   public final DexMethod getRenamedMethodSignature(DexMethod method, GraphLens appliedLens) {
-    return getRenamedReference(method, appliedLens, NonIdentityGraphLens::getNextMethodSignature);
+    return getRenamedReference(
+        method,
+        appliedLens,
+        NonIdentityGraphLens::getNextMethodSignature,
+        cache -> cache.renamedMethods);
   }
 
   private <T extends DexReference> T getRenamedReference(
-      T reference, GraphLens appliedLens, BiFunction<NonIdentityGraphLens, T, T> nextFn) {
-    return getRenamedReference(reference, appliedLens, nextFn, alwaysFalse());
+      T reference,
+      GraphLens appliedLens,
+      BiFunction<NonIdentityGraphLens, T, T> nextFn,
+      Function<GraphLensLookupCache, ReferenceLookups<T>> cacheFn) {
+    return getRenamedReference(reference, appliedLens, nextFn, alwaysFalse(), cacheFn);
   }
 
   private <T extends DexReference> T getRenamedReference(
+      T reference,
+      GraphLens appliedLens,
+      BiFunction<NonIdentityGraphLens, T, T> nextFn,
+      Predicate<T> stoppingCriterion,
+      Function<GraphLensLookupCache, ReferenceLookups<T>> cacheFn) {
+    GraphLensLookupCache lookupCache = getLookupCache();
+    if (lookupCache != null) {
+      return cacheFn
+          .apply(lookupCache)
+          .lookupOrCompute(
+              reference,
+              appliedLens,
+              () -> computeRenamedReference(reference, appliedLens, nextFn, stoppingCriterion));
+    }
+    return computeRenamedReference(reference, appliedLens, nextFn, stoppingCriterion);
+  }
+
+  private <T extends DexReference> T computeRenamedReference(
       T reference,
       GraphLens appliedLens,
       BiFunction<NonIdentityGraphLens, T, T> nextFn,
@@ -211,6 +271,70 @@ public abstract class GraphLens {
     return reference;
   }
 
+  /** Returns true if the cached lookups of this lens are equal to the uncached lookups. */
+  public final boolean verifyLookupCache() {
+    GraphLensLookupCache lookupCache = getLookupCache();
+    if (lookupCache == null) {
+      return true;
+    }
+    assert lookupCache.originalTypes.allMatch(
+        (appliedLens, type, original) ->
+            original
+                == computeOriginalReference(
+                    type, appliedLens, NonIdentityGraphLens::getPreviousClassType));
+    assert lookupCache.originalFields.allMatch(
+        (appliedLens, field, original) ->
+            original
+                == computeOriginalReference(
+                    field, appliedLens, NonIdentityGraphLens::getPreviousFieldSignature));
+    assert lookupCache.originalMethods.allMatch(
+        (appliedLens, method, original) ->
+            original
+                == computeOriginalReference(
+                    method, appliedLens, NonIdentityGraphLens::getPreviousMethodSignature));
+    assert lookupCache.originalMethodsForMapping.allMatch(
+        (appliedLens, method, original) ->
+            original
+                == computeOriginalReference(
+                    method,
+                    appliedLens,
+                    NonIdentityGraphLens::getPreviousMethodSignatureForMapping));
+    assert lookupCache.renamedClassTypes.allMatch(
+        (appliedLens, type, renamed) ->
+            renamed
+                == computeRenamedReference(
+                    type,
+                    appliedLens,
+                    NonIdentityGraphLens::getNextClassType,
+                    DexType::isPrimitiveType));
+    assert lookupCache.renamedFields.allMatch(
+        (appliedLens, field, renamed) ->
+            renamed
+                == computeRenamedReference(
+                    field,
+                    appliedLens,
+                    NonIdentityGraphLens::getNextFieldSignature,
+                    alwaysFalse()));
+    assert lookupCache.renamedMethods.allMatch(
+        (appliedLens, method, renamed) ->
+            renamed
+                == computeRenamedReference(
+                    method,
+                    appliedLens,
+                    NonIdentityGraphLens::getNextMethodSignature,
+                    alwaysFalse()));
+    assert lookupCache.allMethodLookupsMatch(
+        (key, result) -> {
+          MethodLookupResult expected =
+              asNonIdentityLens()
+                  .computeLookupMethod(key.method, key.context, key.type, key.codeLens);
+          return result.getReference() == expected.getReference()
+              && result.getReboundReference() == expected.getReboundReference()
+              && result.getType() == expected.getType();
+        });
+    return true;
+  }
+
   // Predicate indicating if a rewritten reference is a simple renaming, meaning the move from one
   // reference to another is simply either just a renaming or/also renaming of the references. In
   // other words, the content of the definition, including the definition of all of its members is
@@ -250,7 +374,11 @@ public abstract class GraphLens {
 
   public final DexType lookupClassType(DexType type, GraphLens appliedLens) {
     return getRenamedReference(
-        type, appliedLens, NonIdentityGraphLens::getNextClassType, DexType::isPrimitiveType);
+        type,
+        appliedLens,
+        NonIdentityGraphLens::getNextClassType,
+        DexType::isPrimitiveType,
+        cache -> cache.renamedClassTypes);
   }
 
   @Deprecated
@@ -455,6 +583,10 @@ public abstract class GraphLens {
 
   public abstract boolean isNonIdentityLens();
 
+  public GraphLensLookupCache getLookupCache() {
+    return null;
+  }
+
   public NonIdentityGraphLens asNonIdentityLens() {
     return null;
   }
@@ -0,0 +1,152 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.graph.lens;
+
+import static com.android.tools.r8.utils.MapUtils.ignoreKey;
+
+import com.android.tools.r8.graph.DexField;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexReference;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.ir.code.InvokeType;
+import com.android.tools.r8.utils.CacheStatistics;
+import com.android.tools.r8.utils.TriPredicate;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe cache of the lookups through the lens chain of a given {@link NonIdentityGraphLens}.
+ *
+ * <p>The cache is only installed on the current graph lens of the {@link
+ * com.android.tools.r8.graph.AppView}, and is dropped when a new graph lens is installed. The
+ * lookups are keyed by the applied lens or code lens, so that lookups that do not traverse the
+ * entire lens chain are also cached. The cache assumes that the lenses of the chain are not changed
+ * while the cache is installed, which is why it is only enabled by {@link
+ * com.android.tools.r8.utils.InternalOptions.TestingOptions#enableGraphLensLookupCache}. Once the
+ * cache holds the maximum number of entries, further lookups are computed without being cached.
+ */
+public class GraphLensLookupCache {
+
+  final ReferenceLookups<DexType> originalTypes = new ReferenceLookups<>();
+  final ReferenceLookups<DexField> originalFields = new ReferenceLookups<>();
+  final ReferenceLookups<DexMethod> originalMethods = new ReferenceLookups<>();
+  final ReferenceLookups<DexMethod> originalMethodsForMapping = new ReferenceLookups<>();
+  final ReferenceLookups<DexType> renamedClassTypes = new ReferenceLookups<>();
+  final ReferenceLookups<DexField> renamedFields = new ReferenceLookups<>();
+  final ReferenceLookups<DexMethod> renamedMethods = new ReferenceLookups<>();
+
+  private final Map<MethodLookupKey, MethodLookupResult> methodLookups = new ConcurrentHashMap<>();
+
+  private final int maxSize;
+  private final AtomicInteger size = new AtomicInteger();
+  private final CacheStatistics statistics;
+
+  public GraphLensLookupCache(int maxSize, CacheStatistics statistics) {
+    this.maxSize = maxSize;
+    this.statistics = statistics;
+  }
+
+  /** Returns a new empty cache that shares the size bound and statistics of this cache. */
+  public GraphLensLookupCache createEmptyCache() {
+    return new GraphLensLookupCache(maxSize, statistics);
+  }
+
+  MethodLookupResult lookupMethod(
+      DexMethod method,
+      DexMethod context,
+      InvokeType type,
+      GraphLens codeLens,
+      Supplier<MethodLookupResult> lookup) {
+    return lookupOrCompute(
+        methodLookups, new MethodLookupKey(method, context, type, codeLens), lookup);
+  }
+
+  boolean allMethodLookupsMatch(BiPredicate<MethodLookupKey, MethodLookupResult> predicate) {
+    return methodLookups.entrySet().stream()
+        .allMatch(entry -> predicate.test(entry.getKey(), entry.getValue()));
+  }
+
+  private <K, V> V lookupOrCompute(Map<K, V> lookups, K key, Supplier<V> lookup) {
+    V result = lookups.get(key);
+    if (result != null) {
+      statistics.recordHit();
+      return result;
+    }
+    statistics.recordMiss();
+    // Lookups are deterministic, so it does not matter which result is stored if two threads
+    // compute the same lookup concurrently.
+    result = lookup.get();
+    if (result == null || size.get() >= maxSize) {
+      return result;
+    }
+    V existing = lookups.putIfAbsent(key, result);
+    if (existing != null) {
+      return existing;
+    }
+    size.incrementAndGet();
+    return result;
+  }
+
+  class ReferenceLookups<T extends DexReference> {
+
+    private final Map<GraphLens, Map<T, T>> lookups = new ConcurrentHashMap<>();
+
+    T lookupOrCompute(T reference, GraphLens appliedLens, Supplier<T> lookup) {
+      return GraphLensLookupCache.this.lookupOrCompute(
+          lookups.computeIfAbsent(appliedLens, ignoreKey(ConcurrentHashMap::new)),
+          reference,
+          lookup);
+    }
+
+    boolean allMatch(TriPredicate<GraphLens, T, T> predicate) {
+      return lookups.entrySet().stream()
+          .allMatch(
+              entry ->
+                  entry.getValue().entrySet().stream()
+                      .allMatch(
+                          lookup ->
+                              predicate.test(entry.getKey(), lookup.getKey(), lookup.getValue())));
+    }
+  }
+
+  static class MethodLookupKey {
+
+    final DexMethod method;
+    final DexMethod context;
+    final InvokeType type;
+    final GraphLens codeLens;
+
+    MethodLookupKey(DexMethod method, DexMethod context, InvokeType type, GraphLens codeLens) {
+      this.method = method;
+      this.context = context;
+      this.type = type;
+      this.codeLens = codeLens;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      MethodLookupKey key = (MethodLookupKey) obj;
+      return method == key.method
+          && context == key.context
+          && type == key.type
+          && codeLens == key.codeLens;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(method, context, type, System.identityHashCode(codeLens));
+    }
+  }
+}
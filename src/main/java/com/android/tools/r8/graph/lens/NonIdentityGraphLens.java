@@ -22,6 +22,9 @@ public abstract class NonIdentityGraphLens extends GraphLens {
 
   private final Map<DexType, DexType> arrayTypeCache = new ConcurrentHashMap<>();
 
+  // The lookup cache of this lens, if this lens is the current graph lens and the cache is enabled.
+  private volatile GraphLensLookupCache lookupCache;
+
   public NonIdentityGraphLens(AppView<?> appView) {
     this(appView.dexItemFactory(), appView.graphLens());
   }
@@ -68,6 +71,15 @@ public abstract class NonIdentityGraphLens extends GraphLens {
     return (found == null || stoppingCriterion.test(found)) ? null : found;
   }
 
+  @Override
+  public final GraphLensLookupCache getLookupCache() {
+    return lookupCache;
+  }
+
+  public final void setLookupCache(GraphLensLookupCache lookupCache) {
+    this.lookupCache = lookupCache;
+  }
+
   public final <E extends Exception> void withAlternativeParentLens(
       GraphLens lens, ThrowingAction<E> action) throws E {
     GraphLens oldParent = getPrevious();
@@ -79,6 +91,20 @@ public abstract class NonIdentityGraphLens extends GraphLens {
   @Override
   public MethodLookupResult lookupMethod(
       DexMethod method, DexMethod context, InvokeType type, GraphLens codeLens) {
+    GraphLensLookupCache lookupCache = this.lookupCache;
+    if (lookupCache != null) {
+      return lookupCache.lookupMethod(
+          method,
+          context,
+          type,
+          codeLens,
+          () -> computeLookupMethod(method, context, type, codeLens));
+    }
+    return computeLookupMethod(method, context, type, codeLens);
+  }
+
+  final MethodLookupResult computeLookupMethod(
+      DexMethod method, DexMethod context, InvokeType type, GraphLens codeLens) {
     if (method.getHolderType().isArrayType()) {
       assert lookupType(method.getReturnType()) == method.getReturnType();
       assert method.getParameters().stream()
@@ -23,7 +23,6 @@ import com.android.tools.r8.profile.art.ArtProfileCompletenessChecker;
 import com.android.tools.r8.profile.rewriting.ProfileCollectionAdditions;
 import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.shaking.FieldAccessInfoCollectionModifier;
-import com.android.tools.r8.shaking.KeepInfoCollection;
 import com.android.tools.r8.shaking.RuntimeTypeCheckInfo;
 import com.android.tools.r8.synthesis.SyntheticItems;
 import com.android.tools.r8.utils.InternalOptions.HorizontalClassMergerOptions;
@@ -122,7 +121,10 @@ public class HorizontalClassMerger {
     List<Policy> policies =
         PolicyScheduler.getPolicies(appView, codeProvider, mode, runtimeTypeCheckInfo);
     Collection<MergeGroup> groups =
-        new PolicyExecutor().run(getInitialGroups(), policies, executorService, timing);
+        appView.options().horizontalClassMergerOptions().isParallelPolicyExecutorEnabled()
+            ? new ParallelPolicyExecutor(appView.options())
+                .run(getInitialGroups(), policies, executorService, timing)
+            : new PolicyExecutor().run(getInitialGroups(), policies, executorService, timing);
 
     // If there are no groups, then end horizontal class merging.
     if (groups.isEmpty()) {
@@ -191,8 +193,10 @@ public class HorizontalClassMerger {
     DexApplication newApplication = getNewApplication(mergedClasses);
     if (appView.enableWholeProgramOptimizations()) {
       // Prune keep info.
-      KeepInfoCollection keepInfo = appView.getKeepInfo();
-      keepInfo.mutate(mutator -> mutator.removeKeepInfoForMergedClasses(prunedItems));
+      appView
+          .withLiveness()
+          .appInfo()
+          .mutateKeepInfo(mutator -> mutator.removeKeepInfoForMergedClasses(prunedItems));
       assert appView.hasClassHierarchy();
       appView.rewriteWithLensAndApplication(
           horizontalClassMergerGraphLens, newApplication.toDirect(), executorService, timing);
@@ -0,0 +1,163 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.horizontalclassmerging;
+
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ListUtils.ReferenceAndIntConsumer;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.ThreadUtils.WorkLoad;
+import com.android.tools.r8.utils.Timing;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A policy executor that applies each policy to the groups concurrently if the policy allows it,
+ * see {@link Policy#canApplyToGroupsConcurrently()}.
+ *
+ * <p>The result of applying a policy to a group is stored at the index of the group, such that the
+ * resulting groups are in the same order as when using the {@link PolicyExecutor}, which is the
+ * reference implementation for this executor.
+ */
+public class ParallelPolicyExecutor {
+
+  private final Consumer<Policy> concurrentPolicyConsumer;
+
+  public ParallelPolicyExecutor(InternalOptions options) {
+    this.concurrentPolicyConsumer = options.testing.horizontalClassMergingConcurrentPolicyConsumer;
+  }
+
+  private List<MergeGroup> applySingleClassPolicy(
+      SingleClassPolicy policy, List<MergeGroup> groups, ExecutorService executorService)
+      throws ExecutionException {
+    List<MergeGroup> newGroups =
+        applyPolicy(
+            policy,
+            groups,
+            group -> {
+              group.removeIf(clazz -> !policy.canMerge(clazz));
+              return ImmutableList.of(group);
+            },
+            executorService);
+    newGroups.removeIf(MergeGroup::isTrivial);
+    return newGroups;
+  }
+
+  private List<MergeGroup> applyMultiClassPolicy(
+      MultiClassPolicy policy, List<MergeGroup> groups, ExecutorService executorService)
+      throws ExecutionException {
+    return applyPolicy(
+        policy,
+        groups,
+        group -> {
+          Collection<MergeGroup> policyGroups = policy.apply(group);
+          policyGroups.forEach(newGroup -> newGroup.applyMetadataFrom(group));
+          return policyGroups;
+        },
+        executorService);
+  }
+
+  private <T> List<MergeGroup> applyMultiClassPolicyWithPreprocessing(
+      MultiClassPolicyWithPreprocessing<T> policy,
+      List<MergeGroup> groups,
+      ExecutorService executorService)
+      throws ExecutionException {
+    T data = policy.preprocess(groups, executorService);
+    return applyPolicy(
+        policy,
+        groups,
+        group -> {
+          Collection<MergeGroup> policyGroups = policy.apply(group, data);
+          policyGroups.forEach(newGroup -> newGroup.applyMetadataFrom(group));
+          return policyGroups;
+        },
+        executorService);
+  }
+
+  private List<MergeGroup> applyPolicy(
+      Policy policy,
+      List<MergeGroup> groups,
+      Function<MergeGroup, Collection<MergeGroup>> fn,
+      ExecutorService executorService)
+      throws ExecutionException {
+    int numberOfGroups = groups.size();
+    boolean[] isInterfaceGroup = new boolean[numberOfGroups];
+    int[] previousGroupSizes = new int[numberOfGroups];
+    for (int i = 0; i < numberOfGroups; i++) {
+      MergeGroup group = groups.get(i);
+      isInterfaceGroup[i] = group.isInterfaceGroup();
+      previousGroupSizes[i] = group.size();
+    }
+    @SuppressWarnings("unchecked")
+    Collection<MergeGroup>[] policyGroups = new Collection[numberOfGroups];
+    ReferenceAndIntConsumer<MergeGroup> applyToGroup =
+        (group, index) -> policyGroups[index] = fn.apply(group);
+    if (policy.canApplyToGroupsConcurrently()) {
+      concurrentPolicyConsumer.accept(policy);
+      ThreadUtils.processItems(groups, applyToGroup, executorService, WorkLoad.LIGHT);
+    } else {
+      for (int i = 0; i < numberOfGroups; i++) {
+        applyToGroup.accept(groups.get(i), i);
+      }
+    }
+    // Add the new groups together in the order of the groups they were created from.
+    List<MergeGroup> newGroups = new ArrayList<>(numberOfGroups);
+    for (int i = 0; i < numberOfGroups; i++) {
+      assert policy.recordRemovedClassesForDebugging(
+          isInterfaceGroup[i], previousGroupSizes[i], policyGroups[i]);
+      newGroups.addAll(policyGroups[i]);
+    }
+    return newGroups;
+  }
+
+  /**
+   * Given an initial collection of class groups which can potentially be merged, run all of the
+   * policies registered to this policy executor on the class groups yielding a new collection of
+   * class groups.
+   */
+  public Collection<MergeGroup> run(
+      Collection<MergeGroup> inputGroups,
+      Collection<Policy> policies,
+      ExecutorService executorService,
+      Timing timing)
+      throws ExecutionException {
+    List<MergeGroup> groups = new ArrayList<>(inputGroups);
+
+    for (Policy policy : policies) {
+      if (policy.shouldSkipPolicy()) {
+        continue;
+      }
+
+      timing.begin(policy.getName());
+      if (policy.isSingleClassPolicy()) {
+        groups = applySingleClassPolicy(policy.asSingleClassPolicy(), groups, executorService);
+      } else if (policy.isMultiClassPolicy()) {
+        groups = applyMultiClassPolicy(policy.asMultiClassPolicy(), groups, executorService);
+      } else {
+        assert policy.isMultiClassPolicyWithPreprocessing();
+        groups =
+            applyMultiClassPolicyWithPreprocessing(
+                policy.asMultiClassPolicyWithPreprocessing(), groups, executorService);
+      }
+      timing.end();
+
+      policy.clear();
+
+      if (groups.isEmpty()) {
+        break;
+      }
+
+      // Any policy should not return any trivial groups.
+      assert groups.stream().allMatch(group -> group.size() >= 2);
+    }
+
+    return groups;
+  }
+}
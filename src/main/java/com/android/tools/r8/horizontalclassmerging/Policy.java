@@ -54,6 +54,15 @@ public abstract class Policy {
     return false;
   }
 
+  /**
+   * Returns true if this policy can be applied to different groups at the same time. This
+   * requires that applying the policy to a group does not read or write any state that is shared
+   * with the application of the policy to other groups, such as caches.
+   */
+  public boolean canApplyToGroupsConcurrently() {
+    return false;
+  }
+
   /**
    * Remove all groups containing no or only a single class, as there is no point in merging these.
    */
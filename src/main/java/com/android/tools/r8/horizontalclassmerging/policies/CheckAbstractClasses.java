@@ -41,4 +41,9 @@ public class CheckAbstractClasses extends MultiClassSameReferencePolicy<Abstract
         ? AbstractClassification.ABSTRACT
         : AbstractClassification.NOT_ABSTRACT;
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
@@ -36,4 +36,9 @@ public class CheckSyntheticClasses extends SingleClassPolicy {
   public String getName() {
     return "CheckSyntheticClasses";
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
@@ -62,6 +62,11 @@ public class LimitClassGroups extends MultiClassPolicy {
     return "LimitGroups";
   }
 
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
+
   @Override
   public boolean isIdentityForInterfaceGroups() {
     return true;
@@ -38,4 +38,9 @@ public class NoApiOutlineWithNonApiOutline
       return SyntheticKindForMerging.NOT_API_MODEL;
     }
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
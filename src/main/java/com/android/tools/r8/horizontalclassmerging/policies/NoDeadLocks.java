@@ -63,4 +63,9 @@ public class NoDeadLocks extends MultiClassPolicy {
   public String getName() {
     return "NoDeadLocks";
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
@@ -49,4 +49,9 @@ public class NoDirectRuntimeTypeChecks extends SingleClassPolicy {
   public boolean shouldSkipPolicy() {
     return options.horizontalClassMergerOptions().isIgnoreRuntimeTypeChecksForTestingEnabled();
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
@@ -34,4 +34,9 @@ public class NoFailedResolutionTargets extends SingleClassPolicy {
   public boolean canMerge(DexProgramClass program) {
     return !failedResolutionHolders.contains(program.getType());
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
@@ -19,4 +19,9 @@ public class NoInnerClasses extends SingleClassPolicy {
   public String getName() {
     return "NoInnerClasses";
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
@@ -24,4 +24,9 @@ public class NoInstanceFieldAnnotations extends SingleClassPolicy {
   public String getName() {
     return "NoInstanceFieldAnnotations";
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
@@ -34,4 +34,9 @@ public class NoKotlinMetadata extends SingleClassPolicy {
   public String getName() {
     return "NoKotlinMetadata";
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
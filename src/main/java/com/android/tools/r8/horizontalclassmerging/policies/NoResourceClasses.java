@@ -18,4 +18,9 @@ public class NoResourceClasses extends SingleClassPolicy {
   public String getName() {
     return "NoResourceClasses";
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
@@ -32,4 +32,9 @@ public class NoVerticallyMergedClasses extends SingleClassPolicy {
   public String getName() {
     return "NotVerticallyMergedIntoSubtype";
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
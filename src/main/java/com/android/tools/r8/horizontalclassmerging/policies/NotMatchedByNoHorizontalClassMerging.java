@@ -26,4 +26,9 @@ public class NotMatchedByNoHorizontalClassMerging extends SingleClassPolicy {
   public String getName() {
     return "NotMatchedByNoHorizontalClassMerging";
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
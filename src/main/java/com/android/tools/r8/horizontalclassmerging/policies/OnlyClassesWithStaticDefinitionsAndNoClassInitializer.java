@@ -23,4 +23,9 @@ public class OnlyClassesWithStaticDefinitionsAndNoClassInitializer extends Singl
   public String getName() {
     return "OnlyStaticDefinitions";
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
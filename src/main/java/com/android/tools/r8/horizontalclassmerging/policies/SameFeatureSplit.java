@@ -28,4 +28,9 @@ public class SameFeatureSplit extends MultiClassSameReferencePolicy<FeatureSplit
   public String getName() {
     return "SameFeatureSplit";
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
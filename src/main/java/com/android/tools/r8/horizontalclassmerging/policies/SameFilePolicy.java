@@ -31,4 +31,9 @@ public class SameFilePolicy extends MultiClassSameReferencePolicy<String> {
   public boolean shouldSkipPolicy() {
     return !options.isSameFilePolicyEnabled();
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
@@ -48,6 +48,11 @@ public class SameInstanceFields extends MultiClassSameReferencePolicy<Multiset<I
     return "SameInstanceFields";
   }
 
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
+
   public static class InstanceFieldInfo {
 
     private final FieldAccessFlags accessFlags;
@@ -27,4 +27,9 @@ public class SameNestHost extends MultiClassSameReferencePolicy<DexType> {
   public String getName() {
     return "SameNestHost";
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
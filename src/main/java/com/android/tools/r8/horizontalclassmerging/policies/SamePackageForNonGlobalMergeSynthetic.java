@@ -78,4 +78,9 @@ public class SamePackageForNonGlobalMergeSynthetic extends MultiClassPolicy {
   public String getName() {
     return "SamePackageForApiOutline";
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
@@ -19,4 +19,9 @@ public class SameParentClass extends MultiClassSameReferencePolicy<DexType> {
   public String getName() {
     return "SameParentClass";
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return true;
+  }
 }
@@ -28,6 +28,11 @@ public class VerifyMultiClassPolicyAlwaysSatisfied extends MultiClassPolicy {
     return !InternalOptions.assertionsEnabled() || policy.shouldSkipPolicy();
   }
 
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return policy.canApplyToGroupsConcurrently();
+  }
+
   @Override
   public Collection<MergeGroup> apply(MergeGroup group) {
     assert verifySameAppliedGroup(group);
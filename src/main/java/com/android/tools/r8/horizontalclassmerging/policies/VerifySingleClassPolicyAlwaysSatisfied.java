@@ -31,4 +31,9 @@ public class VerifySingleClassPolicyAlwaysSatisfied extends SingleClassPolicy {
   public boolean shouldSkipPolicy() {
     return !InternalOptions.assertionsEnabled() || policy.shouldSkipPolicy();
   }
+
+  @Override
+  public boolean canApplyToGroupsConcurrently() {
+    return policy.canApplyToGroupsConcurrently();
+  }
 }
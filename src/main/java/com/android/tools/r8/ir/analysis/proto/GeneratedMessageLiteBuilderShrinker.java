@@ -485,17 +485,19 @@ public class GeneratedMessageLiteBuilderShrinker {
     }
 
     private void bypassClinitforInliningNewBuilderMethods(SubtypingInfo subtypingInfo) {
-      for (DexType type : subtypingInfo.subtypes(references.generatedMessageLiteType)) {
-        DexProgramClass clazz = appView.definitionFor(type).asProgramClass();
-        if (clazz != null) {
-          DexEncodedMethod newBuilderMethod =
-              clazz.lookupDirectMethod(
-                  method -> method.getReference().name == references.newBuilderMethodName);
-          if (newBuilderMethod != null) {
-            bypassClinitforInlining.add(newBuilderMethod.getReference());
-          }
-        }
-      }
+      subtypingInfo.forEachSubtype(
+          references.generatedMessageLiteType,
+          type -> {
+            DexProgramClass clazz = appView.definitionFor(type).asProgramClass();
+            if (clazz != null) {
+              DexEncodedMethod newBuilderMethod =
+                  clazz.lookupDirectMethod(
+                      method -> method.getReference().name == references.newBuilderMethodName);
+              if (newBuilderMethod != null) {
+                bypassClinitforInlining.add(newBuilderMethod.getReference());
+              }
+            }
+          });
     }
 
     private void alwaysInlineBuildPartialFromGeneratedMessageLiteExtendableBuilder() {
@@ -44,9 +44,10 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -165,20 +166,20 @@ public class Value implements Comparable<Value> {
 
   public static final int UNDEFINED_NUMBER = -1;
 
+  private static final int INITIAL_USER_LIST_CAPACITY = 2;
+
   public static final Value UNDEFINED = new Value(UNDEFINED_NUMBER, TypeElement.getBottom(), null);
 
   protected final int number;
   public Instruction definition = null;
 
-  // TODO(b/270398965): Replace LinkedList.
-  @SuppressWarnings("JdkObsolete")
-  private LinkedList<Instruction> users = new LinkedList<>();
+  // The user lists may contain duplicates. They are allocated when the first user is added, since
+  // most values only have a few users, and many values have no phi users at all.
+  private List<Instruction> users = Collections.emptyList();
 
   private Set<Instruction> uniqueUsers = null;
 
-  // TODO(b/270398965): Replace LinkedList.
-  @SuppressWarnings("JdkObsolete")
-  private LinkedList<Phi> phiUsers = new LinkedList<>();
+  private List<Phi> phiUsers = Collections.emptyList();
 
   private Set<Phi> uniquePhiUsers = null;
   private Value nextConsecutive = null;
@@ -369,7 +370,7 @@ public class Value implements Comparable<Value> {
 
   public Instruction singleUniqueUser() {
     assert ImmutableSet.copyOf(users).size() == 1;
-    return users.getFirst();
+    return users.get(0);
   }
 
   public Set<Instruction> aliasedUsers() {
@@ -402,7 +403,7 @@ public class Value implements Comparable<Value> {
 
   public Phi firstPhiUser() {
     assert !phiUsers.isEmpty();
-    return phiUsers.getFirst();
+    return phiUsers.get(0);
   }
 
   public Set<Phi> uniquePhiUsers() {
@@ -509,6 +510,7 @@ public class Value implements Comparable<Value> {
   }
 
   public void addUser(Instruction user) {
+    users = ensureMutableUserList(users);
     users.add(user);
     uniqueUsers = null;
   }
@@ -538,6 +540,7 @@ public class Value implements Comparable<Value> {
   }
 
   public void addPhiUser(Phi user) {
+    phiUsers = ensureMutableUserList(phiUsers);
     phiUsers.add(user);
     uniquePhiUsers = null;
   }
@@ -552,6 +555,12 @@ public class Value implements Comparable<Value> {
     uniquePhiUsers = null;
   }
 
+  private static <T> List<T> ensureMutableUserList(List<T> userList) {
+    return userList == Collections.<T>emptyList()
+        ? new ArrayList<>(INITIAL_USER_LIST_CAPACITY)
+        : userList;
+  }
+
   public boolean isUninitializedLocal() {
     return definition != null && definition.isDebugLocalUninitialized();
   }
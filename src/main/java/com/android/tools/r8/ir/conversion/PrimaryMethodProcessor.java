@@ -7,6 +7,7 @@ package com.android.tools.r8.ir.conversion;
 import com.android.tools.r8.contexts.CompilationContext.MethodProcessingContext;
 import com.android.tools.r8.contexts.CompilationContext.ProcessorContext;
 import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.Code;
 import com.android.tools.r8.graph.ProgramMethod;
 import com.android.tools.r8.ir.conversion.callgraph.CallGraph;
 import com.android.tools.r8.ir.conversion.callgraph.CallSiteInformation;
@@ -17,9 +18,13 @@ import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import com.android.tools.r8.utils.Timing.TimingMerger;
 import com.android.tools.r8.utils.collections.ProgramMethodSet;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 
@@ -137,20 +142,50 @@ public class PrimaryMethodProcessor extends MethodProcessorWithWave {
       assert waveExtension.isEmpty();
       do {
         waveStartAction.notifyWaveStart(wave);
+        List<ProgramMethod> orderedWave = orderBySizeDescending(wave);
+        long waveStartTime = System.nanoTime();
         Collection<Timing> timings =
             ThreadUtils.processItemsWithResults(
-                wave,
+                orderedWave,
                 method -> {
                   Timing time = consumer.apply(method, createMethodProcessingContext(method));
                   time.end();
                   return time;
                 },
                 executorService);
-        merger.add(timings);
+        merger.add(timings, System.nanoTime() - waveStartTime);
         waveDoneAction.notifyWaveDone(wave, executorService);
         prepareForWaveExtensionProcessing();
       } while (!wave.isEmpty());
     }
     merger.end();
   }
+
+  /**
+   * Returns the methods of the wave with the largest methods first.
+   *
+   * <p>The wave is done when its slowest method is done. Submitting the largest methods first lets
+   * the remaining threads process the small methods in the meantime, instead of leaving them idle
+   * at the end of the wave. The sort is stable, so the order is deterministic.
+   */
+  private static List<ProgramMethod> orderBySizeDescending(ProgramMethodSet wave) {
+    List<ProgramMethod> methods = new ArrayList<>(wave.size());
+    Reference2IntMap<ProgramMethod> sizes = new Reference2IntOpenHashMap<>(wave.size());
+    for (ProgramMethod method : wave) {
+      methods.add(method);
+      sizes.put(method, estimateProcessingCost(method));
+    }
+    methods.sort((x, y) -> Integer.compare(sizes.getInt(y), sizes.getInt(x)));
+    return methods;
+  }
+
+  private static int estimateProcessingCost(ProgramMethod method) {
+    Code code = method.getDefinition().getCode();
+    if (code == null) {
+      return 0;
+    }
+    return code.isLirCode()
+        ? code.asLirCode().getInstructionCount()
+        : code.estimatedSizeForInlining();
+  }
 }
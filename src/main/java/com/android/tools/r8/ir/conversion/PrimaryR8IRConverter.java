@@ -4,12 +4,16 @@
 
 package com.android.tools.r8.ir.conversion;
 
+import com.android.tools.r8.dex.code.DexInstruction;
+import com.android.tools.r8.dex.code.DexReturnVoid;
 import com.android.tools.r8.graph.AppInfoWithClassHierarchy;
 import com.android.tools.r8.graph.AppView;
 import com.android.tools.r8.graph.Code;
 import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexCode;
 import com.android.tools.r8.graph.DexEncodedMethod;
 import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.graph.ProgramMethod;
 import com.android.tools.r8.graph.PrunedItems;
 import com.android.tools.r8.graph.bytecodemetadata.BytecodeMetadataProvider;
@@ -252,6 +256,20 @@ public class PrimaryR8IRConverter extends IRConverter {
     if (!(code instanceof LirCode)) {
       return;
     }
+    LirCode<?> lirCode = (LirCode<?>) code;
+    if (appView.options().testing.enableDirectLirToDexFinalization
+        && canFinalizeLirDirectlyToDex(lirCode, appView)) {
+      DexCode dexCode = finalizeEmptyVoidLirMethodToDex(method);
+      assert dexCode.equals(finalizeLirMethodViaIR(method, deadCodeRemover, appView))
+          : "Unexpected direct finalization of " + method.toSourceString();
+      method.setCode(dexCode, appView);
+      return;
+    }
+    method.setCode(finalizeLirMethodViaIR(method, deadCodeRemover, appView), appView);
+  }
+
+  private static Code finalizeLirMethodViaIR(
+      ProgramMethod method, DeadCodeRemover deadCodeRemover, AppView<?> appView) {
     Timing onThreadTiming = Timing.empty();
     IRCode irCode = method.buildIR(appView, MethodConversionOptions.forPostLirPhase(appView));
     // Processing is done and no further uses of the meta-data should arise.
@@ -263,7 +281,27 @@ public class PrimaryR8IRConverter extends IRConverter {
     MethodConversionOptions conversionOptions = irCode.getConversionOptions();
     assert !conversionOptions.isGeneratingLir();
     IRFinalizer<?> finalizer = conversionOptions.getFinalizer(deadCodeRemover, appView);
-    method.setCode(finalizer.finalizeCode(irCode, noMetadata, onThreadTiming), appView);
+    return finalizer.finalizeCode(irCode, noMetadata, onThreadTiming);
+  }
+
+  // Empty void methods are common (e.g., after optimizing away the body of a method that cannot be
+  // removed) and their DEX code only depends on the method signature. In release mode, the code of
+  // such methods has no debug info, since return-void cannot throw.
+  private static boolean canFinalizeLirDirectlyToDex(LirCode<?> lirCode, AppView<?> appView) {
+    return appView.options().isGeneratingDex()
+        && !appView.options().debug
+        && lirCode.getTryCatchTable() == null
+        && lirCode.getDebugLocalInfoTable() == null
+        && lirCode.isEmptyVoidMethod();
+  }
+
+  private static DexCode finalizeEmptyVoidLirMethodToDex(ProgramMethod method) {
+    int argumentRegisters = method.getDefinition().isStatic() ? 0 : 1;
+    for (DexType parameter : method.getParameters()) {
+      argumentRegisters += parameter.getRequiredRegisters();
+    }
+    return new DexCode(
+        argumentRegisters, argumentRegisters, 0, new DexInstruction[] {new DexReturnVoid()});
   }
 
   private void clearDexMethodCompilationState() {
@@ -104,7 +104,6 @@ import com.android.tools.r8.ir.optimize.info.MutableMethodOptimizationInfo;
 import com.android.tools.r8.ir.optimize.info.OptimizationFeedback.OptimizationInfoFixer;
 import com.android.tools.r8.ir.optimize.info.OptimizationFeedbackDelayed;
 import com.android.tools.r8.shaking.AppInfoWithLiveness;
-import com.android.tools.r8.shaking.KeepInfoCollection;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.Timing;
@@ -807,11 +806,12 @@ public class EnumUnboxerImpl extends EnumUnboxer {
   }
 
   private void updateKeepInfo(Set<DexType> enumsToUnbox) {
-    KeepInfoCollection keepInfo = appView.appInfo().getKeepInfo();
-    keepInfo.mutate(
-        mutator ->
-            mutator.removeKeepInfoForPrunedItems(
-                PrunedItems.builder().setRemovedClasses(enumsToUnbox).build()));
+    appView
+        .appInfo()
+        .mutateKeepInfo(
+            mutator ->
+                mutator.removeKeepInfoForPrunedItems(
+                    PrunedItems.builder().setRemovedClasses(enumsToUnbox).build()));
   }
 
   public EnumDataMap finishAnalysis() {
@@ -80,14 +80,24 @@ public class OutlineCollection {
     return ListUtils.mapOrElse(outlines, outline -> outline.rewrittenWithLens(currentGraphLens));
   }
 
-  public ProgramMethodSet computeMethodsSubjectToOutlining(AppView<AppInfoWithLiveness> appView) {
+  /**
+   * Returns the methods that have an outline candidate that occurs frequently enough to be
+   * outlined. If {@param infrequentOutlines} is non-null, the remaining outline candidates are
+   * added to it together with the methods they occur in.
+   */
+  public ProgramMethodSet computeMethodsSubjectToOutlining(
+      AppView<AppInfoWithLiveness> appView,
+      Map<Outline, List<ProgramMethod>> infrequentOutlines) {
     ProgramMethodSet result = ProgramMethodSet.create();
     Map<Outline, List<ProgramMethod>> methodsPerOutline = computeMethodsPerOutline(appView);
-    for (List<ProgramMethod> methodsWithSameOutline : methodsPerOutline.values()) {
-      if (methodsWithSameOutline.size() >= appView.options().outline.threshold) {
-        result.addAll(methodsWithSameOutline);
-      }
-    }
+    methodsPerOutline.forEach(
+        (outline, methodsWithSameOutline) -> {
+          if (methodsWithSameOutline.size() >= appView.options().outline.threshold) {
+            result.addAll(methodsWithSameOutline);
+          } else if (infrequentOutlines != null) {
+            infrequentOutlines.put(outline, methodsWithSameOutline);
+          }
+        });
     return result;
   }
 
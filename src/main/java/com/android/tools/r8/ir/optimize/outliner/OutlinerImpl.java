@@ -85,6 +85,8 @@ import com.android.tools.r8.utils.collections.ProgramMethodSet;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -110,7 +112,7 @@ import java.util.function.Consumer;
  *       containing each candidate. IR is converted to the output format (DEX or CF) and thrown away
  *       along with the outlining candidates; only a list of lists of methods is kept, where each
  *       list of methods corresponds to methods containing an outlining candidate.
- *   <li>Second, {@link OutlinerImpl#selectMethodsForOutlining()} is called to retain the lists of
+ *   <li>Second, {@link OutlinerImpl#selectMethodsForOutlining} is called to retain the lists of
  *       methods found in the first step that are large enough (see {@link InternalOptions#outline}
  *       {@link OutlineOptions#threshold}). Each selected method is then converted back to IR and
  *       passed to {@link OutlinerImpl#identifyOutlineSites(IRCode)}, which then stores concrete
@@ -130,12 +132,19 @@ public class OutlinerImpl extends Outliner {
    */
   private OutlineCollection outlineCollection;
 
-  /** Result of second step (see {@link OutlinerImpl#selectMethodsForOutlining()}. */
+  /** Result of second step (see {@link OutlinerImpl#selectMethodsForOutlining}. */
   private final Map<Outline, List<ProgramMethod>> outlineSites = new HashMap<>();
 
   /** Result of third step (see {@link OutlinerImpl#buildOutlineMethods()}. */
   private final Map<Outline, DexMethod> generatedOutlines = new HashMap<>();
 
+  /**
+   * Outline candidates that are too infrequent to be outlined, mapped to the parts of the
+   * candidate that should be outlined instead, see {@link RepeatedSequenceOutlineDiscovery}. The
+   * parts are given as [start, end[ pairs of indices into the template instructions.
+   */
+  private final Map<Outline, int[]> outlineSplits = new HashMap<>();
+
   static final int MAX_IN_SIZE = 5; // Avoid using ranged calls for outlined code.
 
   private final AppView<AppInfoWithLiveness> appView;
@@ -784,6 +793,7 @@ public class OutlinerImpl extends Outliner {
     Value returnValue;
     int returnValueUniqueUsersLeft;
     int pendingNewInstanceIndex = -1;
+    boolean allowSplitting = true;
 
     OutlineSpotter(
         ProgramMethod method, IRCode irCode, List<Instruction> currentCandidateInstructions) {
@@ -1156,12 +1166,38 @@ public class OutlinerImpl extends Outliner {
       Outline outline =
           new Outline(
               currentCandidateInstructions, argumentTypes, argumentsMap, returnType, start, end);
-      handle(start, end, outline);
+      int[] splits = allowSplitting ? outlineSplits.get(outline) : null;
+      if (splits != null) {
+        handleSplits(start, end, splits);
+      } else {
+        handle(start, end, outline);
+      }
 
       // Start a new candidate search from the next instruction after this outline.
       reset(index);
     }
 
+    // Spot the outline candidates in each of the given parts of the candidate [start, end[.
+    private void handleSplits(int start, int end, int[] splits) {
+      IntList templateInstructionIndices = new IntArrayList();
+      for (int i = start; i < end; i++) {
+        Instruction instruction = currentCandidateInstructions.get(i);
+        if (!instruction.isConstInstruction() && !instruction.isAssume()) {
+          templateInstructionIndices.add(i);
+        }
+      }
+      for (int i = 0; i < splits.length; i += 2) {
+        int splitStart = templateInstructionIndices.getInt(splits[i]);
+        int splitEnd = templateInstructionIndices.getInt(splits[i + 1] - 1) + 1;
+        OutlineSpotter spotter =
+            createSpotter(currentCandidateInstructions.subList(splitStart, splitEnd));
+        spotter.allowSplitting = false;
+        spotter.process();
+      }
+    }
+
+    protected abstract OutlineSpotter createSpotter(List<Instruction> instructions);
+
     // Restart the collection of outline candidate to the given instruction start index.
     private void reset(int startIndex) {
       start = startIndex;
@@ -1197,6 +1233,11 @@ public class OutlinerImpl extends Outliner {
     protected void handle(int start, int end, Outline outline) {
       outlinesForMethod.add(outline);
     }
+
+    @Override
+    protected OutlineSpotter createSpotter(List<Instruction> instructions) {
+      return new OutlineMethodIdentifier(method, irCode, instructions, outlinesForMethod);
+    }
   }
 
   private class OutlineSiteIdentifier extends OutlineSpotter {
@@ -1212,6 +1253,11 @@ public class OutlinerImpl extends Outliner {
         outlineSites.computeIfAbsent(outline, k -> new ArrayList<>()).add(method);
       }
     }
+
+    @Override
+    protected OutlineSpotter createSpotter(List<Instruction> instructions) {
+      return new OutlineSiteIdentifier(method, irCode, instructions);
+    }
   }
 
   // Replace instructions with a call to the outlined method.
@@ -1319,6 +1365,11 @@ public class OutlinerImpl extends Outliner {
       affectedValues.widening(appView, code);
     }
 
+    @Override
+    protected OutlineSpotter createSpotter(List<Instruction> instructions) {
+      return new OutlineRewriter(code, instructions, toRemove, invokesToOutlineMethods);
+    }
+
     /** When assertions are enabled, remove method from the outline's list. */
     private boolean removeMethodFromOutlineList(Outline outline) {
       synchronized (outlineSites) {
@@ -1364,7 +1415,7 @@ public class OutlinerImpl extends Outliner {
     assert feedback.noUpdatesLeft();
     converter.printPhase("Outlining");
     timing.begin("IR conversion phase 3");
-    ProgramMethodSet methodsSelectedForOutlining = selectMethodsForOutlining();
+    ProgramMethodSet methodsSelectedForOutlining = selectMethodsForOutlining(executorService);
     if (!methodsSelectedForOutlining.isEmpty()) {
       OutlineOptimizationEventConsumer eventConsumer =
           OutlineOptimizationEventConsumer.create(appView);
@@ -1526,12 +1577,59 @@ public class OutlinerImpl extends Outliner {
         instructions -> new OutlineSiteIdentifier(context, code, instructions).process());
   }
 
-  public ProgramMethodSet selectMethodsForOutlining() {
-    ProgramMethodSet result = outlineCollection.computeMethodsSubjectToOutlining(appView);
+  public ProgramMethodSet selectMethodsForOutlining(ExecutorService executorService)
+      throws ExecutionException {
+    Map<Outline, List<ProgramMethod>> infrequentOutlines =
+        appView.options().outline.enableRepeatedSequenceDiscovery ? new HashMap<>() : null;
+    ProgramMethodSet result =
+        outlineCollection.computeMethodsSubjectToOutlining(appView, infrequentOutlines);
     outlineCollection = null;
+    if (infrequentOutlines != null && !infrequentOutlines.isEmpty()) {
+      computeOutlineSplits(infrequentOutlines, result, executorService);
+    }
     return result;
   }
 
+  // Finds the instruction sequences that are repeated frequently enough across the infrequent
+  // outline candidates, and selects the methods with such a sequence for outlining.
+  private void computeOutlineSplits(
+      Map<Outline, List<ProgramMethod>> infrequentOutlines,
+      ProgramMethodSet methodsSelectedForOutlining,
+      ExecutorService executorService)
+      throws ExecutionException {
+    List<Outline> outlines = new ArrayList<>(infrequentOutlines.keySet());
+    outlines.sort(Comparator.naturalOrder());
+    Map<OutlineInstruction, Integer> tokens = new HashMap<>();
+    int[][] sequences = new int[outlines.size()][];
+    int[] weights = new int[outlines.size()];
+    for (int i = 0; i < outlines.size(); i++) {
+      Outline outline = outlines.get(i);
+      List<OutlineInstruction> templateInstructions = outline.templateInstructions;
+      int[] sequence = new int[templateInstructions.size()];
+      for (int j = 0; j < sequence.length; j++) {
+        Integer token = tokens.get(templateInstructions.get(j));
+        if (token == null) {
+          token = tokens.size();
+          tokens.put(templateInstructions.get(j), token);
+        }
+        sequence[j] = token;
+      }
+      sequences[i] = sequence;
+      weights[i] = infrequentOutlines.get(outline).size();
+    }
+    OutlineOptions options = appView.options().outline;
+    int[][] splits =
+        new RepeatedSequenceOutlineDiscovery(sequences, weights, options.minSize, options.threshold)
+            .run(executorService);
+    for (int i = 0; i < outlines.size(); i++) {
+      if (splits[i] != null) {
+        Outline outline = outlines.get(i);
+        outlineSplits.put(outline, splits[i]);
+        methodsSelectedForOutlining.addAll(infrequentOutlines.get(outline));
+      }
+    }
+  }
+
   public List<ProgramMethod> buildOutlineMethods(OutlineOptimizationEventConsumer eventConsumer) {
     ProcessorContext outlineProcessorContext = appView.createProcessorContext();
     Map<DexMethod, MethodProcessingContext> methodProcessingContexts = new IdentityHashMap<>();
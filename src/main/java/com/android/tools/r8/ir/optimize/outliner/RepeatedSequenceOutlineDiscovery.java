@@ -0,0 +1,293 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir.optimize.outliner;
+
+import com.android.tools.r8.utils.InternalOptions.OutlineOptions;
+import com.android.tools.r8.utils.ThreadUtils;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Finds instruction sequences that are repeated across outline candidates that are each too
+ * infrequent to be outlined, such that the common part of these candidates can be outlined
+ * instead.
+ *
+ * <p>Each outline candidate is given as a sequence of non-negative tokens, where equal tokens
+ * represent equal outline instructions, together with the number of sites of the candidate. The
+ * suffixes of all sequences are sorted into a suffix array, and the longest common prefixes (LCP)
+ * of adjacent suffixes are used to enumerate the subsequences that occur at least {@link
+ * OutlineOptions#threshold} times. These subsequences are then selected greedily by their
+ * estimated size reduction, such that the selected occurrences do not overlap.
+ */
+class RepeatedSequenceOutlineDiscovery {
+
+  private final int minSize;
+  private final int threshold;
+
+  // The concatenation of all sequences, and for each position the index of the sequence.
+  private final int[] text;
+  private final int[] sequenceOfPosition;
+  private final int[] sequenceStarts;
+  private final int[] weights;
+
+  RepeatedSequenceOutlineDiscovery(int[][] sequences, int[] weights, int minSize, int threshold) {
+    assert sequences.length == weights.length;
+    this.minSize = minSize;
+    this.threshold = threshold;
+    this.weights = weights;
+    this.sequenceStarts = new int[sequences.length + 1];
+    for (int i = 0; i < sequences.length; i++) {
+      sequenceStarts[i + 1] = sequenceStarts[i] + sequences[i].length;
+    }
+    this.text = new int[sequenceStarts[sequences.length]];
+    this.sequenceOfPosition = new int[text.length];
+    for (int i = 0; i < sequences.length; i++) {
+      System.arraycopy(sequences[i], 0, text, sequenceStarts[i], sequences[i].length);
+      for (int position = sequenceStarts[i]; position < sequenceStarts[i + 1]; position++) {
+        sequenceOfPosition[position] = i;
+      }
+    }
+  }
+
+  /**
+   * Returns for each sequence the selected subsequences as a flat array of [start, end[ pairs
+   * relative to the start of the sequence, or null if no subsequences were selected.
+   */
+  int[][] run(ExecutorService executorService) throws ExecutionException {
+    int[] suffixArray = computeSuffixArray(executorService);
+    int[] lcp = computeLongestCommonPrefixes(suffixArray);
+    List<RepeatedSequence> repeatedSequences = computeRepeatedSequences(suffixArray, lcp);
+    return selectRepeatedSequences(suffixArray, repeatedSequences);
+  }
+
+  private int sequenceEnd(int position) {
+    return sequenceStarts[sequenceOfPosition[position] + 1];
+  }
+
+  private int[] computeSuffixArray(ExecutorService executorService) throws ExecutionException {
+    // Group the suffixes by their first token, such that the groups can be sorted concurrently.
+    // Suffixes shorter than the minimum outline size cannot start a repeated sequence of interest,
+    // and are therefore left out.
+    int numberOfTokens = 0;
+    for (int token : text) {
+      assert token >= 0;
+      numberOfTokens = Math.max(numberOfTokens, token + 1);
+    }
+    IntList[] suffixesByFirstToken = new IntList[numberOfTokens];
+    for (int position = 0; position < text.length; position++) {
+      if (sequenceEnd(position) - position >= minSize) {
+        IntList suffixes = suffixesByFirstToken[text[position]];
+        if (suffixes == null) {
+          suffixes = new IntArrayList();
+          suffixesByFirstToken[text[position]] = suffixes;
+        }
+        suffixes.add(position);
+      }
+    }
+    List<int[]> buckets = new ArrayList<>();
+    int numberOfSuffixes = 0;
+    for (IntList suffixes : suffixesByFirstToken) {
+      if (suffixes != null) {
+        buckets.add(suffixes.toIntArray());
+        numberOfSuffixes += suffixes.size();
+      }
+    }
+    ThreadUtils.processItems(buckets, this::sortSuffixes, executorService);
+    int[] suffixArray = new int[numberOfSuffixes];
+    int index = 0;
+    for (int[] bucket : buckets) {
+      System.arraycopy(bucket, 0, suffixArray, index, bucket.length);
+      index += bucket.length;
+    }
+    return suffixArray;
+  }
+
+  // Merge sort of the given suffixes.
+  private void sortSuffixes(int[] suffixes) {
+    int[] buffer = new int[suffixes.length];
+    for (int width = 1; width < suffixes.length; width *= 2) {
+      for (int low = 0; low < suffixes.length - width; low += 2 * width) {
+        int middle = low + width;
+        int high = Math.min(low + 2 * width, suffixes.length);
+        int i = low;
+        int j = middle;
+        int k = low;
+        while (i < middle && j < high) {
+          buffer[k++] =
+              compareSuffixes(suffixes[i], suffixes[j]) <= 0 ? suffixes[i++] : suffixes[j++];
+        }
+        while (i < middle) {
+          buffer[k++] = suffixes[i++];
+        }
+        while (j < high) {
+          buffer[k++] = suffixes[j++];
+        }
+        System.arraycopy(buffer, low, suffixes, low, high - low);
+      }
+    }
+  }
+
+  // Compares two suffixes, where each suffix ends at the end of its sequence. Equal suffixes are
+  // ordered by their position to ensure a deterministic suffix array.
+  private int compareSuffixes(int x, int y) {
+    int xEnd = sequenceEnd(x);
+    int yEnd = sequenceEnd(y);
+    int length = commonPrefixLength(x, y);
+    if (x + length < xEnd && y + length < yEnd) {
+      return Integer.compare(text[x + length], text[y + length]);
+    }
+    int result = Integer.compare(xEnd - x, yEnd - y);
+    return result != 0 ? result : Integer.compare(x, y);
+  }
+
+  private int commonPrefixLength(int x, int y) {
+    int maxLength = Math.min(sequenceEnd(x) - x, sequenceEnd(y) - y);
+    int length = 0;
+    while (length < maxLength && text[x + length] == text[y + length]) {
+      length++;
+    }
+    return length;
+  }
+
+  // Computes the LCP of each suffix and its predecessor in the suffix array. The last entry is a
+  // sentinel that closes all open LCP intervals.
+  private int[] computeLongestCommonPrefixes(int[] suffixArray) {
+    int[] lcp = new int[suffixArray.length + 1];
+    for (int i = 1; i < suffixArray.length; i++) {
+      lcp[i] = commonPrefixLength(suffixArray[i - 1], suffixArray[i]);
+    }
+    return lcp;
+  }
+
+  // Enumerates the LCP intervals of the suffix array. Each LCP interval [lb, rb] with LCP value l
+  // corresponds to a sequence of length l that starts at each of the suffixes in the interval.
+  private List<RepeatedSequence> computeRepeatedSequences(int[] suffixArray, int[] lcp) {
+    long[] weightPrefixSums = new long[suffixArray.length + 1];
+    for (int i = 0; i < suffixArray.length; i++) {
+      weightPrefixSums[i + 1] = weightPrefixSums[i] + weights[sequenceOfPosition[suffixArray[i]]];
+    }
+    List<RepeatedSequence> result = new ArrayList<>();
+    IntList lcpStack = new IntArrayList();
+    IntList lowerBoundStack = new IntArrayList();
+    lcpStack.add(0);
+    lowerBoundStack.add(0);
+    for (int i = 1; i <= suffixArray.length; i++) {
+      int lowerBound = i - 1;
+      while (lcp[i] < lcpStack.getInt(lcpStack.size() - 1)) {
+        int length = lcpStack.removeInt(lcpStack.size() - 1);
+        lowerBound = lowerBoundStack.removeInt(lowerBoundStack.size() - 1);
+        long weight = weightPrefixSums[i] - weightPrefixSums[lowerBound];
+        if (length >= minSize && weight >= threshold) {
+          result.add(new RepeatedSequence(length, lowerBound, i, weight));
+        }
+      }
+      if (lcp[i] > lcpStack.getInt(lcpStack.size() - 1)) {
+        lcpStack.add(lcp[i]);
+        lowerBoundStack.add(lowerBound);
+      }
+    }
+    return result;
+  }
+
+  private int[][] selectRepeatedSequences(
+      int[] suffixArray, List<RepeatedSequence> repeatedSequences) {
+    repeatedSequences.sort(
+        Comparator.comparingLong(RepeatedSequence::getEstimatedSizeReduction)
+            .reversed()
+            .thenComparing(Comparator.comparingInt(RepeatedSequence::getLength).reversed())
+            .thenComparingInt(RepeatedSequence::getLowerBound));
+    BitSet used = new BitSet(text.length);
+    // For each position the length of the selected occurrence starting at the position, if any.
+    int[] selectedLengths = new int[text.length];
+    for (RepeatedSequence repeatedSequence : repeatedSequences) {
+      int length = repeatedSequence.getLength();
+      int[] occurrences = new int[repeatedSequence.size()];
+      System.arraycopy(
+          suffixArray, repeatedSequence.getLowerBound(), occurrences, 0, occurrences.length);
+      Arrays.sort(occurrences);
+      // Only use the occurrences that do not overlap with a previously selected occurrence, and
+      // only select the sequence if it is still frequent enough using these occurrences.
+      IntList available = new IntArrayList();
+      long weight = 0;
+      int previousEnd = 0;
+      for (int occurrence : occurrences) {
+        int end = occurrence + length;
+        if (occurrence >= previousEnd) {
+          int nextUsed = used.nextSetBit(occurrence);
+          if (nextUsed < 0 || nextUsed >= end) {
+            available.add(occurrence);
+            weight += weights[sequenceOfPosition[occurrence]];
+            previousEnd = end;
+          }
+        }
+      }
+      if (weight < threshold) {
+        continue;
+      }
+      for (int occurrence : available) {
+        used.set(occurrence, occurrence + length);
+        selectedLengths[occurrence] = length;
+      }
+    }
+    int[][] result = new int[sequenceStarts.length - 1][];
+    for (int sequence = 0; sequence < result.length; sequence++) {
+      IntList ranges = null;
+      for (int position = sequenceStarts[sequence];
+          position < sequenceStarts[sequence + 1];
+          position++) {
+        if (selectedLengths[position] > 0) {
+          if (ranges == null) {
+            ranges = new IntArrayList();
+          }
+          ranges.add(position - sequenceStarts[sequence]);
+          ranges.add(position - sequenceStarts[sequence] + selectedLengths[position]);
+        }
+      }
+      if (ranges != null) {
+        result[sequence] = ranges.toIntArray();
+      }
+    }
+    return result;
+  }
+
+  private static class RepeatedSequence {
+
+    private final int length;
+    private final int lowerBound;
+    private final int upperBound;
+    private final long weight;
+
+    RepeatedSequence(int length, int lowerBound, int upperBound, long weight) {
+      this.length = length;
+      this.lowerBound = lowerBound;
+      this.upperBound = upperBound;
+      this.weight = weight;
+    }
+
+    // Each site saves all but one instruction, and the outline itself adds the instructions once.
+    long getEstimatedSizeReduction() {
+      return (length - 1) * weight - length;
+    }
+
+    int getLength() {
+      return length;
+    }
+
+    int getLowerBound() {
+      return lowerBound;
+    }
+
+    int size() {
+      return upperBound - lowerBound;
+    }
+  }
+}
@@ -46,6 +46,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Multisets;
 import com.google.common.collect.Sets;
+import it.unimi.dsi.fastutil.ints.AbstractIntIterator;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceMap.Entry;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceOpenHashMap;
@@ -57,6 +58,7 @@ import it.unimi.dsi.fastutil.ints.IntSet;
 import it.unimi.dsi.fastutil.objects.Reference2IntArrayMap;
 import it.unimi.dsi.fastutil.objects.Reference2IntMap;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashSet;
@@ -66,6 +68,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeSet;
@@ -144,20 +147,16 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   // The current register allocation mode.
   private ArgumentReuseMode mode = ArgumentReuseMode.ALLOW_ARGUMENT_REUSE_U4BIT;
   // The set of registers that are free for allocation.
-  private TreeSet<Integer> freeRegisters = new TreeSet<>();
+  private BitSet freeRegisters = new BitSet();
   // The max register number used.
   private int maxRegisterNumber = -1;
 
   // List of all top-level live intervals for all SSA values.
   private List<LiveIntervals> liveIntervals = new ArrayList<>();
   // List of active intervals.
-  // TODO(b/270398965): Replace LinkedList.
-  @SuppressWarnings("JdkObsolete")
-  private List<LiveIntervals> active = new LinkedList<>();
+  private List<LiveIntervals> active = new ArrayList<>();
   // List of intervals where the current instruction falls into one of their live range holes.
-  // TODO(b/270398965): Replace LinkedList.
-  @SuppressWarnings("JdkObsolete")
-  protected List<LiveIntervals> inactive = new LinkedList<>();
+  protected List<LiveIntervals> inactive = new ArrayList<>();
   // List of intervals that no register has been allocated to sorted by first live range.
   protected PriorityQueue<LiveIntervals> unhandled = new PriorityQueue<>();
 
@@ -1000,16 +999,14 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   }
 
   private boolean invariantsHold(ArgumentReuseMode mode) {
-    TreeSet<Integer> computedFreeRegisters = new TreeSet<>();
-    for (int register = 0; register <= maxRegisterNumber; ++register) {
-      computedFreeRegisters.add(register);
-    }
+    BitSet computedFreeRegisters = new BitSet();
+    computedFreeRegisters.set(0, maxRegisterNumber + 1);
     for (LiveIntervals activeIntervals : active) {
       assert registersForIntervalsAreTaken(activeIntervals);
       activeIntervals.forEachRegister(
           register -> {
-            assert computedFreeRegisters.contains(register);
-            computedFreeRegisters.remove(register);
+            assert computedFreeRegisters.get(register);
+            computedFreeRegisters.clear(register);
           });
     }
     if (mode == ArgumentReuseMode.ALLOW_ARGUMENT_REUSE_U8BIT
@@ -1025,8 +1022,8 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
                 .getSplitParent()
                 .forEachRegister(
                     register -> {
-                      assert computedFreeRegisters.contains(register);
-                      computedFreeRegisters.remove(register);
+                      assert computedFreeRegisters.get(register);
+                      computedFreeRegisters.clear(register);
                     });
           }
         }
@@ -1035,8 +1032,8 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     if (hasDedicatedMoveExceptionRegister()) {
       // Relax the check, since it is not currently guaranteed that the move exception register is
       // occupied if-and-only-if there is an active live interval with the register.
-      freeRegisters.remove(getMoveExceptionRegister());
-      computedFreeRegisters.remove(getMoveExceptionRegister());
+      freeRegisters.clear(getMoveExceptionRegister());
+      computedFreeRegisters.clear(getMoveExceptionRegister());
     }
     assert freeRegisters.equals(computedFreeRegisters);
     return true;
@@ -1053,7 +1050,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
         boolean isMoveExceptionRegister =
             hasDedicatedMoveExceptionRegister() && register == getMoveExceptionRegister();
         if (!isMoveExceptionRegister) {
-          assert freeRegisters.contains(register);
+          assert isFreeRegister(register);
         }
       }
     }
@@ -1118,8 +1115,6 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
    * allocated and have been moved from unhandled to inactive. The move sources have their hints
    * updated. The rest of the register allocation state is unchanged.
    */
-  // TODO(b/270398965): Replace LinkedList.
-  @SuppressWarnings("JdkObsolete")
   private void allocateArgumentIntervalsWithSrc(LiveIntervals srcInterval, ArgumentReuseMode mode) {
     Value value = srcInterval.getValue();
     for (Instruction instruction : value.uniqueUsers()) {
@@ -1132,9 +1127,9 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
         LiveIntervals destIntervals = dest.getLiveIntervals();
         if (destIntervals.getRegister() == NO_REGISTER) {
           // Save the current register allocation state so we can restore it at the end.
-          TreeSet<Integer> savedFreeRegisters = new TreeSet<>(freeRegisters);
+          BitSet savedFreeRegisters = (BitSet) freeRegisters.clone();
           int savedMaxRegisterNumber = maxRegisterNumber;
-          List<LiveIntervals> savedInactive = new LinkedList<>(inactive);
+          List<LiveIntervals> savedInactive = new ArrayList<>(inactive);
 
           // Add all the active intervals to the inactive set. When allocating linked intervals we
           // check all inactive intervals and exclude the registers for overlapping inactive
@@ -1174,9 +1169,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
           // Restore the register allocation state.
           freeRegisters = savedFreeRegisters;
           // In case maxRegisterNumber has changed, update freeRegisters.
-          for (int i = savedMaxRegisterNumber + 1; i <= maxRegisterNumber; i++) {
-            freeRegisters.add(i);
-          }
+          addFreeRegisters(savedMaxRegisterNumber + 1, maxRegisterNumber);
 
           inactive = savedInactive;
           // Move all the argument intervals to the inactive set.
@@ -1221,7 +1214,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     // Exclude move exception register if the first interval overlaps a move exception interval.
     // It is not necessary to check the remaining consecutive intervals, since we always use
     // register 0 (after remapping) for the argument register.
-    if (overlapsMoveExceptionInterval(start) && freeRegisters.remove(getMoveExceptionRegister())) {
+    if (overlapsMoveExceptionInterval(start) && takeFreeRegister(getMoveExceptionRegister())) {
       excludedRegisters.add(getMoveExceptionRegister());
     }
     // Select registers.
@@ -1251,7 +1244,9 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     takeFreeRegistersForIntervals(unhandledInterval);
     active.add(unhandledInterval);
     // Include the registers for inactive ranges that we had to exclude for this allocation.
-    freeRegisters.addAll(excludedRegisters);
+    for (IntIterator iterator = excludedRegisters.iterator(); iterator.hasNext(); ) {
+      freeRegisters.set(iterator.nextInt());
+    }
   }
 
   // Returns true if intervals has an unhandled split, which overlaps with chain or any of its
@@ -1293,11 +1288,15 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
       return intervals.getSplitParent().getRegister();
     }
 
-    TreeSet<Integer> previousFreeRegisters = new TreeSet<>(freeRegisters);
+    BitSet previousFreeRegisters = (BitSet) freeRegisters.clone();
     int previousMaxRegisterNumber = maxRegisterNumber;
-    freeRegisters.removeAll(expiredHere);
+    for (int i = 0; i < expiredHere.size(); i++) {
+      takeFreeRegister(expiredHere.getInt(i));
+    }
     if (excludedRegisters != null) {
-      freeRegisters.removeAll(excludedRegisters);
+      for (int i = 0; i < excludedRegisters.size(); i++) {
+        takeFreeRegister(excludedRegisters.getInt(i));
+      }
     }
 
     // Check if we can use a register that was previously used as a register for intervals.
@@ -1329,9 +1328,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     freeRegisters = previousFreeRegisters;
     // If getFreeConsecutiveRegisters had to increment |maxRegisterNumber|, we need to update
     // freeRegisters.
-    for (int i = previousMaxRegisterNumber + 1; i <= maxRegisterNumber; ++i) {
-      freeRegisters.add(i);
-    }
+    addFreeRegisters(previousMaxRegisterNumber + 1, maxRegisterNumber);
     assert registersAreFree(register, intervals.getType().isWide());
     return register;
   }
@@ -1358,14 +1355,14 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
       do {
         if (argumentLiveIntervals.anySplitOverlaps(intervals)) {
           // Remove so that next invocation of getFreeConsecutiveRegisters does not consider this.
-          freeRegisters.remove(register);
+          takeFreeRegister(register);
           // We have just established that there is an overlap between the live range of the
           // current argument and the live range we need to find a register for. Therefore, if
           // the argument is wide, and the current register corresponds to the low register of the
           // argument, we know that the subsequent register will not work either.
           if (register == argumentLiveIntervals.getRegister()
               && argumentLiveIntervals.getType().isWide()) {
-            freeRegisters.remove(register + 1);
+            takeFreeRegister(register + 1);
           }
           return false;
         }
@@ -1386,10 +1383,10 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     }
     if (overlapsInactiveIntervals != null) {
       // Remove so that next invocation of getFreeConsecutiveRegisters does not consider this.
-      freeRegisters.remove(register);
+      takeFreeRegister(register);
       if (register == overlapsInactiveIntervals.getRegister()
           && overlapsInactiveIntervals.getType().isWide()) {
-        freeRegisters.remove(register + 1);
+        takeFreeRegister(register + 1);
       }
       return false;
     }
@@ -1402,7 +1399,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
             && overlapsMoveExceptionInterval(intervals);
     if (overlapsMoveExceptionInterval) {
       // Remove so that next invocation of getFreeConsecutiveRegisters does not consider this.
-      freeRegisters.remove(register);
+      takeFreeRegister(register);
       return false;
     }
 
@@ -3047,9 +3044,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
 
   private void increaseCapacity(int newMaxRegisterNumber, boolean takeRegisters) {
     if (!takeRegisters) {
-      for (int register = maxRegisterNumber + 1; register <= newMaxRegisterNumber; ++register) {
-        freeRegisters.add(register);
-      }
+      addFreeRegisters(maxRegisterNumber + 1, newMaxRegisterNumber);
     }
     maxRegisterNumber = newMaxRegisterNumber;
   }
@@ -3060,7 +3055,49 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
 
   private int getFreeConsecutiveRegisters(int numberOfRegisters, boolean prioritizeSmallRegisters) {
     int oldMaxRegisterNumber = maxRegisterNumber;
-    TreeSet<Integer> freeRegistersWithDesiredOrdering = this.freeRegisters;
+    // If small registers are prioritized, then the free non-argument registers are visited before
+    // the free argument registers.
+    IntIterator freeRegistersIterator =
+        prioritizeSmallRegisters
+            ? new FreeRegistersIterator(freeRegisters, numberOfArgumentRegisters)
+            : new FreeRegistersIterator(freeRegisters, 0);
+    int first = getNextFreeRegister(freeRegistersIterator);
+    int current = first;
+    while (current - first + 1 != numberOfRegisters) {
+      for (int i = 0; i < numberOfRegisters - 1; i++) {
+        int next = getNextFreeRegister(freeRegistersIterator);
+        // We cannot allow that some are argument registers and some or not, because they will no
+        // longer be consecutive if we later decide to increment maxRegisterNumber.
+        if (next != current + 1 || next == numberOfArgumentRegisters) {
+          first = next;
+          current = first;
+          break;
+        }
+        current++;
+      }
+    }
+    assert oldMaxRegisterNumber >= maxRegisterNumber
+        || freeRegisters.get(oldMaxRegisterNumber + 1, maxRegisterNumber + 1).isEmpty();
+    assert !options().testing.verifyFreeRegistersAgainstTreeSetOrdering
+        || first
+            == getFreeConsecutiveRegistersWithTreeSetOrdering(
+                numberOfRegisters, prioritizeSmallRegisters, oldMaxRegisterNumber);
+    addFreeRegisters(oldMaxRegisterNumber + 1, maxRegisterNumber);
+    // Either all the consecutive registers are from the argument registers, or all are from the
+    // non-argument registers.
+    assert (first < numberOfArgumentRegisters
+            && first + numberOfRegisters - 1 < numberOfArgumentRegisters)
+        || (first >= numberOfArgumentRegisters
+            && first + numberOfRegisters - 1 >= numberOfArgumentRegisters);
+    return first;
+  }
+
+  // Returns the register that getFreeConsecutiveRegisters returned when the free registers were
+  // kept in a TreeSet with a comparator that visits the argument registers last. Used to verify
+  // that iterating the free registers in the BitSet does not change the register allocation.
+  private int getFreeConsecutiveRegistersWithTreeSetOrdering(
+      int numberOfRegisters, boolean prioritizeSmallRegisters, int oldMaxRegisterNumber) {
+    TreeSet<Integer> freeRegistersWithDesiredOrdering = new TreeSet<>();
     if (prioritizeSmallRegisters) {
       freeRegistersWithDesiredOrdering =
           new TreeSet<>(
@@ -3078,17 +3115,16 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
                 // Otherwise use their normal ordering.
                 return x - y;
               });
-      freeRegistersWithDesiredOrdering.addAll(this.freeRegisters);
     }
-
+    freeRegisters.stream().forEach(freeRegistersWithDesiredOrdering::add);
     Iterator<Integer> freeRegistersIterator = freeRegistersWithDesiredOrdering.iterator();
-    int first = getNextFreeRegister(freeRegistersIterator);
+    int nextNewRegister = oldMaxRegisterNumber + 1;
+    int first = freeRegistersIterator.hasNext() ? freeRegistersIterator.next() : nextNewRegister++;
     int current = first;
     while (current - first + 1 != numberOfRegisters) {
       for (int i = 0; i < numberOfRegisters - 1; i++) {
-        int next = getNextFreeRegister(freeRegistersIterator);
-        // We cannot allow that some are argument registers and some or not, because they will no
-        // longer be consecutive if we later decide to increment maxRegisterNumber.
+        int next =
+            freeRegistersIterator.hasNext() ? freeRegistersIterator.next() : nextNewRegister++;
         if (next != current + 1 || next == numberOfArgumentRegisters) {
           first = next;
           current = first;
@@ -3097,25 +3133,15 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
         current++;
       }
     }
-    for (int register = oldMaxRegisterNumber + 1; register <= maxRegisterNumber; ++register) {
-      boolean wasAdded = freeRegisters.add(register);
-      assert wasAdded;
-    }
-    // Either all the consecutive registers are from the argument registers, or all are from the
-    // non-argument registers.
-    assert (first < numberOfArgumentRegisters
-            && first + numberOfRegisters - 1 < numberOfArgumentRegisters)
-        || (first >= numberOfArgumentRegisters
-            && first + numberOfRegisters - 1 >= numberOfArgumentRegisters);
     return first;
   }
 
   private boolean registersAreFreeAndConsecutive(int register, boolean registerIsWide) {
-    if (!freeRegisters.contains(register)) {
+    if (!isFreeRegister(register)) {
       return false;
     }
     if (registerIsWide) {
-      if (!freeRegisters.contains(register + 1)) {
+      if (!isFreeRegister(register + 1)) {
         return false;
       }
       if (register == numberOfArgumentRegisters - 1) {
@@ -3126,19 +3152,39 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     return true;
   }
 
-  private int getNextFreeRegister(Iterator<Integer> freeRegistersIterator) {
+  private int getNextFreeRegister(IntIterator freeRegistersIterator) {
     if (freeRegistersIterator.hasNext()) {
-      return freeRegistersIterator.next();
+      return freeRegistersIterator.nextInt();
     }
     return ++maxRegisterNumber;
   }
 
+  // Adds the registers from |from| to |to|, both inclusive, to the set of free registers.
+  private void addFreeRegisters(int from, int to) {
+    if (from <= to) {
+      freeRegisters.set(from, to + 1);
+    }
+  }
+
+  private boolean isFreeRegister(int register) {
+    return register >= 0 && freeRegisters.get(register);
+  }
+
+  // Removes the register from the set of free registers. Returns true if the register was free.
+  private boolean takeFreeRegister(int register) {
+    if (isFreeRegister(register)) {
+      freeRegisters.clear(register);
+      return true;
+    }
+    return false;
+  }
+
   private void excludeRegistersForInterval(LiveIntervals intervals, IntSet excluded) {
     int register = intervals.getRegister();
     assert register != NO_REGISTER;
 
     for (int i = 0; i < intervals.requiredRegisters(); i++) {
-      if (freeRegisters.remove(register + i)) {
+      if (takeFreeRegister(register + i)) {
         excluded.add(register + i);
       }
     }
@@ -3155,9 +3201,9 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     assert registersForIntervalsAreTaken(intervals);
     int register = intervals.getRegister();
     assert register + intervals.requiredRegisters() - 1 <= maxRegisterNumber;
-    freeRegisters.add(register);
+    freeRegisters.set(register);
     if (intervals.getType().isWide()) {
-      freeRegisters.add(register + 1);
+      freeRegisters.set(register + 1);
     }
 
     if (intervals.isArgumentInterval() && intervals != intervals.getSplitParent()) {
@@ -3170,9 +3216,9 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
 
   private void takeFreeRegisters(int register, boolean isWide) {
     assert registersAreFree(register, isWide);
-    freeRegisters.remove(register);
+    takeFreeRegister(register);
     if (isWide) {
-      freeRegisters.remove(register + 1);
+      takeFreeRegister(register + 1);
     }
   }
 
@@ -3188,7 +3234,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   }
 
   private boolean registerIsFree(int register) {
-    return freeRegisters.contains(register)
+    return isFreeRegister(register)
         || (hasDedicatedMoveExceptionRegister() && register == getMoveExceptionRegister());
   }
 
@@ -3199,7 +3245,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   }
 
   private boolean registersAreTaken(int register, boolean isWide) {
-    return !freeRegisters.contains(register) && (!isWide || !freeRegisters.contains(register + 1));
+    return !isFreeRegister(register) && (!isWide || !isFreeRegister(register + 1));
   }
 
   private boolean registersForIntervalsAreTaken(LiveIntervals intervals) {
@@ -3208,7 +3254,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   }
 
   private boolean atLeastOneOfRegistersAreTaken(int register, boolean isWide) {
-    return !freeRegisters.contains(register) || (isWide && !freeRegisters.contains(register + 1));
+    return !isFreeRegister(register) || (isWide && !isFreeRegister(register + 1));
   }
 
   private boolean noLinkedValues() {
@@ -3266,4 +3312,60 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
       BasicBlock block, int suffixSize, List<BasicBlock> predsBeforeSplit) {
     // Intentionally empty, we don't need to track suffix sharing in this allocator.
   }
+
+  /**
+   * Iterator over the set bits of a set of free registers, starting from a given register. When the
+   * registers from the start register and up have been visited, the registers below the start
+   * register are visited.
+   */
+  private static class FreeRegistersIterator extends AbstractIntIterator {
+
+    private final BitSet registers;
+    private final int start;
+
+    private int next;
+    private boolean wrapped;
+
+    FreeRegistersIterator(BitSet registers, int start) {
+      this.registers = registers;
+      this.start = start;
+      this.next = registers.nextSetBit(start);
+      this.wrapped = start == 0;
+      if (next < 0) {
+        wrap();
+      }
+    }
+
+    private void wrap() {
+      if (!wrapped) {
+        wrapped = true;
+        next = registers.nextSetBit(0);
+        if (next >= start) {
+          next = -1;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next >= 0;
+    }
+
+    @Override
+    public int nextInt() {
+      if (next < 0) {
+        throw new NoSuchElementException();
+      }
+      int result = next;
+      next = registers.nextSetBit(result + 1);
+      if (wrapped) {
+        if (next >= start && start > 0) {
+          next = -1;
+        }
+      } else if (next < 0) {
+        wrap();
+      }
+      return result;
+    }
+  }
 }
@@ -3,7 +3,12 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8.lightir;
 
+import com.android.tools.r8.errors.Unreachable;
 import it.unimi.dsi.fastutil.bytes.ByteIterator;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 /** Simple utilities for byte encodings. */
 public class ByteUtils {
@@ -103,4 +108,42 @@ public class ByteUtils {
   public static int setBitAtIndex(int value, int index) {
     return value | (1 << (index - 1));
   }
+
+  public static byte[] compress(byte[] bytes) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length);
+      byte[] buffer = new byte[Math.max(bytes.length, 64)];
+      while (!deflater.finished()) {
+        int length = deflater.deflate(buffer);
+        output.write(buffer, 0, length);
+      }
+      return output.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  public static byte[] decompress(byte[] bytes, int uncompressedSize) {
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(bytes);
+      byte[] result = new byte[uncompressedSize];
+      int offset = 0;
+      while (offset < uncompressedSize) {
+        int length = inflater.inflate(result, offset, uncompressedSize - offset);
+        if (length == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new Unreachable("Unexpected end of compressed bytes");
+        }
+        offset += length;
+      }
+      return result;
+    } catch (DataFormatException e) {
+      throw new Unreachable(e);
+    } finally {
+      inflater.end();
+    }
+  }
 }
@@ -65,6 +65,7 @@ public class LirBuilder<V, EV> {
   private static final long DOUBLE_1 = Double.doubleToRawLongBits(1);
 
   private final boolean useDexEstimationStrategy;
+  private final int minSizeForCompressedInstructions;
   private final DexItemFactory factory;
   private final ByteArrayWriter byteWriter = new ByteArrayWriter();
   private final LirWriter writer = new LirWriter(byteWriter);
@@ -162,6 +163,7 @@ public class LirBuilder<V, EV> {
   public LirBuilder(
       DexMethod method, LirEncodingStrategy<V, EV> strategy, InternalOptions options) {
     useDexEstimationStrategy = options.isGeneratingDex();
+    minSizeForCompressedInstructions = options.testing.minSizeForCompressedLirInstructions;
     factory = options.dexItemFactory();
     constants = new Reference2IntOpenHashMap<>();
     positionTable = new ArrayList<>();
@@ -794,12 +796,23 @@ public class LirBuilder<V, EV> {
         debugLocals.isEmpty() ? null : new DebugLocalInfoTable<>(debugLocals, debugLocalEnds);
     TryCatchTable tryCatchTable =
         tryCatchRanges.isEmpty() ? null : new TryCatchTable(tryCatchRanges);
+    byte[] instructionBytes = byteWriter.toByteArray();
+    int uncompressedInstructionsSize = -1;
+    if (minSizeForCompressedInstructions >= 0
+        && instructionBytes.length >= minSizeForCompressedInstructions) {
+      byte[] compressedInstructionBytes = ByteUtils.compress(instructionBytes);
+      if (compressedInstructionBytes.length < instructionBytes.length) {
+        uncompressedInstructionsSize = instructionBytes.length;
+        instructionBytes = compressedInstructionBytes;
+      }
+    }
     return new LirCode<>(
         metadata,
         constantTable,
         positionTable.toArray(new PositionEntry[positionTable.size()]),
         argumentCount,
-        byteWriter.toByteArray(),
+        instructionBytes,
+        uncompressedInstructionsSize,
         instructionCount,
         tryCatchTable,
         debugTable,
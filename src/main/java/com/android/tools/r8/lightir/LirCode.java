@@ -37,6 +37,7 @@ import com.android.tools.r8.utils.RetracerForCodePrinting;
 import com.google.common.collect.ImmutableMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceOpenHashMap;
+import java.lang.ref.WeakReference;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -151,9 +152,22 @@ public class LirCode<EV> extends Code implements Iterable<LirInstructionView> {
   /** Full number of arguments (including receiver for non-static methods). */
   private final int argumentCount;
 
-  /** Byte encoding of the instructions (excludes arguments, includes phis). */
+  /**
+   * Byte encoding of the instructions (excludes arguments, includes phis). The encoding is
+   * compressed if {@link #uncompressedInstructionsSize} is non-negative.
+   */
   private final byte[] instructions;
 
+  /** Size of the byte encoding of the instructions if compressed, otherwise -1. */
+  private final int uncompressedInstructionsSize;
+
+  /**
+   * Decompressed byte encoding of the instructions if compressed. This is only weakly referenced,
+   * such that the reads of the code while it is being processed share the decompressed bytes, and
+   * the bytes are released once the code is no longer being processed.
+   */
+  private volatile WeakReference<byte[]> decompressedInstructions;
+
   /** Cached value for the number of logical instructions (excludes arguments, includes phis). */
   private final int instructionCount;
 
@@ -178,6 +192,7 @@ public class LirCode<EV> extends Code implements Iterable<LirInstructionView> {
       PositionEntry[] positions,
       int argumentCount,
       byte[] instructions,
+      int uncompressedInstructionsSize,
       int instructionCount,
       TryCatchTable tryCatchTable,
       DebugLocalInfoTable<EV> debugLocalInfoTable,
@@ -189,6 +204,7 @@ public class LirCode<EV> extends Code implements Iterable<LirInstructionView> {
     this.positionTable = positions;
     this.argumentCount = argumentCount;
     this.instructions = instructions;
+    this.uncompressedInstructionsSize = uncompressedInstructionsSize;
     this.instructionCount = instructionCount;
     this.tryCatchTable = tryCatchTable;
     this.debugLocalInfoTable = debugLocalInfoTable;
@@ -229,7 +245,20 @@ public class LirCode<EV> extends Code implements Iterable<LirInstructionView> {
   }
 
   public byte[] getInstructionBytes() {
-    return instructions;
+    if (!isInstructionBytesCompressed()) {
+      return instructions;
+    }
+    WeakReference<byte[]> reference = decompressedInstructions;
+    byte[] bytes = reference != null ? reference.get() : null;
+    if (bytes == null) {
+      bytes = ByteUtils.decompress(instructions, uncompressedInstructionsSize);
+      decompressedInstructions = new WeakReference<>(bytes);
+    }
+    return bytes;
+  }
+
+  public boolean isInstructionBytesCompressed() {
+    return uncompressedInstructionsSize >= 0;
   }
 
   public int getInstructionCount() {
@@ -278,7 +307,7 @@ public class LirCode<EV> extends Code implements Iterable<LirInstructionView> {
 
   @Override
   public LirIterator iterator() {
-    return new LirIterator(new ByteArrayIterator(instructions));
+    return new LirIterator(new ByteArrayIterator(getInstructionBytes()));
   }
 
   @Override
@@ -469,6 +498,7 @@ public class LirCode<EV> extends Code implements Iterable<LirInstructionView> {
         positionTable,
         argumentCount,
         instructions,
+        uncompressedInstructionsSize,
         instructionCount,
         tryCatchTable,
         debugLocalInfoTable,
@@ -8,6 +8,7 @@ import static com.android.tools.r8.utils.DescriptorUtils.INNER_CLASS_SEPARATOR;
 import static com.android.tools.r8.utils.DescriptorUtils.computeInnerClassSeparator;
 import static com.android.tools.r8.utils.DescriptorUtils.getClassBinaryNameFromDescriptor;
 import static com.android.tools.r8.utils.DescriptorUtils.getPackageBinaryNameFromJavaType;
+import static com.android.tools.r8.utils.MapUtils.ignoreKey;
 
 import com.android.tools.r8.graph.AppView;
 import com.android.tools.r8.graph.DexClass;
@@ -22,15 +23,23 @@ import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.utils.DescriptorUtils;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Predicate;
 
 class ClassNameMinifier {
@@ -38,14 +47,10 @@ class ClassNameMinifier {
   private final AppView<AppInfoWithLiveness> appView;
   private final ClassNamingStrategy classNamingStrategy;
   private final Iterable<? extends ProgramOrClasspathClass> classes;
-  private final Set<String> usedTypeNames = Sets.newHashSet();
-  private final Map<DexType, DexString> renaming = Maps.newIdentityHashMap();
-  private final Map<String, Namespace> states = new HashMap<>();
+  private final NamingScope rootScope;
   private final boolean keepInnerClassStructure;
 
-  private final Namespace topLevelState;
   private final boolean allowMixedCaseNaming;
-  private final Predicate<String> isUsed;
 
   ClassNameMinifier(
       AppView<AppInfoWithLiveness> appView,
@@ -56,22 +61,16 @@ class ClassNameMinifier {
     this.classes = classes;
     InternalOptions options = appView.options();
     this.keepInnerClassStructure = options.keepInnerClassStructure();
+    this.allowMixedCaseNaming =
+        !options.getProguardConfiguration().hasDontUseMixedCaseClassnames();
+    this.rootScope = new NamingScope(null);
 
     // Initialize top-level naming state.
-    topLevelState = new Namespace("");
-    states.put("", topLevelState);
-
-    if (options.getProguardConfiguration().hasDontUseMixedCaseClassnames()) {
-      allowMixedCaseNaming = false;
-      isUsed = candidate -> usedTypeNames.contains(StringUtils.toLowerCase(candidate));
-    } else {
-      allowMixedCaseNaming = true;
-      isUsed = usedTypeNames::contains;
-    }
+    rootScope.states.put("", new Namespace(""));
   }
 
-  private void setUsedTypeName(String typeName) {
-    usedTypeNames.add(allowMixedCaseNaming ? typeName : StringUtils.toLowerCase(typeName));
+  private Namespace getTopLevelState() {
+    return rootScope.states.get("");
   }
 
   static class ClassRenaming {
@@ -85,13 +84,14 @@ class ClassNameMinifier {
     }
   }
 
-  ClassRenaming computeRenaming(Timing timing) {
+  ClassRenaming computeRenaming(ExecutorService executorService, Timing timing)
+      throws ExecutionException {
     // Collect names we have to keep.
     timing.begin("reserve");
     for (ProgramOrClasspathClass clazz : classes) {
       DexString descriptor = classNamingStrategy.reservedDescriptor(clazz.getType());
       if (descriptor != null) {
-        assert !renaming.containsKey(clazz.getType());
+        assert !rootScope.renaming.containsKey(clazz.getType());
         registerClassAsUsed(clazz.getType(), descriptor);
       }
     }
@@ -102,12 +102,9 @@ class ClassNameMinifier {
     timing.end();
 
     timing.begin("rename-classes");
-    for (ProgramOrClasspathClass clazz : classes) {
-      if (!renaming.containsKey(clazz.getType())) {
-        DexString renamed = computeName(clazz.getType());
-        renaming.put(clazz.getType(), renamed);
-        assert verifyMemberRenamingOfInnerClasses(clazz.asDexClass(), renamed);
-      }
+    if (!appView.options().enableParallelMinification
+        || !renameClassesConcurrently(executorService)) {
+      renameClasses(classes, rootScope);
     }
     timing.end();
 
@@ -117,7 +114,83 @@ class ClassNameMinifier {
     }
     timing.end();
 
-    return new ClassRenaming(Collections.unmodifiableMap(renaming), getPackageRenaming());
+    return new ClassRenaming(
+        Collections.unmodifiableMap(rootScope.renaming), getPackageRenaming());
+  }
+
+  private void renameClasses(
+      Iterable<? extends ProgramOrClasspathClass> classesToRename, NamingScope scope) {
+    for (ProgramOrClasspathClass clazz : classesToRename) {
+      if (scope.getRenaming(clazz.getType()) == null) {
+        DexString renamed = computeName(clazz.getType(), scope);
+        scope.renaming.put(clazz.getType(), renamed);
+        assert verifyMemberRenamingOfInnerClasses(clazz.asDexClass(), renamed);
+      }
+    }
+  }
+
+  /**
+   * Renames the classes of each partition in a separate scope, where the classes in a partition
+   * are the classes that share namespaces. The names in a namespace only depend on the classes in
+   * the namespace and the names that are used, so each partition is renamed exactly as by the
+   * sequential renaming, unless two partitions pick the same name. In that case, this returns false
+   * without changing the renaming, and the classes must be renamed sequentially.
+   */
+  private boolean renameClassesConcurrently(ExecutorService executorService)
+      throws ExecutionException {
+    Collection<List<ProgramOrClasspathClass>> partitions = computeNamespacePartitions();
+    if (partitions.size() <= 1) {
+      return false;
+    }
+    Collection<NamingScope> scopes =
+        ThreadUtils.processItemsWithResults(
+            partitions,
+            partition -> {
+              NamingScope scope = new NamingScope(rootScope);
+              renameClasses(partition, scope);
+              return scope;
+            },
+            executorService);
+    Set<String> newTypeNames = new HashSet<>();
+    for (NamingScope scope : scopes) {
+      for (String typeName : scope.usedTypeNames) {
+        if (!newTypeNames.add(typeName)) {
+          return false;
+        }
+      }
+    }
+    rootScope.usedTypeNames.addAll(newTypeNames);
+    for (NamingScope scope : scopes) {
+      rootScope.renaming.putAll(scope.renaming);
+      rootScope.states.putAll(scope.states);
+    }
+    appView.options().testing.concurrentMinificationConsumer.accept("ClassNameMinifier");
+    return true;
+  }
+
+  // Partitions the classes that are not yet renamed by the package of the outermost class, such
+  // that the namespaces of the classes in different partitions are disjoint.
+  private Collection<List<ProgramOrClasspathClass>> computeNamespacePartitions() {
+    Map<String, List<ProgramOrClasspathClass>> partitions = new LinkedHashMap<>();
+    for (ProgramOrClasspathClass clazz : classes) {
+      if (!rootScope.renaming.containsKey(clazz.getType())) {
+        DexType outermostType = clazz.getType();
+        if (keepInnerClassStructure) {
+          Set<DexType> seen = Sets.newIdentityHashSet();
+          for (DexType outerType = getOutClassForType(outermostType);
+              outerType != null && seen.add(outerType);
+              outerType = getOutClassForType(outerType)) {
+            outermostType = outerType;
+          }
+        }
+        partitions
+            .computeIfAbsent(
+                getPackageBinaryNameFromJavaType(outermostType.getPackageDescriptor()),
+                ignoreKey(ArrayList::new))
+            .add(clazz);
+      }
+    }
+    return partitions.values();
   }
 
   private boolean verifyMemberRenamingOfInnerClasses(DexClass clazz, DexString renamed) {
@@ -134,7 +207,7 @@ class ClassNameMinifier {
 
   private Map<String, String> getPackageRenaming() {
     ImmutableMap.Builder<String, String> packageRenaming = ImmutableMap.builder();
-    for (Entry<String, Namespace> entry : states.entrySet()) {
+    for (Entry<String, Namespace> entry : rootScope.states.entrySet()) {
       String originalPackageName = entry.getKey();
       String minifiedPackageName = entry.getValue().getPackageName();
       if (!minifiedPackageName.equals(originalPackageName)) {
@@ -162,23 +235,25 @@ class ClassNameMinifier {
   }
 
   private void renameDanglingType(DexType type) {
-    if (appView.appInfo().wasPruned(type) && !renaming.containsKey(type)) {
+    if (appView.appInfo().wasPruned(type) && !rootScope.renaming.containsKey(type)) {
       // We have a type that is defined in the program source but is only used in a proto or
       // return type. As we don't need the class, we can rename it to anything as long as it is
       // unique.
       assert appView.definitionFor(type) == null;
       DexString descriptor = classNamingStrategy.reservedDescriptor(type);
-      renaming.put(type, descriptor != null ? descriptor : topLevelState.nextTypeName(type));
+      rootScope.renaming.put(
+          type,
+          descriptor != null ? descriptor : getTopLevelState().nextTypeName(type, rootScope));
     }
   }
 
   private void registerClassAsUsed(DexType type, DexString descriptor) {
-    renaming.put(type, descriptor);
-    setUsedTypeName(descriptor.toString());
+    rootScope.renaming.put(type, descriptor);
+    rootScope.setUsedTypeName(descriptor.toString());
     if (keepInnerClassStructure) {
       DexType outerClass = getOutClassForType(type);
       if (outerClass != null) {
-        if (!renaming.containsKey(outerClass)
+        if (!rootScope.renaming.containsKey(outerClass)
             && classNamingStrategy.reservedDescriptor(outerClass) == null) {
           // The outer class was not previously kept and will not be kept.
           // We have to force keep the outer class now.
@@ -205,7 +280,7 @@ class ClassNameMinifier {
     return attribute.getLiveContext(appView);
   }
 
-  private DexString computeName(DexType type) {
+  private DexString computeName(DexType type, NamingScope scope) {
     Namespace state = null;
     if (keepInnerClassStructure) {
       // When keeping the nesting structure of inner classes, bind this type to the live context.
@@ -224,43 +299,102 @@ class ClassNameMinifier {
         if (separator == null) {
           separator = String.valueOf(INNER_CLASS_SEPARATOR);
         }
-        state = getStateForOuterClass(outerClass, separator);
+        state = getStateForOuterClass(outerClass, separator, scope);
       }
     }
     if (state == null) {
-      state = getStateForClass(type);
+      state = getStateForClass(type, scope);
     }
-    return state.nextTypeName(type);
+    return state.nextTypeName(type, scope);
   }
 
-  private Namespace getStateForClass(DexType type) {
+  private Namespace getStateForClass(DexType type, NamingScope scope) {
     String packageName = getPackageBinaryNameFromJavaType(type.getPackageDescriptor());
     // Packages are repackaged and obfuscated when doing repackaging.
-    return states.computeIfAbsent(packageName, Namespace::new);
+    Namespace state = scope.getState(packageName);
+    if (state == null) {
+      state = new Namespace(packageName);
+      scope.states.put(packageName, state);
+    }
+    return state;
   }
 
-  private Namespace getStateForOuterClass(DexType outer, String innerClassSeparator) {
+  private Namespace getStateForOuterClass(
+      DexType outer, String innerClassSeparator, NamingScope scope) {
     String prefix = getClassBinaryNameFromDescriptor(outer.toDescriptorString());
-    Namespace state = states.get(prefix);
+    Namespace state = scope.getState(prefix);
     if (state == null) {
       // Create a naming state with this classes renaming as prefix.
-      DexString renamed = renaming.get(outer);
+      DexString renamed = scope.getRenaming(outer);
       if (renamed == null) {
         // The outer class has not been renamed yet, so rename the outer class first.
         // Note that here we proceed unconditionally---w/o regards to the existence of the outer
         // class: it could be the case that the outer class is not renamed because it's shrunk.
         // Even though that's the case, we can _implicitly_ assign a new name to the outer class
         // and then use that renamed name as a base prefix for the current inner class.
-        renamed = computeName(outer);
-        renaming.put(outer, renamed);
+        renamed = computeName(outer, scope);
+        scope.renaming.put(outer, renamed);
       }
       String binaryName = getClassBinaryNameFromDescriptor(renamed.toString());
       state = new Namespace(binaryName, innerClassSeparator);
-      states.put(prefix, state);
+      scope.states.put(prefix, state);
     }
     return state;
   }
 
+  /**
+   * The renaming, namespaces and used type names of the classes that are renamed together. When
+   * renaming classes concurrently, each partition is renamed in a scope whose parent is the scope
+   * with the reserved names. The parent scope is not modified while the partitions are renamed.
+   */
+  private class NamingScope {
+
+    private final NamingScope parent;
+    private final Set<String> usedTypeNames = Sets.newHashSet();
+    private final Map<DexType, DexString> renaming = Maps.newIdentityHashMap();
+    private final Map<String, Namespace> states = new HashMap<>();
+    private final Predicate<String> isUsed;
+
+    NamingScope(NamingScope parent) {
+      this.parent = parent;
+      this.isUsed =
+          allowMixedCaseNaming
+              ? this::isUsedTypeName
+              : candidate -> isUsedTypeName(StringUtils.toLowerCase(candidate));
+    }
+
+    private boolean isUsedTypeName(String typeName) {
+      return usedTypeNames.contains(typeName)
+          || (parent != null && parent.isUsedTypeName(typeName));
+    }
+
+    void setUsedTypeName(String typeName) {
+      usedTypeNames.add(allowMixedCaseNaming ? typeName : StringUtils.toLowerCase(typeName));
+    }
+
+    DexString getRenaming(DexType type) {
+      DexString renamed = renaming.get(type);
+      if (renamed == null && parent != null) {
+        return parent.getRenaming(type);
+      }
+      return renamed;
+    }
+
+    // Returns the namespace for the given key. A namespace of the parent scope is copied into this
+    // scope, such that naming in this scope does not change the parent scope.
+    Namespace getState(String key) {
+      Namespace state = states.get(key);
+      if (state == null && parent != null) {
+        Namespace parentState = parent.getState(key);
+        if (parentState != null) {
+          state = new Namespace(parentState);
+          states.put(key, state);
+        }
+      }
+      return state;
+    }
+  }
+
   protected class Namespace implements InternalNamingState {
 
     private final String packageName;
@@ -280,14 +414,21 @@ class ClassNameMinifier {
           .toCharArray();
     }
 
+    private Namespace(Namespace namespace) {
+      this.packageName = namespace.packageName;
+      this.packagePrefix = namespace.packagePrefix;
+      this.dictionaryIndex = namespace.dictionaryIndex;
+      this.nameIndex = namespace.nameIndex;
+    }
+
     public String getPackageName() {
       return packageName;
     }
 
-    DexString nextTypeName(DexType type) {
-      DexString candidate = classNamingStrategy.next(type, packagePrefix, this, isUsed);
-      assert !usedTypeNames.contains(candidate.toString());
-      setUsedTypeName(candidate.toString());
+    DexString nextTypeName(DexType type, NamingScope scope) {
+      DexString candidate = classNamingStrategy.next(type, packagePrefix, this, scope.isUsed);
+      assert !scope.isUsedTypeName(candidate.toString());
+      scope.setUsedTypeName(candidate.toString());
       return candidate;
     }
 
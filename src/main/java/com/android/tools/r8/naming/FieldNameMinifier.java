@@ -4,6 +4,7 @@
 package com.android.tools.r8.naming;
 
 import static com.android.tools.r8.graph.DexProgramClass.asProgramClassOrNull;
+import static com.android.tools.r8.utils.MapUtils.ignoreKey;
 
 import com.android.tools.r8.graph.AppView;
 import com.android.tools.r8.graph.DexClass;
@@ -19,6 +20,7 @@ import com.android.tools.r8.graph.SubtypingInfo;
 import com.android.tools.r8.graph.TopDownClassHierarchyTraversal;
 import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.utils.SetUtils;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import com.android.tools.r8.utils.TraversalContinuation;
 import com.google.common.collect.ImmutableMap;
@@ -29,10 +31,13 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 class FieldNameMinifier {
 
@@ -55,7 +60,9 @@ class FieldNameMinifier {
     this.strategy = strategy;
   }
 
-  FieldRenaming computeRenaming(Collection<DexClass> interfaces, Timing timing) {
+  FieldRenaming computeRenaming(
+      Collection<DexClass> interfaces, ExecutorService executorService, Timing timing)
+      throws ExecutionException {
     // Reserve names in all classes first. We do this in subtyping order so we do not
     // shadow a reserved field in subclasses. While there is no concept of virtual field
     // dispatch in Java, field resolution still traverses the super type chain and external
@@ -66,7 +73,7 @@ class FieldNameMinifier {
     // Rename the definitions.
     timing.begin("rename-definitions");
     renameFieldsInInterfaces(interfaces);
-    renameFieldsInClasses();
+    renameFieldsInClasses(executorService);
     renameFieldsInUnrelatedClasspathClasses();
     timing.end();
     // Rename the references that are not rebound to definitions for some reasons.
@@ -184,33 +191,84 @@ class FieldNameMinifier {
             });
   }
 
-  private void renameFieldsInClasses() {
+  private void renameFieldsInClasses(ExecutorService executorService)
+      throws ExecutionException {
     Map<DexType, FieldNamingState> states = new IdentityHashMap<>();
+    // The naming state of a class only depends on the naming states of its supertypes. Therefore,
+    // the program classes below each frontier can be renamed independently once the naming states
+    // of the classes above the frontiers have been computed.
+    boolean renameConcurrently = appView.options().enableParallelMinification;
+    Map<DexType, List<DexProgramClass>> programClassesByFrontier = new LinkedHashMap<>();
     TopDownClassHierarchyTraversal.forAllClasses(appView)
         .excludeInterfaces()
         .visit(
             appView.appInfo().classes(),
             clazz -> {
               assert !clazz.isInterface();
-
-              FieldNamingState parentState =
-                  clazz.superType == null
-                      ? new FieldNamingState(appView, strategy)
-                      : states
-                          .computeIfAbsent(
-                              clazz.superType, key -> new FieldNamingState(appView, strategy))
-                          .clone();
-
-              ReservedFieldNamingState reservedNames =
-                  getReservedFieldNamingState(frontiers.getOrDefault(clazz.type, clazz.type));
-              FieldNamingState state = parentState.createChildState(reservedNames);
-              if (clazz.isProgramClass()) {
-                clazz.asProgramClass().forEachProgramField(field -> renameField(field, state));
+              if (renameConcurrently && clazz.isProgramClass()) {
+                programClassesByFrontier
+                    .computeIfAbsent(
+                        frontiers.getOrDefault(clazz.type, clazz.type), ignoreKey(ArrayList::new))
+                    .add(clazz.asProgramClass());
+              } else {
+                renameFieldsInClass(clazz, states, states, renaming);
               }
-
-              assert !states.containsKey(clazz.type);
-              states.put(clazz.type, state);
             });
+    if (programClassesByFrontier.isEmpty()) {
+      return;
+    }
+    Collection<Map<DexField, DexString>> renamingsByFrontier =
+        ThreadUtils.processItemsWithResults(
+            programClassesByFrontier.values(),
+            programClasses -> {
+              Map<DexType, FieldNamingState> statesBelowFrontier = new IdentityHashMap<>();
+              Map<DexField, DexString> renamingBelowFrontier = new IdentityHashMap<>();
+              for (DexProgramClass clazz : programClasses) {
+                renameFieldsInClass(clazz, states, statesBelowFrontier, renamingBelowFrontier);
+              }
+              return renamingBelowFrontier;
+            },
+            executorService);
+    renamingsByFrontier.forEach(renaming::putAll);
+    appView.options().testing.concurrentMinificationConsumer.accept("FieldNameMinifier");
+  }
+
+  /**
+   * Renames the fields of the given class and records its naming state in {@param states}. The
+   * naming state of the super class is looked up in {@param states} and then in {@param
+   * sharedStates}, which is not modified.
+   */
+  private void renameFieldsInClass(
+      DexClass clazz,
+      Map<DexType, FieldNamingState> sharedStates,
+      Map<DexType, FieldNamingState> states,
+      Map<DexField, DexString> fieldRenaming) {
+    FieldNamingState parentState;
+    if (clazz.superType == null) {
+      parentState = new FieldNamingState(appView, strategy);
+    } else {
+      FieldNamingState superState = states.get(clazz.superType);
+      if (superState == null) {
+        superState = sharedStates.get(clazz.superType);
+        if (superState == null) {
+          superState = new FieldNamingState(appView, strategy);
+          states.put(clazz.superType, superState);
+        }
+      }
+      parentState = superState.clone();
+    }
+
+    ReservedFieldNamingState reservedNames =
+        getReservedFieldNamingState(frontiers.getOrDefault(clazz.type, clazz.type));
+    FieldNamingState state = parentState.createChildState(reservedNames);
+    if (clazz.isProgramClass()) {
+      clazz
+          .asProgramClass()
+          .forEachProgramField(field -> renameField(field, state, fieldRenaming));
+    }
+
+    assert !states.containsKey(clazz.type);
+    states.put(clazz.type, state);
   }
 
   private void renameFieldsInUnrelatedClasspathClasses() {
@@ -273,9 +331,14 @@ class FieldNameMinifier {
   }
 
   private DexString renameField(ProgramField field, FieldNamingState state) {
+    return renameField(field, state, renaming);
+  }
+
+  private DexString renameField(
+      ProgramField field, FieldNamingState state, Map<DexField, DexString> fieldRenaming) {
     DexString newName = state.getOrCreateNameFor(field);
     if (newName != field.getReference().name) {
-      renaming.put(field.getReference(), newName);
+      fieldRenaming.put(field.getReference(), newName);
     }
     return newName;
   }
@@ -639,26 +639,25 @@ class InterfaceMethodNameMinifier {
   private void computeReservationFrontiersForAllImplementingClasses(Iterable<DexClass> interfaces) {
     interfaces.forEach(
         iface ->
-            subtypingInfo
-                .subtypes(iface.getType())
-                .forEach(
-                    subType -> {
-                      DexClass subClass = appView.contextIndependentDefinitionFor(subType);
-                      if (subClass == null || subClass.isInterface()) {
-                        return;
-                      }
-                      DexType frontierType = minifierState.getFrontier(subType);
-                      if (minifierState.getReservationState(frontierType) == null) {
-                        // The reservation state should already be added. If it does not exist
-                        // it is because it is not reachable from the type hierarchy of program
-                        // classes and we can therefore disregard this interface.
-                        return;
-                      }
-                      InterfaceReservationState iState = interfaceStateMap.get(iface.getType());
-                      if (iState != null) {
-                        iState.addReservationType(frontierType);
-                      }
-                    }));
+            subtypingInfo.forEachSubtype(
+                iface.getType(),
+                subType -> {
+                  DexClass subClass = appView.contextIndependentDefinitionFor(subType);
+                  if (subClass == null || subClass.isInterface()) {
+                    return;
+                  }
+                  DexType frontierType = minifierState.getFrontier(subType);
+                  if (minifierState.getReservationState(frontierType) == null) {
+                    // The reservation state should already be added. If it does not exist
+                    // it is because it is not reachable from the type hierarchy of program
+                    // classes and we can therefore disregard this interface.
+                    return;
+                  }
+                  InterfaceReservationState iState = interfaceStateMap.get(iface.getType());
+                  if (iState != null) {
+                    iState.addReservationType(frontierType);
+                  }
+                }));
   }
 
   private boolean verifyAllCallSitesAreRepresentedIn(List<Wrapper<DexEncodedMethod>> groups) {
@@ -56,7 +56,7 @@ public class Minifier {
                 : new L8MinificationClassNamingStrategy(appView),
             // Use deterministic class order to make sure renaming is deterministic.
             appView.appInfo().classesWithDeterministicOrder());
-    ClassRenaming classRenaming = classNameMinifier.computeRenaming(timing);
+    ClassRenaming classRenaming = classNameMinifier.computeRenaming(executorService, timing);
     timing.end();
 
     assert new MinifiedRenaming(
@@ -76,7 +76,7 @@ public class Minifier {
     timing.begin("MinifyFields");
     FieldRenaming fieldRenaming =
         new FieldNameMinifier(appView, subtypingInfo, minifyMembers)
-            .computeRenaming(interfaces, timing);
+            .computeRenaming(interfaces, executorService, timing);
     timing.end();
 
     NamingLens lens = new MinifiedRenaming(appView, classRenaming, methodRenaming, fieldRenaming);
@@ -18,7 +18,7 @@ public class ProguardMapMarkerInfo {
   private static final String MARKER_KEY_COMPILER_VERSION = "compiler_version";
   private static final String MARKER_KEY_COMPILER_HASH = "compiler_hash";
   private static final String MARKER_KEY_MIN_API = "min_api";
-  private static final String MARKER_KEY_PG_MAP_ID = "pg_map_id";
+  public static final String MARKER_KEY_PG_MAP_ID = "pg_map_id";
   public static final String MARKER_KEY_PG_MAP_HASH = "pg_map_hash";
   public static final String SHA_256_KEY = "SHA-256";
 
@@ -126,7 +126,7 @@ public class ProguardMapMinifier {
             new ApplyMappingClassNamingStrategy(
                 appView, mappedNames, seedMapper.getMappedToDescriptorNames()),
             classesWithDeterministicOrder(mappedClasses));
-    ClassRenaming classRenaming = classNameMinifier.computeRenaming(timing);
+    ClassRenaming classRenaming = classNameMinifier.computeRenaming(executorService, timing);
     timing.end();
 
     ApplyMappingMemberNamingStrategy nameStrategy =
@@ -143,7 +143,7 @@ public class ProguardMapMinifier {
     timing.begin("MinifyFields");
     FieldRenaming fieldRenaming =
         new FieldNameMinifier(appView, subtypingInfo, nameStrategy)
-            .computeRenaming(interfaces, timing);
+            .computeRenaming(interfaces, executorService, timing);
     fieldRenaming.renaming.putAll(additionalFieldNamings);
     timing.end();
 
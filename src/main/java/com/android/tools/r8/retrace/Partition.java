@@ -15,6 +15,7 @@ import com.android.tools.r8.ParseFlagPrinter;
 import com.android.tools.r8.Version;
 import com.android.tools.r8.utils.OptionsParsing;
 import com.android.tools.r8.utils.OptionsParsing.ParseContext;
+import com.android.tools.r8.utils.PartitionMapBinaryContainer;
 import com.android.tools.r8.utils.PartitionMapZipContainer;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.StringUtils;
@@ -37,6 +38,11 @@ public class Partition {
         .add(
             ParseFlagInfoImpl.flag1(
                 "--output", "<partition-map>", "Output destination of partitioned map"))
+        .add(
+            ParseFlagInfoImpl.flag0(
+                "--binary",
+                "Output the partitioned map in the binary format that retrace can query",
+                "without extracting it (default is a zip archive)."))
         .add(ParseFlagInfoImpl.getHelp())
         .build();
   }
@@ -53,15 +59,21 @@ public class Partition {
     ParseContext context = new ParseContext(args);
     PartitionCommand.Builder builder = PartitionCommand.builder();
     boolean hasSetProguardMap = false;
+    boolean binary = false;
+    String output = null;
     while (context.head() != null) {
       Boolean help = OptionsParsing.tryParseBoolean(context, "--help");
       if (help != null) {
         return null;
       }
-      String output = OptionsParsing.tryParseSingle(context, "--output", null);
-      if (output != null && !output.isEmpty()) {
-        builder.setPartitionMapConsumer(
-            PartitionMapZipContainer.createPartitionMapZipContainerConsumer(Paths.get(output)));
+      Boolean binaryOption = OptionsParsing.tryParseBoolean(context, "--binary");
+      if (binaryOption != null) {
+        binary = binaryOption;
+        continue;
+      }
+      String outputOption = OptionsParsing.tryParseSingle(context, "--output", null);
+      if (outputOption != null && !outputOption.isEmpty()) {
+        output = outputOption;
         continue;
       }
       if (!hasSetProguardMap) {
@@ -74,6 +86,14 @@ public class Partition {
             String.format("Too many arguments specified for builder at '%s'", context.head()));
       }
     }
+    if (output != null) {
+      builder.setPartitionMapConsumer(
+          binary
+              ? PartitionMapBinaryContainer.createPartitionMapBinaryContainerConsumer(
+                  Paths.get(output))
+              : PartitionMapZipContainer.createPartitionMapZipContainerConsumer(
+                  Paths.get(output)));
+    }
     return builder;
   }
 
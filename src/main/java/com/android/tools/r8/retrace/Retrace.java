@@ -20,6 +20,7 @@ import com.android.tools.r8.retrace.internal.StackTraceRegularExpressionParser;
 import com.android.tools.r8.utils.ExceptionDiagnostic;
 import com.android.tools.r8.utils.OptionsParsing;
 import com.android.tools.r8.utils.OptionsParsing.ParseContext;
+import com.android.tools.r8.utils.PartitionMapBinaryContainer;
 import com.android.tools.r8.utils.PartitionMapZipContainer;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.StringUtils;
@@ -155,6 +156,9 @@ public class Retrace<T, ST extends StackTraceElementProxy<T, ST>> extends Retrac
       throw new RetraceAbortException();
     }
     try {
+      if (PartitionMapBinaryContainer.isPartitionMapBinaryContainer(path)) {
+        return PartitionMapBinaryContainer.createPartitionMapBinaryContainerSupplier(path);
+      }
       return PartitionMapZipContainer.createPartitionMapZipContainerSupplier(path);
     } catch (Exception e) {
       diagnosticsHandler.error(new ExceptionDiagnostic(e));
@@ -0,0 +1,410 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.Keep;
+import com.android.tools.r8.naming.ProguardMapMarkerInfo;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Long running retrace service for retracing stack traces of many different builds.
+ *
+ * <p>The service keeps the parsed mapping files of the most recently used map ids, such that
+ * retracing a stack trace of a recently seen build does not parse its mapping file again. Retrace
+ * requests can be served concurrently from any number of threads. Requests for a cached mapping
+ * do not lock, and only requests that need to parse the same mapping wait for each other.
+ */
+@Keep
+public class RetraceService {
+
+  private static final String PG_MAP_ID_PREFIX =
+      "# " + ProguardMapMarkerInfo.MARKER_KEY_PG_MAP_ID + ":";
+
+  private final Function<String, ProguardMapProducer> mappingLookup;
+  private final int maxCachedMappings;
+  private final String regularExpression;
+  private final boolean isVerbose;
+  private final DiagnosticsHandler diagnosticsHandler;
+
+  private final Map<String, CachedMapping> cache = new ConcurrentHashMap<>();
+  private final AtomicLong accessClock = new AtomicLong();
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder retraceTimeNanos = new LongAdder();
+  private final LongAdder loadTimeNanos = new LongAdder();
+
+  private RetraceService(
+      Function<String, ProguardMapProducer> mappingLookup,
+      int maxCachedMappings,
+      String regularExpression,
+      boolean isVerbose,
+      DiagnosticsHandler diagnosticsHandler) {
+    this.mappingLookup = mappingLookup;
+    this.maxCachedMappings = maxCachedMappings;
+    this.regularExpression = regularExpression;
+    this.isVerbose = isVerbose;
+    this.diagnosticsHandler = diagnosticsHandler;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Retraces a stack trace using the mapping file with the given map id.
+   *
+   * @param mapId the map id of the build that produced the stack trace
+   * @param stackTrace the stack trace lines
+   * @return the retraced stack trace lines
+   */
+  public List<String> retrace(String mapId, List<String> stackTrace) {
+    long start = System.nanoTime();
+    StringRetrace stringRetrace = getStringRetrace(mapId);
+    List<String> result = new ArrayList<>(stackTrace.size());
+    stringRetrace.retrace(stackTrace, RetraceStackTraceContext.empty()).forEach(result::add);
+    requests.increment();
+    retraceTimeNanos.add(System.nanoTime() - start);
+    return result;
+  }
+
+  private StringRetrace getStringRetrace(String mapId) {
+    CachedMapping cachedMapping = cache.get(mapId);
+    if (cachedMapping == null) {
+      cachedMapping = cache.computeIfAbsent(mapId, CachedMapping::new);
+      if (cache.size() > maxCachedMappings) {
+        evictLeastRecentlyUsed(cachedMapping);
+      }
+    }
+    cachedMapping.lastAccess = accessClock.incrementAndGet();
+    StringRetrace stringRetrace = cachedMapping.stringRetrace;
+    if (stringRetrace != null) {
+      hits.increment();
+      return stringRetrace;
+    }
+    try {
+      return cachedMapping.load();
+    } catch (RuntimeException e) {
+      // Do not keep the failed entry, such that a subsequent request can retry.
+      cache.remove(mapId, cachedMapping);
+      throw e;
+    }
+  }
+
+  private void evictLeastRecentlyUsed(CachedMapping keep) {
+    // The entries are not kept in access order, since that would require locking on lookups.
+    // Instead, the entries with the oldest access stamps are removed when the cache is full.
+    while (cache.size() > maxCachedMappings) {
+      CachedMapping leastRecentlyUsed = null;
+      for (CachedMapping cachedMapping : cache.values()) {
+        if (cachedMapping != keep
+            && (leastRecentlyUsed == null
+                || cachedMapping.lastAccess < leastRecentlyUsed.lastAccess)) {
+          leastRecentlyUsed = cachedMapping;
+        }
+      }
+      if (leastRecentlyUsed == null) {
+        return;
+      }
+      if (cache.remove(leastRecentlyUsed.mapId, leastRecentlyUsed)) {
+        evictions.increment();
+      }
+    }
+  }
+
+  /** Returns the number of retraced stack traces. */
+  public long getRequestCount() {
+    return requests.sum();
+  }
+
+  /** Returns the number of requests that used an already parsed mapping file. */
+  public long getCacheHitCount() {
+    return hits.sum();
+  }
+
+  /** Returns the number of requests that parsed a mapping file. */
+  public long getCacheMissCount() {
+    return misses.sum();
+  }
+
+  /** Returns the number of parsed mapping files that have been evicted from the cache. */
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /** Returns the total time spent on retrace requests, including parsing of mapping files. */
+  public long getTotalRetraceTimeNanos() {
+    return retraceTimeNanos.sum();
+  }
+
+  /** Returns the total time spent on parsing mapping files. */
+  public long getTotalLoadTimeNanos() {
+    return loadTimeNanos.sum();
+  }
+
+  /** Returns the number of mapping files currently in the cache. */
+  public int getCachedMappingCount() {
+    return cache.size();
+  }
+
+  public String getMetricsSummary() {
+    long requestCount = getRequestCount();
+    return "requests: "
+        + requestCount
+        + ", hits: "
+        + getCacheHitCount()
+        + ", misses: "
+        + getCacheMissCount()
+        + ", evictions: "
+        + getEvictionCount()
+        + ", cached: "
+        + getCachedMappingCount()
+        + ", average latency (us): "
+        + (requestCount == 0 ? 0 : getTotalRetraceTimeNanos() / requestCount / 1000)
+        + ", total load time (ms): "
+        + getTotalLoadTimeNanos() / 1000000;
+  }
+
+  /**
+   * Serves retrace requests from the given input until the input ends or a line {@code quit} is
+   * read. The supported requests are:
+   *
+   * <ul>
+   *   <li>{@code retrace <map-id> <line-count>} followed by the stack trace lines. The response is
+   *       a line {@code ok <line-count>} followed by the retraced lines, or a line {@code error
+   *       <message>}.
+   *   <li>{@code stats} which responds with a single line summarizing the metrics of the service.
+   * </ul>
+   */
+  public void serve(InputStream input, PrintStream output) throws IOException {
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      String[] request = line.trim().split("\\s+");
+      if (request[0].equals("quit")) {
+        break;
+      }
+      if (request[0].equals("stats")) {
+        output.println(getMetricsSummary());
+      } else if (request[0].equals("retrace") && request.length == 3) {
+        int lineCount;
+        try {
+          lineCount = Integer.parseInt(request[2]);
+        } catch (NumberFormatException e) {
+          output.println("error Invalid line count: " + request[2]);
+          continue;
+        }
+        List<String> stackTrace = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+          String stackTraceLine = reader.readLine();
+          if (stackTraceLine == null) {
+            return;
+          }
+          stackTrace.add(stackTraceLine);
+        }
+        List<String> result;
+        try {
+          result = retrace(request[1], stackTrace);
+        } catch (RuntimeException e) {
+          output.println("error " + e.getMessage());
+          continue;
+        }
+        output.println("ok " + result.size());
+        result.forEach(output::println);
+      } else if (!line.trim().isEmpty()) {
+        output.println("error Unknown request: " + line);
+      }
+      output.flush();
+    }
+    output.flush();
+  }
+
+  /**
+   * Creates a lookup of the mapping files in the given directory. Each mapping file is found by the
+   * map id in its header, or by its file name without extension if it does not have a map id.
+   */
+  public static Function<String, ProguardMapProducer> createMappingDirectoryLookup(Path directory)
+      throws IOException {
+    Map<String, Path> mappingFiles = new HashMap<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        if (Files.isRegularFile(file)) {
+          String mapId = readMapId(file);
+          if (mapId == null) {
+            String fileName = file.getFileName().toString();
+            int extensionIndex = fileName.lastIndexOf('.');
+            mapId = extensionIndex > 0 ? fileName.substring(0, extensionIndex) : fileName;
+          }
+          mappingFiles.put(mapId, file);
+        }
+      }
+    }
+    return mapId -> {
+      Path file = mappingFiles.get(mapId);
+      return file == null ? null : ProguardMapProducer.fromPath(file);
+    };
+  }
+
+  private static String readMapId(Path file) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null && line.startsWith("#")) {
+        if (line.startsWith(PG_MAP_ID_PREFIX)) {
+          return line.substring(PG_MAP_ID_PREFIX.length()).trim();
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Serves retrace requests on standard input and output for the mapping files in a directory.
+   *
+   * <p>Usage: {@code RetraceService <mapping-directory> [<max-cached-mappings>]}.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1 || args.length > 2) {
+      System.err.println("Usage: RetraceService <mapping-directory> [<max-cached-mappings>]");
+      System.exit(1);
+    }
+    Builder builder =
+        builder().setMappingLookup(createMappingDirectoryLookup(Paths.get(args[0])));
+    if (args.length == 2) {
+      builder.setMaxCachedMappings(Integer.parseInt(args[1]));
+    }
+    builder.build().serve(System.in, System.out);
+  }
+
+  private class CachedMapping {
+
+    private final String mapId;
+
+    // Written once when the mapping file has been parsed.
+    private volatile StringRetrace stringRetrace;
+
+    // Access stamp from the access clock. Updated without synchronization, since an occasional
+    // lost update only affects the choice of the mapping to evict.
+    private volatile long lastAccess;
+
+    private CachedMapping(String mapId) {
+      this.mapId = mapId;
+    }
+
+    private synchronized StringRetrace load() {
+      if (stringRetrace != null) {
+        // Loaded by a concurrent request.
+        hits.increment();
+        return stringRetrace;
+      }
+      misses.increment();
+      long start = System.nanoTime();
+      ProguardMapProducer producer = mappingLookup.apply(mapId);
+      if (producer == null) {
+        throw new RetraceServiceException("No mapping file for map id: " + mapId);
+      }
+      MappingSupplier<?> mappingSupplier =
+          ProguardMappingSupplier.builder()
+              .setProguardMapProducer(producer)
+              .setLoadAllDefinitions(true)
+              .build();
+      // Parse the full mapping file up front. The supplier does not change after this, which
+      // allows all requests for this mapping to use it concurrently.
+      mappingSupplier.createRetracer(diagnosticsHandler);
+      StringRetrace result =
+          StringRetrace.create(mappingSupplier, diagnosticsHandler, regularExpression, isVerbose);
+      loadTimeNanos.add(System.nanoTime() - start);
+      stringRetrace = result;
+      return result;
+    }
+  }
+
+  @Keep
+  public static class RetraceServiceException extends RuntimeException {
+
+    public RetraceServiceException(String message) {
+      super(message);
+    }
+  }
+
+  @Keep
+  public static class Builder {
+
+    private Function<String, ProguardMapProducer> mappingLookup;
+    private int maxCachedMappings = 16;
+    private String regularExpression = RetraceOptions.defaultRegularExpression();
+    private boolean isVerbose;
+    private DiagnosticsHandler diagnosticsHandler = new DiagnosticsHandler() {};
+
+    /**
+     * Set the lookup of mapping files by map id. The lookup returns null if there is no mapping
+     * file for a map id.
+     */
+    public Builder setMappingLookup(Function<String, ProguardMapProducer> mappingLookup) {
+      this.mappingLookup = mappingLookup;
+      return this;
+    }
+
+    /** Set the maximal number of parsed mapping files to keep. */
+    public Builder setMaxCachedMappings(int maxCachedMappings) {
+      this.maxCachedMappings = maxCachedMappings;
+      return this;
+    }
+
+    /** Set the regular expression for parsing stack trace lines. */
+    public Builder setRegularExpression(String regularExpression) {
+      this.regularExpression = regularExpression;
+      return this;
+    }
+
+    /** Set if the produced stack traces should have additional information. */
+    public Builder setVerbose(boolean verbose) {
+      this.isVerbose = verbose;
+      return this;
+    }
+
+    public Builder setDiagnosticsHandler(DiagnosticsHandler diagnosticsHandler) {
+      this.diagnosticsHandler = diagnosticsHandler;
+      return this;
+    }
+
+    public RetraceService build() {
+      if (mappingLookup == null) {
+        throw new RuntimeException("Mapping lookup not specified");
+      }
+      if (maxCachedMappings < 1) {
+        throw new RuntimeException("The maximal number of cached mappings must be positive");
+      }
+      if (regularExpression == null) {
+        throw new RuntimeException("Regular expression not specified");
+      }
+      if (diagnosticsHandler == null) {
+        throw new RuntimeException("DiagnosticsHandler not specified");
+      }
+      return new RetraceService(
+          mappingLookup, maxCachedMappings, regularExpression, isVerbose, diagnosticsHandler);
+    }
+  }
+}
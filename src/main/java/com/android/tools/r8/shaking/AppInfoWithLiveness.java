@@ -61,6 +61,7 @@ import com.android.tools.r8.ir.desugar.itf.InterfaceDesugaringSyntheticHelper;
 import com.android.tools.r8.naming.SeedMapper;
 import com.android.tools.r8.repackaging.RepackagingUtils;
 import com.android.tools.r8.shaking.KeepInfo.Joiner;
+import com.android.tools.r8.shaking.KeepInfoCollection.MutableKeepInfoCollection;
 import com.android.tools.r8.synthesis.CommittedItems;
 import com.android.tools.r8.utils.CollectionUtils;
 import com.android.tools.r8.utils.InternalOptions;
@@ -202,6 +203,12 @@ public class AppInfoWithLiveness extends AppInfoWithClassHierarchy
 
   /* A cache to improve the lookup performance of lookupSingleVirtualTarget */
   private final SingleTargetLookupCache singleTargetLookupCache = new SingleTargetLookupCache();
+  /* A cache of the virtual dispatch targets of resolved methods, if enabled. */
+  private final VirtualDispatchTargetLookupCache virtualDispatchTargetLookupCache =
+      options().testing.enableVirtualDispatchTargetLookupCache
+          ? new VirtualDispatchTargetLookupCache(
+              options().testing.virtualDispatchTargetLookupCacheStatistics)
+          : null;
 
   // TODO(zerny): Clean up the constructors so we have just one.
   AppInfoWithLiveness(
@@ -912,6 +919,17 @@ public class AppInfoWithLiveness extends AppInfoWithClassHierarchy
   void mutateObjectAllocationInfoCollection(
       Consumer<ObjectAllocationInfoCollectionImpl.Builder> mutator) {
     objectAllocationInfoCollection.mutate(mutator, this);
+    if (virtualDispatchTargetLookupCache != null) {
+      virtualDispatchTargetLookupCache.clear();
+    }
+  }
+
+  public boolean hasVirtualDispatchTargetLookupCache() {
+    return virtualDispatchTargetLookupCache != null;
+  }
+
+  public VirtualDispatchTargetLookupCache getVirtualDispatchTargetLookupCache() {
+    return virtualDispatchTargetLookupCache;
   }
 
   void removeFromSingleTargetLookupCache(DexClass clazz) {
@@ -1154,6 +1172,13 @@ public class AppInfoWithLiveness extends AppInfoWithClassHierarchy
     return keepInfo;
   }
 
+  public void mutateKeepInfo(Consumer<MutableKeepInfoCollection> mutator) {
+    keepInfo.mutate(mutator);
+    if (virtualDispatchTargetLookupCache != null) {
+      virtualDispatchTargetLookupCache.clear();
+    }
+  }
+
   /**
    * Returns a copy of this AppInfoWithLiveness where the set of classes is pruned using the given
    * DexApplication object.
@@ -1173,9 +1198,9 @@ public class AppInfoWithLiveness extends AppInfoWithClassHierarchy
       // Rebuild the hierarchy.
       objectAllocationInfoCollection.mutate(
           mutator -> mutator.removeAllocationsForPrunedItems(prunedItems), this);
-      keepInfo.mutate(keepInfo -> keepInfo.removeKeepInfoForPrunedItems(prunedItems));
+      mutateKeepInfo(keepInfo -> keepInfo.removeKeepInfoForPrunedItems(prunedItems));
     } else if (prunedItems.hasRemovedMembers()) {
-      keepInfo.mutate(keepInfo -> keepInfo.removeKeepInfoForPrunedItems(prunedItems));
+      mutateKeepInfo(keepInfo -> keepInfo.removeKeepInfoForPrunedItems(prunedItems));
     }
     List<Future<?>> futures = new ArrayList<>();
     AppInfoWithLiveness appInfoWithLiveness =
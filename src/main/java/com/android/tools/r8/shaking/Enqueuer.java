@@ -33,6 +33,7 @@ import com.android.tools.r8.graph.ClassDefinition;
 import com.android.tools.r8.graph.ClassResolutionResult;
 import com.android.tools.r8.graph.ClasspathOrLibraryClass;
 import com.android.tools.r8.graph.ClasspathOrLibraryDefinition;
+import com.android.tools.r8.graph.Code;
 import com.android.tools.r8.graph.Definition;
 import com.android.tools.r8.graph.DexAnnotation;
 import com.android.tools.r8.graph.DexAnnotation.AnnotatedKind;
@@ -441,6 +442,7 @@ public class Enqueuer {
 
   /** Map of active if rules to speed up aapt2 generated keep rules. */
   private Map<Wrapper<ProguardIfRule>, Set<ProguardIfRule>> activeIfRules;
+  private final IfRuleEvaluationCache ifRuleEvaluationCache = new IfRuleEvaluationCache();
 
   /**
    * A cache of ScopedDexMethodSet for each live type used for determining that virtual methods that
@@ -455,6 +457,12 @@ public class Enqueuer {
   private final CfInstructionDesugaringCollection desugaring;
   private final ProgramMethodSet pendingCodeDesugaring = ProgramMethodSet.create();
 
+  /**
+   * Set of classes that have a live method whose lazily loaded class file code has not been parsed
+   * yet. The code of these classes is parsed concurrently ahead of tracing.
+   */
+  private final Set<DexProgramClass> pendingCodeParsing = Sets.newIdentityHashSet();
+
   // Collections for tracing progress on interface method desugaring.
 
   // The pending method move set is all the methods that need to be moved to companions.
@@ -4451,6 +4459,7 @@ public class Enqueuer {
       while (true) {
         long numberOfLiveItems = getNumberOfLiveItems();
         while (!workList.isEmpty()) {
+          parsePendingCode(options.enqueuerConcurrentCodeParsingThreshold);
           EnqueuerAction action = workList.poll();
           action.run(this);
         }
@@ -4477,6 +4486,7 @@ public class Enqueuer {
                   this,
                   executorService,
                   activeIfRules,
+                  ifRuleEvaluationCache,
                   consequentSetBuilder);
           addConsequentRootSet(ifRuleEvaluator.run());
           assert getNumberOfLiveItems() == numberOfLiveItemsAfterProcessing;
@@ -4541,6 +4551,44 @@ public class Enqueuer {
     }
   }
 
+  // Package protected due to entry point from worklist.
+  void addToPendingCodeParsing(ProgramMethod method) {
+    if (!options.enableEnqueuerConcurrentCodeParsing) {
+      return;
+    }
+    Code code = method.getDefinition().getCode();
+    if (code != null && code.isLazyCfCode() && !code.asLazyCfCode().isParsed()) {
+      pendingCodeParsing.add(method.getHolder());
+    }
+  }
+
+  /**
+   * Parses the code of the classes in {@link #pendingCodeParsing} concurrently, if there are at
+   * least {@code threshold} such classes.
+   *
+   * <p>The code of all methods in a class is parsed from the same class file, so each class is
+   * parsed by a single thread. The tracing of the parsed code remains sequential and the result of
+   * tracing is therefore independent of this.
+   */
+  private void parsePendingCode(int threshold) throws ExecutionException {
+    if (pendingCodeParsing.size() < threshold) {
+      return;
+    }
+    ThreadUtils.processItems(
+        pendingCodeParsing,
+        clazz ->
+            clazz.forEachMethod(
+                method -> {
+                  Code code = method.getCode();
+                  if (code != null && code.isLazyCfCode()) {
+                    code.asCfCode();
+                  }
+                }),
+        executorService);
+    pendingCodeParsing.forEach(options.testing.enqueuerConcurrentCodeParsingConsumer);
+    pendingCodeParsing.clear();
+  }
+
   private void postProcessingDesugaring() throws ExecutionException {
     desugaring.withDesugaredLibraryAPIConverter(
         DesugaredLibraryAPIConverter::generateTrackingWarnings);
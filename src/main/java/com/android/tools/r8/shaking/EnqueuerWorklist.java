@@ -677,6 +677,7 @@ public abstract class EnqueuerWorklist {
     boolean enqueueMarkMethodLiveAction(
         ProgramMethod method, ProgramDefinition context, KeepReason reason) {
       if (enqueuer.addLiveMethod(method, reason)) {
+        enqueuer.addToPendingCodeParsing(method);
         queue.add(new MarkMethodLiveAction(method, context));
         if (!enqueuer.isMethodTargeted(method)) {
           queue.add(new TraceMethodDefinitionExcludingCodeAction(method));
@@ -0,0 +1,78 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import com.android.tools.r8.graph.DexProgramClass;
+import com.google.common.base.Equivalence.Wrapper;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Records the result of evaluating -if rules against classes across the rounds of the {@link
+ * Enqueuer} fix-point, such that each round only evaluates the -if rules against the classes that
+ * are new or have new live members since the previous round.
+ *
+ * <p>The class part of an -if rule only depends on the class itself, so whether a class satisfies
+ * the class part is computed once. The live members of a class, which are the members that can
+ * satisfy the member part of an -if rule, only grow during tracing. Therefore, the outcome of
+ * evaluating the member part of an -if rule for a class can only change if the number of live
+ * members of the class has changed.
+ */
+class IfRuleEvaluationCache {
+
+  private static final int NOT_EVALUATED = -1;
+  private static final int NOT_MATCHING = -2;
+
+  private final Map<Wrapper<ProguardIfRule>, Reference2IntMap<DexProgramClass>> evaluations =
+      new IdentityHashMap<>();
+
+  private Reference2IntMap<DexProgramClass> getEvaluations(Wrapper<ProguardIfRule> ifRuleKey) {
+    return evaluations.computeIfAbsent(
+        ifRuleKey,
+        ignoreKey -> {
+          Reference2IntMap<DexProgramClass> classEvaluations = new Reference2IntOpenHashMap<>();
+          classEvaluations.defaultReturnValue(NOT_EVALUATED);
+          return classEvaluations;
+        });
+  }
+
+  /** Returns true if the class part of the -if rule has been evaluated for the given class. */
+  boolean isClassEvaluated(Wrapper<ProguardIfRule> ifRuleKey, DexProgramClass clazz) {
+    return getEvaluations(ifRuleKey).getInt(clazz) != NOT_EVALUATED;
+  }
+
+  /** Returns true if the given class is known to satisfy the class part of the -if rule. */
+  boolean isClassMatching(Wrapper<ProguardIfRule> ifRuleKey, DexProgramClass clazz) {
+    return getEvaluations(ifRuleKey).getInt(clazz) >= 0;
+  }
+
+  void recordClassEvaluation(
+      Wrapper<ProguardIfRule> ifRuleKey, DexProgramClass clazz, boolean matching) {
+    getEvaluations(ifRuleKey).put(clazz, matching ? 0 : NOT_MATCHING);
+  }
+
+  /**
+   * Returns true if the member part of the -if rule needs to be evaluated for the given matching
+   * class, and records that the evaluation happens with the given number of live members.
+   */
+  boolean shouldEvaluateMembers(
+      Wrapper<ProguardIfRule> ifRuleKey, DexProgramClass clazz, int numberOfLiveMembers) {
+    Reference2IntMap<DexProgramClass> classEvaluations = getEvaluations(ifRuleKey);
+    assert classEvaluations.getInt(clazz) >= 0;
+    // The number of live members is stored off by one to distinguish a class that has been
+    // evaluated with no live members from a class whose members have not been evaluated.
+    int evaluatedNumberOfLiveMembers = classEvaluations.getInt(clazz) - 1;
+    if (numberOfLiveMembers == evaluatedNumberOfLiveMembers) {
+      return false;
+    }
+    classEvaluations.put(clazz, numberOfLiveMembers + 1);
+    return true;
+  }
+
+  void remove(Wrapper<ProguardIfRule> ifRuleKey) {
+    evaluations.remove(ifRuleKey);
+  }
+}
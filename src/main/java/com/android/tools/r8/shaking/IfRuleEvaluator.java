@@ -47,6 +47,7 @@ public class IfRuleEvaluator {
   private final ExecutorService executorService;
   private final List<Future<?>> futures = new ArrayList<>();
   private final Map<Wrapper<ProguardIfRule>, Set<ProguardIfRule>> ifRules;
+  private final IfRuleEvaluationCache evaluationCache;
   private final ConsequentRootSetBuilder rootSetBuilder;
 
   IfRuleEvaluator(
@@ -55,12 +56,14 @@ public class IfRuleEvaluator {
       Enqueuer enqueuer,
       ExecutorService executorService,
       Map<Wrapper<ProguardIfRule>, Set<ProguardIfRule>> ifRules,
+      IfRuleEvaluationCache evaluationCache,
       ConsequentRootSetBuilder rootSetBuilder) {
     this.appView = appView;
     this.subtypingInfo = subtypingInfo;
     this.enqueuer = enqueuer;
     this.executorService = executorService;
     this.ifRules = ifRules;
+    this.evaluationCache = evaluationCache;
     this.rootSetBuilder = rootSetBuilder;
   }
 
@@ -74,8 +77,6 @@ public class IfRuleEvaluator {
           Map.Entry<Wrapper<ProguardIfRule>, Set<ProguardIfRule>> ifRuleEntry = it.next();
           ProguardIfRule ifRuleKey = ifRuleEntry.getKey().get();
           Set<ProguardIfRule> ifRulesInEquivalence = ifRuleEntry.getValue();
-          ProguardIfRuleEvaluationData ifRuleEvaluationData =
-              appView.options().testing.proguardIfRuleEvaluationData;
           List<ProguardIfRule> toRemove = new ArrayList<>();
 
           // Depending on which types that trigger the -if rule, the application of the subsequent
@@ -89,25 +90,8 @@ public class IfRuleEvaluator {
             }
 
             // Check if the class matches the if-rule.
-            if (appView.options().testing.measureProguardIfRuleEvaluations) {
-              ifRuleEvaluationData.numberOfProguardIfRuleClassEvaluations++;
-            }
-            if (evaluateClassForIfRule(ifRuleKey, clazz)) {
-              // When matching an if rule against a type, the if-rule are filled with the current
-              // capture of wildcards. Propagate this down to member rules with same class part
-              // equivalence.
-              ifRulesInEquivalence.forEach(
-                  ifRule -> {
-                    registerClassCapture(ifRule, clazz, clazz);
-                    if (appView.options().testing.measureProguardIfRuleEvaluations) {
-                      ifRuleEvaluationData.numberOfProguardIfRuleMemberEvaluations++;
-                    }
-                    boolean matched = evaluateIfRuleMembersAndMaterialize(ifRule, clazz, clazz);
-                    if (matched && canRemoveSubsequentKeepRule(ifRule)) {
-                      toRemove.add(ifRule);
-                    }
-                  });
-            }
+            evaluateIfRuleForClass(
+                ifRuleEntry.getKey(), ifRulesInEquivalence, clazz, clazz, toRemove);
 
             // Check if one of the types that have been merged into `clazz` satisfies the if-rule.
             if (appView.verticallyMergedClasses() != null) {
@@ -127,27 +111,14 @@ public class IfRuleEvaluator {
                   assert enqueuer.getMode().isWhyAreYouKeeping();
                   continue;
                 }
-                if (appView.options().testing.measureProguardIfRuleEvaluations) {
-                  ifRuleEvaluationData.numberOfProguardIfRuleClassEvaluations++;
-                }
-                if (evaluateClassForIfRule(ifRuleKey, sourceClass)) {
-                  ifRulesInEquivalence.forEach(
-                      ifRule -> {
-                        registerClassCapture(ifRule, sourceClass, clazz);
-                        if (appView.options().testing.measureProguardIfRuleEvaluations) {
-                          ifRuleEvaluationData.numberOfProguardIfRuleMemberEvaluations++;
-                        }
-                        if (evaluateIfRuleMembersAndMaterialize(ifRule, sourceClass, clazz)
-                            && canRemoveSubsequentKeepRule(ifRule)) {
-                          toRemove.add(ifRule);
-                        }
-                      });
-                }
+                evaluateIfRuleForClass(
+                    ifRuleEntry.getKey(), ifRulesInEquivalence, sourceClass, clazz, toRemove);
               }
             }
           }
           if (ifRulesInEquivalence.size() == toRemove.size()) {
             it.remove();
+            evaluationCache.remove(ifRuleEntry.getKey());
           } else if (!toRemove.isEmpty()) {
             ifRulesInEquivalence.removeAll(toRemove);
           }
@@ -160,6 +131,52 @@ public class IfRuleEvaluator {
     return rootSetBuilder.buildConsequentRootSet();
   }
 
+  /**
+   * Evaluates the -if rules in {@param ifRulesInEquivalence} for {@param sourceClass}, unless the
+   * outcome cannot have changed since the previous evaluation.
+   *
+   * @param ifRuleKey The class part of the -if rules.
+   * @param ifRulesInEquivalence The -if rules to evaluate.
+   * @param sourceClass The class to evaluate the -if rules for.
+   * @param targetClass The class that holds the members of the source class, which can be
+   *     different when we have vertically merged classes.
+   * @param toRemove The -if rules that no longer need to be evaluated.
+   */
+  private void evaluateIfRuleForClass(
+      Wrapper<ProguardIfRule> ifRuleKey,
+      Set<ProguardIfRule> ifRulesInEquivalence,
+      DexProgramClass sourceClass,
+      DexProgramClass targetClass,
+      List<ProguardIfRule> toRemove) {
+    ProguardIfRuleEvaluationData ifRuleEvaluationData =
+        appView.options().testing.proguardIfRuleEvaluationData;
+    if (!evaluationCache.isClassEvaluated(ifRuleKey, sourceClass)) {
+      if (appView.options().testing.measureProguardIfRuleEvaluations) {
+        ifRuleEvaluationData.numberOfProguardIfRuleClassEvaluations++;
+      }
+      evaluationCache.recordClassEvaluation(
+          ifRuleKey, sourceClass, evaluateClassForIfRule(ifRuleKey.get(), sourceClass));
+    }
+    if (!evaluationCache.isClassMatching(ifRuleKey, sourceClass)
+        || !evaluationCache.shouldEvaluateMembers(
+            ifRuleKey, sourceClass, countLiveMembers(sourceClass, targetClass))) {
+      return;
+    }
+    // When matching an if rule against a type, the if-rule are filled with the current capture of
+    // wildcards. Propagate this down to member rules with same class part equivalence.
+    ifRulesInEquivalence.forEach(
+        ifRule -> {
+          registerClassCapture(ifRule, sourceClass, targetClass);
+          if (appView.options().testing.measureProguardIfRuleEvaluations) {
+            ifRuleEvaluationData.numberOfProguardIfRuleMemberEvaluations++;
+          }
+          if (evaluateIfRuleMembersAndMaterialize(ifRule, sourceClass, targetClass)
+              && canRemoveSubsequentKeepRule(ifRule)) {
+            toRemove.add(ifRule);
+          }
+        });
+  }
+
   private boolean canRemoveSubsequentKeepRule(ProguardIfRule rule) {
     return Iterables.isEmpty(rule.subsequentRule.getWildcards());
   }
@@ -244,23 +261,9 @@ public class IfRuleEvaluator {
                 fieldsInlinedByJavaC.add(DexClassAndField.create(targetClass, f));
                 return false;
               }
-              // Fields referenced only by -keep may not be referenced, we therefore have to
-              // filter on both live and referenced.
-              return (enqueuer.isFieldLive(f)
-                      || enqueuer.isFieldReferenced(f)
-                      || f.getOptimizationInfo().valueHasBeenPropagated())
-                  && (appView.graphLens().getOriginalFieldSignature(f.getReference()).holder
-                      == sourceClass.type);
+              return isLiveField(f, sourceClass);
             }));
-    Iterables.addAll(
-        filteredMembers,
-        targetClass.methods(
-            m ->
-                (enqueuer.isMethodLive(m)
-                        || enqueuer.isMethodTargeted(m)
-                        || m.getOptimizationInfo().returnValueHasBeenPropagated())
-                    && appView.graphLens().getOriginalMethodSignature(m.getReference()).holder
-                        == sourceClass.type));
+    Iterables.addAll(filteredMembers, targetClass.methods(m -> isLiveMethod(m, sourceClass)));
 
     // Check if the rule could hypothetically have matched a javac inlined field.
     // If so mark the rule. Reporting happens only if the rule is otherwise unused.
@@ -316,6 +319,39 @@ public class IfRuleEvaluator {
     return false;
   }
 
+  private int countLiveMembers(DexClass sourceClass, DexClass targetClass) {
+    int numberOfLiveMembers = 0;
+    for (DexEncodedField field : targetClass.fields()) {
+      if (isLiveField(field, sourceClass)) {
+        numberOfLiveMembers++;
+      }
+    }
+    for (DexEncodedMethod method : targetClass.methods()) {
+      if (isLiveMethod(method, sourceClass)) {
+        numberOfLiveMembers++;
+      }
+    }
+    return numberOfLiveMembers;
+  }
+
+  private boolean isLiveField(DexEncodedField field, DexClass sourceClass) {
+    // Fields referenced only by -keep may not be referenced, we therefore have to filter on both
+    // live and referenced.
+    return (enqueuer.isFieldLive(field)
+            || enqueuer.isFieldReferenced(field)
+            || field.getOptimizationInfo().valueHasBeenPropagated())
+        && appView.graphLens().getOriginalFieldSignature(field.getReference()).holder
+            == sourceClass.type;
+  }
+
+  private boolean isLiveMethod(DexEncodedMethod method, DexClass sourceClass) {
+    return (enqueuer.isMethodLive(method)
+            || enqueuer.isMethodTargeted(method)
+            || method.getOptimizationInfo().returnValueHasBeenPropagated())
+        && appView.graphLens().getOriginalMethodSignature(method.getReference()).holder
+            == sourceClass.type;
+  }
+
   private boolean isFieldInlinedByJavaC(DexEncodedField field) {
     if (enqueuer.getMode().isFinalTreeShaking()) {
       // Ignore any field value in the final tree shaking pass so it remains consistent with the
@@ -11,6 +11,7 @@ import com.google.common.collect.Iterables;
 import it.unimi.dsi.fastutil.objects.Object2BooleanArrayMap;
 import it.unimi.dsi.fastutil.objects.Object2BooleanMap;
 import it.unimi.dsi.fastutil.objects.Object2BooleanMap.Entry;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -86,6 +87,12 @@ public abstract class ProguardClassNameList {
 
   public abstract boolean matches(DexType type);
 
+  /**
+   * Returns a list of strings such that the source name of every type matched by this list starts
+   * with one of the strings, or null if this list may match types with any source name.
+   */
+  public abstract List<String> getSourceNamePrefixes();
+
   protected Iterable<ProguardWildcard> getWildcards() {
     return Collections::emptyIterator;
   }
@@ -163,6 +170,11 @@ public abstract class ProguardClassNameList {
       return false;
     }
 
+    @Override
+    public List<String> getSourceNamePrefixes() {
+      return Collections.emptyList();
+    }
+
     @Override
     public void forEachTypeMatcher(Consumer<ProguardTypeMatcher> consumer) {
     }
@@ -220,6 +232,12 @@ public abstract class ProguardClassNameList {
       return className.matches(type);
     }
 
+    @Override
+    public List<String> getSourceNamePrefixes() {
+      String prefix = className.getSourceNamePrefix();
+      return prefix == null ? null : Collections.singletonList(prefix);
+    }
+
     @Override
     protected Iterable<ProguardWildcard> getWildcards() {
       return className.getWildcards();
@@ -298,6 +316,19 @@ public abstract class ProguardClassNameList {
       return Iterables.any(classNames, name -> name.matches(type));
     }
 
+    @Override
+    public List<String> getSourceNamePrefixes() {
+      List<String> prefixes = new ArrayList<>(classNames.size());
+      for (ProguardTypeMatcher className : classNames) {
+        String prefix = className.getSourceNamePrefix();
+        if (prefix == null) {
+          return null;
+        }
+        prefixes.add(prefix);
+      }
+      return prefixes;
+    }
+
     @Override
     protected Iterable<ProguardWildcard> getWildcards() {
       return classNames.stream()
@@ -394,6 +425,26 @@ public abstract class ProguardClassNameList {
       return lastWasNegated;
     }
 
+    @Override
+    public List<String> getSourceNamePrefixes() {
+      // If the last class name is negated, then all types that are not matched by any of the class
+      // names are matched. Otherwise, a type is only matched if one of the positive class names
+      // matches it.
+      List<String> prefixes = new ArrayList<>(classNames.size());
+      boolean lastWasNegated = false;
+      for (Entry<ProguardTypeMatcher> className : classNames.object2BooleanEntrySet()) {
+        lastWasNegated = className.getBooleanValue();
+        if (!lastWasNegated) {
+          String prefix = className.getKey().getSourceNamePrefix();
+          if (prefix == null) {
+            return null;
+          }
+          prefixes.add(prefix);
+        }
+      }
+      return lastWasNegated ? null : prefixes;
+    }
+
     @Override
     protected Iterable<ProguardWildcard> getWildcards() {
       return classNames.keySet().stream()
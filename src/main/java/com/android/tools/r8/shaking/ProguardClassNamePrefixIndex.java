@@ -0,0 +1,120 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import com.android.tools.r8.graph.DexProgramClass;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Index of program classes by their source name, used to find the candidate classes for a keep
+ * rule without matching the class names of the rule against every class in the app.
+ *
+ * <p>The source names are sorted, such that the classes whose source name starts with a given
+ * prefix are found by binary search. The classes are always returned in the order of the
+ * collection the index was created from, to ensure that rule evaluation is deterministic.
+ */
+class ProguardClassNamePrefixIndex {
+
+  private final List<DexProgramClass> classes;
+  private final String[] sortedNames;
+  private final int[] sortedIndices;
+
+  private ProguardClassNamePrefixIndex(
+      List<DexProgramClass> classes, String[] sortedNames, int[] sortedIndices) {
+    this.classes = classes;
+    this.sortedNames = sortedNames;
+    this.sortedIndices = sortedIndices;
+  }
+
+  static ProguardClassNamePrefixIndex create(Collection<DexProgramClass> classes) {
+    List<DexProgramClass> classList = new ArrayList<>(classes);
+    String[] names = new String[classList.size()];
+    Integer[] order = new Integer[classList.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = classList.get(i).getType().toSourceString();
+      order[i] = i;
+    }
+    Arrays.sort(order, (x, y) -> names[x].compareTo(names[y]));
+    String[] sortedNames = new String[names.length];
+    int[] sortedIndices = new int[names.length];
+    for (int i = 0; i < order.length; i++) {
+      sortedNames[i] = names[order[i]];
+      sortedIndices[i] = order[i];
+    }
+    return new ProguardClassNamePrefixIndex(classList, sortedNames, sortedIndices);
+  }
+
+  /**
+   * Returns the classes whose source name starts with one of the given prefixes, or all classes if
+   * the prefixes are null.
+   */
+  Iterable<DexProgramClass> getClassesWithSourceNamePrefix(List<String> prefixes) {
+    if (prefixes == null) {
+      return Collections.unmodifiableList(classes);
+    }
+    if (prefixes.isEmpty()) {
+      return Collections.emptyList();
+    }
+    BitSet matches = new BitSet(classes.size());
+    for (String prefix : prefixes) {
+      for (int i = lowerBound(prefix);
+          i < sortedNames.length && sortedNames[i].startsWith(prefix);
+          i++) {
+        matches.set(sortedIndices[i]);
+      }
+    }
+    if (matches.cardinality() == classes.size()) {
+      return Collections.unmodifiableList(classes);
+    }
+    return () -> new MatchingClassesIterator(matches);
+  }
+
+  // Returns the index of the first sorted name that is greater than or equal to the given prefix.
+  private int lowerBound(String prefix) {
+    int low = 0;
+    int high = sortedNames.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sortedNames[mid].compareTo(prefix) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private class MatchingClassesIterator implements Iterator<DexProgramClass> {
+
+    private final BitSet matches;
+    private int next;
+
+    MatchingClassesIterator(BitSet matches) {
+      this.matches = matches;
+      this.next = matches.nextSetBit(0);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next >= 0;
+    }
+
+    @Override
+    public DexProgramClass next() {
+      if (next < 0) {
+        throw new NoSuchElementException();
+      }
+      DexProgramClass clazz = classes.get(next);
+      next = matches.nextSetBit(next + 1);
+      return clazz;
+    }
+  }
+}
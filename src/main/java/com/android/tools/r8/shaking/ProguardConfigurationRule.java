@@ -16,8 +16,8 @@ import com.android.tools.r8.graph.SubtypingInfo;
 import com.android.tools.r8.origin.Origin;
 import com.android.tools.r8.position.Position;
 import com.android.tools.r8.utils.StringUtils;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -159,17 +159,23 @@ public abstract class ProguardConfigurationRule extends ProguardClassSpecificati
     }
     if (hasInheritanceClassName() && getInheritanceClassName().hasSpecificType()) {
       DexType type = getInheritanceClassName().getSpecificType();
+      List<DexProgramClass> candidates = new ArrayList<>();
       if (appView.verticallyMergedClasses() != null
           && appView.verticallyMergedClasses().hasBeenMergedIntoSubtype(type)) {
         DexType target = appView.verticallyMergedClasses().getTargetFor(type);
         DexClass clazz = appView.definitionFor(target);
         assert clazz != null && clazz.isProgramClass();
-        return Iterables.concat(
-            ImmutableList.of(clazz.asProgramClass()),
-            DexProgramClass.asProgramClasses(subtypingInfo.subtypes(type), appView));
-      } else {
-        return DexProgramClass.asProgramClasses(subtypingInfo.subtypes(type), appView);
+        candidates.add(clazz.asProgramClass());
       }
+      subtypingInfo.forEachSubtype(
+          type,
+          subtype -> {
+            DexClass clazz = appView.contextIndependentDefinitionFor(subtype);
+            if (clazz != null && clazz.isProgramClass()) {
+              candidates.add(clazz.asProgramClass());
+            }
+          });
+      return candidates;
     }
     return defaultValue;
   }
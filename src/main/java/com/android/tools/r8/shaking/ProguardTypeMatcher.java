@@ -147,6 +147,14 @@ public abstract class ProguardTypeMatcher {
     return null;
   }
 
+  /**
+   * Returns a string that the source name of every type matched by this matcher starts with, or
+   * null if this matcher may match types with any source name.
+   */
+  public String getSourceNamePrefix() {
+    return null;
+  }
+
   public final boolean matchesSpecificType() {
     return getSpecificType() != null;
   }
@@ -376,6 +384,11 @@ public abstract class ProguardTypeMatcher {
     public DexType getSpecificType() {
       return type;
     }
+
+    @Override
+    public String getSourceNamePrefix() {
+      return type.toSourceString();
+    }
   }
 
   private static class MatchTypePattern extends ProguardTypeMatcher {
@@ -407,6 +420,21 @@ public abstract class ProguardTypeMatcher {
       return wildcards;
     }
 
+    @Override
+    public String getSourceNamePrefix() {
+      // All characters of the pattern before the first wildcard or back reference are matched
+      // literally.
+      int length = 0;
+      while (length < pattern.length()) {
+        char c = pattern.charAt(length);
+        if (c != '.' && !Character.isJavaIdentifierPart(c)) {
+          break;
+        }
+        length++;
+      }
+      return length > 0 ? pattern.substring(0, length) : null;
+    }
+
     @Override
     protected ProguardTypeMatcher materialize(DexItemFactory dexItemFactory) {
       Int2ReferenceMap<String> materializedBackReferences = new Int2ReferenceOpenHashMap<>();
@@ -74,6 +74,7 @@ import com.android.tools.r8.utils.Timing;
 import com.android.tools.r8.utils.TraversalContinuation;
 import com.android.tools.r8.utils.collections.ProgramMethodMap;
 import com.google.common.base.Equivalence.Wrapper;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -103,6 +104,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class RootSetUtils {
@@ -152,6 +154,7 @@ public class RootSetUtils {
     private final InterfaceDesugaringSyntheticHelper interfaceDesugaringSyntheticHelper;
     private final ProgramMethodMap<ProgramMethod> pendingMethodMoveInverse =
         ProgramMethodMap.create();
+    private final Supplier<ProguardClassNamePrefixIndex> classNamePrefixIndex;
 
     private RootSetBuilder(
         AppView<? extends AppInfoWithClassHierarchy> appView,
@@ -163,6 +166,8 @@ public class RootSetUtils {
       this.subtypingInfo = subtypingInfo;
       this.application = appView.appInfo().app().asDirect();
       this.rules = rules;
+      this.classNamePrefixIndex =
+          Suppliers.memoize(() -> ProguardClassNamePrefixIndex.create(application.classes()));
       this.options = appView.options();
       interfaceDesugaringSyntheticHelper =
           options.isInterfaceMethodDesugaringEnabled()
@@ -197,6 +202,10 @@ public class RootSetUtils {
 
     // Process a class with the keep rule.
     private void process(DexClass clazz, ProguardConfigurationRule rule, ProguardIfRule ifRule) {
+      if (options.testing.measureProguardRuleEvaluations) {
+        options.testing.proguardRuleEvaluationData.numberOfProguardRuleClassEvaluations
+            .incrementAndGet();
+      }
       if (!satisfyClassType(rule, clazz)) {
         return;
       }
@@ -347,7 +356,8 @@ public class RootSetUtils {
           executorService.submit(
               () -> {
                 for (DexProgramClass clazz :
-                    rule.relevantCandidatesForRule(appView, subtypingInfo, application.classes())) {
+                    rule.relevantCandidatesForRule(
+                        appView, subtypingInfo, getCandidateClassesForRule(rule))) {
                   process(clazz, rule, ifRule);
                 }
                 if (rule.applyToNonProgramClasses()) {
@@ -358,6 +368,20 @@ public class RootSetUtils {
               }));
     }
 
+    // Returns the program classes whose name may be matched by the class names of the rule. The
+    // classes are only filtered by name when the rule has no annotations, since a matching
+    // annotation is reported for all classes that satisfy the annotations of the rule.
+    private Iterable<DexProgramClass> getCandidateClassesForRule(ProguardConfigurationRule rule) {
+      if (!rule.getClassAnnotations().isEmpty() || !rule.getInheritanceAnnotations().isEmpty()) {
+        return application.classes();
+      }
+      List<String> prefixes = rule.getClassNames().getSourceNamePrefixes();
+      if (prefixes == null) {
+        return application.classes();
+      }
+      return classNamePrefixIndex.get().getClassesWithSourceNamePrefix(prefixes);
+    }
+
     public RootSet build(ExecutorService executorService) throws ExecutionException {
       application.timing.begin("Build root set...");
       try {
@@ -614,10 +614,12 @@ public class VerticalClassMerger {
                 appView, lensBuilder, verticallyMergedClasses, synthesizedBridges)
             .fixupTypeReferences();
     KeepInfoCollection keepInfo = appView.getKeepInfo();
-    keepInfo.mutate(
-        mutator ->
-            mutator.removeKeepInfoForMergedClasses(
-                PrunedItems.builder().setRemovedClasses(mergedClasses.keySet()).build()));
+    appView
+        .appInfo()
+        .mutateKeepInfo(
+            mutator ->
+                mutator.removeKeepInfoForMergedClasses(
+                    PrunedItems.builder().setRemovedClasses(mergedClasses.keySet()).build()));
     timing.end();
 
     assert lens != null;
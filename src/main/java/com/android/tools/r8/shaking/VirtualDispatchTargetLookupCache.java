@@ -0,0 +1,50 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.shaking;
+
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.graph.LookupResult;
+import com.android.tools.r8.utils.CacheStatistics;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the virtual dispatch targets of a resolved method, keyed by the initial resolution
+ * holder and the resolved method.
+ *
+ * <p>The dispatch targets depend on the instantiated types and the pinned items, so the cache must
+ * be cleared whenever the object allocation info or the keep info of the owning {@link
+ * AppInfoWithLiveness} changes.
+ */
+public class VirtualDispatchTargetLookupCache {
+
+  private final Map<DexType, Map<DexMethod, LookupResult>> cache = new ConcurrentHashMap<>();
+  private final CacheStatistics statistics;
+
+  public VirtualDispatchTargetLookupCache(CacheStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  public LookupResult lookupOrCompute(
+      DexType initialResolutionHolder, DexMethod resolvedMethod, Supplier<LookupResult> fn) {
+    Map<DexMethod, LookupResult> methodCache =
+        cache.computeIfAbsent(initialResolutionHolder, ignored -> new ConcurrentHashMap<>());
+    LookupResult result = methodCache.get(resolvedMethod);
+    if (result != null) {
+      statistics.recordHit();
+      return result;
+    }
+    statistics.recordMiss();
+    result = fn.get();
+    LookupResult existing = methodCache.putIfAbsent(resolvedMethod, result);
+    return existing != null ? existing : result;
+  }
+
+  public void clear() {
+    cache.clear();
+  }
+}
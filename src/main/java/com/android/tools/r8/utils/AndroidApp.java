@@ -348,6 +348,16 @@ public class AndroidApp {
     return libraryResourceProviders;
   }
 
+  /**
+   * Returns the archive of a classpath or library provider that was added as a file, or null if
+   * the provider is not backed by a single archive.
+   */
+  public static Path getArchivePath(ClassFileResourceProvider provider) {
+    return provider instanceof InternalArchiveClassFileProvider
+        ? ((InternalArchiveClassFileProvider) provider).getPath()
+        : null;
+  }
+
   private List<ProgramResource> filter(List<ProgramResourceProvider> providers, Kind kind)
       throws ResourceException {
     List<ProgramResource> out = new ArrayList<>();
@@ -404,6 +414,25 @@ public class AndroidApp {
     return mainDexClasses;
   }
 
+  /**
+   * Returns a copy of this AndroidApp where the program and classpath resource providers are
+   * replaced by the given providers.
+   */
+  public AndroidApp withProgramAndClasspathResourceProviders(
+      ImmutableList<ProgramResourceProvider> programResourceProviders,
+      ImmutableList<ClassFileResourceProvider> classpathResourceProviders) {
+    return new AndroidApp(
+        programResourceProviders,
+        ImmutableMap.of(),
+        classpathResourceProviders,
+        libraryResourceProviders,
+        archiveProvidersToClose,
+        proguardMapOutputData,
+        proguardMapInputData,
+        mainDexListResources,
+        mainDexClasses);
+  }
+
   /** Returns a copy of this AndroidApp that does not have a main dex list. */
   public AndroidApp withoutMainDexList() {
     return new AndroidApp(
@@ -0,0 +1,41 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.utils;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Thread-safe hit and miss counters that can be shared by the instances of a cache. */
+public class CacheStatistics {
+
+  private final String name;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public CacheStatistics(String name) {
+    this.name = name;
+  }
+
+  public void recordHit() {
+    hits.increment();
+  }
+
+  public void recordMiss() {
+    misses.increment();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /** Records the hits and misses as counters of the current phase of the given timing. */
+  public void addCounters(Timing timing) {
+    timing.addCounter(name + " hits", getHits());
+    timing.addCounter(name + " misses", getMisses());
+  }
+}
@@ -0,0 +1,244 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Concurrent table for canonicalizing items, such as the items of the DexItemFactory.
+ *
+ * <p>The table only stores the canonical values and derives the key of a value using a key
+ * function. The values are stored directly in open addressed arrays, which avoids allocating a map
+ * entry for each item.
+ *
+ * <p>The table is split into segments that are selected by the hash of the key. Lookups of
+ * existing values never lock, and inserting a new value only locks the segment of its key, such
+ * that threads that concurrently intern different items rarely contend.
+ */
+public class ConcurrentInternTable<K, V> {
+
+  private static final int DEFAULT_NUMBER_OF_SEGMENTS = 64;
+  private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+  private final Function<? super V, ? extends K> keyFunction;
+  private final Segment<K, V>[] segments;
+  private final int segmentShift;
+
+  @SuppressWarnings("unchecked")
+  private ConcurrentInternTable(
+      Function<? super V, ? extends K> keyFunction, int numberOfSegments) {
+    assert Integer.bitCount(numberOfSegments) == 1;
+    this.keyFunction = keyFunction;
+    this.segments = new Segment[numberOfSegments];
+    for (int i = 0; i < numberOfSegments; i++) {
+      segments[i] = new Segment<>();
+    }
+    this.segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(numberOfSegments);
+  }
+
+  /** Creates a table where each value is its own key. */
+  public static <T> ConcurrentInternTable<T, T> create() {
+    return new ConcurrentInternTable<>(Function.identity(), DEFAULT_NUMBER_OF_SEGMENTS);
+  }
+
+  /** Creates a table where the key of each value is given by {@code keyFunction}. */
+  public static <K, V> ConcurrentInternTable<K, V> create(
+      Function<? super V, ? extends K> keyFunction) {
+    return new ConcurrentInternTable<>(keyFunction, DEFAULT_NUMBER_OF_SEGMENTS);
+  }
+
+  private static int spread(int hash) {
+    // Apply the finalizer of MurmurHash3, such that all bits of the hash code affect both the high
+    // bits that select the segment and the low bits that select the slot. Keys with small hash
+    // codes, such as the Integer keys of the debug event tables, would otherwise all map to the
+    // same segment.
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+
+  private Segment<K, V> getSegment(int spreadHash) {
+    return segmentShift == Integer.SIZE ? segments[0] : segments[spreadHash >>> segmentShift];
+  }
+
+  /** Returns the value for the given key or null if the table does not have a value for it. */
+  public V get(K key) {
+    int spreadHash = spread(key.hashCode());
+    return getSegment(spreadHash).get(key, spreadHash, keyFunction);
+  }
+
+  /**
+   * Returns the value for the given key. If the table does not have a value for the key, then the
+   * value is computed by {@code fn} and added to the table. The function is called at most once
+   * for each key.
+   */
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> fn) {
+    int spreadHash = spread(key.hashCode());
+    Segment<K, V> segment = getSegment(spreadHash);
+    V value = segment.get(key, spreadHash, keyFunction);
+    if (value != null) {
+      return value;
+    }
+    return segment.computeIfAbsent(key, spreadHash, keyFunction, fn);
+  }
+
+  /**
+   * Adds the value to the table unless the table already has a value with the same key.
+   *
+   * @return the value that was already in the table or null if {@code value} was added.
+   */
+  public V putIfAbsent(V value) {
+    K key = keyFunction.apply(value);
+    int spreadHash = spread(key.hashCode());
+    Segment<K, V> segment = getSegment(spreadHash);
+    V existing = segment.get(key, spreadHash, keyFunction);
+    if (existing != null) {
+      return existing;
+    }
+    V result = segment.computeIfAbsent(key, spreadHash, keyFunction, ignoreKey -> value);
+    return result == value ? null : result;
+  }
+
+  /**
+   * Returns the canonical value for the key of the given value, which is the given value itself if
+   * the table did not already have a value for its key.
+   */
+  public V intern(V value) {
+    V existing = putIfAbsent(value);
+    return existing == null ? value : existing;
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment<K, V> segment : segments) {
+      size += segment.size;
+    }
+    return size;
+  }
+
+  @VisibleForTesting
+  int getNumberOfNonEmptySegments() {
+    int count = 0;
+    for (Segment<K, V> segment : segments) {
+      if (segment.size > 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Applies {@code consumer} to each value in the table. Values added concurrently may or may not
+   * be visited.
+   */
+  public void forEach(Consumer<? super V> consumer) {
+    for (Segment<K, V> segment : segments) {
+      segment.forEach(consumer);
+    }
+  }
+
+  /** Returns a snapshot of the values in the table. */
+  public List<V> values() {
+    List<V> values = new ArrayList<>(size());
+    forEach(values::add);
+    return values;
+  }
+
+  private static final class Segment<K, V> {
+
+    // The table is replaced when it is resized. Elements are only ever added to the current table,
+    // which is fully populated before it is published.
+    private volatile AtomicReferenceArray<V> table =
+        new AtomicReferenceArray<>(INITIAL_SEGMENT_CAPACITY);
+
+    // Guarded by this, but read without synchronization for estimating the size of the table.
+    private volatile int size = 0;
+
+    V get(K key, int hash, Function<? super V, ? extends K> keyFunction) {
+      AtomicReferenceArray<V> table = this.table;
+      int mask = table.length() - 1;
+      for (int index = hash & mask; ; index = (index + 1) & mask) {
+        V value = table.get(index);
+        if (value == null) {
+          return null;
+        }
+        K valueKey = keyFunction.apply(value);
+        if (valueKey == key || valueKey.equals(key)) {
+          return value;
+        }
+      }
+    }
+
+    synchronized V computeIfAbsent(
+        K key,
+        int hash,
+        Function<? super V, ? extends K> keyFunction,
+        Function<? super K, ? extends V> fn) {
+      // Lookup again while holding the lock, since the value may have been added concurrently.
+      AtomicReferenceArray<V> table = this.table;
+      int mask = table.length() - 1;
+      int index = hash & mask;
+      for (V value = table.get(index); value != null; value = table.get(index)) {
+        K valueKey = keyFunction.apply(value);
+        if (valueKey == key || valueKey.equals(key)) {
+          return value;
+        }
+        index = (index + 1) & mask;
+      }
+      V value = fn.apply(key);
+      assert value != null;
+      assert keyFunction.apply(value).equals(key);
+      // Grow the table at a load factor of 2/3 to keep probe sequences short.
+      if (3 * (size + 1) > 2 * table.length()) {
+        table = resize(table, keyFunction);
+        mask = table.length() - 1;
+        index = hash & mask;
+        while (table.get(index) != null) {
+          index = (index + 1) & mask;
+        }
+        table.set(index, value);
+        this.table = table;
+      } else {
+        table.set(index, value);
+      }
+      size++;
+      return value;
+    }
+
+    private static <K, V> AtomicReferenceArray<V> resize(
+        AtomicReferenceArray<V> table, Function<? super V, ? extends K> keyFunction) {
+      AtomicReferenceArray<V> newTable = new AtomicReferenceArray<>(table.length() * 2);
+      int mask = newTable.length() - 1;
+      for (int i = 0; i < table.length(); i++) {
+        V value = table.get(i);
+        if (value != null) {
+          int index = spread(keyFunction.apply(value).hashCode()) & mask;
+          while (newTable.get(index) != null) {
+            index = (index + 1) & mask;
+          }
+          newTable.set(index, value);
+        }
+      }
+      return newTable;
+    }
+
+    void forEach(Consumer<? super V> consumer) {
+      AtomicReferenceArray<V> table = this.table;
+      for (int i = 0; i < table.length(); i++) {
+        V value = table.get(i);
+        if (value != null) {
+          consumer.accept(value);
+        }
+      }
+    }
+  }
+}
@@ -32,6 +32,8 @@ import com.android.tools.r8.dex.Marker.Backend;
 import com.android.tools.r8.dex.Marker.Tool;
 import com.android.tools.r8.dex.MixedSectionLayoutStrategy;
 import com.android.tools.r8.dex.VirtualFile;
+import com.android.tools.r8.dexingcache.DexingCache;
+import com.android.tools.r8.dexingcache.DexingCacheSession;
 import com.android.tools.r8.dump.DumpOptions;
 import com.android.tools.r8.errors.CompilationError;
 import com.android.tools.r8.errors.IncompleteNestNestDesugarDiagnosic;
@@ -127,6 +129,7 @@ import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
@@ -341,6 +344,8 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
   public boolean printTimes = System.getProperty("com.android.tools.r8.printtimes") != null;
   // To print memory one also have to enable printtimes.
   public boolean printMemory = System.getProperty("com.android.tools.r8.printmemory") != null;
+  // Machine-readable export of the timing tree of the compilation.
+  public TimingExporter timingExporter = null;
 
   // Flag to toggle if DEX code objects should pass-through without IR processing.
   public boolean passthroughDexCode = false;
@@ -404,6 +409,11 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
 
   public int callGraphLikelySpuriousCallEdgeThreshold = 50;
 
+  // Flag to control if the enqueuer parses the class file code of live methods concurrently ahead
+  // of tracing. Tracing itself remains sequential, thus the result is unaffected by this flag.
+  public boolean enableEnqueuerConcurrentCodeParsing = !DETERMINISTIC_DEBUGGING;
+  public int enqueuerConcurrentCodeParsingThreshold = 32;
+
   public int verificationSizeLimitInBytes() {
     if (testing.verificationSizeLimitInBytesOverride > -1) {
       return testing.verificationSizeLimitInBytesOverride;
@@ -699,6 +709,8 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
       System.getProperty("com.android.tools.r8.throwErrorOnBackport") != null;
   // Flag to turn on/off reduction of nest to improve class merging optimizations.
   public boolean enableNestReduction = true;
+  // Flag to turn on/off concurrent computation of the minified names.
+  public boolean enableParallelMinification = true;
   // Defines interface method rewriter behavior.
   public OffOrAuto interfaceMethodDesugaring = OffOrAuto.Auto;
   // Defines try-with-resources rewriter behavior.
@@ -1077,6 +1089,16 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
   // the code contains unsupported byte codes.
   public boolean skipReadingDexCode = false;
 
+  // Memory map DEX file inputs instead of reading them into the heap. This reduces the peak memory
+  // use when merging many DEX inputs, as the input is read directly from the mapped file.
+  public boolean memoryMapDexInputs =
+      System.getProperty("com.android.tools.r8.memoryMapDexInputs") != null;
+
+  // Maximum size of the released DEX output buffers that are kept for writing subsequent DEX files.
+  // The pool is only used for consumers that use the default buffer management. Zero, which is the
+  // default, disables reuse.
+  public long dexOutputBufferPoolSizeInBytes = 0;
+
   // If null, no main-dex list needs to be computed.
   // If non null it must be and passed to the consumer.
   public StringConsumer mainDexListConsumer = null;
@@ -1184,6 +1206,9 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
   // code objects needed for correct desugaring needs to be provided to the consumer.
   public DesugarGraphConsumer desugarGraphConsumer = null;
 
+  // If non-null, D8 reuses and stores per-class dexing results in the cache.
+  public DexingCache dexingCache = null;
+
   public Consumer<List<ProguardConfigurationRule>> syntheticProguardRulesConsumer = null;
 
   public MapIdProvider mapIdProvider = null;
@@ -1488,6 +1513,9 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
     public int maxSize = 99;
     public int threshold = 20;
     public int maxNumberOfInstructionsToBeConsidered = 100;
+    // Outline the instruction sequences that are repeated across outline candidates that are each
+    // too infrequent to be outlined, see RepeatedSequenceOutlineDiscovery.
+    public boolean enableRepeatedSequenceDiscovery = false;
   }
 
   public static class KotlinOptimizationOptions {
@@ -1763,6 +1791,10 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
     private boolean enableInterfaceMerging =
         System.getProperty("com.android.tools.r8.enableHorizontalInterfaceMerging") != null;
     private boolean enableInterfaceMergingInInitial = false;
+    // Apply the policies to the merge groups concurrently, see ParallelPolicyExecutor. Disabled by
+    // default until the effect on the running time of the merger has been measured.
+    private boolean enableParallelPolicyExecutor =
+        System.getProperty("com.android.tools.r8.enableParallelPolicyExecutor") != null;
     private boolean enableSameFilePolicy =
         System.getProperty("com.android.tools.r8.enableSameFilePolicy") != null;
     private boolean enableSyntheticMerging = true;
@@ -1777,6 +1809,14 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
       enableInitial = false;
     }
 
+    public void disableParallelPolicyExecutor() {
+      enableParallelPolicyExecutor = false;
+    }
+
+    public void enableParallelPolicyExecutor() {
+      enableParallelPolicyExecutor = true;
+    }
+
     public void disableSyntheticMerging() {
       enableSyntheticMerging = false;
     }
@@ -1820,6 +1860,10 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
       return true;
     }
 
+    public boolean isParallelPolicyExecutorEnabled() {
+      return enableParallelPolicyExecutor;
+    }
+
     public boolean isIgnoreRuntimeTypeChecksForTestingEnabled() {
       return ignoreRuntimeTypeChecksForTesting;
     }
@@ -2113,6 +2157,57 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
     public boolean roundtripThroughLir = false;
     private boolean useLir = System.getProperty("com.android.tools.r8.nolir") == null;
     private boolean convertLir = System.getProperty("com.android.tools.r8.convertlir") == null;
+    // Experimental: if non-negative, the instructions of LIR code with at least this many bytes are
+    // stored compressed. The decompressed instructions are only weakly cached by the code, so this
+    // bounds the memory used by the LIR of methods that are not being processed at the cost of
+    // decompressing the code again when it is read after a garbage collection. This has not been
+    // measured on large apps, and is therefore not enabled by default.
+    public int minSizeForCompressedLirInstructions =
+        SystemPropertyUtils.parseSystemPropertyOrDefault(
+            "com.android.tools.r8.minSizeForCompressedLirInstructions", -1);
+    // If true, LIR code that trivially maps to DEX code is finalized without building IR. This
+    // currently only applies to empty void methods, and is not enabled by default until it has been
+    // measured.
+    public boolean enableDirectLirToDexFinalization =
+        System.getProperty("com.android.tools.r8.enableDirectLirToDexFinalization") != null;
+    // If false, dex files that are written per class file are written after the pre-write phase of
+    // all files, as in the other output modes, instead of one file at a time.
+    public boolean enableWritingVirtualFilesIndependently = true;
+    // If true, the method resolution results of each AppInfoWithClassHierarchy are cached. This
+    // requires that class definitions are not changed in place while the app info is in use.
+    public boolean enableMethodResolutionCache =
+        System.getProperty("com.android.tools.r8.enableMethodResolutionCache") != null;
+    public final CacheStatistics methodResolutionCacheStatistics =
+        new CacheStatistics("Method resolution cache");
+    // If true, the virtual dispatch targets of each resolved method are cached by
+    // AppInfoWithLiveness until the object allocation info changes.
+    public boolean enableVirtualDispatchTargetLookupCache =
+        System.getProperty("com.android.tools.r8.enableVirtualDispatchTargetLookupCache") != null;
+    public final CacheStatistics virtualDispatchTargetLookupCacheStatistics =
+        new CacheStatistics("Virtual dispatch target lookup cache");
+    // If true, the lookups through the lens chain of the current graph lens are cached until a new
+    // graph lens is installed. This requires that the lenses are not changed in place while the
+    // cache is in use. At most graphLensLookupCacheMaxSize lookups are cached.
+    public boolean enableGraphLensLookupCache =
+        System.getProperty("com.android.tools.r8.enableGraphLensLookupCache") != null;
+    public int graphLensLookupCacheMaxSize =
+        SystemPropertyUtils.parseSystemPropertyOrDefault(
+            "com.android.tools.r8.graphLensLookupCacheMaxSize", 1 << 20);
+    public final CacheStatistics graphLensLookupCacheStatistics =
+        new CacheStatistics("Graph lens lookup cache");
+
+    // Records the hits and misses of the enabled caches as counters of the current phase.
+    public void addCacheStatistics(Timing timing) {
+      if (enableMethodResolutionCache) {
+        methodResolutionCacheStatistics.addCounters(timing);
+      }
+      if (enableVirtualDispatchTargetLookupCache) {
+        virtualDispatchTargetLookupCacheStatistics.addCounters(timing);
+      }
+      if (enableGraphLensLookupCache) {
+        graphLensLookupCacheStatistics.addCounters(timing);
+      }
+    }
 
     public void enableLir() {
       useLir = true;
@@ -2284,6 +2379,9 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
         Function.identity();
     public TriFunction<AppView<?>, Iterable<DexProgramClass>, DexProgramClass, DexProgramClass>
         horizontalClassMergingTarget = (appView, candidates, target) -> target;
+    // Called with each policy that the ParallelPolicyExecutor applies to the groups concurrently.
+    public Consumer<Policy> horizontalClassMergingConcurrentPolicyConsumer =
+        ConsumerUtils.emptyConsumer();
 
     public BiConsumer<DexItemFactory, EnumDataMap> unboxedEnumsConsumer =
         ConsumerUtils.emptyBiConsumer();
@@ -2297,6 +2395,15 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
 
     public Consumer<DexProgramClass> globalSyntheticCreatedCallback = null;
 
+    public Consumer<DexingCacheSession> dexingCacheSessionConsumer = ConsumerUtils.emptyConsumer();
+
+    // Called with the name of each minifier that computed its renaming concurrently.
+    public Consumer<String> concurrentMinificationConsumer = ConsumerUtils.emptyConsumer();
+
+    // Called with each class whose code the enqueuer parsed concurrently ahead of tracing.
+    public Consumer<DexProgramClass> enqueuerConcurrentCodeParsingConsumer =
+        ConsumerUtils.emptyConsumer();
+
     /**
      * If this flag is enabled, we will also compute the set of possible targets for invoke-
      * interface and invoke-virtual instructions that target a library method, and add the
@@ -2390,6 +2497,10 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
 
     public boolean verifyKeptGraphInfo = false;
 
+    // Verifies that the register allocator picks the same free registers as it did when the free
+    // registers were kept in a TreeSet. Only has an effect when assertions are enabled.
+    public boolean verifyFreeRegistersAgainstTreeSetOrdering = false;
+
     public boolean readInputStackMaps = true;
     public boolean disableStackMapVerification = false;
 
@@ -2419,6 +2530,14 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
       }
     }
 
+    public boolean measureProguardRuleEvaluations = false;
+    public ProguardRuleEvaluationData proguardRuleEvaluationData = new ProguardRuleEvaluationData();
+
+    public static class ProguardRuleEvaluationData {
+
+      public AtomicInteger numberOfProguardRuleClassEvaluations = new AtomicInteger();
+    }
+
     public boolean measureProguardIfRuleEvaluations = false;
     public ProguardIfRuleEvaluationData proguardIfRuleEvaluationData =
         new ProguardIfRuleEvaluationData();
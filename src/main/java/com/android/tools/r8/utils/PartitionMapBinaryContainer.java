@@ -0,0 +1,361 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.PartitionMapConsumer;
+import com.android.tools.r8.retrace.MappingPartition;
+import com.android.tools.r8.retrace.MappingPartitionMetadata;
+import com.android.tools.r8.retrace.PartitionMappingSupplier;
+import com.android.tools.r8.retrace.RetracePartitionException;
+import com.google.common.primitives.UnsignedBytes;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary container for partition maps that is memory mapped and queried in place.
+ *
+ * <p>In contrast to the zip container, looking up a partition does not require reading a central
+ * directory into memory. The partition keys are stored in a sorted index that is binary searched
+ * directly in the mapped file. The partitions are encoded as a sequence of tokens, where the words
+ * of the mapping, such as class and method names, refer to a string table shared by all partitions
+ * and decimal numbers, such as line numbers, are stored as uleb128 values. The supplied partition
+ * is the textual partition produced by the partitioner.
+ *
+ * <p>The format is:
+ *
+ * <pre>
+ *   header:        magic:int version:int metadata-offset:int metadata-length:int
+ *                  index-offset:int key-count:int string-table-offset:int string-count:int
+ *   metadata:      byte[metadata-length]
+ *   index:         (key-offset:int key-length:int payload-offset:int payload-length:int)[key-count]
+ *                  sorted by the unsigned UTF-8 bytes of the key
+ *   string table:  string-offset:int[string-count + 1]
+ *   data:          UTF-8 bytes of keys and strings, and the encoded payloads
+ * </pre>
+ *
+ * <p>All offsets are absolute offsets in the file.
+ */
+public class PartitionMapBinaryContainer {
+
+  private static final int MAGIC = 0x52385042; // R8PB
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 8 * Integer.BYTES;
+  private static final int INDEX_ENTRY_SIZE = 4 * Integer.BYTES;
+
+  private static final byte[] EMPTY_RESULT = new byte[0];
+
+  // Tokens of an encoded payload. Any other byte is a delimiter character that is stored as is.
+  private static final int STRING_TOKEN = 0x01;
+  private static final int NUMBER_TOKEN = 0x02;
+
+  // Characters that separate the words of a payload. All delimiters are ASCII characters that are
+  // distinct from the tokens.
+  private static final String DELIMITERS = "\n\r\t ()[]{}<>:,#\"'-";
+
+  private static boolean isDelimiter(char c) {
+    return DELIMITERS.indexOf(c) >= 0;
+  }
+
+  public static boolean isPartitionMapBinaryContainer(Path path) throws IOException {
+    try (InputStream inputStream = Files.newInputStream(path)) {
+      byte[] magic = new byte[Integer.BYTES];
+      return inputStream.read(magic) == magic.length && ByteBuffer.wrap(magic).getInt() == MAGIC;
+    }
+  }
+
+  public static PartitionMappingSupplier createPartitionMapBinaryContainerSupplier(Path path)
+      throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new RetracePartitionException("Partition map is too large to map: " + path);
+      }
+      // The mapping stays valid after the channel is closed.
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    Reader reader = new Reader(buffer);
+    return PartitionMappingSupplier.builder()
+        .setMetadata(reader.getMetadata())
+        .setMappingPartitionFromKeySupplier(reader::getPartition)
+        .build();
+  }
+
+  public static PartitionMapConsumer createPartitionMapBinaryContainerConsumer(Path path) {
+    return new Consumer(path);
+  }
+
+  private static class Reader {
+
+    private final ByteBuffer buffer;
+    private final int indexOffset;
+    private final int keyCount;
+    private final int stringTableOffset;
+    private final int stringCount;
+
+    private Reader(ByteBuffer buffer) {
+      this.buffer = buffer;
+      if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+        throw new RetracePartitionException("Invalid binary partition map");
+      }
+      if (buffer.getInt(4) != VERSION) {
+        throw new RetracePartitionException(
+            "Unsupported binary partition map version: " + buffer.getInt(4));
+      }
+      this.indexOffset = buffer.getInt(16);
+      this.keyCount = buffer.getInt(20);
+      this.stringTableOffset = buffer.getInt(24);
+      this.stringCount = buffer.getInt(28);
+    }
+
+    byte[] getMetadata() {
+      return copyBytes(buffer.getInt(8), buffer.getInt(12));
+    }
+
+    private byte[] copyBytes(int offset, int length) {
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++) {
+        bytes[i] = buffer.get(offset + i);
+      }
+      return bytes;
+    }
+
+    byte[] getPartition(String key) {
+      int entryOffset = findIndexEntry(key.getBytes(StandardCharsets.UTF_8));
+      if (entryOffset < 0) {
+        return EMPTY_RESULT;
+      }
+      return decodePayload(buffer.getInt(entryOffset + 8), buffer.getInt(entryOffset + 12));
+    }
+
+    private int findIndexEntry(byte[] key) {
+      int low = 0;
+      int high = keyCount - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int entryOffset = indexOffset + middle * INDEX_ENTRY_SIZE;
+        int comparison =
+            compareKey(buffer.getInt(entryOffset), buffer.getInt(entryOffset + 4), key);
+        if (comparison < 0) {
+          low = middle + 1;
+        } else if (comparison > 0) {
+          high = middle - 1;
+        } else {
+          return entryOffset;
+        }
+      }
+      return -1;
+    }
+
+    private int compareKey(int keyOffset, int keyLength, byte[] key) {
+      int length = Math.min(keyLength, key.length);
+      for (int i = 0; i < length; i++) {
+        int comparison = UnsignedBytes.compare(buffer.get(keyOffset + i), key[i]);
+        if (comparison != 0) {
+          return comparison;
+        }
+      }
+      return keyLength - key.length;
+    }
+
+    private byte[] decodePayload(int offset, int length) {
+      ByteArrayOutputStream output = new ByteArrayOutputStream(length * 2);
+      int position = offset;
+      int end = offset + length;
+      while (position < end) {
+        int token = buffer.get(position++);
+        if (token != STRING_TOKEN && token != NUMBER_TOKEN) {
+          output.write(token);
+          continue;
+        }
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+          b = buffer.get(position++);
+          value |= (b & 0x7f) << shift;
+          shift += 7;
+        } while ((b & 0x80) != 0);
+        if (token == NUMBER_TOKEN) {
+          byte[] digits = Integer.toString(value).getBytes(StandardCharsets.US_ASCII);
+          output.write(digits, 0, digits.length);
+        } else {
+          if (value >= stringCount) {
+            throw new RetracePartitionException("Invalid string index in binary partition map");
+          }
+          int stringOffset = buffer.getInt(stringTableOffset + value * Integer.BYTES);
+          int stringEnd = buffer.getInt(stringTableOffset + (value + 1) * Integer.BYTES);
+          for (int i = stringOffset; i < stringEnd; i++) {
+            output.write(buffer.get(i));
+          }
+        }
+      }
+      return output.toByteArray();
+    }
+  }
+
+  public static class Consumer implements PartitionMapConsumer {
+
+    private final Path path;
+
+    private final Map<String, Integer> stringIndices = new HashMap<>();
+    private final List<byte[]> strings = new ArrayList<>();
+    private final List<IndexEntry> entries = new ArrayList<>();
+    private final ByteArrayOutputStream payloads = new ByteArrayOutputStream();
+    private byte[] metadata = EMPTY_RESULT;
+
+    private Consumer(Path path) {
+      this.path = path;
+    }
+
+    @Override
+    public void acceptMappingPartition(MappingPartition mappingPartition) {
+      int offset = payloads.size();
+      encodePayload(new String(mappingPartition.getPayload(), StandardCharsets.UTF_8));
+      entries.add(
+          new IndexEntry(
+              mappingPartition.getKey().getBytes(StandardCharsets.UTF_8),
+              offset,
+              payloads.size() - offset));
+    }
+
+    private void encodePayload(String payload) {
+      int wordStart = 0;
+      for (int i = 0; i <= payload.length(); i++) {
+        if (i < payload.length() && !isDelimiter(payload.charAt(i))) {
+          continue;
+        }
+        if (wordStart < i) {
+          encodeWord(payload.substring(wordStart, i));
+        }
+        if (i < payload.length()) {
+          payloads.write(payload.charAt(i));
+        }
+        wordStart = i + 1;
+      }
+    }
+
+    private void encodeWord(String word) {
+      if (isCanonicalNumber(word)) {
+        payloads.write(NUMBER_TOKEN);
+        writeUleb128(Integer.parseInt(word));
+        return;
+      }
+      Integer index = stringIndices.get(word);
+      if (index == null) {
+        index = strings.size();
+        stringIndices.put(word, index);
+        strings.add(word.getBytes(StandardCharsets.UTF_8));
+      }
+      payloads.write(STRING_TOKEN);
+      writeUleb128(index);
+    }
+
+    // Only numbers that print back to the same string are encoded as numbers.
+    private static boolean isCanonicalNumber(String word) {
+      if (word.length() > 9 || (word.length() > 1 && word.charAt(0) == '0')) {
+        return false;
+      }
+      for (int i = 0; i < word.length(); i++) {
+        if (word.charAt(i) < '0' || word.charAt(i) > '9') {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void writeUleb128(int value) {
+      byte[] bytes = LebUtils.encodeUleb128(value);
+      payloads.write(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void acceptMappingPartitionMetadata(MappingPartitionMetadata mappingPartitionMetadata) {
+      metadata = mappingPartitionMetadata.getBytes();
+    }
+
+    @Override
+    public void finished(DiagnosticsHandler handler) {
+      entries.sort(
+          Comparator.comparing(entry -> entry.key, UnsignedBytes.lexicographicalComparator()));
+      long indexOffset = HEADER_SIZE + metadata.length;
+      long stringTableOffset = indexOffset + (long) entries.size() * INDEX_ENTRY_SIZE;
+      long keyDataOffset = stringTableOffset + (long) (strings.size() + 1) * Integer.BYTES;
+      long stringDataOffset = keyDataOffset;
+      for (IndexEntry entry : entries) {
+        stringDataOffset += entry.key.length;
+      }
+      long payloadsOffset = stringDataOffset;
+      for (byte[] string : strings) {
+        payloadsOffset += string.length;
+      }
+      if (payloadsOffset + payloads.size() > Integer.MAX_VALUE) {
+        throw new RetracePartitionException("Partition map is too large for the binary format");
+      }
+      try (DataOutputStream output =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(HEADER_SIZE);
+        output.writeInt(metadata.length);
+        output.writeInt((int) indexOffset);
+        output.writeInt(entries.size());
+        output.writeInt((int) stringTableOffset);
+        output.writeInt(strings.size());
+        output.write(metadata);
+        int keyOffset = (int) keyDataOffset;
+        for (IndexEntry entry : entries) {
+          output.writeInt(keyOffset);
+          output.writeInt(entry.key.length);
+          output.writeInt((int) payloadsOffset + entry.payloadOffset);
+          output.writeInt(entry.payloadLength);
+          keyOffset += entry.key.length;
+        }
+        int stringOffset = (int) stringDataOffset;
+        for (byte[] string : strings) {
+          output.writeInt(stringOffset);
+          stringOffset += string.length;
+        }
+        output.writeInt(stringOffset);
+        for (IndexEntry entry : entries) {
+          output.write(entry.key);
+        }
+        for (byte[] string : strings) {
+          output.write(string);
+        }
+        payloads.writeTo(output);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  private static class IndexEntry {
+
+    private final byte[] key;
+    private final int payloadOffset;
+    private final int payloadLength;
+
+    private IndexEntry(byte[] key, int payloadOffset, int payloadLength) {
+      this.key = key;
+      this.payloadOffset = payloadOffset;
+      this.payloadLength = payloadLength;
+    }
+  }
+}
@@ -12,13 +12,30 @@ package com.android.tools.r8.utils;
 //     t.scope("My task", () -> { ... });
 // Finally a report is printed by:
 //     t.report();
-
+// When tracking metrics, the CPU time, the peak heap usage, the bytes allocated by the thread
+// running the phase (including the threads of merged timings) and the GC time are recorded for each
+// phase. The tree can be exported in a machine-readable format using a TimingExporter.
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.lang.ref.WeakReference;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 
 public class Timing {
@@ -28,7 +45,7 @@ public class Timing {
           "com.android.tools.r8.printtimes.minvalue", 2);
 
   private static final Timing EMPTY =
-      new Timing("<empty>", false) {
+      new Timing("<empty>", false, false) {
         @Override
         public TimingMerger beginMerger(String title, int numberOfThreads) {
           return new TimingMerger(null, -1, this) {
@@ -59,6 +76,11 @@ public class Timing {
           // Ignore.
         }
 
+        @Override
+        public void addCounter(String name, long value) {
+          // Ignore.
+        }
+
         @Override
         public void report() {
           // Ignore.
@@ -102,10 +124,25 @@ public class Timing {
       timing.end();
     }
 
+    @Override
+    public void addCounter(String name, long value) {
+      timing.addCounter(name, value);
+    }
+
     @Override
     public void report() {
       timing.report();
     }
+
+    @Override
+    void endOpenPhases() {
+      timing.endOpenPhases();
+    }
+
+    @Override
+    Node finish() {
+      return timing.finish();
+    }
   }
 
   private static class TimingWithCancellation extends TimingDelegateBase {
@@ -127,9 +164,10 @@ public class Timing {
 
   public static Timing create(String title, InternalOptions options) {
     // We also create a timer when running assertions to validate wellformedness of the node stack.
+    boolean export = options.timingExporter != null;
     Timing timing =
-        options.printTimes || InternalOptions.assertionsEnabled()
-            ? new Timing(title, options.printMemory)
+        options.printTimes || export || InternalOptions.assertionsEnabled()
+            ? new Timing(title, options.printMemory, options.printMemory || export)
             : Timing.empty();
     if (options.cancelCompilationChecker != null) {
       return new TimingWithCancellation(options, timing);
@@ -138,26 +176,229 @@ public class Timing {
   }
 
   public static Timing create(String title, boolean printMemory) {
-    return new Timing(title, printMemory);
+    return new Timing(title, printMemory, printMemory);
+  }
+
+  // Creates a timing that records the memory metrics of each phase without forcing GCs.
+  public static Timing createWithMemoryMetrics(String title) {
+    return new Timing(title, false, true);
   }
 
   private final Node top;
   private final Deque<Node> stack;
   private final boolean trackMemory;
+  private final boolean trackMetrics;
+  private final MetricsTracker metricsTracker;
 
   @Deprecated
   public Timing(String title) {
-    this(title, false);
+    this(title, false, false);
   }
 
-  private Timing(String title, boolean trackMemory) {
+  private Timing(String title, boolean trackMemory, boolean trackMetrics) {
     this.trackMemory = trackMemory;
+    this.trackMetrics = trackMetrics;
+    this.metricsTracker = trackMetrics ? new MetricsTracker() : null;
     stack = new ArrayDeque<>();
-    top = new Node(title, trackMemory);
+    top = new Node(title, trackMemory, metricsTracker);
     stack.push(top);
   }
 
-  private static class MemInfo {
+  /** Peak heap, allocated bytes and GC time of a completed phase. */
+  public static class MemoryMetrics {
+
+    private final long peakHeapBytes;
+    private final long allocatedBytes;
+    private final long gcTimeMs;
+
+    MemoryMetrics(long peakHeapBytes, long allocatedBytes, long gcTimeMs) {
+      this.peakHeapBytes = peakHeapBytes;
+      this.allocatedBytes = allocatedBytes;
+      this.gcTimeMs = gcTimeMs;
+    }
+
+    // Largest heap usage that was sampled during the phase. Since the heap is only sampled
+    // periodically, this is a lower bound of the actual peak heap usage.
+    public long getPeakHeapBytes() {
+      return peakHeapBytes;
+    }
+
+    public long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+
+    public long getGcTimeMs() {
+      return gcTimeMs;
+    }
+
+    @Override
+    public String toString() {
+      return "peak heap: "
+          + prettySize(peakHeapBytes)
+          + ", allocated: "
+          + prettySize(allocatedBytes)
+          + ", gc: "
+          + gcTimeMs
+          + "ms";
+    }
+  }
+
+  // Tracking of the JVM state for the phases of a single timing. The heap usage is sampled by a
+  // single daemon thread, which folds each sample into the open phases of all timings. Opening and
+  // closing a phase only folds in the last sample, such that phase transitions neither take a
+  // global lock nor query the memory pools. Since the heap is shared, the peak of a phase includes
+  // the heap used by concurrent compilations in the same JVM. A peak between two samples is not
+  // observed.
+  private static class MetricsTracker {
+
+    private static final int SAMPLE_INTERVAL_MS =
+        SystemPropertyUtils.parseSystemPropertyOrDefault(
+            "com.android.tools.r8.timing.heapSampleIntervalMs", 10);
+
+    private static final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+    private static final List<GarbageCollectorMXBean> collectors =
+        ManagementFactory.getGarbageCollectorMXBeans();
+    private static final com.sun.management.ThreadMXBean threads = getThreadMXBean();
+    private static final ThreadMXBean cpuTimeThreads = getCpuTimeThreadMXBean();
+    // The trackers of all timings with metrics. These are weakly referenced, such that the phases
+    // left open by a compilation that failed are released with its timing.
+    private static final Queue<WeakReference<MetricsTracker>> trackers =
+        new ConcurrentLinkedQueue<>();
+    // The sampler thread, or null if no timing is tracking metrics. Guarded by the class lock.
+    private static Thread sampler = null;
+    private static volatile long lastSample = 0;
+
+    private final Set<Node> openNodes = ConcurrentHashMap.newKeySet();
+
+    static {
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() == MemoryType.HEAP) {
+          heapPools.add(pool);
+        }
+      }
+    }
+
+    MetricsTracker() {
+      trackers.add(new WeakReference<>(this));
+      ensureSamplerStarted();
+    }
+
+    private static synchronized void ensureSamplerStarted() {
+      if (sampler == null) {
+        lastSample = getHeapUsage();
+        sampler = new Thread(MetricsTracker::runSampler, "R8 heap sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+      }
+    }
+
+    // Stops the sampler and returns true if there are no more trackers.
+    private static synchronized boolean stopSamplerIfUnused() {
+      if (trackers.isEmpty()) {
+        sampler = null;
+        return true;
+      }
+      return false;
+    }
+
+    private static void runSampler() {
+      do {
+        try {
+          Thread.sleep(SAMPLE_INTERVAL_MS);
+        } catch (InterruptedException e) {
+          synchronized (MetricsTracker.class) {
+            sampler = null;
+          }
+          return;
+        }
+        sample();
+      } while (!stopSamplerIfUnused());
+    }
+
+    private static void sample() {
+      long used = getHeapUsage();
+      lastSample = used;
+      Iterator<WeakReference<MetricsTracker>> iterator = trackers.iterator();
+      while (iterator.hasNext()) {
+        MetricsTracker tracker = iterator.next().get();
+        if (tracker == null) {
+          iterator.remove();
+          continue;
+        }
+        for (Node node : tracker.openNodes) {
+          node.updatePeakHeap(used);
+        }
+      }
+    }
+
+    private static long getHeapUsage() {
+      long used = 0;
+      for (MemoryPoolMXBean pool : heapPools) {
+        MemoryUsage usage = pool.getUsage();
+        if (usage != null) {
+          used += usage.getUsed();
+        }
+      }
+      return used;
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+      ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (threadBean.isThreadAllocatedMemorySupported()) {
+          if (!threadBean.isThreadAllocatedMemoryEnabled()) {
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+          }
+          return threadBean;
+        }
+      }
+      return null;
+    }
+
+    private static ThreadMXBean getCpuTimeThreadMXBean() {
+      ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (bean.isCurrentThreadCpuTimeSupported()) {
+        if (!bean.isThreadCpuTimeEnabled()) {
+          bean.setThreadCpuTimeEnabled(true);
+        }
+        return bean;
+      }
+      return null;
+    }
+
+    void open(Node node) {
+      node.updatePeakHeap(lastSample);
+      openNodes.add(node);
+    }
+
+    void close(Node node) {
+      openNodes.remove(node);
+      node.updatePeakHeap(lastSample);
+    }
+
+    int getNumberOfOpenNodes() {
+      return openNodes.size();
+    }
+
+    static long getCurrentThreadAllocatedBytes() {
+      return threads != null ? threads.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    static long getCurrentThreadCpuTime() {
+      return cpuTimeThreads != null ? cpuTimeThreads.getCurrentThreadCpuTime() : 0;
+    }
+
+    static long getGcTimeMs() {
+      long time = 0;
+      for (GarbageCollectorMXBean collector : collectors) {
+        time += Math.max(0, collector.getCollectionTime());
+      }
+      return time;
+    }
+  }
+
+  static class MemInfo {
     final long used;
 
     MemInfo(long used) {
@@ -176,6 +417,8 @@ public class Timing {
   static class Node {
     final String title;
     final boolean trackMemory;
+    final boolean trackMetrics;
+    final MetricsTracker metricsTracker;
 
     final Map<String, Node> children = new LinkedHashMap<>();
     long duration = 0;
@@ -183,36 +426,129 @@ public class Timing {
     Map<String, MemInfo> startMemory;
     Map<String, MemInfo> endMemory;
 
-    Node(String title, boolean trackMemory) {
+    // Time and thread of the first start of this node, or -1 if the node was never started.
+    long firstStartTime = -1;
+    long threadId = -1;
+    // Number of merged tasks and wall time if this is the node of a merge, otherwise -1. The
+    // duration of a merge node is the sum of the durations of the merged tasks and the wall time.
+    int mergedTasks = -1;
+    long mergeWallTime = -1;
+    // Number of threads and wall time in which the merged tasks were running if this is the node of
+    // a merge that records it, otherwise -1. Unlike the merge wall time, this does not include the
+    // time between the tasks, so it can be used to compute the utilization of the threads.
+    int mergeThreads = -1;
+    long mergeTaskWallTime = -1;
+
+    long cpuTime = 0;
+    // Updated by the heap sampler while the node is open.
+    volatile long peakHeap = 0;
+    long allocatedBytes = 0;
+    long gcTime = 0;
+    long startCpuTime;
+    long startAllocatedBytes;
+    long startGcTime;
+    Thread startThread;
+    // Named counters of this phase, such as the hits and misses of a cache, or null if none.
+    Map<String, Long> counters = null;
+
+    Node(String title, boolean trackMemory, MetricsTracker metricsTracker) {
+      this(title, trackMemory, metricsTracker, true);
+    }
+
+    private Node(String title, boolean trackMemory, MetricsTracker metricsTracker, boolean start) {
       this.title = title;
       this.trackMemory = trackMemory;
-      if (trackMemory) {
-        startMemory = computeMemoryInformation();
+      this.trackMetrics = metricsTracker != null;
+      this.metricsTracker = metricsTracker;
+      if (start) {
+        startMemoryTracking();
+        this.start_time = System.nanoTime();
+        this.firstStartTime = start_time;
+        this.threadId = Thread.currentThread().getId();
       }
-      this.start_time = System.nanoTime();
+    }
+
+    // Creates a node for accumulating the data of merged nodes, this node is never started.
+    static Node createMergeTarget(
+        String title, boolean trackMemory, MetricsTracker metricsTracker) {
+      Node node = new Node(title, trackMemory, metricsTracker, false);
+      node.start_time = -1;
+      return node;
     }
 
     void restart() {
       assert start_time == -1;
+      startMemoryTracking();
+      start_time = System.nanoTime();
+    }
+
+    private void startMemoryTracking() {
       if (trackMemory) {
         startMemory = computeMemoryInformation();
       }
-      start_time = System.nanoTime();
+      if (trackMetrics) {
+        metricsTracker.open(this);
+        startGcTime = MetricsTracker.getGcTimeMs();
+        startAllocatedBytes = MetricsTracker.getCurrentThreadAllocatedBytes();
+        startCpuTime = MetricsTracker.getCurrentThreadCpuTime();
+        startThread = Thread.currentThread();
+      }
     }
 
     void end() {
       duration += System.nanoTime() - start_time;
       start_time = -1;
       assert duration() >= 0;
+      if (trackMetrics) {
+        // The thread counters are only valid if ending on the same thread.
+        if (startThread == Thread.currentThread()) {
+          allocatedBytes +=
+              MetricsTracker.getCurrentThreadAllocatedBytes() - startAllocatedBytes;
+          cpuTime += MetricsTracker.getCurrentThreadCpuTime() - startCpuTime;
+        }
+        startThread = null;
+        gcTime += MetricsTracker.getGcTimeMs() - startGcTime;
+        metricsTracker.close(this);
+      }
       if (trackMemory) {
         endMemory = computeMemoryInformation();
       }
     }
 
+    synchronized void updatePeakHeap(long used) {
+      if (used > peakHeap) {
+        peakHeap = used;
+      }
+    }
+
+    void addCounter(String name, long value) {
+      if (counters == null) {
+        counters = new LinkedHashMap<>();
+      }
+      counters.merge(name, value, Long::sum);
+    }
+
+    void addCounters(Node node) {
+      if (node.counters != null) {
+        node.counters.forEach(this::addCounter);
+      }
+    }
+
+    MemoryMetrics getMemoryMetrics() {
+      assert start_time == -1 : "Expected phase to have completed";
+      return new MemoryMetrics(peakHeap, allocatedBytes, gcTime);
+    }
+
     long duration() {
       return duration;
     }
 
+    // The sum of the durations of the merged tasks, excluding the wall time of the merge itself.
+    long mergedTasksDuration() {
+      assert mergedTasks != -1;
+      return duration - mergeWallTime;
+    }
+
     @Override
     public String toString() {
       return title + ": " + prettyTime(duration());
@@ -233,6 +569,12 @@ public class Timing {
       if (trackMemory) {
         printMemory(depth);
       }
+      if (trackMetrics) {
+        printMemoryMetrics(depth);
+      }
+      if (counters != null) {
+        printCounters(depth);
+      }
       if (children.isEmpty()) {
         return;
       }
@@ -263,7 +605,27 @@ public class Timing {
       }
     }
 
+    void printCounters(int depth) {
+      counters.forEach(
+          (name, value) -> {
+            for (int i = 0; i <= depth; i++) {
+              System.out.print("  ");
+            }
+            System.out.println(name + ": " + value);
+          });
+    }
+
+    void printMemoryMetrics(int depth) {
+      for (int i = 0; i <= depth; i++) {
+        System.out.print("  ");
+      }
+      System.out.println("Memory metrics " + getMemoryMetrics());
+    }
+
     void printMemory(int depth) {
+      if (startMemory == null || endMemory == null) {
+        return;
+      }
       for (Entry<String, MemInfo> start : startMemory.entrySet()) {
         if (start.getKey().equals("Memory")) {
           for (int i = 0; i <= depth; i++) {
@@ -285,16 +647,24 @@ public class Timing {
   }
 
   public static class TimingMerger {
+    final Timing timing;
     final Node parent;
     final Node merged;
 
     private int taskCount = 0;
-    private Node slowest = new Node("<zero>", false);
+    private long mergedAllocatedBytes = 0;
+    private long mergedCpuTime = 0;
+    private long taskWallTime = -1;
+    private Node slowest = new Node("<zero>", false, null);
+
+    private final int numberOfThreads;
 
     private TimingMerger(String title, int numberOfThreads, Timing timing) {
+      this.timing = timing;
+      this.numberOfThreads = numberOfThreads;
       parent = timing.stack.peek();
       merged =
-          new Node(title, timing.trackMemory) {
+          new Node(title, timing.trackMemory, timing.metricsTracker) {
             @Override
             public void report(int depth, Node top) {
               assert duration() >= 0;
@@ -304,18 +674,25 @@ public class Timing {
                 System.out.println(" (unknown thread count)");
               } else {
                 long walltime = parent.duration();
-                long perThreadTime = duration() / numberOfThreads;
+                long perThreadTime = mergedTasksDuration() / numberOfThreads;
                 System.out.println(
                     ", tasks: "
                         + taskCount
                         + ", threads: "
                         + numberOfThreads
                         + ", utilization: "
-                        + prettyPercentage(perThreadTime, walltime));
+                        + prettyPercentage(perThreadTime, walltime)
+                        + (mergeTaskWallTime > 0
+                            ? ", core utilization: "
+                                + prettyPercentage(perThreadTime, mergeTaskWallTime)
+                            : ""));
               }
               if (trackMemory) {
                 printMemory(depth);
               }
+              if (trackMetrics) {
+                printMemoryMetrics(depth);
+              }
               // Report children with this merge node as "top" so times are relative to the total
               // merge.
               children.forEach((title, node) -> node.report(depth + 1, this));
@@ -355,6 +732,7 @@ public class Timing {
 
     public void add(Collection<Timing> timings) {
       final boolean trackMemory = merged.trackMemory;
+      final MetricsTracker metricsTracker = merged.metricsTracker;
       Deque<Item> worklist = new ArrayDeque<>();
       for (Timing timing : timings) {
         if (timing == empty()) {
@@ -363,6 +741,12 @@ public class Timing {
         assert timing.stack.isEmpty() : "Expected sub-timing to have completed prior to merge";
         ++taskCount;
         merged.duration += timing.top.duration;
+        // The merged timings ran on other threads, so their allocations are not included in the
+        // thread allocation counter of this thread.
+        mergedAllocatedBytes += timing.top.allocatedBytes;
+        mergedCpuTime += timing.top.cpuTime;
+        merged.peakHeap = Math.max(merged.peakHeap, timing.top.peakHeap);
+        merged.addCounters(timing.top);
         if (slowest != null && timing.top.duration > slowest.duration) {
           slowest = timing.top;
         }
@@ -373,9 +757,21 @@ public class Timing {
         item.mergeSource.children.forEach(
             (title, child) -> {
               Node mergeTarget =
-                  item.mergeTarget.children.computeIfAbsent(title, t -> new Node(t, trackMemory));
+                  item.mergeTarget.children.computeIfAbsent(
+                      title, t -> Node.createMergeTarget(t, trackMemory, metricsTracker));
               mergeTarget.duration += child.duration;
+              mergeTarget.startMemory = child.startMemory;
               mergeTarget.endMemory = child.endMemory;
+              mergeTarget.allocatedBytes += child.allocatedBytes;
+              mergeTarget.cpuTime += child.cpuTime;
+              if (mergeTarget.firstStartTime == -1
+                  || (child.firstStartTime != -1
+                      && child.firstStartTime < mergeTarget.firstStartTime)) {
+                mergeTarget.firstStartTime = child.firstStartTime;
+              }
+              mergeTarget.gcTime = Math.max(mergeTarget.gcTime, child.gcTime);
+              mergeTarget.peakHeap = Math.max(mergeTarget.peakHeap, child.peakHeap);
+              mergeTarget.addCounters(child);
               if (!child.children.isEmpty()) {
                 worklist.addLast(new Item(mergeTarget, child));
               }
@@ -383,9 +779,38 @@ public class Timing {
       }
     }
 
+    /**
+     * Adds the timings of tasks that were all running within the given wall time.
+     *
+     * <p>The sum of the wall times is used to report the core utilization of the merge, i.e., how
+     * much of the available thread time was spent in the tasks.
+     */
+    public void add(Collection<Timing> timings, long wallTime) {
+      add(timings);
+      if (taskWallTime == -1) {
+        taskWallTime = 0;
+      }
+      taskWallTime += wallTime;
+    }
+
     public void end() {
       assert !parent.children.containsKey(merged.title);
+      long mergedDuration = merged.duration;
       merged.end();
+      merged.mergedTasks = taskCount;
+      merged.mergeWallTime = merged.duration - mergedDuration;
+      if (taskWallTime != -1 && numberOfThreads > 0) {
+        merged.mergeThreads = numberOfThreads;
+        merged.mergeTaskWallTime = taskWallTime;
+      }
+      // Attribute the allocations and CPU time of the merged timings to the merge and all
+      // enclosing phases.
+      merged.allocatedBytes += mergedAllocatedBytes;
+      merged.cpuTime += mergedCpuTime;
+      for (Node node : timing.stack) {
+        node.allocatedBytes += mergedAllocatedBytes;
+        node.cpuTime += mergedCpuTime;
+      }
       parent.children.put(merged.title, merged);
     }
   }
@@ -434,6 +859,11 @@ public class Timing {
     return builder.toString();
   }
 
+  /** Adds the given value to the counter with the given name of the current phase. */
+  public void addCounter(String name, long value) {
+    stack.peek().addCounter(name, value);
+  }
+
   public void begin(String title) {
     Node parent = stack.peek();
     Node child;
@@ -441,7 +871,7 @@ public class Timing {
       child = parent.children.get(title);
       child.restart();
     } else {
-      child = new Node(title, trackMemory);
+      child = new Node(title, trackMemory, metricsTracker);
       parent.children.put(title, child);
     }
     stack.push(child);
@@ -470,11 +900,45 @@ public class Timing {
     stack.pop();
   }
 
+  // Returns the memory metrics of the completed phase with the given path of titles below the top
+  // phase, or of the top phase if the path is empty. Returns null if the phase does not exist.
+  public MemoryMetrics getMemoryMetrics(String... path) {
+    assert trackMetrics;
+    Node node = top;
+    for (String title : path) {
+      node = node.children.get(title);
+      if (node == null) {
+        return null;
+      }
+    }
+    return node.getMemoryMetrics();
+  }
+
+  // Returns the number of phases of this timing that are open and tracked for metrics.
+  int getNumberOfOpenPhasesWithMetrics() {
+    assert trackMetrics;
+    return metricsTracker.getNumberOfOpenNodes();
+  }
+
+  /** Ends the phases that are still open, for example because the compilation failed. */
+  void endOpenPhases() {
+    while (stack.size() > 1) {
+      end();
+    }
+  }
+
+  // Ends the top phase, unless it has already been ended, and returns it.
+  Node finish() {
+    assert stack.isEmpty() || (stack.size() == 1 && stack.peek() == top);
+    if (top.start_time != -1) {
+      top.end();
+    }
+    return top;
+  }
+
   public void report() {
     assert stack.size() == 1;
-    Node top = stack.peek();
-    assert top == this.top;
-    top.end();
+    Node top = finish();
     System.out.println("Recorded timings:");
     top.report(0, top);
   }
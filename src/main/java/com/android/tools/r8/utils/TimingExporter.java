@@ -0,0 +1,203 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.StringConsumer;
+import com.android.tools.r8.TimingReportFormat;
+import com.android.tools.r8.utils.Timing.Node;
+import com.google.gson.GsonBuilder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Export of a completed {@link Timing} tree in a machine-readable format.
+ *
+ * <p>The JSON format is the tree of phases where each phase has its wall time, start time relative
+ * to the start of the compilation and the id of the thread that started it. For merges, the wall
+ * time is the time from the start to the end of the merge and the merged time is the sum of the
+ * time of the merged tasks. Merges that record the wall time in which their tasks were running
+ * also have the core utilization, which is the merged time divided by the thread time available
+ * while the tasks were running. When metrics are tracked, each phase also has its CPU time, peak
+ * heap, allocated bytes and GC time, and the used heap delta when memory is printed.
+ *
+ * <p>The chrome trace format has a complete event for each phase. The phases below a merge are
+ * aggregates of the phases of all merged tasks and do not have a real start time. They are laid out
+ * one after the other on a separate track for each merge.
+ */
+public class TimingExporter {
+
+  private static final int VERSION = 1;
+  private static final int PID = 1;
+  private static final long FIRST_MERGE_TRACK_ID = 1L << 32;
+
+  private final TimingReportFormat format;
+  private final StringConsumer consumer;
+
+  public TimingExporter(TimingReportFormat format, StringConsumer consumer) {
+    this.format = format;
+    this.consumer = consumer;
+  }
+
+  public TimingReportFormat getFormat() {
+    return format;
+  }
+
+  public void export(Timing timing, Reporter reporter) {
+    // The timings of a failed compilation are also exported, in which case some phases may still
+    // be open.
+    timing.endOpenPhases();
+    Node top = timing.finish();
+    String content = format == TimingReportFormat.JSON ? toJson(top) : toChromeTrace(top);
+    consumer.accept(content, reporter);
+    consumer.finished(reporter);
+  }
+
+  static String toJson(Node top) {
+    Map<String, Object> json = new LinkedHashMap<>();
+    json.put("version", VERSION);
+    json.put("root", phaseToJson(top, top.firstStartTime));
+    return new GsonBuilder().disableHtmlEscaping().create().toJson(json);
+  }
+
+  private static Map<String, Object> phaseToJson(Node node, long baseTime) {
+    Map<String, Object> json = new LinkedHashMap<>();
+    json.put("title", node.title);
+    if (node.firstStartTime != -1) {
+      json.put("startTimeNs", node.firstStartTime - baseTime);
+    }
+    if (node.mergedTasks != -1) {
+      json.put("wallTimeNs", node.mergeWallTime);
+      json.put("mergedTasks", node.mergedTasks);
+      json.put("mergedTimeNs", node.mergedTasksDuration());
+      putCoreUtilization(node, json);
+    } else {
+      json.put("wallTimeNs", node.duration());
+    }
+    if (node.threadId != -1) {
+      json.put("threadId", node.threadId);
+    }
+    putMetrics(node, json);
+    if (!node.children.isEmpty()) {
+      List<Object> children = new ArrayList<>(node.children.size());
+      for (Node child : node.children.values()) {
+        children.add(phaseToJson(child, baseTime));
+      }
+      json.put("children", children);
+    }
+    return json;
+  }
+
+  private static void putCoreUtilization(Node node, Map<String, Object> json) {
+    if (node.mergeTaskWallTime > 0) {
+      json.put("threads", node.mergeThreads);
+      json.put("taskWallTimeNs", node.mergeTaskWallTime);
+      json.put(
+          "coreUtilization",
+          (double) node.mergedTasksDuration()
+              / ((double) node.mergeTaskWallTime * node.mergeThreads));
+    }
+  }
+
+  private static void putMetrics(Node node, Map<String, Object> json) {
+    if (node.trackMetrics) {
+      json.put("cpuTimeNs", node.cpuTime);
+      json.put("peakHeapBytes", node.peakHeap);
+      json.put("allocatedBytes", node.allocatedBytes);
+      json.put("gcTimeMs", node.gcTime);
+    }
+    if (node.counters != null) {
+      json.put("counters", node.counters);
+    }
+    if (node.trackMemory && node.startMemory != null && node.endMemory != null) {
+      Timing.MemInfo start = node.startMemory.get("Memory");
+      Timing.MemInfo end = node.endMemory.get("Memory");
+      if (start != null && end != null) {
+        json.put("usedHeapDeltaBytes", end.usedDelta(start));
+      }
+    }
+  }
+
+  static String toChromeTrace(Node top) {
+    ChromeTraceBuilder builder = new ChromeTraceBuilder(top.firstStartTime);
+    builder.addThreadName(top.threadId, top.title);
+    builder.addPhase(top, top.firstStartTime, top.threadId, false);
+    Map<String, Object> json = new LinkedHashMap<>();
+    json.put("traceEvents", builder.events);
+    json.put("displayTimeUnit", "ms");
+    return new GsonBuilder().disableHtmlEscaping().create().toJson(json);
+  }
+
+  private static class ChromeTraceBuilder {
+
+    private final long baseTime;
+    private final List<Object> events = new ArrayList<>();
+    private long nextMergeTrackId = FIRST_MERGE_TRACK_ID;
+
+    ChromeTraceBuilder(long baseTime) {
+      this.baseTime = baseTime;
+    }
+
+    void addThreadName(long tid, String name) {
+      Map<String, Object> args = new LinkedHashMap<>();
+      args.put("name", name);
+      Map<String, Object> event = new LinkedHashMap<>();
+      event.put("name", "thread_name");
+      event.put("ph", "M");
+      event.put("pid", PID);
+      event.put("tid", tid);
+      event.put("args", args);
+      events.add(event);
+    }
+
+    // Adds the phase and its children. The start time is used for phases without a start time of
+    // their own, or for all phases when laying out the aggregated phases of a merge.
+    void addPhase(Node node, long startTime, long tid, boolean aggregated) {
+      if (!aggregated && node.firstStartTime != -1) {
+        startTime = node.firstStartTime;
+      }
+      long duration = node.duration();
+      Map<String, Object> args = new LinkedHashMap<>();
+      if (node.mergedTasks != -1) {
+        args.put("mergedTasks", node.mergedTasks);
+        args.put("mergedTimeNs", node.mergedTasksDuration());
+        putCoreUtilization(node, args);
+        if (!aggregated) {
+          duration = node.mergeWallTime;
+        }
+      }
+      putMetrics(node, args);
+      Map<String, Object> event = new LinkedHashMap<>();
+      event.put("name", node.title);
+      event.put("cat", aggregated ? "merged" : "phase");
+      event.put("ph", "X");
+      event.put("ts", toMicros(startTime - baseTime));
+      event.put("dur", toMicros(duration));
+      event.put("pid", PID);
+      event.put("tid", tid);
+      event.put("args", args);
+      events.add(event);
+      if (node.mergedTasks != -1 && !aggregated) {
+        long mergeTrackId = nextMergeTrackId++;
+        addThreadName(mergeTrackId, "MERGE " + node.title);
+        long childStartTime = startTime;
+        for (Node child : node.children.values()) {
+          addPhase(child, childStartTime, mergeTrackId, true);
+          childStartTime += child.duration();
+        }
+        return;
+      }
+      long childStartTime = startTime;
+      for (Node child : node.children.values()) {
+        addPhase(child, childStartTime, tid, aggregated);
+        childStartTime += child.duration();
+      }
+    }
+
+    private static double toMicros(long nanos) {
+      return nanos / 1000.0;
+    }
+  }
+}
@@ -9,6 +9,9 @@ import com.android.tools.r8.benchmarks.appdumps.TiviBenchmarks;
 import com.android.tools.r8.benchmarks.desugaredlib.L8Benchmark;
 import com.android.tools.r8.benchmarks.desugaredlib.LegacyDesugaredLibraryBenchmark;
 import com.android.tools.r8.benchmarks.helloworld.HelloWorldBenchmark;
+import com.android.tools.r8.benchmarks.interning.DexItemFactoryInterningBenchmark;
+import com.android.tools.r8.benchmarks.micro.IRMicroBenchmarks;
+import com.android.tools.r8.benchmarks.micro.ReaderMicroBenchmarks;
 import com.android.tools.r8.benchmarks.retrace.RetraceStackTraceBenchmark;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -51,6 +54,9 @@ public class BenchmarkCollection {
     L8Benchmark.configs().forEach(collection::addBenchmark);
     TiviBenchmarks.configs().forEach(collection::addBenchmark);
     RetraceStackTraceBenchmark.configs().forEach(collection::addBenchmark);
+    DexItemFactoryInterningBenchmark.configs().forEach(collection::addBenchmark);
+    IRMicroBenchmarks.configs().forEach(collection::addBenchmark);
+    ReaderMicroBenchmarks.configs().forEach(collection::addBenchmark);
     return collection;
   }
 
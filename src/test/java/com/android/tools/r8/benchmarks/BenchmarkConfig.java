@@ -3,6 +3,7 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8.benchmarks;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
@@ -104,6 +105,7 @@ public class BenchmarkConfig {
     private int fromRevision = -1;
     private BenchmarkTimeout timeout = null;
     private boolean measureWarmup = false;
+    private Map<BenchmarkMetric, Long> thresholds = new HashMap<>();
 
     private Builder() {}
 
@@ -145,6 +147,12 @@ public class BenchmarkConfig {
           }
         }
       }
+      for (BenchmarkMetric metric : thresholds.keySet()) {
+        if (subBenchmarks.values().stream().noneMatch(m -> m.contains(metric))) {
+          throw new BenchmarkConfigError(
+              "Benchmark cannot set a regression threshold on unmeasured metric: " + metric);
+        }
+      }
       return new BenchmarkConfig(
           name,
           method,
@@ -154,7 +162,8 @@ public class BenchmarkConfig {
           fromRevision,
           dependencies,
           timeout,
-          measureWarmup);
+          measureWarmup,
+          ImmutableMap.copyOf(thresholds));
     }
 
     public Builder setName(String name) {
@@ -182,6 +191,33 @@ public class BenchmarkConfig {
       return this;
     }
 
+    public Builder measurePeakHeap() {
+      metrics.add(BenchmarkMetric.PeakHeap);
+      return this;
+    }
+
+    // Measures the bytes allocated by the thread running the benchmark, which does not include
+    // the allocations on the threads of the compiler executor.
+    public Builder measureAllocatedBytes() {
+      metrics.add(BenchmarkMetric.AllocatedBytes);
+      return this;
+    }
+
+    public Builder measureGcTime() {
+      metrics.add(BenchmarkMetric.GcTime);
+      return this;
+    }
+
+    public Builder measureMemory() {
+      return measurePeakHeap().measureAllocatedBytes().measureGcTime();
+    }
+
+    // Fail the benchmark if the reported result for the metric exceeds the given threshold.
+    public Builder setRegressionThreshold(BenchmarkMetric metric, long threshold) {
+      thresholds.put(metric, threshold);
+      return this;
+    }
+
     public Builder measureWarmup() {
       measureWarmup = true;
       return this;
@@ -229,6 +265,7 @@ public class BenchmarkConfig {
   private final int fromRevision;
   private final BenchmarkTimeout timeout;
   private final boolean measureWarmup;
+  private final Map<BenchmarkMetric, Long> thresholds;
 
   private BenchmarkConfig(
       String name,
@@ -239,7 +276,8 @@ public class BenchmarkConfig {
       int fromRevision,
       Collection<BenchmarkDependency> dependencies,
       BenchmarkTimeout timeout,
-      boolean measureWarmup) {
+      boolean measureWarmup,
+      Map<BenchmarkMetric, Long> thresholds) {
     this.id = new BenchmarkIdentifier(name, target);
     this.method = benchmarkMethod;
     this.benchmarks = benchmarks;
@@ -248,6 +286,7 @@ public class BenchmarkConfig {
     this.dependencies = dependencies;
     this.timeout = timeout;
     this.measureWarmup = measureWarmup;
+    this.thresholds = thresholds;
   }
 
   public BenchmarkIdentifier getIdentifier() {
@@ -293,6 +332,14 @@ public class BenchmarkConfig {
     return measureWarmup;
   }
 
+  public boolean hasMemoryMetrics() {
+    return isSingleBenchmark() && getMetrics().stream().anyMatch(BenchmarkMetric::isMemoryMetric);
+  }
+
+  public Map<BenchmarkMetric, Long> getRegressionThresholds() {
+    return thresholds;
+  }
+
   public Collection<BenchmarkDependency> getDependencies() {
     return dependencies;
   }
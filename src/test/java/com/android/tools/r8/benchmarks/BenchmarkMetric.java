@@ -6,7 +6,15 @@ package com.android.tools.r8.benchmarks;
 public enum BenchmarkMetric {
   RunTimeRaw,
   CodeSize,
-  StartupTime;
+  StartupTime,
+  PeakHeap,
+  // Bytes allocated by the thread running the benchmark, see BenchmarkRunner.
+  AllocatedBytes,
+  GcTime;
+
+  public boolean isMemoryMetric() {
+    return this == PeakHeap || this == AllocatedBytes || this == GcTime;
+  }
 
   public String getDartType() {
     return "Metric." + name();
@@ -4,6 +4,7 @@
 package com.android.tools.r8.benchmarks;
 
 import com.android.tools.r8.benchmarks.BenchmarkRunner.ResultMode;
+import com.android.tools.r8.utils.Timing.MemoryMetrics;
 
 public interface BenchmarkResults {
   // Append a runtime result. This may be summed or averaged depending on the benchmark set up.
@@ -12,6 +13,22 @@ public interface BenchmarkResults {
   // Append a code size result. This is always assumed to be identical if called multiple times.
   void addCodeSizeResult(long result);
 
+  // Append a peak heap result in bytes. The maximum of all results is reported.
+  void addPeakHeapResult(long result);
+
+  // Append an allocated bytes result. This may be summed or averaged like runtime results.
+  void addAllocatedBytesResult(long result);
+
+  // Append a GC time result in milliseconds. This may be summed or averaged like runtime results.
+  void addGcTimeResult(long result);
+
+  // Append the peak heap, allocated bytes and GC time results measured by a timing.
+  default void addMemoryResults(MemoryMetrics metrics) {
+    addPeakHeapResult(metrics.getPeakHeapBytes());
+    addAllocatedBytesResult(metrics.getAllocatedBytes());
+    addGcTimeResult(metrics.getGcTimeMs());
+  }
+
   // Get the results collection for a "sub-benchmark" when defining a group of benchmarks.
   // This will throw if called on a benchmark without sub-benchmarks.
   BenchmarkResults getSubResults(String name);
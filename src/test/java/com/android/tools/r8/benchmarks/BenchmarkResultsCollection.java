@@ -14,10 +14,12 @@ public class BenchmarkResultsCollection implements BenchmarkResults {
 
   private final Map<String, BenchmarkResultsSingle> results;
 
-  public BenchmarkResultsCollection(Map<String, Set<BenchmarkMetric>> benchmarks) {
+  public BenchmarkResultsCollection(
+      Map<String, Set<BenchmarkMetric>> benchmarks, Map<BenchmarkMetric, Long> thresholds) {
     results = new HashMap<>(benchmarks.size());
     benchmarks.forEach(
-        (name, metrics) -> results.put(name, new BenchmarkResultsSingle(name, metrics)));
+        (name, metrics) ->
+            results.put(name, new BenchmarkResultsSingle(name, metrics, thresholds)));
   }
 
   public void addRuntimeResult(long result) {
@@ -32,6 +34,27 @@ public class BenchmarkResultsCollection implements BenchmarkResults {
             + " sub-benchmarks");
   }
 
+  @Override
+  public void addPeakHeapResult(long result) {
+    throw new BenchmarkConfigError(
+        "Unexpected attempt to add a peak heap result to a the root of a benchmark with"
+            + " sub-benchmarks");
+  }
+
+  @Override
+  public void addAllocatedBytesResult(long result) {
+    throw new BenchmarkConfigError(
+        "Unexpected attempt to add an allocated bytes result to a the root of a benchmark with"
+            + " sub-benchmarks");
+  }
+
+  @Override
+  public void addGcTimeResult(long result) {
+    throw new BenchmarkConfigError(
+        "Unexpected attempt to add a GC time result to a the root of a benchmark with"
+            + " sub-benchmarks");
+  }
+
   @Override
   public BenchmarkResults getSubResults(String name) {
     return results.get(name);
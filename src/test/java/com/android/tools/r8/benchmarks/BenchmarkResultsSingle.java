@@ -6,18 +6,25 @@ package com.android.tools.r8.benchmarks;
 import com.android.tools.r8.benchmarks.BenchmarkRunner.ResultMode;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongList;
+import java.util.Map;
 import java.util.Set;
 
 public class BenchmarkResultsSingle implements BenchmarkResults {
 
   private String name;
   private final Set<BenchmarkMetric> metrics;
+  private final Map<BenchmarkMetric, Long> thresholds;
   private final LongList runtimeResults = new LongArrayList();
   private final LongList codeSizeResults = new LongArrayList();
+  private final LongList peakHeapResults = new LongArrayList();
+  private final LongList allocatedBytesResults = new LongArrayList();
+  private final LongList gcTimeResults = new LongArrayList();
 
-  public BenchmarkResultsSingle(String name, Set<BenchmarkMetric> metrics) {
+  public BenchmarkResultsSingle(
+      String name, Set<BenchmarkMetric> metrics, Map<BenchmarkMetric, Long> thresholds) {
     this.name = name;
     this.metrics = metrics;
+    this.thresholds = thresholds;
   }
 
   @Override
@@ -32,6 +39,25 @@ public class BenchmarkResultsSingle implements BenchmarkResults {
     codeSizeResults.add(result);
   }
 
+  @Override
+  public void addPeakHeapResult(long result) {
+    verifyMetric(BenchmarkMetric.PeakHeap, metrics.contains(BenchmarkMetric.PeakHeap), true);
+    peakHeapResults.add(result);
+  }
+
+  @Override
+  public void addAllocatedBytesResult(long result) {
+    verifyMetric(
+        BenchmarkMetric.AllocatedBytes, metrics.contains(BenchmarkMetric.AllocatedBytes), true);
+    allocatedBytesResults.add(result);
+  }
+
+  @Override
+  public void addGcTimeResult(long result) {
+    verifyMetric(BenchmarkMetric.GcTime, metrics.contains(BenchmarkMetric.GcTime), true);
+    gcTimeResults.add(result);
+  }
+
   @Override
   public BenchmarkResults getSubResults(String name) {
     throw new BenchmarkConfigError(
@@ -59,6 +85,36 @@ public class BenchmarkResultsSingle implements BenchmarkResults {
         BenchmarkMetric.CodeSize,
         metrics.contains(BenchmarkMetric.CodeSize),
         !codeSizeResults.isEmpty());
+    verifyMetric(
+        BenchmarkMetric.PeakHeap,
+        metrics.contains(BenchmarkMetric.PeakHeap),
+        !peakHeapResults.isEmpty());
+    verifyMetric(
+        BenchmarkMetric.AllocatedBytes,
+        metrics.contains(BenchmarkMetric.AllocatedBytes),
+        !allocatedBytesResults.isEmpty());
+    verifyMetric(
+        BenchmarkMetric.GcTime, metrics.contains(BenchmarkMetric.GcTime), !gcTimeResults.isEmpty());
+  }
+
+  private void verifyThreshold(BenchmarkMetric metric, long result) {
+    Long threshold = thresholds.get(metric);
+    if (threshold != null && result > threshold) {
+      throw new RuntimeException(
+          "Benchmark "
+              + name
+              + " regressed on "
+              + metric.name()
+              + ": "
+              + result
+              + " exceeds the threshold of "
+              + threshold);
+    }
+  }
+
+  private static long computeResult(LongList results, ResultMode mode) {
+    long sum = results.stream().mapToLong(l -> l).sum();
+    return mode == ResultMode.SUM ? sum : sum / results.size();
   }
 
   private void printRunTime(long duration) {
@@ -70,13 +126,22 @@ public class BenchmarkResultsSingle implements BenchmarkResults {
     System.out.println(BenchmarkResults.prettyMetric(name, BenchmarkMetric.CodeSize, "" + bytes));
   }
 
+  private void printBytes(BenchmarkMetric metric, long bytes) {
+    System.out.println(BenchmarkResults.prettyMetric(name, metric, "" + bytes));
+  }
+
+  private void printGcTime(long milliseconds) {
+    System.out.println(
+        BenchmarkResults.prettyMetric(name, BenchmarkMetric.GcTime, milliseconds + " ms"));
+  }
+
   @Override
   public void printResults(ResultMode mode) {
     verifyConfigAndResults();
     if (!runtimeResults.isEmpty()) {
-      long sum = runtimeResults.stream().mapToLong(l -> l).sum();
-      long result = mode == ResultMode.SUM ? sum : sum / runtimeResults.size();
+      long result = computeResult(runtimeResults, mode);
       printRunTime(result);
+      verifyThreshold(BenchmarkMetric.RunTimeRaw, result);
     }
     if (!codeSizeResults.isEmpty()) {
       long size = codeSizeResults.getLong(0);
@@ -87,6 +152,22 @@ public class BenchmarkResultsSingle implements BenchmarkResults {
         }
       }
       printCodeSize(size);
+      verifyThreshold(BenchmarkMetric.CodeSize, size);
+    }
+    if (!peakHeapResults.isEmpty()) {
+      long peak = peakHeapResults.stream().mapToLong(l -> l).max().getAsLong();
+      printBytes(BenchmarkMetric.PeakHeap, peak);
+      verifyThreshold(BenchmarkMetric.PeakHeap, peak);
+    }
+    if (!allocatedBytesResults.isEmpty()) {
+      long result = computeResult(allocatedBytesResults, mode);
+      printBytes(BenchmarkMetric.AllocatedBytes, result);
+      verifyThreshold(BenchmarkMetric.AllocatedBytes, result);
+    }
+    if (!gcTimeResults.isEmpty()) {
+      long result = computeResult(gcTimeResults, mode);
+      printGcTime(result);
+      verifyThreshold(BenchmarkMetric.GcTime, result);
     }
   }
 }
@@ -33,6 +33,21 @@ public class BenchmarkResultsWarmup implements BenchmarkResults {
     }
   }
 
+  @Override
+  public void addPeakHeapResult(long result) {
+    // Memory metrics are not reported for warmup runs.
+  }
+
+  @Override
+  public void addAllocatedBytesResult(long result) {
+    // Memory metrics are not reported for warmup runs.
+  }
+
+  @Override
+  public void addGcTimeResult(long result) {
+    // Memory metrics are not reported for warmup runs.
+  }
+
   @Override
   public BenchmarkResults getSubResults(String name) {
     // When running warmups all results are amended to the single warmup result.
@@ -4,6 +4,9 @@
 package com.android.tools.r8.benchmarks;
 
 import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.Timing;
+import com.android.tools.r8.utils.Timing.MemoryMetrics;
+import java.util.Set;
 
 public class BenchmarkRunner {
 
@@ -66,11 +69,17 @@ public class BenchmarkRunner {
     }
     BenchmarkResults results =
         config.isSingleBenchmark()
-            ? new BenchmarkResultsSingle(config.getName(), config.getMetrics())
-            : new BenchmarkResultsCollection(config.getSubBenchmarks());
+            ? new BenchmarkResultsSingle(
+                config.getName(), config.getMetrics(), config.getRegressionThresholds())
+            : new BenchmarkResultsCollection(
+                config.getSubBenchmarks(), config.getRegressionThresholds());
     long start = System.nanoTime();
     for (int i = 0; i < iterations; i++) {
-      fn.run(results);
+      if (config.hasMemoryMetrics()) {
+        runWithMemoryMetrics(fn, results);
+      } else {
+        fn.run(results);
+      }
     }
     long benchmarkTotalTime = System.nanoTime() - start;
     System.out.println(
@@ -89,6 +98,33 @@ public class BenchmarkRunner {
     System.out.println();
   }
 
+  // Measures the memory metrics of the full iteration. Benchmarks that need to exclude the set up
+  // of an iteration can instead measure a timing themselves and call addMemoryResults.
+  //
+  // The allocated bytes are the allocations of the runner thread only. The allocations of the
+  // threads of the compiler executor are not included, since these threads have terminated when
+  // the iteration ends and their allocation counters are no longer available.
+  private void runWithMemoryMetrics(BenchmarkRunnerFunction fn, BenchmarkResults results)
+      throws Exception {
+    Timing timing = Timing.createWithMemoryMetrics(config.getName());
+    try {
+      fn.run(results);
+    } finally {
+      timing.end();
+    }
+    Set<BenchmarkMetric> metrics = config.getMetrics();
+    MemoryMetrics memoryMetrics = timing.getMemoryMetrics();
+    if (metrics.contains(BenchmarkMetric.PeakHeap)) {
+      results.addPeakHeapResult(memoryMetrics.getPeakHeapBytes());
+    }
+    if (metrics.contains(BenchmarkMetric.AllocatedBytes)) {
+      results.addAllocatedBytesResult(memoryMetrics.getAllocatedBytes());
+    }
+    if (metrics.contains(BenchmarkMetric.GcTime)) {
+      results.addGcTimeResult(memoryMetrics.getGcTimeMs());
+    }
+  }
+
   private void printMetaInfo(String kind, int iterations, long totalTime) {
     System.out.println("  " + kind + " reporting mode: " + resultMode);
     System.out.println("  " + kind + " iterations: " + iterations);
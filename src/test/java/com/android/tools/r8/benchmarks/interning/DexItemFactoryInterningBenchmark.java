@@ -0,0 +1,267 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks.interning;
+
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.benchmarks.BenchmarkBase;
+import com.android.tools.r8.benchmarks.BenchmarkConfig;
+import com.android.tools.r8.benchmarks.BenchmarkMethod;
+import com.android.tools.r8.benchmarks.BenchmarkTarget;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexProto;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.utils.ConcurrentInternTable;
+import com.google.common.collect.ImmutableList;
+import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
+import it.unimi.dsi.fastutil.ints.Int2ReferenceOpenHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Benchmark of concurrently creating items in the DexItemFactory.
+ *
+ * <p>All threads create the same items, such that most calls find an existing item that was
+ * created by another thread, as is the case when converting methods in parallel.
+ *
+ * <p>The baseline benchmarks run the same kind of workload against the maps that the
+ * DexItemFactory used before the ConcurrentInternTable: a ConcurrentHashMap for the items and a
+ * synchronized Int2ReferenceOpenHashMap for the debug events.
+ */
+@RunWith(Parameterized.class)
+public class DexItemFactoryInterningBenchmark extends BenchmarkBase {
+
+  private static final int[] NUMBER_OF_THREADS = {32, 64};
+  private static final int NUMBER_OF_CLASSES = 2000;
+  private static final int NUMBER_OF_METHODS_PER_CLASS = 20;
+  private static final int NUMBER_OF_DEBUG_EVENT_ROUNDS = 500;
+  private static final int MIN_DEBUG_EVENT_KEY = -64;
+  private static final int MAX_DEBUG_EVENT_KEY = 256;
+
+  // Distinct strings that are created up front, such that the string workloads only measure the
+  // interning.
+  private static final List<String> STRINGS = createStrings();
+
+  @Parameters(name = "{0}")
+  public static List<Object[]> data() {
+    return parametersFromConfigs(configs());
+  }
+
+  public DexItemFactoryInterningBenchmark(BenchmarkConfig config, TestParameters parameters) {
+    super(config, parameters);
+  }
+
+  /** Static method to add benchmarks to the benchmark collection. */
+  public static List<BenchmarkConfig> configs() {
+    ImmutableList.Builder<BenchmarkConfig> benchmarks = ImmutableList.builder();
+    for (int threads : NUMBER_OF_THREADS) {
+      addBenchmark(
+          "DexItemFactoryInterning",
+          threads,
+          benchmark(threads, DexItemFactory::new, DexItemFactoryInterningBenchmark::createItems),
+          benchmarks);
+      addBenchmark(
+          "DexItemFactoryDebugEventInterning",
+          threads,
+          benchmark(
+              threads, DexItemFactory::new, DexItemFactoryInterningBenchmark::createDebugEvents),
+          benchmarks);
+      addBenchmark(
+          "ConcurrentInternTableStrings",
+          threads,
+          benchmark(
+              threads, StringInternTable::new, DexItemFactoryInterningBenchmark::internStrings),
+          benchmarks);
+      addBenchmark(
+          "ConcurrentHashMapStringsBaseline",
+          threads,
+          benchmark(
+              threads, StringHashMap::new, DexItemFactoryInterningBenchmark::internStrings),
+          benchmarks);
+      addBenchmark(
+          "ConcurrentInternTableDebugEvents",
+          threads,
+          benchmark(
+              threads, IntegerInternTable::new, DexItemFactoryInterningBenchmark::internIntegers),
+          benchmarks);
+      addBenchmark(
+          "SynchronizedMapDebugEventsBaseline",
+          threads,
+          benchmark(
+              threads, IntegerSyncMap::new, DexItemFactoryInterningBenchmark::internIntegers),
+          benchmarks);
+    }
+    return benchmarks.build();
+  }
+
+  private static void addBenchmark(
+      String name,
+      int threads,
+      BenchmarkMethod method,
+      ImmutableList.Builder<BenchmarkConfig> benchmarks) {
+    benchmarks.add(
+        BenchmarkConfig.builder()
+            // Keep the name of the original 32 thread benchmark.
+            .setName(threads == 32 ? name : name + threads + "Threads")
+            .setTarget(BenchmarkTarget.D8)
+            .measureRunTime()
+            .setMethod(method)
+            .setFromRevision(12900)
+            .build());
+  }
+
+  private interface Workload<T> {
+
+    void run(T table, int offset);
+  }
+
+  private static <T> BenchmarkMethod benchmark(
+      int numberOfThreads, Supplier<T> tableFactory, Workload<T> workload) {
+    return environment ->
+        runner(environment.getConfig())
+            .setWarmupIterations(2)
+            .setBenchmarkIterations(10)
+            .reportResultSum()
+            .run(
+                results -> {
+                  T table = tableFactory.get();
+                  ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+                  try {
+                    long start = System.nanoTime();
+                    List<Future<?>> futures = new ArrayList<>(numberOfThreads);
+                    for (int i = 0; i < numberOfThreads; i++) {
+                      int offset = i * NUMBER_OF_CLASSES / numberOfThreads;
+                      futures.add(executor.submit(() -> workload.run(table, offset)));
+                    }
+                    for (Future<?> future : futures) {
+                      future.get();
+                    }
+                    long end = System.nanoTime();
+                    results.addRuntimeResult(end - start);
+                  } finally {
+                    executor.shutdown();
+                  }
+                });
+  }
+
+  private static void createItems(DexItemFactory factory, int offset) {
+    // Start at different classes in each thread to have threads both create and lookup items.
+    for (int i = 0; i < NUMBER_OF_CLASSES; i++) {
+      int classIndex = (offset + i) % NUMBER_OF_CLASSES;
+      DexType holder = factory.createType("Lbenchmark/C" + classIndex + ";");
+      int typeIndex = (classIndex + 1) % NUMBER_OF_CLASSES;
+      DexType type = factory.createType("Lbenchmark/C" + typeIndex + ";");
+      for (int j = 0; j < NUMBER_OF_METHODS_PER_CLASS; j++) {
+        DexProto proto = factory.createProto(type, holder, factory.intType);
+        factory.createMethod(holder, proto, "m" + j);
+        factory.createField(holder, type, "f" + j);
+      }
+    }
+  }
+
+  private static void createDebugEvents(DexItemFactory factory, int offset) {
+    // The keys of the debug events are small integers, which used to be canonicalized in
+    // synchronized maps.
+    forEachDebugEventKey(
+        offset,
+        key -> {
+          factory.createAdvanceLine(key);
+          factory.createAdvancePC(key);
+          factory.createDefault(key);
+          factory.createEndLocal(key);
+          factory.createRestartLocal(key);
+        });
+  }
+
+  private static void internStrings(Interner<String> table, int offset) {
+    for (int i = 0; i < NUMBER_OF_CLASSES; i++) {
+      int classIndex = (offset + i) % NUMBER_OF_CLASSES;
+      table.intern(STRINGS.get(classIndex));
+      for (int j = 0; j < NUMBER_OF_METHODS_PER_CLASS; j++) {
+        table.intern(STRINGS.get(NUMBER_OF_CLASSES + (classIndex + j) % NUMBER_OF_CLASSES));
+      }
+    }
+  }
+
+  private static List<String> createStrings() {
+    List<String> strings = new ArrayList<>(2 * NUMBER_OF_CLASSES);
+    for (int i = 0; i < NUMBER_OF_CLASSES; i++) {
+      strings.add("Lbenchmark/C" + i + ";");
+    }
+    for (int i = 0; i < NUMBER_OF_CLASSES; i++) {
+      strings.add("m" + i);
+    }
+    return strings;
+  }
+
+  private static void internIntegers(Interner<Integer> table, int offset) {
+    forEachDebugEventKey(offset, key -> table.intern(key));
+  }
+
+  private static void forEachDebugEventKey(int offset, IntConsumer consumer) {
+    int range = MAX_DEBUG_EVENT_KEY - MIN_DEBUG_EVENT_KEY;
+    for (int i = 0; i < NUMBER_OF_DEBUG_EVENT_ROUNDS; i++) {
+      for (int j = 0; j < range; j++) {
+        consumer.accept(MIN_DEBUG_EVENT_KEY + (offset + j) % range);
+      }
+    }
+  }
+
+  private interface Interner<T> {
+
+    T intern(T value);
+  }
+
+  private static class StringInternTable implements Interner<String> {
+
+    private final ConcurrentInternTable<String, String> table = ConcurrentInternTable.create();
+
+    @Override
+    public String intern(String value) {
+      return table.intern(value);
+    }
+  }
+
+  private static class StringHashMap implements Interner<String> {
+
+    private final Map<String, String> map = new ConcurrentHashMap<>();
+
+    @Override
+    public String intern(String value) {
+      String previous = map.putIfAbsent(value, value);
+      return previous == null ? value : previous;
+    }
+  }
+
+  private static class IntegerInternTable implements Interner<Integer> {
+
+    private final ConcurrentInternTable<Integer, Integer> table = ConcurrentInternTable.create();
+
+    @Override
+    public Integer intern(Integer value) {
+      return table.computeIfAbsent(value, key -> key);
+    }
+  }
+
+  private static class IntegerSyncMap implements Interner<Integer> {
+
+    private final Int2ReferenceMap<Integer> map = new Int2ReferenceOpenHashMap<>();
+
+    @Override
+    public Integer intern(Integer value) {
+      synchronized (map) {
+        return map.computeIfAbsent(value.intValue(), key -> value);
+      }
+    }
+  }
+}
@@ -0,0 +1,192 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks.micro;
+
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.benchmarks.BenchmarkBase;
+import com.android.tools.r8.benchmarks.BenchmarkConfig;
+import com.android.tools.r8.benchmarks.BenchmarkDependency;
+import com.android.tools.r8.benchmarks.BenchmarkEnvironment;
+import com.android.tools.r8.benchmarks.BenchmarkMethod;
+import com.android.tools.r8.benchmarks.BenchmarkTarget;
+import com.android.tools.r8.dump.CompilerDump;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.ProgramMethod;
+import com.android.tools.r8.graph.bytecodemetadata.BytecodeMetadataProvider;
+import com.android.tools.r8.graph.proto.RewrittenPrototypeDescription;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.code.NumberGenerator;
+import com.android.tools.r8.ir.conversion.MethodConversionOptions;
+import com.android.tools.r8.ir.conversion.MethodConversionOptions.MutableMethodConversionOptions;
+import com.android.tools.r8.ir.regalloc.LinearScanRegisterAllocator;
+import com.android.tools.r8.lightir.IR2LirConverter;
+import com.android.tools.r8.lightir.Lir2IRConverter;
+import com.android.tools.r8.lightir.LirCode;
+import com.android.tools.r8.lightir.LirStrategy;
+import com.android.tools.r8.utils.AndroidApp;
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Paths;
+import java.util.List;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Benchmarks of individual IR passes on the methods of an app dump.
+ *
+ * <p>The IR of each method is built outside of the measured time, such that a regression in a
+ * single pass is not hidden by the time spent in the rest of the compiler.
+ */
+@RunWith(Parameterized.class)
+public class IRMicroBenchmarks extends BenchmarkBase {
+
+  private static final BenchmarkDependency dumpDependency =
+      new BenchmarkDependency("appdump", "tivi", Paths.get("third_party", "opensource-apps"));
+
+  @Parameters(name = "{0}")
+  public static List<Object[]> data() {
+    return parametersFromConfigs(configs());
+  }
+
+  public IRMicroBenchmarks(BenchmarkConfig config, TestParameters parameters) {
+    super(config, parameters);
+  }
+
+  /** Static method to add benchmarks to the benchmark collection. */
+  public static List<BenchmarkConfig> configs() {
+    return ImmutableList.<BenchmarkConfig>builder()
+        .add(
+            BenchmarkConfig.builder()
+                .setName("MicroBuildIR")
+                .setTarget(BenchmarkTarget.D8)
+                .measureRunTime()
+                .measureAllocatedBytes()
+                .setMethod(benchmarkBuildIR())
+                .setFromRevision(12900)
+                .addDependency(dumpDependency)
+                .build())
+        .add(
+            BenchmarkConfig.builder()
+                .setName("MicroLirRoundTrip")
+                .setTarget(BenchmarkTarget.D8)
+                .measureRunTime()
+                .setMethod(benchmarkLirRoundTrip())
+                .setFromRevision(12900)
+                .addDependency(dumpDependency)
+                .build())
+        .add(
+            BenchmarkConfig.builder()
+                .setName("MicroRegisterAllocation")
+                .setTarget(BenchmarkTarget.D8)
+                .measureRunTime()
+                .setMethod(benchmarkRegisterAllocation())
+                .setFromRevision(12900)
+                .addDependency(dumpDependency)
+                .build())
+        .build();
+  }
+
+  private static AppView<AppInfo> readApp(BenchmarkEnvironment environment) throws Exception {
+    CompilerDump dump =
+        CompilerDump.fromArchive(
+            dumpDependency.getRoot(environment).resolve("dump_app.zip"),
+            environment.getTemp().newFolder().toPath());
+    return computeAppView(
+        AndroidApp.builder()
+            .addProgramFiles(dump.getProgramArchive())
+            .addLibraryFiles(dump.getLibraryArchive())
+            .build());
+  }
+
+  // Builds the IR of each method, which is dominated by the allocation of the blocks, instructions
+  // and values. The allocated bytes are measured for the full iteration.
+  public static BenchmarkMethod benchmarkBuildIR() {
+    return environment -> {
+      AppView<AppInfo> appView = readApp(environment);
+      runner(environment.getConfig())
+          .setWarmupIterations(1)
+          .setBenchmarkIterations(5)
+          .reportResultSum()
+          .run(
+              results -> {
+                long start = System.nanoTime();
+                for (DexProgramClass clazz : appView.appInfo().classes()) {
+                  for (ProgramMethod method : clazz.programMethods()) {
+                    method.buildIR(appView);
+                  }
+                }
+                results.addRuntimeResult(System.nanoTime() - start);
+              });
+    };
+  }
+
+  public static BenchmarkMethod benchmarkLirRoundTrip() {
+    return environment -> {
+      AppView<AppInfo> appView = readApp(environment);
+      runner(environment.getConfig())
+          .setWarmupIterations(1)
+          .setBenchmarkIterations(5)
+          .reportResultSum()
+          .run(
+              results -> {
+                long time = 0;
+                for (DexProgramClass clazz : appView.appInfo().classes()) {
+                  for (ProgramMethod method : clazz.programMethods()) {
+                    IRCode code = method.buildIR(appView);
+                    if (code == null) {
+                      continue;
+                    }
+                    long start = System.nanoTime();
+                    LirCode<Integer> lirCode =
+                        IR2LirConverter.translate(
+                            code,
+                            BytecodeMetadataProvider.empty(),
+                            LirStrategy.getDefaultStrategy().getEncodingStrategy(),
+                            appView.options());
+                    Lir2IRConverter.translate(
+                        method,
+                        lirCode,
+                        LirStrategy.getDefaultStrategy()
+                            .getDecodingStrategy(lirCode, new NumberGenerator()),
+                        appView,
+                        null,
+                        RewrittenPrototypeDescription.none(),
+                        method.getReference(),
+                        (MutableMethodConversionOptions) code.getConversionOptions());
+                    time += System.nanoTime() - start;
+                  }
+                }
+                results.addRuntimeResult(time);
+              });
+    };
+  }
+
+  public static BenchmarkMethod benchmarkRegisterAllocation() {
+    return environment -> {
+      AppView<AppInfo> appView = readApp(environment);
+      runner(environment.getConfig())
+          .setWarmupIterations(1)
+          .setBenchmarkIterations(5)
+          .reportResultSum()
+          .run(
+              results -> {
+                long time = 0;
+                for (DexProgramClass clazz : appView.appInfo().classes()) {
+                  for (ProgramMethod method : clazz.programMethods()) {
+                    IRCode code = method.buildIR(appView, MethodConversionOptions.forD8(appView));
+                    if (code == null) {
+                      continue;
+                    }
+                    long start = System.nanoTime();
+                    new LinearScanRegisterAllocator(appView, code).allocateRegisters();
+                    time += System.nanoTime() - start;
+                  }
+                }
+                results.addRuntimeResult(time);
+              });
+    };
+  }
+}
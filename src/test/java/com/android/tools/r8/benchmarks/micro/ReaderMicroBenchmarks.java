@@ -0,0 +1,161 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks.micro;
+
+import com.android.tools.r8.TestBase.Backend;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.benchmarks.BenchmarkBase;
+import com.android.tools.r8.benchmarks.BenchmarkConfig;
+import com.android.tools.r8.benchmarks.BenchmarkDependency;
+import com.android.tools.r8.benchmarks.BenchmarkEnvironment;
+import com.android.tools.r8.benchmarks.BenchmarkMethod;
+import com.android.tools.r8.benchmarks.BenchmarkTarget;
+import com.android.tools.r8.dex.ApplicationReader;
+import com.android.tools.r8.dump.CompilerDump;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.shaking.ProguardConfigurationParser;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Reporter;
+import com.android.tools.r8.utils.Timing;
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/** Benchmarks of reading the inputs of the compiler and of retrace in isolation. */
+@RunWith(Parameterized.class)
+public class ReaderMicroBenchmarks extends BenchmarkBase {
+
+  private static final BenchmarkDependency dumpDependency =
+      new BenchmarkDependency("appdump", "tivi", Paths.get("third_party", "opensource-apps"));
+
+  private static final BenchmarkDependency retraceDependency =
+      new BenchmarkDependency("retraceBenchmark", "retrace_benchmark", Paths.get("third_party"));
+
+  @Parameters(name = "{0}")
+  public static List<Object[]> data() {
+    return parametersFromConfigs(configs());
+  }
+
+  public ReaderMicroBenchmarks(BenchmarkConfig config, TestParameters parameters) {
+    super(config, parameters);
+  }
+
+  /** Static method to add benchmarks to the benchmark collection. */
+  public static List<BenchmarkConfig> configs() {
+    return ImmutableList.<BenchmarkConfig>builder()
+        .add(
+            BenchmarkConfig.builder()
+                .setName("MicroDexParser")
+                .setTarget(BenchmarkTarget.D8)
+                .measureRunTime()
+                .setMethod(benchmarkDexParser())
+                .setFromRevision(12900)
+                .addDependency(dumpDependency)
+                .build())
+        .add(
+            BenchmarkConfig.builder()
+                .setName("MicroProguardConfigurationParser")
+                .setTarget(BenchmarkTarget.R8_NON_COMPAT)
+                .measureRunTime()
+                .setMethod(benchmarkProguardConfigurationParser())
+                .setFromRevision(12900)
+                .addDependency(dumpDependency)
+                .build())
+        .add(
+            BenchmarkConfig.builder()
+                .setName("MicroProguardMapReader")
+                .setTarget(BenchmarkTarget.R8_NON_COMPAT)
+                .measureRunTime()
+                .setMethod(benchmarkProguardMapReader())
+                .setFromRevision(12900)
+                .addDependency(retraceDependency)
+                .build())
+        .build();
+  }
+
+  private static CompilerDump getExtractedDump(BenchmarkEnvironment environment)
+      throws Exception {
+    return CompilerDump.fromArchive(
+        dumpDependency.getRoot(environment).resolve("dump_app.zip"),
+        environment.getTemp().newFolder().toPath());
+  }
+
+  public static BenchmarkMethod benchmarkDexParser() {
+    return environment -> {
+      CompilerDump dump = getExtractedDump(environment);
+      Path dex =
+          testForD8(environment.getTemp(), Backend.DEX)
+              .addProgramFiles(dump.getProgramArchive())
+              .addLibraryFiles(dump.getLibraryArchive())
+              .setMinApi(dump.getBuildProperties().getMinApi())
+              .compile()
+              .writeToZip();
+      runner(environment.getConfig())
+          .setWarmupIterations(2)
+          .setBenchmarkIterations(10)
+          .reportResultSum()
+          .run(
+              results -> {
+                AndroidApp app = AndroidApp.builder().addProgramFiles(dex).build();
+                long start = System.nanoTime();
+                DexApplication application =
+                    new ApplicationReader(app, new InternalOptions(), Timing.empty()).read();
+                long end = System.nanoTime();
+                if (application.classes().isEmpty()) {
+                  throw new RuntimeException("Unexpected empty application");
+                }
+                results.addRuntimeResult(end - start);
+              });
+    };
+  }
+
+  public static BenchmarkMethod benchmarkProguardConfigurationParser() {
+    return environment -> {
+      Path configuration = getExtractedDump(environment).getProguardConfigFile();
+      runner(environment.getConfig())
+          .setWarmupIterations(5)
+          .setBenchmarkIterations(50)
+          .reportResultSum()
+          .run(
+              results -> {
+                ProguardConfigurationParser parser =
+                    new ProguardConfigurationParser(new DexItemFactory(), new Reporter());
+                long start = System.nanoTime();
+                parser.parse(configuration);
+                long end = System.nanoTime();
+                if (parser.getConfig().getRules().isEmpty()) {
+                  throw new RuntimeException("Unexpected empty configuration");
+                }
+                results.addRuntimeResult(end - start);
+              });
+    };
+  }
+
+  public static BenchmarkMethod benchmarkProguardMapReader() {
+    return environment -> {
+      Path mappingFile = retraceDependency.getRoot(environment).resolve("r8lib.jar.map");
+      runner(environment.getConfig())
+          .setWarmupIterations(1)
+          .setBenchmarkIterations(5)
+          .reportResultSum()
+          .run(
+              results -> {
+                long start = System.nanoTime();
+                ClassNameMapper mapper = ClassNameMapper.mapperFromFile(mappingFile);
+                long end = System.nanoTime();
+                if (mapper.getClassNameMappings().isEmpty()) {
+                  throw new RuntimeException("Unexpected empty mapping");
+                }
+                results.addRuntimeResult(end - start);
+              });
+    };
+  }
+}
@@ -0,0 +1,196 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.classmerging.horizontal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.NeverClassInline;
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.horizontalclassmerging.Policy;
+import com.android.tools.r8.utils.ListUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Test;
+
+public class ParallelPolicyExecutorTest extends HorizontalClassMergingTestBase {
+
+  public ParallelPolicyExecutorTest(TestParameters parameters) {
+    super(parameters);
+  }
+
+  @Test
+  public void testR8() throws Exception {
+    Set<String> concurrentPolicies = ConcurrentHashMap.newKeySet();
+    List<Policy> parallelPolicies = new ArrayList<>();
+    Map<String, String> parallelMergedClasses =
+        runR8(true, concurrentPolicies, parallelPolicies);
+    assertTrue(concurrentPolicies.contains("SameParentClass"));
+    assertTrue(concurrentPolicies.contains("NoClassAnnotationCollisions"));
+    assertFalse(concurrentPolicies.contains("NotTwoInitsWithMonitors"));
+    assertFalse(concurrentPolicies.contains("RespectPackageBoundaries"));
+
+    Set<String> referenceConcurrentPolicies = ConcurrentHashMap.newKeySet();
+    List<Policy> referencePolicies = new ArrayList<>();
+    Map<String, String> referenceMergedClasses =
+        runR8(false, referenceConcurrentPolicies, referencePolicies);
+    assertTrue(referenceConcurrentPolicies.isEmpty());
+
+    assertFalse(referenceMergedClasses.isEmpty());
+    assertEquals(referenceMergedClasses, parallelMergedClasses);
+    assertEquals(
+        getRemovedClassesForDebugging(referencePolicies),
+        getRemovedClassesForDebugging(parallelPolicies));
+  }
+
+  private static List<String> getRemovedClassesForDebugging(List<Policy> policies) {
+    assertFalse(policies.isEmpty());
+    return ListUtils.map(
+        policies,
+        policy ->
+            policy.getName()
+                + ": "
+                + policy.numberOfRemovedClasses
+                + ", "
+                + policy.numberOfRemovedInterfaces);
+  }
+
+  private Map<String, String> runR8(
+      boolean enableParallelPolicyExecutor,
+      Set<String> concurrentPolicies,
+      List<Policy> policies)
+      throws Exception {
+    Map<String, String> mergedClasses = new TreeMap<>();
+    testForR8(parameters.getBackend())
+        .addInnerClasses(getClass())
+        .addKeepMainRule(Main.class)
+        .addOptionsModification(
+            options -> {
+              if (enableParallelPolicyExecutor) {
+                options.horizontalClassMergerOptions().enableParallelPolicyExecutor();
+              } else {
+                options.horizontalClassMergerOptions().disableParallelPolicyExecutor();
+              }
+              options.testing.horizontalClassMergingConcurrentPolicyConsumer =
+                  policy -> concurrentPolicies.add(policy.getName());
+              options.testing.horizontalClassMergingPolicyRewriter =
+                  modePolicies -> {
+                    policies.addAll(modePolicies);
+                    return modePolicies;
+                  };
+            })
+        .addHorizontallyMergedClassesInspector(
+            inspector ->
+                inspector.forEachMergeGroup(
+                    (sources, target) ->
+                        sources.forEach(
+                            source ->
+                                mergedClasses.put(
+                                    source.toSourceString(), target.toSourceString()))))
+        .enableInliningAnnotations()
+        .enableNeverClassInliningAnnotations()
+        .setMinApi(parameters)
+        .run(parameters.getRuntime(), Main.class)
+        .assertSuccessWithOutputLines("A", "B", "C", "D", "E 1", "F 2", "G", "H");
+    return mergedClasses;
+  }
+
+  @NeverClassInline
+  public static class A {
+    @NeverInline
+    public void print() {
+      System.out.println("A");
+    }
+  }
+
+  @NeverClassInline
+  public static class B {
+    @NeverInline
+    public void print() {
+      System.out.println("B");
+    }
+  }
+
+  @NeverClassInline
+  public static class C {
+    @NeverInline
+    public void print() {
+      System.out.println("C");
+    }
+  }
+
+  @NeverClassInline
+  public static class D {
+    @NeverInline
+    public void print() {
+      System.out.println("D");
+    }
+  }
+
+  @NeverClassInline
+  public static class E {
+    private final int value;
+
+    public E(int value) {
+      this.value = value;
+    }
+
+    @NeverInline
+    public void print() {
+      System.out.println("E " + value);
+    }
+  }
+
+  @NeverClassInline
+  public static class F {
+    private final int value;
+
+    public F(int value) {
+      this.value = value;
+    }
+
+    @NeverInline
+    public void print() {
+      System.out.println("F " + value);
+    }
+  }
+
+  @NeverClassInline
+  public static class G extends A {
+    @NeverInline
+    @Override
+    public void print() {
+      System.out.println("G");
+    }
+  }
+
+  @NeverClassInline
+  public static class H extends A {
+    @NeverInline
+    @Override
+    public void print() {
+      System.out.println("H");
+    }
+  }
+
+  public static class Main {
+    public static void main(String[] args) {
+      new A().print();
+      new B().print();
+      new C().print();
+      new D().print();
+      new E(1).print();
+      new F(2).print();
+      new G().print();
+      new H().print();
+    }
+  }
+}
@@ -0,0 +1,66 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import com.android.tools.r8.D8TestCompileResult;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import java.nio.file.Path;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class MemoryMappedDexInputTest extends TestBase {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withDexRuntimes().withAllApiLevels().build();
+  }
+
+  private final TestParameters parameters;
+
+  public MemoryMappedDexInputTest(TestParameters parameters) {
+    this.parameters = parameters;
+  }
+
+  @Test
+  public void test() throws Exception {
+    Path dexInput =
+        testForD8(parameters.getBackend())
+            .addInnerClasses(getClass())
+            .setMinApi(parameters)
+            .compile()
+            .writeToDirectory()
+            .resolve("classes.dex");
+    Path heap = merge(dexInput, false);
+    Path memoryMapped = merge(dexInput, true);
+    assertProgramsEqual(heap, memoryMapped);
+  }
+
+  private Path merge(Path dexInput, boolean memoryMapDexInputs) throws Exception {
+    D8TestCompileResult compileResult =
+        testForD8(parameters.getBackend())
+            .addProgramFiles(dexInput)
+            .addOptionsModification(options -> options.memoryMapDexInputs = memoryMapDexInputs)
+            .setMinApi(parameters)
+            .compile();
+    compileResult
+        .run(parameters.getRuntime(), Main.class)
+        .assertSuccessWithOutputLines("Hello, world!");
+    return compileResult.writeToZip();
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      System.out.println(greeting() + ", " + "world!");
+    }
+
+    static String greeting() {
+      return "Hello";
+    }
+  }
+}
@@ -0,0 +1,141 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ByteBufferProvider;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexFilePerClassFileConsumer;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.utils.ZipUtils;
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Bytes;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class PooledByteBufferProviderTest extends TestBase {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public PooledByteBufferProviderTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testReuse() {
+    PooledByteBufferProvider pool = new PooledByteBufferProvider(1024);
+    ByteBuffer small = pool.acquireByteBuffer(100);
+    ByteBuffer large = pool.acquireByteBuffer(500);
+    large.put((byte) 42);
+    pool.releaseByteBuffer(small);
+    pool.releaseByteBuffer(large);
+    // The largest buffer is reused first and is reset to position zero.
+    ByteBuffer reused = pool.acquireByteBuffer(10);
+    assertSame(large, reused);
+    assertEquals(0, reused.position());
+    // The content of the previous use is cleared.
+    assertEquals(0, reused.get(0));
+    // A pooled buffer that is too small is not used.
+    assertNotSame(small, pool.acquireByteBuffer(200));
+  }
+
+  @Test
+  public void testMaxPooledBytes() {
+    PooledByteBufferProvider pool = new PooledByteBufferProvider(100);
+    ByteBuffer buffer = pool.acquireByteBuffer(200);
+    pool.releaseByteBuffer(buffer);
+    assertNotSame(buffer, pool.acquireByteBuffer(200));
+  }
+
+  @Test
+  public void testProviderWithOwnBuffers() {
+    PooledByteBufferProvider pool = new PooledByteBufferProvider(1024);
+    DexIndexedConsumer archiveConsumer =
+        new DexIndexedConsumer.ArchiveConsumer(outputPath("a.zip"));
+    assertSame(pool, pool.getProviderFor(archiveConsumer));
+    // Providers that do not declare that they use the default buffer management are not pooled.
+    assertSame(
+        DexIndexedConsumer.emptyConsumer(),
+        pool.getProviderFor(DexIndexedConsumer.emptyConsumer()));
+    ByteBufferProvider provider =
+        new ByteBufferProvider() {
+          @Override
+          public ByteBuffer acquireByteBuffer(int capacity) {
+            return ByteBuffer.allocate(capacity);
+          }
+        };
+    assertSame(provider, pool.getProviderFor(provider));
+  }
+
+  @Test
+  public void testOutputIdenticalWithPool() throws Exception {
+    assertEquals(compileDexFilePerClassFile(0), compileDexFilePerClassFile(1024 * 1024));
+  }
+
+  private Map<String, List<Byte>> compileDexFilePerClassFile(long poolSizeInBytes)
+      throws Exception {
+    Path output = outputPath("out" + poolSizeInBytes + ".zip");
+    ToolHelper.runD8(
+        D8Command.builder()
+            .addProgramFiles(ToolHelper.getClassFilesForInnerClasses(getClass()))
+            .addLibraryFiles(ToolHelper.getJava8RuntimeJar())
+            .setProgramConsumer(new DexFilePerClassFileConsumer.ArchiveConsumer(output)),
+        options -> {
+          // Write the files sequentially such that each buffer is reused by the next file.
+          options.threadCount = 1;
+          options.dexOutputBufferPoolSizeInBytes = poolSizeInBytes;
+        });
+    Map<String, List<Byte>> entries = new TreeMap<>();
+    ZipUtils.iter(
+        output,
+        (entry, input) ->
+            entries.put(entry.getName(), Bytes.asList(ByteStreams.toByteArray(input))));
+    assertTrue(entries.size() > 1);
+    return entries;
+  }
+
+  private Path outputPath(String name) {
+    return temp.getRoot().toPath().resolve(name);
+  }
+
+  static class Large {
+
+    public static void main(String[] args) {
+      for (int i = 0; i < args.length; i++) {
+        System.out.println("Large " + i + args[i] + args.length);
+        System.out.println(args[i].hashCode() + args[i].length() * i);
+      }
+    }
+  }
+
+  static class Small {
+
+    int f;
+
+    byte[] bytes = {1, 2, 3};
+  }
+
+  static class Other extends Small {
+
+    long g;
+  }
+}
@@ -0,0 +1,110 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.GlobalSyntheticsConsumer;
+import com.android.tools.r8.OutputMode;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.desugar.records.RecordTestUtils;
+import com.android.tools.r8.references.ClassReference;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.ZipUtils;
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Bytes;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests that writing each dex file of a DexFilePerClassFile compilation independently gives the
+ * same output as writing the files after the pre-write phase of all files. The record desugaring
+ * gives rise to a global synthetic, so that the global synthetics that are emitted when the
+ * global synthetics consumer is finished are also compared.
+ */
+@RunWith(Parameterized.class)
+public class WriteVirtualFilesIndependentlyTest extends TestBase {
+
+  private static final String RECORD_NAME = "SimpleRecord";
+  private static final byte[][] PROGRAM_DATA = RecordTestUtils.getProgramData(RECORD_NAME);
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public WriteVirtualFilesIndependentlyTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void test() throws Exception {
+    GlobalSyntheticsCollector expectedGlobals = new GlobalSyntheticsCollector();
+    Map<String, List<Byte>> expected = compile(false, expectedGlobals);
+    assertTrue(expectedGlobals.finished);
+    assertFalse(expectedGlobals.globals.isEmpty());
+
+    GlobalSyntheticsCollector globals = new GlobalSyntheticsCollector();
+    assertEquals(expected, compile(true, globals));
+    assertTrue(globals.finished);
+    assertEquals(expectedGlobals.globals, globals.globals);
+  }
+
+  private Map<String, List<Byte>> compile(
+      boolean enableWritingVirtualFilesIndependently, GlobalSyntheticsConsumer globals)
+      throws Exception {
+    Path output =
+        testForD8(Backend.DEX)
+            .addProgramClassFileData(PROGRAM_DATA)
+            .addOptionsModification(
+                options ->
+                    options.testing.enableWritingVirtualFilesIndependently =
+                        enableWritingVirtualFilesIndependently)
+            .setIntermediate(true)
+            .setMinApi(AndroidApiLevel.B)
+            .setOutputMode(OutputMode.DexFilePerClassFile)
+            .apply(b -> b.getBuilder().setGlobalSyntheticsConsumer(globals))
+            .compile()
+            .writeToZip();
+    Map<String, List<Byte>> entries = new TreeMap<>();
+    ZipUtils.iter(
+        output,
+        (entry, input) ->
+            entries.put(entry.getName(), Bytes.asList(ByteStreams.toByteArray(input))));
+    return entries;
+  }
+
+  private static class GlobalSyntheticsCollector implements GlobalSyntheticsConsumer {
+
+    private final Map<String, List<Byte>> globals = new TreeMap<>();
+    private boolean finished = false;
+
+    @Override
+    public synchronized void accept(
+        ByteDataView data, ClassReference context, DiagnosticsHandler handler) {
+      assertFalse(finished);
+      globals.put(
+          context == null ? "" : context.getDescriptor(), Bytes.asList(data.copyByteData()));
+    }
+
+    @Override
+    public synchronized void finished(DiagnosticsHandler handler) {
+      assertFalse(finished);
+      finished = true;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dexingcache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.ClassFileResourceProvider;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexFilePerClassFileConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.ProgramResource;
+import com.android.tools.r8.ProgramResource.Kind;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.origin.PathOrigin;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class DexingCacheTest extends TestBase {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public DexingCacheTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  private static final List<Class<?>> INPUTS =
+      ImmutableList.of(I.class, A.class, B.class, Main.class);
+
+  private byte[] classpathJ;
+  private Path library = ToolHelper.getAndroidJar(AndroidApiLevel.B);
+  private DexingCacheSession session;
+
+  @Test
+  public void testCachedOutputIsIdentical() throws Exception {
+    Path cacheDirectory = temp.newFolder().toPath();
+    Map<String, byte[]> uncached = compile(cacheDirectory);
+    assertEquals(0, session.getNumberOfCachedInputs());
+    assertEquals(INPUTS.size(), getEntries(cacheDirectory).size());
+    Map<String, byte[]> cached = compile(cacheDirectory);
+    assertEquals(INPUTS.size(), session.getNumberOfCachedInputs());
+    assertEquals(0, session.getNumberOfUncachedInputs());
+    assertOutputEquals(uncached, cached);
+  }
+
+  @Test
+  public void testClasspathChangeInvalidatesDependents() throws Exception {
+    Path cacheDirectory = temp.newFolder().toPath();
+    compile(cacheDirectory);
+    // Only B is desugared against the classpath interface J.
+    classpathJ = transformer(J.class).setSourceFile("J.changed").transform();
+    Map<String, byte[]> recompiled = compile(cacheDirectory);
+    assertEquals(INPUTS.size() - 1, session.getNumberOfCachedInputs());
+    assertEquals(1, session.getNumberOfUncachedInputs());
+    // The recompiled output is cached for the changed classpath.
+    assertOutputEquals(recompiled, compile(cacheDirectory));
+    assertEquals(INPUTS.size(), session.getNumberOfCachedInputs());
+  }
+
+  @Test
+  public void testDependencyChangeInvalidatesDependents() throws Exception {
+    Path cacheDirectory = temp.newFolder().toPath();
+    compile(cacheDirectory);
+    // A is desugared against the program interface I, so changing I invalidates both I and A.
+    Map<String, byte[]> recompiled =
+        compile(cacheDirectory, transformer(I.class).setSourceFile("I.changed").transform());
+    assertEquals(INPUTS.size() - 2, session.getNumberOfCachedInputs());
+    assertEquals(2, session.getNumberOfUncachedInputs());
+    assertOutputEquals(
+        recompiled,
+        compile(cacheDirectory, transformer(I.class).setSourceFile("I.changed").transform()));
+    assertEquals(INPUTS.size(), session.getNumberOfCachedInputs());
+  }
+
+  @Test
+  public void testLibraryChangeInvalidatesAll() throws Exception {
+    Path cacheDirectory = temp.newFolder().toPath();
+    library = temp.newFolder().toPath().resolve("android.jar");
+    Files.copy(ToolHelper.getAndroidJar(AndroidApiLevel.B), library);
+    Map<String, byte[]> uncached = compile(cacheDirectory);
+    assertEquals(0, session.getNumberOfCachedInputs());
+    // The library archive is fingerprinted by its path, size and last modified time.
+    Files.setLastModifiedTime(
+        library,
+        FileTime.fromMillis(Files.getLastModifiedTime(library).toMillis() + 60_000));
+    Map<String, byte[]> recompiled = compile(cacheDirectory);
+    assertEquals(0, session.getNumberOfCachedInputs());
+    assertOutputEquals(uncached, recompiled);
+    assertOutputEquals(uncached, compile(cacheDirectory));
+    assertEquals(INPUTS.size(), session.getNumberOfCachedInputs());
+  }
+
+  @Test
+  public void testCorruptEntriesAreIgnored() throws Exception {
+    Path cacheDirectory = temp.newFolder().toPath();
+    Map<String, byte[]> uncached = compile(cacheDirectory);
+    for (Path entry : getEntries(cacheDirectory)) {
+      Files.write(entry, new byte[] {1, 2, 3});
+    }
+    Map<String, byte[]> recompiled = compile(cacheDirectory);
+    assertEquals(0, session.getNumberOfCachedInputs());
+    assertOutputEquals(uncached, recompiled);
+  }
+
+  private static void assertOutputEquals(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+    assertEquals(expected.keySet(), actual.keySet());
+    expected.forEach((descriptor, data) -> assertArrayEquals(data, actual.get(descriptor)));
+  }
+
+  private static List<Path> getEntries(Path cacheDirectory) throws Exception {
+    try (Stream<Path> files = Files.list(cacheDirectory)) {
+      return files
+          .filter(file -> file.getFileName().toString().endsWith(".entry"))
+          .collect(Collectors.toList());
+    }
+  }
+
+  private Map<String, byte[]> compile(Path cacheDirectory) throws Exception {
+    return compile(cacheDirectory, ToolHelper.getClassAsBytes(I.class));
+  }
+
+  private Map<String, byte[]> compile(Path cacheDirectory, byte[] programI) throws Exception {
+    if (classpathJ == null) {
+      classpathJ = ToolHelper.getClassAsBytes(J.class);
+    }
+    byte[] classpathJForCompilation = classpathJ;
+    Map<String, byte[]> output = new TreeMap<>();
+    D8Command.Builder builder =
+        D8Command.builder()
+            .addLibraryFiles(library)
+            .addClasspathResourceProvider(
+                new ClassFileResourceProvider() {
+                  @Override
+                  public Set<String> getClassDescriptors() {
+                    return ImmutableSet.of(descriptor(J.class));
+                  }
+
+                  @Override
+                  public ProgramResource getProgramResource(String descriptor) {
+                    return descriptor.equals(descriptor(J.class))
+                        ? ProgramResource.fromBytes(
+                            origin(J.class),
+                            Kind.CF,
+                            classpathJForCompilation,
+                            ImmutableSet.of(descriptor))
+                        : null;
+                  }
+                })
+            .setMinApiLevel(AndroidApiLevel.B.getLevel())
+            .setIntermediate(true)
+            .setDexingCacheDirectory(cacheDirectory)
+            .setProgramConsumer(
+                new DexFilePerClassFileConsumer.ForwardingConsumer(null) {
+                  @Override
+                  public synchronized void accept(
+                      String primaryClassDescriptor,
+                      ByteDataView data,
+                      Set<String> descriptors,
+                      DiagnosticsHandler handler) {
+                    output.put(primaryClassDescriptor, data.copyByteData());
+                  }
+                });
+    for (Class<?> clazz : INPUTS) {
+      builder.addClassProgramData(
+          clazz == I.class ? programI : ToolHelper.getClassAsBytes(clazz), origin(clazz));
+    }
+    ToolHelper.runD8(
+        builder, options -> options.testing.dexingCacheSessionConsumer = this::setSession);
+    assertEquals(INPUTS.size(), output.size());
+    return output;
+  }
+
+  private void setSession(DexingCacheSession session) {
+    this.session = session;
+  }
+
+  private static Origin origin(Class<?> clazz) {
+    return new PathOrigin(ToolHelper.getClassFileForTestClass(clazz));
+  }
+
+  interface I {
+
+    default void m() {
+      System.out.println("I.m");
+    }
+  }
+
+  static class A implements I {}
+
+  interface J {
+
+    default void n() {
+      System.out.println("J.n");
+    }
+  }
+
+  static class B implements J {}
+
+  static class Main {
+
+    public static void main(String[] args) {
+      // Main has no dependencies, such that only the subtypes depend on the interfaces.
+      Runnable runnable = () -> System.out.println("Main");
+      runnable.run();
+    }
+  }
+}
@@ -0,0 +1,80 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.ToolHelper;
+import com.google.common.collect.ImmutableSet;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class SubtypingInfoTest extends TestBase {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public SubtypingInfoTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  private AppView<AppInfoWithClassHierarchy> appView;
+  private SubtypingInfo subtypingInfo;
+
+  @Test
+  public void test() throws Exception {
+    appView =
+        computeAppViewWithClassHierarchy(
+            buildClasses(A.class, B.class, C.class, D.class, E.class, I.class, J.class, K.class)
+                .addLibraryFile(ToolHelper.getJava8RuntimeJar())
+                .build());
+    subtypingInfo = SubtypingInfo.create(appView);
+
+    assertSubtypes(A.class, B.class, C.class);
+    assertSubtypes(B.class, C.class);
+    assertSubtypes(C.class);
+    assertSubtypes(I.class, B.class, C.class, J.class, D.class, E.class);
+    assertSubtypes(J.class, D.class, E.class);
+    assertSubtypes(K.class, E.class);
+  }
+
+  private void assertSubtypes(Class<?> clazz, Class<?>... expectedSubtypes) {
+    ImmutableSet.Builder<DexType> expected = ImmutableSet.builder();
+    for (Class<?> expectedSubtype : expectedSubtypes) {
+      expected.add(toDexType(expectedSubtype, appView.dexItemFactory()));
+    }
+    Set<DexType> subtypes = new HashSet<>();
+    subtypingInfo.forEachSubtype(
+        toDexType(clazz, appView.dexItemFactory()),
+        subtype -> assertTrue(subtypes.add(subtype)));
+    assertEquals(expected.build(), subtypes);
+  }
+
+  interface I {}
+
+  interface J extends I {}
+
+  interface K {}
+
+  static class A {}
+
+  static class B extends A implements I {}
+
+  static class C extends B {}
+
+  static class D implements J {}
+
+  static class E extends D implements K {}
+}
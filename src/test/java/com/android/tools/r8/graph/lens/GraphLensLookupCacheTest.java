@@ -0,0 +1,125 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.graph.lens;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.NeverClassInline;
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.R8TestCompileResult;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.utils.Box;
+import com.android.tools.r8.utils.CacheStatistics;
+import com.android.tools.r8.utils.ZipUtils;
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Bytes;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests that compiling with the graph lens lookup cache enabled gives the same output as compiling
+ * without it. The horizontal class merger installs its lens before the AppView is rewritten, so the
+ * cache is in use when the alternative parent lens is installed in {@link
+ * com.android.tools.r8.graph.AppView#rewriteWithLens}. When assertions are enabled, the lookups
+ * cached before that are verified against the uncached lookups after it.
+ */
+@RunWith(Parameterized.class)
+public class GraphLensLookupCacheTest extends TestBase {
+
+  @Parameter(0)
+  public TestParameters parameters;
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withAllRuntimesAndApiLevels().build();
+  }
+
+  @Test
+  public void test() throws Exception {
+    Map<String, List<Byte>> expected = compile(false, Integer.MAX_VALUE, new Box<>());
+
+    Box<CacheStatistics> statistics = new Box<>();
+    assertEquals(expected, compile(true, Integer.MAX_VALUE, statistics));
+    assertTrue(statistics.get().getHits() > 0);
+    assertTrue(statistics.get().getMisses() > 0);
+  }
+
+  @Test
+  public void testMaxSize() throws Exception {
+    Map<String, List<Byte>> expected = compile(false, Integer.MAX_VALUE, new Box<>());
+
+    Box<CacheStatistics> statistics = new Box<>();
+    assertEquals(expected, compile(true, 0, statistics));
+    assertEquals(0, statistics.get().getHits());
+    assertTrue(statistics.get().getMisses() > 0);
+  }
+
+  private Map<String, List<Byte>> compile(
+      boolean enableCache, int maxSize, Box<CacheStatistics> statistics) throws Exception {
+    R8TestCompileResult compileResult =
+        testForR8(parameters.getBackend())
+            .addInnerClasses(getClass())
+            .addKeepMainRule(Main.class)
+            .addOptionsModification(
+                options -> {
+                  options.testing.enableGraphLensLookupCache = enableCache;
+                  options.testing.graphLensLookupCacheMaxSize = maxSize;
+                  statistics.set(options.testing.graphLensLookupCacheStatistics);
+                })
+            .addHorizontallyMergedClassesInspector(
+                inspector -> inspector.assertMergedInto(B.class, A.class))
+            .enableInliningAnnotations()
+            .enableNeverClassInliningAnnotations()
+            .setMinApi(parameters)
+            .compile();
+    compileResult
+        .run(parameters.getRuntime(), Main.class)
+        .assertSuccessWithOutputLines("A::foo", "B::bar", "A::foo");
+    Path output = compileResult.writeToZip();
+    Map<String, List<Byte>> entries = new TreeMap<>();
+    ZipUtils.iter(
+        output,
+        (entry, input) ->
+            entries.put(entry.getName(), Bytes.asList(ByteStreams.toByteArray(input))));
+    return entries;
+  }
+
+  @NeverClassInline
+  static class A {
+
+    @NeverInline
+    void foo() {
+      System.out.println("A::foo");
+    }
+  }
+
+  @NeverClassInline
+  static class B {
+
+    @NeverInline
+    void bar() {
+      System.out.println("B::bar");
+    }
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      new A().foo();
+      new B().bar();
+      new A().foo();
+    }
+  }
+}
@@ -26,6 +26,7 @@ import com.android.tools.r8.graph.MethodResolutionResult;
 import com.android.tools.r8.graph.SubtypingInfo;
 import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.BooleanBox;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.Timing;
 import java.nio.file.Files;
@@ -103,8 +104,11 @@ public class R8GMSCoreLookupTest extends TestBase {
             .asLookupResultSuccess();
     assertNotNull(lookupResult);
     assertFalse(lookupResult.hasLambdaTargets());
-    if (subtypingInfo.subtypes(method.getHolderType()).stream()
-        .allMatch(t -> appInfo().definitionFor(t).isInterface())) {
+    BooleanBox allSubtypesAreInterfaces = new BooleanBox(true);
+    subtypingInfo.forEachSubtype(
+        method.getHolderType(),
+        t -> allSubtypesAreInterfaces.and(appInfo().definitionFor(t).isInterface()));
+    if (allSubtypesAreInterfaces.isTrue()) {
       Counter counter = new Counter();
       lookupResult.forEach(
           target -> {
@@ -0,0 +1,149 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir.optimize.outliner;
+
+import static com.android.tools.r8.utils.codeinspector.CodeMatchers.invokesMethod;
+import static com.android.tools.r8.utils.codeinspector.Matchers.isAbsent;
+import static com.android.tools.r8.utils.codeinspector.Matchers.isPresent;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.synthesis.SyntheticItemsTestUtils;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.MethodSubject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests that an instruction sequence that is shared by two different outline candidates is
+ * outlined when repeated sequence discovery is enabled.
+ */
+@RunWith(Parameterized.class)
+public class OutlineRepeatedSequenceDiscoveryTest extends TestBase {
+
+  @Parameter(0)
+  public TestParameters parameters;
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withDefaultRuntimes().withMinimumApiLevel().build();
+  }
+
+  @Test
+  public void testWithRepeatedSequenceDiscovery() throws Exception {
+    runTest(true);
+  }
+
+  @Test
+  public void testWithoutRepeatedSequenceDiscovery() throws Exception {
+    runTest(false);
+  }
+
+  private void runTest(boolean enableRepeatedSequenceDiscovery) throws Exception {
+    testForR8(parameters.getBackend())
+        .addInnerClasses(getClass())
+        .addKeepMainRule(Main.class)
+        .addOptionsModification(
+            options -> {
+              options.outline.threshold = 2;
+              options.outline.minSize = 3;
+              options.outline.enableRepeatedSequenceDiscovery = enableRepeatedSequenceDiscovery;
+            })
+        .allowAccessModification()
+        .addDontObfuscate()
+        .enableInliningAnnotations()
+        .setMinApi(parameters)
+        .compile()
+        .inspect(inspector -> inspect(inspector, enableRepeatedSequenceDiscovery))
+        .run(parameters.getRuntime(), Main.class)
+        .assertSuccessWithOutputLines("a", "b", "c", "d", "e", "a", "b", "c");
+  }
+
+  private void inspect(CodeInspector inspector, boolean enableRepeatedSequenceDiscovery) {
+    ClassSubject outlineClass =
+        inspector.clazz(SyntheticItemsTestUtils.syntheticOutlineClass(Main.class, 0));
+    if (!enableRepeatedSequenceDiscovery) {
+      assertThat(outlineClass, isAbsent());
+      return;
+    }
+    assertThat(outlineClass, isPresent());
+    MethodSubject outlineMethod =
+        outlineClass.uniqueMethodWithOriginalName(SyntheticItemsTestUtils.syntheticMethodName());
+    assertThat(outlineMethod, isPresent());
+
+    ClassSubject helperClass = inspector.clazz(Helper.class);
+    assertThat(helperClass, isPresent());
+    MethodSubject helperB = helperClass.uniqueMethodWithOriginalName("b");
+    assertThat(helperB, isPresent());
+
+    ClassSubject mainClass = inspector.clazz(Main.class);
+    for (String methodName : new String[] {"method1", "method2"}) {
+      MethodSubject method = mainClass.uniqueMethodWithOriginalName(methodName);
+      assertThat(method, isPresent());
+      assertThat(method, invokesMethod(outlineMethod));
+      assertThat(method, not(invokesMethod(helperB)));
+    }
+  }
+
+  public static class Helper {
+
+    @NeverInline
+    public static void a() {
+      System.out.println("a");
+    }
+
+    @NeverInline
+    public static void b() {
+      System.out.println("b");
+    }
+
+    @NeverInline
+    public static void c() {
+      System.out.println("c");
+    }
+
+    @NeverInline
+    public static void d() {
+      System.out.println("d");
+    }
+
+    @NeverInline
+    public static void e() {
+      System.out.println("e");
+    }
+  }
+
+  public static class Main {
+
+    @NeverInline
+    static void method1() {
+      Helper.a();
+      Helper.b();
+      Helper.c();
+      Helper.d();
+    }
+
+    @NeverInline
+    static void method2() {
+      Helper.e();
+      Helper.a();
+      Helper.b();
+      Helper.c();
+    }
+
+    public static void main(String[] args) {
+      method1();
+      method2();
+    }
+  }
+}
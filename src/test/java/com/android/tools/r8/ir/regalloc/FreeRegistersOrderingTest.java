@@ -0,0 +1,170 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir.regalloc;
+
+import com.android.tools.r8.CompilationMode;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.jasmin.JasminBuilder;
+import com.android.tools.r8.jasmin.JasminBuilder.ClassBuilder;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests that the free registers of the linear scan register allocator are visited in the order of
+ * the TreeSet that they were previously kept in, for methods with more live values than fit in 8
+ * bit registers. The allocator verifies each allocation of consecutive registers against the
+ * TreeSet ordering when {@code verifyFreeRegistersAgainstTreeSetOrdering} is set.
+ */
+@RunWith(Parameterized.class)
+public class FreeRegistersOrderingTest extends TestBase {
+
+  private static final int ARGUMENTS = 8;
+  private static final int LOCALS = 150;
+
+  private static List<byte[]> programClassFileData;
+
+  @Parameter(0)
+  public TestParameters parameters;
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withDexRuntimes().withAllApiLevels().build();
+  }
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    JasminBuilder jasminBuilder = new JasminBuilder();
+    ClassBuilder classBuilder = jasminBuilder.addClass("TestClass");
+
+    classBuilder.addStaticMethod(
+        "consume",
+        Collections.nCopies(6, "J"),
+        "J",
+        ".limit stack 12",
+        ".limit locals 12",
+        "lload 0",
+        "lload 2",
+        "ladd",
+        "lload 4",
+        "ladd",
+        "lload 6",
+        "ladd",
+        "lload 8",
+        "ladd",
+        "lload 10",
+        "ladd",
+        "lreturn");
+
+    // The arguments use the local slots 0 to 15, the locals use the slots 16 to 315, and the
+    // accumulator uses the slots 316 and 317. All locals are live until the end of the method.
+    int accumulator = 2 * (ARGUMENTS + LOCALS);
+    List<String> lines = new ArrayList<>();
+    lines.add(".limit stack 16");
+    lines.add(".limit locals " + (accumulator + 2));
+    for (int i = 0; i < LOCALS; i++) {
+      lines.add("ldc " + i);
+      lines.add("i2l");
+      lines.add("lstore " + local(i));
+    }
+    lines.add("lconst_0");
+    lines.add("lstore " + accumulator);
+    for (int i = 0; i < LOCALS; i++) {
+      lines.add("lload " + accumulator);
+      for (int local : consumedLocals(i)) {
+        lines.add("lload " + local(local));
+      }
+      lines.add("lload " + 2 * (i % ARGUMENTS));
+      lines.add("invokestatic TestClass/consume(JJJJJJ)J");
+      lines.add("ladd");
+      lines.add("lstore " + accumulator);
+    }
+    for (int i = 0; i < LOCALS; i++) {
+      lines.add("lload " + accumulator);
+      lines.add("lload " + local(i));
+      lines.add("ladd");
+      lines.add("lstore " + accumulator);
+    }
+    lines.add("lload " + accumulator);
+    lines.add("lreturn");
+    classBuilder.addStaticMethod(
+        "pressure", Collections.nCopies(ARGUMENTS, "J"), "J", lines.toArray(new String[0]));
+
+    lines = new ArrayList<>();
+    lines.add(".limit stack " + (2 * ARGUMENTS + 2));
+    lines.add(".limit locals 3");
+    for (int i = 0; i < ARGUMENTS; i++) {
+      lines.add("ldc " + argument(i));
+      lines.add("i2l");
+    }
+    lines.add("invokestatic TestClass/pressure(" + Strings.repeat("J", ARGUMENTS) + ")J");
+    lines.add("lstore 1");
+    lines.add("getstatic java/lang/System/out Ljava/io/PrintStream;");
+    lines.add("lload 1");
+    lines.add("invokevirtual java/io/PrintStream/println(J)V");
+    lines.add("return");
+    classBuilder.addMainMethod(lines);
+
+    programClassFileData = jasminBuilder.buildClasses();
+  }
+
+  private static int local(int i) {
+    return 2 * (ARGUMENTS + i);
+  }
+
+  private static int argument(int i) {
+    return 1000 + i;
+  }
+
+  private static List<Integer> consumedLocals(int i) {
+    return ImmutableList.of(
+        i, (i * 7) % LOCALS, (i * 13) % LOCALS, (i * 31) % LOCALS, LOCALS - 1 - i);
+  }
+
+  private static long getExpectedResult() {
+    long result = 0;
+    for (int i = 0; i < LOCALS; i++) {
+      for (int local : consumedLocals(i)) {
+        result += local;
+      }
+      result += argument(i % ARGUMENTS);
+    }
+    for (int i = 0; i < LOCALS; i++) {
+      result += i;
+    }
+    return result;
+  }
+
+  @Test
+  public void testDebug() throws Exception {
+    test(CompilationMode.DEBUG);
+  }
+
+  @Test
+  public void testRelease() throws Exception {
+    test(CompilationMode.RELEASE);
+  }
+
+  private void test(CompilationMode mode) throws Exception {
+    testForD8()
+        .addProgramClassFileData(programClassFileData)
+        .addOptionsModification(
+            options -> options.testing.verifyFreeRegistersAgainstTreeSetOrdering = true)
+        .setMode(mode)
+        .setMinApi(parameters)
+        .run(parameters.getRuntime(), "TestClass")
+        .assertSuccessWithOutputLines(Long.toString(getExpectedResult()));
+  }
+}
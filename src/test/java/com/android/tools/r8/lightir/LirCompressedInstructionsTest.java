@@ -0,0 +1,78 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.lightir;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.ir.code.IRMetadata;
+import com.android.tools.r8.ir.code.Value;
+import com.android.tools.r8.references.Reference;
+import com.android.tools.r8.utils.InternalOptions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class LirCompressedInstructionsTest extends TestBase {
+
+  private static final int NUMBER_OF_INSTRUCTIONS = 100;
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public LirCompressedInstructionsTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void test() {
+    LirCode<?> uncompressed = buildCode(-1);
+    assertFalse(uncompressed.isInstructionBytesCompressed());
+
+    LirCode<?> compressed = buildCode(0);
+    assertTrue(compressed.isInstructionBytesCompressed());
+    byte[] decompressedBytes = compressed.getInstructionBytes();
+    assertArrayEquals(uncompressed.getInstructionBytes(), decompressedBytes);
+    // The decompressed bytes are shared by the reads while they are in use.
+    assertSame(decompressedBytes, compressed.getInstructionBytes());
+
+    int count = 0;
+    for (LirInstructionView view : compressed) {
+      int expectedOpcode = count % 2 == 0 ? LirOpcodes.ACONST_NULL : LirOpcodes.ICONST;
+      view.accept(insn -> assertEquals(expectedOpcode, insn.getOpcode()));
+      count++;
+    }
+    assertEquals(NUMBER_OF_INSTRUCTIONS, count);
+
+    // Code with fewer instruction bytes than the threshold is not compressed.
+    LirCode<?> belowThreshold = buildCode(uncompressed.getInstructionBytes().length + 1);
+    assertFalse(belowThreshold.isInstructionBytesCompressed());
+  }
+
+  private static LirCode<?> buildCode(int minSizeForCompressedLirInstructions) {
+    InternalOptions options = new InternalOptions();
+    options.testing.minSizeForCompressedLirInstructions = minSizeForCompressedLirInstructions;
+    DexMethod method =
+        options
+            .dexItemFactory()
+            .createMethod(Reference.methodFromDescriptor("LFoo;", "bar", "()V"));
+    LirBuilder<Value, Integer> builder =
+        LirCode.builder(method, LirStrategy.getDefaultStrategy().getEncodingStrategy(), options)
+            .setMetadata(IRMetadata.unknown());
+    for (int i = 0; i < NUMBER_OF_INSTRUCTIONS; i += 2) {
+      builder.addConstNull().addConstInt(42);
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,96 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.lightir;
+
+import static com.android.tools.r8.utils.codeinspector.Matchers.isPresent;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.graph.DexCode;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.MethodSubject;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/** Tests that empty void methods finalized directly from LIR are identical to finalizing via IR. */
+@RunWith(Parameterized.class)
+public class LirDirectDexFinalizationTest extends TestBase {
+
+  private static final String[] METHOD_NAMES = {"empty", "emptyWithArguments", "emptyStatic"};
+
+  @Parameter(0)
+  public TestParameters parameters;
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withDexRuntimes().withAllApiLevels().build();
+  }
+
+  @Test
+  public void test() throws Exception {
+    List<DexCode> directCode = compile(true);
+    List<DexCode> referenceCode = compile(false);
+    assertEquals(referenceCode, directCode);
+  }
+
+  private List<DexCode> compile(boolean enableDirectLirToDexFinalization) throws Exception {
+    List<DexCode> result = new ArrayList<>();
+    testForR8(parameters.getBackend())
+        .addInnerClasses(getClass())
+        .addKeepMainRule(Main.class)
+        .addKeepRules("-keep class " + A.class.getTypeName() + " { *; }")
+        .addOptionsModification(
+            options ->
+                options.testing.enableDirectLirToDexFinalization =
+                    enableDirectLirToDexFinalization)
+        .setMinApi(parameters)
+        .compile()
+        .inspect(inspector -> collectCode(inspector, result))
+        .run(parameters.getRuntime(), Main.class)
+        .assertSuccessWithOutputLines("Hello, world!");
+    return result;
+  }
+
+  private void collectCode(CodeInspector inspector, List<DexCode> result) {
+    ClassSubject aClassSubject = inspector.clazz(A.class);
+    assertThat(aClassSubject, isPresent());
+    for (String methodName : METHOD_NAMES) {
+      MethodSubject methodSubject = aClassSubject.uniqueMethodWithOriginalName(methodName);
+      assertThat(methodSubject, isPresent());
+      DexCode code = methodSubject.getMethod().getCode().asDexCode();
+      assertTrue(code.isEmptyVoidMethod());
+      result.add(code);
+    }
+  }
+
+  static class A {
+
+    void empty() {}
+
+    void emptyWithArguments(long l, Object o, double d, int i) {}
+
+    static void emptyStatic(long l, Object o) {}
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      A a = new A();
+      a.empty();
+      a.emptyWithArguments(1, a, 2, 3);
+      A.emptyStatic(4, a);
+      System.out.println("Hello, world!");
+    }
+  }
+}
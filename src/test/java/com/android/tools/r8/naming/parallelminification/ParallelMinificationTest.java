@@ -0,0 +1,88 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.naming.parallelminification;
+
+import static com.android.tools.r8.utils.codeinspector.Matchers.isPresentAndRenamed;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.R8TestCompileResult;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.naming.parallelminification.package_a.A;
+import com.android.tools.r8.naming.parallelminification.package_b.B;
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class ParallelMinificationTest extends TestBase {
+
+  @Parameter(0)
+  public TestParameters parameters;
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withDefaultDexRuntime().withMinimumApiLevel().build();
+  }
+
+  @Test
+  public void test() throws Exception {
+    Set<String> concurrentMinifiers = ConcurrentHashMap.newKeySet();
+    String parallelProguardMap = runR8(true, concurrentMinifiers);
+    assertEquals(ImmutableSet.of("ClassNameMinifier", "FieldNameMinifier"), concurrentMinifiers);
+
+    Set<String> referenceConcurrentMinifiers = ConcurrentHashMap.newKeySet();
+    String referenceProguardMap = runR8(false, referenceConcurrentMinifiers);
+    assertTrue(referenceConcurrentMinifiers.isEmpty());
+
+    assertEquals(referenceProguardMap, parallelProguardMap);
+  }
+
+  private String runR8(boolean enableParallelMinification, Set<String> concurrentMinifiers)
+      throws Exception {
+    R8TestCompileResult compileResult =
+        testForR8(parameters.getBackend())
+            .addProgramClasses(Main.class, A.class, A.Inner.class, B.class, B.Inner.class)
+            .addKeepMainRule(Main.class)
+            .addKeepClassAndMembersRulesWithAllowObfuscation(
+                A.class, A.Inner.class, B.class, B.Inner.class)
+            .addKeepAttributeInnerClassesAndEnclosingMethod()
+            .addOptionsModification(
+                options -> {
+                  options.enableParallelMinification = enableParallelMinification;
+                  options.testing.concurrentMinificationConsumer = concurrentMinifiers::add;
+                })
+            .setMinApi(parameters)
+            .compile()
+            .inspect(
+                inspector -> {
+                  assertThat(inspector.clazz(A.class), isPresentAndRenamed());
+                  assertThat(inspector.clazz(A.Inner.class), isPresentAndRenamed());
+                  assertThat(inspector.clazz(B.class), isPresentAndRenamed());
+                  assertThat(inspector.clazz(B.Inner.class), isPresentAndRenamed());
+                });
+    compileResult
+        .run(parameters.getRuntime(), Main.class)
+        .assertSuccessWithOutputLines(
+            "A.first", "A.second", "A.Inner.first", "B.first", "B.second", "B.Inner.first");
+    return compileResult.getProguardMap();
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      new A().print();
+      new B().print();
+    }
+  }
+}
@@ -0,0 +1,26 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.naming.parallelminification.package_b;
+
+public class B {
+
+  public String first = "B.first";
+  public String second = "B.second";
+
+  public void print() {
+    System.out.println(first);
+    System.out.println(second);
+    new Inner().print();
+  }
+
+  public static class Inner {
+
+    public String first = "B.Inner.first";
+
+    public void print() {
+      System.out.println(first);
+    }
+  }
+}
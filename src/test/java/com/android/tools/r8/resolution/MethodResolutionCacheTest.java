@@ -0,0 +1,92 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.resolution;
+
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.NeverClassInline;
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.NoVerticalClassMerging;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.utils.Box;
+import com.android.tools.r8.utils.CacheStatistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/** Tests that compiling with the method resolution cache enabled uses the cache. */
+@RunWith(Parameterized.class)
+public class MethodResolutionCacheTest extends TestBase {
+
+  @Parameter(0)
+  public TestParameters parameters;
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withAllRuntimesAndApiLevels().build();
+  }
+
+  @Test
+  public void test() throws Exception {
+    Box<CacheStatistics> statistics = new Box<>();
+    testForR8(parameters.getBackend())
+        .addInnerClasses(getClass())
+        .addKeepMainRule(Main.class)
+        .addOptionsModification(
+            options -> {
+              options.testing.enableMethodResolutionCache = true;
+              statistics.set(options.testing.methodResolutionCacheStatistics);
+            })
+        .enableInliningAnnotations()
+        .enableNeverClassInliningAnnotations()
+        .enableNoVerticalClassMergingAnnotations()
+        .setMinApi(parameters)
+        .run(parameters.getRuntime(), Main.class)
+        .assertSuccessWithOutputLines("A::foo", "B::bar", "I::baz", "A::foo");
+    assertTrue(statistics.get().getHits() > 0);
+    assertTrue(statistics.get().getMisses() > 0);
+  }
+
+  interface I {
+
+    @NeverInline
+    default void baz() {
+      System.out.println("I::baz");
+    }
+  }
+
+  @NoVerticalClassMerging
+  static class A {
+
+    @NeverInline
+    void foo() {
+      System.out.println("A::foo");
+    }
+  }
+
+  @NeverClassInline
+  static class B extends A implements I {
+
+    @NeverInline
+    void bar() {
+      System.out.println("B::bar");
+    }
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      B b = new B();
+      b.foo();
+      b.bar();
+      b.baz();
+      b.foo();
+    }
+  }
+}
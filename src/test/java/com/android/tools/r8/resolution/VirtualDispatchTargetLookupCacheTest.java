@@ -0,0 +1,173 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.resolution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import com.android.tools.r8.NeverClassInline;
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.NoHorizontalClassMerging;
+import com.android.tools.r8.TestAppViewBuilder;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.LookupResult;
+import com.android.tools.r8.graph.MethodResolutionResult;
+import com.android.tools.r8.shaking.AppInfoWithLiveness;
+import com.android.tools.r8.shaking.AppInfoWithLivenessModifier;
+import com.android.tools.r8.utils.Box;
+import com.android.tools.r8.utils.CacheStatistics;
+import com.google.common.collect.ImmutableSet;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/** Tests that compiling with the virtual dispatch target lookup cache enabled uses the cache. */
+@RunWith(Parameterized.class)
+public class VirtualDispatchTargetLookupCacheTest extends TestBase {
+
+  @Parameter(0)
+  public TestParameters parameters;
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withAllRuntimesAndApiLevels().build();
+  }
+
+  @Test
+  public void test() throws Exception {
+    Box<CacheStatistics> statistics = new Box<>();
+    testForR8(parameters.getBackend())
+        .addInnerClasses(getClass())
+        .addKeepMainRule(Main.class)
+        .addOptionsModification(
+            options -> {
+              options.testing.enableVirtualDispatchTargetLookupCache = true;
+              statistics.set(options.testing.virtualDispatchTargetLookupCacheStatistics);
+            })
+        .enableInliningAnnotations()
+        .enableNeverClassInliningAnnotations()
+        .enableNoHorizontalClassMergingAnnotations()
+        .setMinApi(parameters)
+        .run(parameters.getRuntime(), Main.class)
+        .assertSuccessWithOutputLines("A", "B", "A", "B");
+    assertTrue(statistics.get().getHits() > 0);
+    assertTrue(statistics.get().getMisses() > 0);
+  }
+
+  @Test
+  public void testNoLongerInstantiated() throws Exception {
+    assumeTrue(parameters.isOrSimulateNoneRuntime());
+    Box<CacheStatistics> statistics = new Box<>();
+    AppView<AppInfoWithLiveness> appView =
+        TestAppViewBuilder.builder()
+            .addProgramClasses(I.class, A.class, B.class, Main.class)
+            .addTestingAnnotations()
+            .addLibraryFiles(parameters.getDefaultRuntimeLibrary())
+            .addKeepMainRule(Main.class)
+            .addOptionsModification(
+                options -> {
+                  options.testing.enableVirtualDispatchTargetLookupCache = true;
+                  statistics.set(options.testing.virtualDispatchTargetLookupCacheStatistics);
+                })
+            .buildWithLiveness();
+    AppInfoWithLiveness appInfo = appView.appInfo();
+    DexItemFactory factory = appInfo.dexItemFactory();
+    DexMethod method = buildNullaryVoidMethod(I.class, "m", factory);
+    MethodResolutionResult resolutionResult =
+        appInfo.resolveMethodOnInterfaceLegacy(method.holder, method);
+    DexProgramClass context = appView.definitionForProgramType(buildType(Main.class, factory));
+
+    long hits = statistics.get().getHits();
+    LookupResult lookupResult = resolutionResult.lookupVirtualDispatchTargets(context, appView);
+    assertEquals(
+        ImmutableSet.of(A.class.getTypeName(), B.class.getTypeName()),
+        getTargetHolders(lookupResult));
+    assertSame(lookupResult, resolutionResult.lookupVirtualDispatchTargets(context, appView));
+    assertEquals(hits + 1, statistics.get().getHits());
+
+    // Removing B from the instantiated types must invalidate the cached dispatch targets.
+    AppInfoWithLivenessModifier modifier = AppInfoWithLiveness.modifier();
+    modifier.removeInstantiatedType(
+        appView.definitionForProgramType(buildType(B.class, factory)));
+    modifier.modify(appInfo);
+    assertEquals(
+        ImmutableSet.of(A.class.getTypeName()),
+        getTargetHolders(resolutionResult.lookupVirtualDispatchTargets(context, appView)));
+    assertEquals(hits + 1, statistics.get().getHits());
+  }
+
+  private static Set<String> getTargetHolders(LookupResult lookupResult) {
+    assertTrue(lookupResult.isLookupResultSuccess());
+    Set<String> holders = new HashSet<>();
+    lookupResult
+        .asLookupResultSuccess()
+        .forEach(
+            target -> holders.add(target.getHolder().getType().getTypeName()), lambda -> fail());
+    return holders;
+  }
+
+  interface I {
+
+    void m();
+  }
+
+  @NeverClassInline
+  @NoHorizontalClassMerging
+  static class A implements I {
+
+    @NeverInline
+    @Override
+    public void m() {
+      System.out.println("A");
+    }
+  }
+
+  @NeverClassInline
+  @NoHorizontalClassMerging
+  static class B implements I {
+
+    @NeverInline
+    @Override
+    public void m() {
+      System.out.println("B");
+    }
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      I[] instances = new I[] {new A(), new B()};
+      callFirst(instances);
+      callSecond(instances);
+    }
+
+    @NeverInline
+    static void callFirst(I[] instances) {
+      for (I instance : instances) {
+        instance.m();
+      }
+    }
+
+    @NeverInline
+    static void callSecond(I[] instances) {
+      for (I instance : instances) {
+        instance.m();
+      }
+    }
+  }
+}
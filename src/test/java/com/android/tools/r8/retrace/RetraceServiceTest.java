@@ -0,0 +1,170 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.retrace.RetraceService.RetraceServiceException;
+import com.android.tools.r8.utils.StringUtils;
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class RetraceServiceTest extends TestBase {
+
+  private static final int NUMBER_OF_THREADS = 16;
+  private static final int NUMBER_OF_REQUESTS = 100;
+
+  private static final List<String> STACKTRACE =
+      ImmutableList.of("java.lang.RuntimeException", "\tat a.a(SourceFile:1)");
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public RetraceServiceTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  private static String mapping(String mapId, String methodName) {
+    return StringUtils.lines(
+        "# pg_map_id: " + mapId,
+        "com.example.Main -> a:",
+        "    1:1:void " + methodName + "():10:10 -> a");
+  }
+
+  private static List<String> expected(String methodName) {
+    return ImmutableList.of(
+        "java.lang.RuntimeException", "\tat com.example.Main." + methodName + "(Main.java:10)");
+  }
+
+  private static RetraceService createService(int maxCachedMappings, AtomicInteger lookups) {
+    return RetraceService.builder()
+        .setMappingLookup(
+            mapId -> {
+              lookups.incrementAndGet();
+              return mapId.startsWith("missing")
+                  ? null
+                  : ProguardMapProducer.fromString(mapping(mapId, "method" + mapId));
+            })
+        .setMaxCachedMappings(maxCachedMappings)
+        .build();
+  }
+
+  @Test
+  public void testCacheHitsAndEviction() {
+    AtomicInteger lookups = new AtomicInteger();
+    RetraceService service = createService(2, lookups);
+    assertEquals(expected("method1"), service.retrace("1", STACKTRACE));
+    assertEquals(expected("method1"), service.retrace("1", STACKTRACE));
+    assertEquals(expected("method2"), service.retrace("2", STACKTRACE));
+    assertEquals(expected("method1"), service.retrace("1", STACKTRACE));
+    // Evicts the mapping of 2, which is the least recently used.
+    assertEquals(expected("method3"), service.retrace("3", STACKTRACE));
+    assertEquals(expected("method1"), service.retrace("1", STACKTRACE));
+    assertEquals(expected("method2"), service.retrace("2", STACKTRACE));
+    assertEquals(7, service.getRequestCount());
+    assertEquals(3, service.getCacheHitCount());
+    assertEquals(4, service.getCacheMissCount());
+    assertEquals(2, service.getEvictionCount());
+    assertEquals(2, service.getCachedMappingCount());
+    assertEquals(4, lookups.get());
+  }
+
+  @Test
+  public void testMissingMapping() {
+    AtomicInteger lookups = new AtomicInteger();
+    RetraceService service = createService(2, lookups);
+    assertThrows(RetraceServiceException.class, () -> service.retrace("missing", STACKTRACE));
+    assertThrows(RetraceServiceException.class, () -> service.retrace("missing", STACKTRACE));
+    assertEquals(0, service.getCachedMappingCount());
+    assertEquals(2, lookups.get());
+  }
+
+  @Test
+  public void testConcurrentRetrace() throws Exception {
+    AtomicInteger lookups = new AtomicInteger();
+    RetraceService service = createService(4, lookups);
+    ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < NUMBER_OF_REQUESTS; i++) {
+                    String mapId = Integer.toString(i % 4);
+                    assertEquals(expected("method" + mapId), service.retrace(mapId, STACKTRACE));
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(NUMBER_OF_THREADS * NUMBER_OF_REQUESTS, service.getRequestCount());
+    assertEquals(4, service.getCacheMissCount());
+    assertEquals(4, lookups.get());
+  }
+
+  @Test
+  public void testServeMappingDirectory() throws Exception {
+    Path directory = temp.newFolder().toPath();
+    Files.write(
+        directory.resolve("first.txt"), mapping("abcdef", "first").getBytes(StandardCharsets.UTF_8));
+    Files.write(
+        directory.resolve("second.txt"),
+        StringUtils.lines("com.example.Main -> a:", "    1:1:void second():10:10 -> a")
+            .getBytes(StandardCharsets.UTF_8));
+    RetraceService service =
+        RetraceService.builder()
+            .setMappingLookup(RetraceService.createMappingDirectoryLookup(directory))
+            .build();
+    String input =
+        StringUtils.lines(
+            "retrace abcdef 2",
+            STACKTRACE.get(0),
+            STACKTRACE.get(1),
+            "retrace second 2",
+            STACKTRACE.get(0),
+            STACKTRACE.get(1),
+            "retrace unknown 0",
+            "quit");
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    service.serve(
+        new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+        new PrintStream(output, true, "UTF-8"));
+    List<String> expected = new ArrayList<>();
+    expected.add("ok 2");
+    expected.addAll(expected("first"));
+    expected.add("ok 2");
+    expected.addAll(expected("second"));
+    expected.add("error No mapping file for map id: unknown");
+    assertEquals(
+        StringUtils.lines(expected), new String(output.toByteArray(), StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,91 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace.partition;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.PartitionMapConsumer;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestDiagnosticMessagesImpl;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.retrace.MappingPartitionFromKeySupplier;
+import com.android.tools.r8.retrace.MappingPartitionMetadata;
+import com.android.tools.r8.retrace.PartitionMappingSupplier;
+import com.android.tools.r8.retrace.PartitionedToProguardMappingConverter;
+import com.android.tools.r8.retrace.ProguardMapPartitioner;
+import com.android.tools.r8.retrace.ProguardMapProducer;
+import com.android.tools.r8.utils.PartitionMapBinaryContainer;
+import com.android.tools.r8.utils.StringUtils;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class RetracePartitionBinaryContainerTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public RetracePartitionBinaryContainerTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Path mappingFile =
+        ToolHelper.RETRACE_MAPS_DIR.resolve(
+            "ad5c3e88ef2bae5ef324eb225fbc57345cd57863-r8lib.jar.map");
+    Path container = temp.newFolder().toPath().resolve("mapping.bin");
+    TestDiagnosticMessagesImpl diagnosticsHandler = new TestDiagnosticMessagesImpl();
+    PartitionMapConsumer consumer =
+        PartitionMapBinaryContainer.createPartitionMapBinaryContainerConsumer(container);
+    Map<String, byte[]> partitions = new HashMap<>();
+    MappingPartitionMetadata metadata =
+        ProguardMapPartitioner.builder(diagnosticsHandler)
+            .setProguardMapProducer(ProguardMapProducer.fromPath(mappingFile))
+            .setPartitionConsumer(
+                partition -> {
+                  partitions.put(partition.getKey(), partition.getPayload());
+                  consumer.acceptMappingPartition(partition);
+                })
+            .build()
+            .run();
+    consumer.acceptMappingPartitionMetadata(metadata);
+    consumer.finished(diagnosticsHandler);
+    diagnosticsHandler.assertNoMessages();
+
+    assertTrue(PartitionMapBinaryContainer.isPartitionMapBinaryContainer(container));
+    assertTrue(Files.size(container) < Files.size(mappingFile));
+
+    PartitionMappingSupplier mappingSupplier =
+        PartitionMapBinaryContainer.createPartitionMapBinaryContainerSupplier(container);
+    MappingPartitionFromKeySupplier partitionSupplier =
+        mappingSupplier.getMappingPartitionFromKeySupplier();
+    partitions.forEach((key, payload) -> assertArrayEquals(payload, partitionSupplier.get(key)));
+    assertEquals(0, partitionSupplier.get("does.not.Exist").length);
+
+    StringBuilder builder = new StringBuilder();
+    PartitionedToProguardMappingConverter.builder()
+        .setDiagnosticsHandler(diagnosticsHandler)
+        .setPartitionMappingSupplier(mappingSupplier)
+        .setConsumer((string, handler) -> builder.append(string))
+        .build()
+        .run();
+    List<String> joinedMapLines = StringUtils.splitLines(builder.toString());
+    assertListsAreEqual(Files.readAllLines(mappingFile), joinedMapLines);
+  }
+}
@@ -0,0 +1,97 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.R8TestCompileResult;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class EnqueuerConcurrentCodeParsingTest extends TestBase {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withDexRuntimes().withMaximumApiLevel().build();
+  }
+
+  private final TestParameters parameters;
+
+  public EnqueuerConcurrentCodeParsingTest(TestParameters parameters) {
+    this.parameters = parameters;
+  }
+
+  @Test
+  public void test() throws Exception {
+    Set<String> sequentiallyParsedClasses = ConcurrentHashMap.newKeySet();
+    Path sequential = compile(false, sequentiallyParsedClasses);
+    assertTrue(sequentiallyParsedClasses.isEmpty());
+
+    Set<String> concurrentlyParsedClasses = ConcurrentHashMap.newKeySet();
+    Path concurrent = compile(true, concurrentlyParsedClasses);
+    assertFalse(concurrentlyParsedClasses.isEmpty());
+
+    assertProgramsEqual(sequential, concurrent);
+  }
+
+  private Path compile(boolean enableConcurrentCodeParsing, Set<String> concurrentlyParsedClasses)
+      throws Exception {
+    R8TestCompileResult compileResult =
+        testForR8(parameters.getBackend())
+            .addInnerClasses(getClass())
+            .addKeepMainRule(Main.class)
+            .addOptionsModification(
+                options -> {
+                  options.enableEnqueuerConcurrentCodeParsing = enableConcurrentCodeParsing;
+                  options.enqueuerConcurrentCodeParsingThreshold = 1;
+                  options.testing.enqueuerConcurrentCodeParsingConsumer =
+                      clazz -> concurrentlyParsedClasses.add(clazz.getTypeName());
+                })
+            .setMinApi(parameters)
+            .compile();
+    compileResult
+        .run(parameters.getRuntime(), Main.class)
+        .assertSuccessWithOutputLines("A", "B", "C");
+    return compileResult.writeToZip();
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      new A().m();
+    }
+  }
+
+  static class A {
+
+    void m() {
+      System.out.println("A");
+      new B().m();
+    }
+  }
+
+  static class B {
+
+    void m() {
+      System.out.println("B");
+      new C().m();
+    }
+  }
+
+  static class C {
+
+    void m() {
+      System.out.println("C");
+    }
+  }
+}
@@ -0,0 +1,127 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.shaking;
+
+import static com.android.tools.r8.utils.codeinspector.Matchers.isAbsent;
+import static com.android.tools.r8.utils.codeinspector.Matchers.isPresent;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.utils.InternalOptions.TestingOptions.ProguardRuleEvaluationData;
+import com.android.tools.r8.utils.ThrowingConsumer;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests that keep rules with a literal class name prefix are only matched against the classes
+ * whose name starts with the prefix.
+ */
+@RunWith(Parameterized.class)
+public class ProguardRuleClassNamePrefixIndexTest extends TestBase {
+
+  private static final String PREFIX = ProguardRuleClassNamePrefixIndexTest.class.getTypeName();
+
+  @Parameter(0)
+  public TestParameters parameters;
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withDefaultRuntimes().withMinimumApiLevel().build();
+  }
+
+  @Test
+  public void testRuleWithoutMatchingPrefix() throws Exception {
+    int baseline = runTest(inspector -> assertThat(inspector.clazz(KeptA.class), isAbsent()));
+    int evaluations =
+        runTest(
+            inspector -> assertThat(inspector.clazz(KeptA.class), isAbsent()),
+            "-keep class com.example.** { *; }");
+    assertEquals(baseline, evaluations);
+  }
+
+  @Test
+  public void testRuleWithPrefix() throws Exception {
+    int baseline = runTest(inspector -> assertThat(inspector.clazz(KeptA.class), isAbsent()));
+    int evaluations =
+        runTest(
+            inspector -> {
+              assertThat(inspector.clazz(KeptA.class), isPresent());
+              assertThat(inspector.clazz(KeptB.class), isPresent());
+              assertThat(inspector.clazz(NotKept.class), isAbsent());
+            },
+            "-keep class " + PREFIX + "$Kept* { *; }");
+    assertEquals(baseline + 2, evaluations);
+  }
+
+  @Test
+  public void testRuleWithNegatedClassName() throws Exception {
+    int baseline = runTest(inspector -> assertThat(inspector.clazz(KeptA.class), isAbsent()));
+    int evaluations =
+        runTest(
+            inspector -> {
+              assertThat(inspector.clazz(KeptA.class), isPresent());
+              assertThat(inspector.clazz(KeptB.class), isAbsent());
+              assertThat(inspector.clazz(NotKept.class), isAbsent());
+            },
+            "-keep class !" + PREFIX + "$KeptB," + PREFIX + "$Kept* { *; }");
+    assertEquals(baseline + 2, evaluations);
+  }
+
+  @Test
+  public void testRuleWithNegatedClassNameLast() throws Exception {
+    runTest(
+        inspector -> {
+          assertThat(inspector.clazz(KeptA.class), isPresent());
+          assertThat(inspector.clazz(KeptB.class), isPresent());
+          assertThat(inspector.clazz(NotKept.class), isAbsent());
+        },
+        "-keep class !" + PREFIX + "$NotKept,!" + PREFIX + "$Main { *; }");
+  }
+
+  private int runTest(
+      ThrowingConsumer<CodeInspector, RuntimeException> inspection, String... keepRules)
+      throws Exception {
+    class Box {
+      private ProguardRuleEvaluationData data;
+    }
+    Box box = new Box();
+    testForR8(parameters.getBackend())
+        .addInnerClasses(getClass())
+        .addKeepMainRule(Main.class)
+        .addKeepRules(keepRules)
+        .addOptionsModification(
+            options -> {
+              options.testing.measureProguardRuleEvaluations = true;
+              box.data = options.testing.proguardRuleEvaluationData;
+            })
+        .allowUnusedProguardConfigurationRules()
+        .setMinApi(parameters)
+        .compile()
+        .inspect(inspection)
+        .run(parameters.getRuntime(), Main.class)
+        .assertSuccessWithOutputLines("Hello, world!");
+    return box.data.numberOfProguardRuleClassEvaluations.get();
+  }
+
+  static class KeptA {}
+
+  static class KeptB {}
+
+  static class NotKept {}
+
+  static class Main {
+
+    public static void main(String[] args) {
+      System.out.println("Hello, world!");
+    }
+  }
+}
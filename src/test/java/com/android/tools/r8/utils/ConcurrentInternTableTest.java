@@ -0,0 +1,102 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ConcurrentInternTableTest {
+
+  private static final int NUMBER_OF_THREADS = 32;
+  private static final int NUMBER_OF_ITEMS = 10000;
+
+  @Test
+  public void testIntern() {
+    ConcurrentInternTable<String, String> table = ConcurrentInternTable.create();
+    for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+      String value = Integer.toString(i);
+      assertSame(value, table.intern(value));
+      assertSame(value, table.intern(new String(value)));
+    }
+    assertEquals(NUMBER_OF_ITEMS, table.size());
+    assertEquals(NUMBER_OF_ITEMS, new HashSet<>(table.values()).size());
+    assertNull(table.get("-1"));
+    assertNull(table.putIfAbsent("-1"));
+    assertEquals("-1", table.putIfAbsent(new String("-1")));
+  }
+
+  @Test
+  public void testKeyFunction() {
+    ConcurrentInternTable<Integer, String> table = ConcurrentInternTable.create(Integer::valueOf);
+    for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+      String value = table.computeIfAbsent(i, Object::toString);
+      assertSame(value, table.computeIfAbsent(i, Object::toString));
+      assertSame(value, table.get(i));
+    }
+    assertEquals(NUMBER_OF_ITEMS, table.size());
+  }
+
+  @Test
+  public void testSmallKeysAreSpreadOverSegments() {
+    // The debug event tables of the DexItemFactory are keyed by small integers.
+    ConcurrentInternTable<Integer, String> table = ConcurrentInternTable.create(Integer::valueOf);
+    for (int i = -256; i < 256; i++) {
+      table.computeIfAbsent(i, Object::toString);
+    }
+    assertTrue(table.getNumberOfNonEmptySegments() > 32);
+  }
+
+  @Test
+  public void testConcurrentIntern() throws Exception {
+    ConcurrentInternTable<Integer, String> table = ConcurrentInternTable.create(Integer::valueOf);
+    AtomicInteger computations = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+    try {
+      List<Future<List<String>>> futures = new ArrayList<>();
+      for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  List<String> values = new ArrayList<>(NUMBER_OF_ITEMS);
+                  for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+                    values.add(
+                        table.computeIfAbsent(
+                            i,
+                            key -> {
+                              computations.incrementAndGet();
+                              return key.toString();
+                            }));
+                  }
+                  return values;
+                }));
+      }
+      List<String> expected = futures.get(0).get();
+      for (Future<List<String>> future : futures) {
+        List<String> values = future.get();
+        for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+          assertSame(expected.get(i), values.get(i));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(NUMBER_OF_ITEMS, computations.get());
+    assertEquals(NUMBER_OF_ITEMS, table.size());
+    Set<String> values = new HashSet<>(table.values());
+    assertEquals(NUMBER_OF_ITEMS, values.size());
+  }
+}
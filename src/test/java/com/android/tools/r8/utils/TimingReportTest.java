@@ -0,0 +1,238 @@
+// Copyright (c) 2023, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.CompilationFailedException;
+import com.android.tools.r8.D8;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.TimingReportFormat;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.utils.Timing.TimingMerger;
+import com.google.common.collect.ImmutableList;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TimingReportTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public TimingReportTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testD8Json() throws Exception {
+    StringBuilder report = new StringBuilder();
+    testForD8(Backend.DEX)
+        .addInnerClasses(getClass())
+        .setMinApi(AndroidApiLevel.B)
+        .apply(
+            b ->
+                b.getBuilder()
+                    .setTimingReportConsumer(
+                        TimingReportFormat.JSON, (string, handler) -> report.append(string)))
+        .compile();
+    JsonObject json = new JsonParser().parse(report.toString()).getAsJsonObject();
+    assertEquals(1, json.get("version").getAsInt());
+    JsonObject root = json.getAsJsonObject("root");
+    assertTrue(root.get("title").getAsString().startsWith("D8"));
+    assertTrue(root.get("wallTimeNs").getAsLong() > 0);
+    assertTrue(root.get("cpuTimeNs").getAsLong() >= 0);
+    assertTrue(root.get("allocatedBytes").getAsLong() >= 0);
+    assertTrue(root.has("peakHeapBytes"));
+    assertTrue(root.has("gcTimeMs"));
+    JsonArray children = root.getAsJsonArray("children");
+    assertTrue(children.size() > 0);
+    for (JsonElement child : children) {
+      JsonObject phase = child.getAsJsonObject();
+      assertTrue(phase.has("title"));
+      assertTrue(phase.get("wallTimeNs").getAsLong() <= root.get("wallTimeNs").getAsLong());
+    }
+  }
+
+  @Test
+  public void testD8JsonOnFailure() throws Exception {
+    StringBuilder report = new StringBuilder();
+    D8Command command =
+        D8Command.builder()
+            .addProgramFiles(ToolHelper.getClassFileForTestClass(Main.class))
+            .setMinApiLevel(AndroidApiLevel.B.getLevel())
+            .setProgramConsumer(
+                new DexIndexedConsumer.ForwardingConsumer(null) {
+                  @Override
+                  public void accept(
+                      int fileIndex,
+                      ByteDataView data,
+                      Set<String> descriptors,
+                      DiagnosticsHandler handler) {
+                    throw new RuntimeException("Failed to write output");
+                  }
+                })
+            .setTimingReportConsumer(
+                TimingReportFormat.JSON, (string, handler) -> report.append(string))
+            .build();
+    assertThrows(CompilationFailedException.class, () -> D8.run(command));
+    // The phases that were open when the compilation failed are ended in the report.
+    JsonObject json = new JsonParser().parse(report.toString()).getAsJsonObject();
+    JsonObject root = json.getAsJsonObject("root");
+    assertTrue(root.get("title").getAsString().startsWith("D8"));
+    assertTrue(root.get("wallTimeNs").getAsLong() > 0);
+    assertTrue(root.getAsJsonArray("children").size() > 0);
+  }
+
+  @Test
+  public void testR8ChromeTrace() throws Exception {
+    StringBuilder report = new StringBuilder();
+    testForR8(Backend.DEX)
+        .addInnerClasses(getClass())
+        .addKeepMainRule(Main.class)
+        .setMinApi(AndroidApiLevel.B)
+        .apply(
+            b ->
+                b.getBuilder()
+                    .setTimingReportConsumer(
+                        TimingReportFormat.CHROME_TRACE,
+                        (string, handler) -> report.append(string)))
+        .compile();
+    JsonObject json = new JsonParser().parse(report.toString()).getAsJsonObject();
+    JsonArray events = json.getAsJsonArray("traceEvents");
+    int completeEvents = 0;
+    for (JsonElement element : events) {
+      JsonObject event = element.getAsJsonObject();
+      String phase = event.get("ph").getAsString();
+      assertTrue(phase.equals("X") || phase.equals("M"));
+      if (phase.equals("X")) {
+        completeEvents++;
+        assertTrue(event.get("ts").getAsDouble() >= 0);
+        assertTrue(event.get("dur").getAsDouble() >= 0);
+        assertTrue(event.has("tid"));
+        assertTrue(event.getAsJsonObject("args").has("cpuTimeNs"));
+      }
+    }
+    assertTrue(completeEvents > 1);
+  }
+
+  @Test
+  public void testR8JsonCacheCounters() throws Exception {
+    StringBuilder report = new StringBuilder();
+    testForR8(Backend.DEX)
+        .addInnerClasses(getClass())
+        .addKeepMainRule(Main.class)
+        .addOptionsModification(options -> options.testing.enableMethodResolutionCache = true)
+        .setMinApi(AndroidApiLevel.B)
+        .apply(
+            b ->
+                b.getBuilder()
+                    .setTimingReportConsumer(
+                        TimingReportFormat.JSON, (string, handler) -> report.append(string)))
+        .compile();
+    JsonObject json = new JsonParser().parse(report.toString()).getAsJsonObject();
+    JsonObject counters = json.getAsJsonObject("root").getAsJsonObject("counters");
+    long hits = counters.get("Method resolution cache hits").getAsLong();
+    long misses = counters.get("Method resolution cache misses").getAsLong();
+    assertTrue(hits + misses > 0);
+    assertFalse(counters.has("Graph lens lookup cache hits"));
+  }
+
+  @Test
+  public void testMergeCounters() {
+    Timing timing = Timing.create("top", false);
+    timing.addCounter("counter", 1);
+    TimingMerger merger = timing.beginMerger("merge", 2);
+    List<Timing> tasks = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      Timing task = Timing.create("task", false);
+      task.begin("phase");
+      task.addCounter("counter", 2);
+      task.end();
+      task.end();
+      tasks.add(task);
+    }
+    merger.add(tasks);
+    merger.end();
+    JsonObject root =
+        new JsonParser()
+            .parse(TimingExporter.toJson(timing.finish()))
+            .getAsJsonObject()
+            .getAsJsonObject("root");
+    assertEquals(1, root.getAsJsonObject("counters").get("counter").getAsLong());
+    JsonObject phase =
+        root.getAsJsonArray("children")
+            .get(0)
+            .getAsJsonObject()
+            .getAsJsonArray("children")
+            .get(0)
+            .getAsJsonObject();
+    assertEquals("phase", phase.get("title").getAsString());
+    assertEquals(4, phase.getAsJsonObject("counters").get("counter").getAsLong());
+  }
+
+  @Test
+  public void testMergeCoreUtilization() throws Exception {
+    Timing timing = Timing.create("top", false);
+    TimingMerger merger = timing.beginMerger("merge", 1);
+    Timing task = Timing.create("task", false);
+    Thread.sleep(10);
+    task.end();
+    long taskDuration = task.finish().duration();
+    merger.add(ImmutableList.of(task), taskDuration);
+    // The time spent in the merger after the tasks is not part of the time of the tasks.
+    Thread.sleep(50);
+    merger.end();
+    JsonObject json =
+        new JsonParser().parse(TimingExporter.toJson(timing.finish())).getAsJsonObject();
+    JsonObject merge =
+        json.getAsJsonObject("root").getAsJsonArray("children").get(0).getAsJsonObject();
+    assertEquals("merge", merge.get("title").getAsString());
+    assertEquals(taskDuration, merge.get("mergedTimeNs").getAsLong());
+    assertEquals(1.0, merge.get("coreUtilization").getAsDouble(), 0.0);
+    assertTrue(merge.get("wallTimeNs").getAsLong() >= 50_000_000);
+  }
+
+  @Test
+  public void testMetricsArePerTiming() {
+    Timing failed = Timing.createWithMemoryMetrics("failed");
+    failed.begin("phase");
+    // The compilation of the failed timing does not end its phases.
+    Timing timing = Timing.createWithMemoryMetrics("timing");
+    timing.begin("phase");
+    timing.end();
+    timing.end();
+    assertEquals(0, timing.getNumberOfOpenPhasesWithMetrics());
+    assertEquals(2, failed.getNumberOfOpenPhasesWithMetrics());
+    assertTrue(timing.getMemoryMetrics().getPeakHeapBytes() > 0);
+    assertTrue(timing.getMemoryMetrics("phase").getPeakHeapBytes() > 0);
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      System.out.println("Hello, world!");
+    }
+  }
+}